@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger;
+
+import io.netty.buffer.ByteBuf;
+import java.util.List;
+import org.apache.pulsar.common.classification.InterfaceAudience;
+import org.apache.pulsar.common.classification.InterfaceStability;
+
+/**
+ * Coalesces the entries added concurrently to a managed ledger into a single entry, when the group commit of the
+ * managed ledger is enabled, see {@link ManagedLedgerConfig#setAddEntryGroupCommitMaxDelayMicros(long)}.
+ *
+ * <p/>The format of the entries is only known by the application, the coalesced entry must allow the readers to
+ * retrieve each of the original entries, for instance as the messages of a batch.
+ */
+@InterfaceAudience.LimitedPrivate
+@InterfaceStability.Evolving
+public interface AddEntryCoalescer {
+
+    /**
+     * Key of an entry which can be coalesced with other entries.
+     *
+     * @param source the source of the entry, such as its producer. The entries of a source are persisted in the order
+     *               in which they were added
+     * @param attributes the attributes of the entry. An entry is only coalesced with the previous entries of its source
+     *                   while they have equal attributes
+     */
+    record CoalescingKey(Object source, Object attributes) {
+    }
+
+    /**
+     * Get the coalescing key of an entry.
+     *
+     * @param entry the entry, its reader index must be left unchanged
+     * @return the key, or null if the entry can't be coalesced with other entries
+     */
+    CoalescingKey getCoalescingKey(ByteBuf entry);
+
+    /**
+     * Coalesce entries of the same source with equal attributes.
+     *
+     * @param entries the entries, in the order in which they were added, they are released by the caller
+     * @return the coalesced entry, owned by the caller
+     */
+    ByteBuf coalesce(List<ByteBuf> entries);
+}
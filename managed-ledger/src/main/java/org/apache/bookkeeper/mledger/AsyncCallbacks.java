@@ -73,6 +73,21 @@ public interface AsyncCallbacks {
     interface AddEntryCallback {
         void addComplete(Position position, ByteBuf entryData, Object ctx);
 
+        /**
+         * Called instead of {@link #addComplete(Position, ByteBuf, Object)} when the entry was coalesced with other
+         * entries by the group commit, see {@link AddEntryCoalescer}.
+         *
+         * @param position the position of the coalesced entry
+         * @param entryData the data of the coalesced entry
+         * @param coalescedIndex the index of the added entry among the entries which were coalesced
+         * @param coalescedCount the number of entries which were coalesced
+         * @param ctx the context of the add operation
+         */
+        default void addComplete(Position position, ByteBuf entryData, int coalescedIndex, int coalescedCount,
+                                 Object ctx) {
+            addComplete(position, entryData, ctx);
+        }
+
         void addFailed(ManagedLedgerException exception, Object ctx);
     }
 
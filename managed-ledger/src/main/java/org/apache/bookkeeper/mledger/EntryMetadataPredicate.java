@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger;
+
+import io.netty.buffer.ByteBuf;
+import java.util.function.Predicate;
+import org.apache.pulsar.common.api.proto.BrokerEntryMetadata;
+import org.apache.pulsar.common.api.proto.MessageMetadata;
+import org.apache.pulsar.common.classification.InterfaceAudience;
+import org.apache.pulsar.common.classification.InterfaceStability;
+import org.apache.pulsar.common.protocol.Commands;
+
+/**
+ * Condition evaluated on the metadata of the entries of a managed ledger only, see
+ * {@link ManagedCursor#scanMetadata(java.util.Optional, EntryMetadataPredicate, int, int, long, long)}.
+ *
+ * <p/>The metadata are parsed in place from the buffer of the entry, they are reused for the next entries and must
+ * not be retained once the condition has returned.
+ */
+@InterfaceAudience.LimitedPrivate
+@InterfaceStability.Evolving
+@FunctionalInterface
+public interface EntryMetadataPredicate {
+
+    /**
+     * @param position the position of the entry
+     * @param brokerEntryMetadata the broker entry metadata of the entry, or null if the entry has none
+     * @param messageMetadata the metadata of the message, or of the batch of messages, of the entry
+     * @return true to continue the scan, false to interrupt it
+     */
+    boolean test(Position position, BrokerEntryMetadata brokerEntryMetadata, MessageMetadata messageMetadata);
+
+    /**
+     * @return a condition on the entries which parses their metadata in place and evaluates this condition, the
+     * returned condition reuses the parsed metadata and must not be called concurrently
+     */
+    default Predicate<Entry> toEntryPredicate() {
+        final BrokerEntryMetadata brokerEntryMetadata = new BrokerEntryMetadata();
+        final MessageMetadata messageMetadata = new MessageMetadata();
+        return entry -> {
+            ByteBuf data = entry.getDataBuffer();
+            int readerIndex = data.readerIndex();
+            try {
+                BrokerEntryMetadata entryMetadata = null;
+                if (data.getShort(readerIndex) == Commands.magicBrokerEntryMetadata) {
+                    data.skipBytes(2);
+                    int brokerEntryMetadataSize = data.readInt();
+                    brokerEntryMetadata.parseFrom(data, brokerEntryMetadataSize);
+                    entryMetadata = brokerEntryMetadata;
+                }
+                Commands.parseMessageMetadata(data, messageMetadata);
+                return test(entry.getPosition(), entryMetadata, messageMetadata);
+            } finally {
+                data.readerIndex(readerIndex);
+            }
+        };
+    }
+}
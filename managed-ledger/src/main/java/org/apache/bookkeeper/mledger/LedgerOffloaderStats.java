@@ -50,6 +50,16 @@ public interface LedgerOffloaderStats extends AutoCloseable {
 
     void recordDeleteOffloadOps(String topic, boolean succeed);
 
+    void recordReadOffloadBlockCacheHit(String topic);
+
+    void recordReadOffloadBlockCacheMiss(String topic);
+
+    void recordReadOffloadPrefetch(String topic, long size);
+
+    void recordReadOffloadIndexCacheHit(String topic);
+
+    void recordReadOffloadIndexCacheMiss(String topic);
+
 
     static LedgerOffloaderStats create(boolean exposeManagedLedgerStats, boolean exposeTopicLevelMetrics,
                                        ScheduledExecutorService scheduler, int interval) {
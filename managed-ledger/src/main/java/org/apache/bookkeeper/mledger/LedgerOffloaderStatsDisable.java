@@ -73,6 +73,31 @@ public class LedgerOffloaderStatsDisable implements LedgerOffloaderStats {
 
     }
 
+    @Override
+    public void recordReadOffloadBlockCacheHit(String topic) {
+
+    }
+
+    @Override
+    public void recordReadOffloadBlockCacheMiss(String topic) {
+
+    }
+
+    @Override
+    public void recordReadOffloadPrefetch(String topic, long size) {
+
+    }
+
+    @Override
+    public void recordReadOffloadIndexCacheHit(String topic) {
+
+    }
+
+    @Override
+    public void recordReadOffloadIndexCacheMiss(String topic) {
+
+    }
+
     @Override
     public void close() throws Exception {
 
@@ -614,6 +614,32 @@ public interface ManagedCursor {
         return CompletableFuture.failedFuture(new UnsupportedOperationException());
     }
 
+    /**
+     * Scan the cursor from the current position up to the end, evaluating a condition on the metadata of the entries
+     * only. The metadata are parsed in place from the entries read, without copying nor deserializing the payloads.
+     *
+     * <p/>When the parallelism is greater than 1, up to that number of ledgers are scanned concurrently: the
+     * condition is then called from multiple threads and the entries of different ledgers are not passed in order.
+     * The scanned entries are still the first <tt>maxEntries</tt> entries from the start position.
+     *
+     * <p/>The default implementation delegates to {@link #scan(Optional, Predicate, int, long, long)}, parsing the
+     * metadata of the entries read, and ignores the parallelism.
+     *
+     * @param startingPosition the position to start from, if not provided the scan will start from
+     *                         the lastDeleteMarkPosition
+     * @param condition a condition to continue the scan, the condition can access the metadata of the entry
+     * @param batchSize number of entries to process at each read
+     * @param parallelism maximum number of ledgers to scan concurrently
+     * @param maxEntries maximum number of entries to scan
+     * @param timeOutMs maximum time to spend on this operation
+     */
+    default CompletableFuture<ScanOutcome> scanMetadata(Optional<Position> startingPosition,
+                                                        EntryMetadataPredicate condition,
+                                                        int batchSize, int parallelism,
+                                                        long maxEntries, long timeOutMs) {
+        return scan(startingPosition, condition.toEntryPredicate(), batchSize, maxEntries, timeOutMs);
+    }
+
     /**
      * Find the newest entry that matches the given predicate.
      *
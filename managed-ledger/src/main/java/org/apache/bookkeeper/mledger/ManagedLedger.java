@@ -20,9 +20,12 @@ package org.apache.bookkeeper.mledger;
 
 import com.google.common.collect.Range;
 import io.netty.buffer.ByteBuf;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.Optional;
+import java.util.SortedSet;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Predicate;
 import org.apache.bookkeeper.common.annotation.InterfaceAudience;
@@ -709,6 +712,45 @@ public interface ManagedLedger {
      * */
     CompletableFuture<Position> asyncFindPosition(Predicate<Entry> predicate);
 
+    /**
+     * Find the newest position matching a predicate within a range of positions.
+     *
+     * <p/>The range is usually the one returned by {@link #findIndexedRangeByTimestamp(long, long)} or
+     * {@link #findIndexedRangeByIndex(long)}, so that only the entries within it are read.
+     *
+     * @param predicate the predicate, which must match the entries up to a position and none after it
+     * @param range the range of positions to search
+     */
+    default CompletableFuture<Position> asyncFindPosition(Predicate<Entry> predicate, Range<Position> range) {
+        return asyncFindPosition(predicate);
+    }
+
+    /**
+     * Find, from the sparse entry index, the range of positions within which is the newest entry published before a
+     * given timestamp.
+     *
+     * <p/>The publish timestamps of the entries are set by the producers and may not increase with the positions, the
+     * range is widened to the sampled entries published within {@code maxClockSkewMillis} of the timestamp.
+     *
+     * @param timestamp the publish timestamp
+     * @param maxClockSkewMillis the maximum clock skew between the producers
+     * @return the range, or {@link Optional#empty()} if the entries are not indexed
+     */
+    default Optional<Range<Position>> findIndexedRangeByTimestamp(long timestamp, long maxClockSkewMillis) {
+        return Optional.empty();
+    }
+
+    /**
+     * Find, from the sparse entry index, the range of positions within which is the newest entry whose broker entry
+     * metadata index is lower than a given index.
+     *
+     * @param index the broker entry metadata index
+     * @return the range, or {@link Optional#empty()} if the entries are not indexed
+     */
+    default Optional<Range<Position>> findIndexedRangeByIndex(long index) {
+        return Optional.empty();
+    }
+
     /**
      * Get the ManagedLedgerInterceptor for ManagedLedger.
      * */
@@ -762,6 +804,77 @@ public interface ManagedLedger {
 
     void asyncReadEntry(Position position, AsyncCallbacks.ReadEntryCallback callback, Object ctx);
 
+    /**
+     * Read a sparse set of positions.
+     *
+     * <p/>The default implementation reads each position with {@link #asyncReadEntry}, all the reads being issued in
+     * parallel. Implementations may group the positions in runs of consecutive entries of the same ledger and read
+     * each run with a single range read. The operation fails if any of the reads fails.
+     *
+     * @param positions
+     *            the positions to read
+     * @param callback
+     *            callback object returning the entries, sorted by position
+     * @param ctx
+     *            opaque context
+     */
+    default void asyncReadEntries(SortedSet<? extends Position> positions,
+                                  AsyncCallbacks.ReadEntriesCallback callback, Object ctx) {
+        if (positions.isEmpty()) {
+            callback.readEntriesComplete(new ArrayList<>(), ctx);
+            return;
+        }
+        // the entries are kept in position order, whatever the order in which the reads complete
+        final Entry[] entries = new Entry[positions.size()];
+        final int[] pendingReads = {positions.size()};
+        final ManagedLedgerException[] exception = new ManagedLedgerException[1];
+        int index = 0;
+        for (Position position : positions) {
+            final int entryIndex = index++;
+            asyncReadEntry(position, new AsyncCallbacks.ReadEntryCallback() {
+                @Override
+                public void readEntryComplete(Entry entry, Object readCtx) {
+                    synchronized (entries) {
+                        if (exception[0] != null) {
+                            // a read of another position already failed, release the entry straight away
+                            entry.release();
+                        } else {
+                            entries[entryIndex] = entry;
+                        }
+                        onReadCompleted();
+                    }
+                }
+
+                @Override
+                public void readEntryFailed(ManagedLedgerException mle, Object readCtx) {
+                    synchronized (entries) {
+                        if (exception[0] == null) {
+                            exception[0] = mle;
+                            for (int i = 0; i < entries.length; i++) {
+                                if (entries[i] != null) {
+                                    entries[i].release();
+                                    entries[i] = null;
+                                }
+                            }
+                        }
+                        onReadCompleted();
+                    }
+                }
+
+                private void onReadCompleted() {
+                    if (--pendingReads[0] > 0) {
+                        return;
+                    }
+                    if (exception[0] != null) {
+                        callback.readEntriesFailed(exception[0], ctx);
+                    } else {
+                        callback.readEntriesComplete(new ArrayList<>(Arrays.asList(entries)), ctx);
+                    }
+                }
+            }, null);
+        }
+    }
+
     /**
      * Get all the managed ledgers.
      */
@@ -46,6 +46,7 @@ public class ManagedLedgerConfig {
     private int maxUnackedRangesToPersist = 10000;
     private int maxBatchDeletedIndexToPersist = 10000;
     private boolean persistentUnackedRangesWithMultipleEntriesEnabled = false;
+    private int persistentUnackedRangesSnapshotInterval = 100;
     private boolean deletionAtBatchIndexLevelEnabled = true;
     private int maxUnackedRangesToPersistInMetadataStore = 1000;
     private int maxEntriesPerLedger = 50000;
@@ -87,6 +88,68 @@ public class ManagedLedgerConfig {
     private int minimumBacklogCursorsForCaching = 0;
     private int minimumBacklogEntriesForCaching = 1000;
     private int maxBacklogBetweenCursorsForCaching = 1000;
+    /**
+     * Time to hold the catch-up reads of the cursors so that nearby reads on the same ledger can be coalesced into a
+     * single read. (Default = 0, catch-up reads are not coalesced)
+     */
+    @Getter
+    @Setter
+    private long catchUpReadCoalescingDelayMillis = 0;
+    /**
+     * Maximum number of entries of a coalesced catch-up read.
+     */
+    @Getter
+    @Setter
+    private int catchUpReadCoalescingMaxEntries = 1000;
+    /**
+     * Maximum number of entries between two catch-up reads that are coalesced. The entries in the gap are read as
+     * well, so that the coalesced read stays sequential.
+     */
+    @Getter
+    @Setter
+    private int catchUpReadCoalescingMaxGapEntries = 100;
+    /**
+     * Number of entries between two samples of the sparse entry index, which maps the timestamp and the broker entry
+     * metadata index of the entries to their position. The index of a ledger is stored in its metadata when the
+     * ledger is closed. (Default = 0, the entries are not indexed)
+     */
+    @Getter
+    @Setter
+    private int entryIndexInterval = 0;
+    /**
+     * Maximum number of samples of the sparse entry index of a ledger, the sampling interval of a ledger doubles when
+     * it's reached. The samples of all the ledgers are stored in the metadata of the managed ledger, which size is
+     * limited by the metadata store. (Default = 16)
+     */
+    @Getter
+    @Setter
+    private int entryIndexMaxSamplesPerLedger = 16;
+    /**
+     * Maximum time to hold the entries added concurrently so that the entries of the same source can be coalesced by
+     * the {@link #addEntryCoalescer} into a single entry, written with a single BookKeeper add. (Default = 0, the
+     * entries are not coalesced)
+     */
+    @Getter
+    @Setter
+    private long addEntryGroupCommitMaxDelayMicros = 0;
+    /**
+     * Maximum number of entries coalesced into a single entry by the group commit.
+     */
+    @Getter
+    @Setter
+    private int addEntryGroupCommitMaxEntries = 100;
+    /**
+     * Maximum size of the entries coalesced into a single entry by the group commit.
+     */
+    @Getter
+    @Setter
+    private int addEntryGroupCommitMaxBytes = 128 * 1024;
+    /**
+     * Coalescer of the entries of the group commit, which is only enabled when it's set.
+     */
+    @Getter
+    @Setter
+    private AddEntryCoalescer addEntryCoalescer;
     private boolean triggerOffloadOnTopicLoad = false;
     @Getter
     @Setter
@@ -96,6 +159,8 @@ public class ManagedLedgerConfig {
     private String shadowSourceName;
     @Getter
     private boolean persistIndividualAckAsLongArray;
+    @Getter
+    private boolean persistIndividualAckAsRunLength;
 
     public boolean isCreateIfMissing() {
         return createIfMissing;
@@ -111,6 +176,19 @@ public class ManagedLedgerConfig {
         return this;
     }
 
+    /**
+     * Persist the individually acknowledged messages of the cursors as runs of consecutive entry ids. The encoding is
+     * more compact than the long array one and the limit of {@link #getMaxUnackedRangesToPersist()} applies to the
+     * number of ack holes instead of the number of acknowledged entries. It takes precedence over
+     * {@link #isPersistIndividualAckAsLongArray()} and requires {@link #isUnackedRangesOpenCacheSetEnabled()}.
+     *
+     * @param persistIndividualAckAsRunLength whether to persist the individual acks as runs
+     */
+    public ManagedLedgerConfig setPersistIndividualAckAsRunLength(boolean persistIndividualAckAsRunLength) {
+        this.persistIndividualAckAsRunLength = persistIndividualAckAsRunLength;
+        return this;
+    }
+
     /**
      * @return the lazyCursorRecovery
      */
@@ -520,6 +598,30 @@ public class ManagedLedgerConfig {
         this.persistentUnackedRangesWithMultipleEntriesEnabled = multipleEntriesEnabled;
     }
 
+    /**
+     * @return the max number of incremental entries written to the cursor ledger between two full snapshots of the
+     *         individually deleted messages
+     */
+    public int getPersistentUnackedRangesSnapshotInterval() {
+        return persistentUnackedRangesSnapshotInterval;
+    }
+
+    /**
+     * When {@link #isPersistentUnackedRangesWithMultipleEntriesEnabled()} is enabled, each entry of the cursor ledger
+     * only contains the individually deleted messages of the ledgers that changed since the previous entry, and a full
+     * snapshot is written every {@code persistentUnackedRangesSnapshotInterval} entries. The recovery replays the
+     * entries since the last snapshot. Both kinds of entries are limited to {@link #getMaxUnackedRangesToPersist()}
+     * ranges, a snapshot is written instead of an incremental entry which would reach the limit.
+     *
+     * @param persistentUnackedRangesSnapshotInterval
+     *            the max number of incremental entries between two full snapshots
+     */
+    public ManagedLedgerConfig setPersistentUnackedRangesSnapshotInterval(
+            int persistentUnackedRangesSnapshotInterval) {
+        this.persistentUnackedRangesSnapshotInterval = persistentUnackedRangesSnapshotInterval;
+        return this;
+    }
+
     /**
      * @param maxUnackedRangesToPersist
      *            max unacked message ranges that will be persisted and receverd.
@@ -18,6 +18,7 @@
  */
 package org.apache.bookkeeper.mledger;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
@@ -214,6 +215,20 @@ public interface ManagedLedgerFactory {
      */
     CompletableFuture<Boolean> asyncExists(String ledgerName);
 
+    /**
+     * Prefetch the metadata of a set of managed ledgers and of their cursors in batched metadata store reads, to speed
+     * up their opening when many managed ledgers are opened at once, e.g. on the load of a namespace bundle.
+     *
+     * <p/>The managed ledgers should be opened shortly after the prefetch has completed, the prefetched metadata is
+     * discarded after a short time.
+     *
+     * @param ledgerNames the names of the managed ledgers
+     * @return a future completed once the metadata is prefetched, it never completes exceptionally
+     */
+    default CompletableFuture<Void> asyncPrefetchMetadata(Collection<String> ledgerNames) {
+        return CompletableFuture.completedFuture(null);
+    }
+
     /**
      * @return return EntryCacheManager.
      */
@@ -56,6 +56,40 @@ public class ManagedLedgerFactoryConfig {
      */
     private boolean copyEntriesInCache = false;
 
+    /**
+     * Whether the entry cache should index the cached entries with one append-only segment per ledger, instead of a
+     * skip-list keyed by position.
+     */
+    private boolean cacheLedgerSegmentedIndexEnabled = false;
+
+    /**
+     * Maximum size of the local disk tier of the entry cache, where the entries evicted from the cache are spilled to
+     * memory-mapped segment files, one per ledger. The tier is disabled when the size is 0.
+     */
+    private long cacheLocalDiskMaxSize = 0;
+
+    /**
+     * Directory of the segment files of the local disk tier of the entry cache.
+     */
+    private String cacheLocalDiskDirectory = "data/managed-ledger-cache";
+
+    /**
+     * Capacity of each segment file of the local disk tier of the entry cache.
+     */
+    private long cacheLocalDiskSegmentSize = 64 * MB;
+
+    /**
+     * Maximum number of cursors recovered concurrently across all the managed ledgers being opened. The recoveries are
+     * not limited when it's 0.
+     */
+    private int maxConcurrentCursorRecoveries = 0;
+
+    /**
+     * Maximum number of ledgers deleted concurrently from BookKeeper across all the managed ledgers, after they were
+     * trimmed. The cleanup of their offloaded data isn't limited. The deletions are not limited when it's 0.
+     */
+    private int maxConcurrentLedgerDeletions = 0;
+
     /**
      * Maximum number of (estimated) data in-flight reading from storage and the cache.
      */
@@ -109,6 +143,12 @@ public class ManagedLedgerFactoryConfig {
      */
     private long managedLedgerInfoCompressionThresholdInBytes = 0;
 
+    /**
+     * Whether to store ManagedLedgerInfo in its compact encoding, which delta-encodes the ledger ids and shares the
+     * repeated properties through a dictionary. The compact encoding can't be read by the versions without it.
+     */
+    private boolean managedLedgerInfoCompactEncodingEnabled = false;
+
     /**
      * ManagedCursorInfo compression type. If the compression type is null or invalid, don't compress data.
      */
@@ -120,13 +160,19 @@ public class ManagedLedgerFactoryConfig {
      */
     private long managedCursorInfoCompressionThresholdInBytes = 0;
 
+    /**
+     * Whether to store ManagedCursorInfo in its compact encoding, which delta-encodes the positions and packs the
+     * individually deleted message ranges. The compact encoding can't be read by the versions without it.
+     */
+    private boolean managedCursorInfoCompactEncodingEnabled = false;
+
     public MetadataCompressionConfig getCompressionConfigForManagedLedgerInfo() {
         return new MetadataCompressionConfig(managedLedgerInfoCompressionType,
-                managedLedgerInfoCompressionThresholdInBytes);
+                managedLedgerInfoCompressionThresholdInBytes, managedLedgerInfoCompactEncodingEnabled);
     }
 
     public MetadataCompressionConfig getCompressionConfigForManagedCursorInfo() {
         return new MetadataCompressionConfig(managedCursorInfoCompressionType,
-                managedCursorInfoCompressionThresholdInBytes);
+                managedCursorInfoCompressionThresholdInBytes, managedCursorInfoCompactEncodingEnabled);
     }
 }
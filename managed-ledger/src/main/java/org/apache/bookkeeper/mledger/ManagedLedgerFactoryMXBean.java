@@ -82,6 +82,31 @@ public interface ManagedLedgerFactoryMXBean {
      */
     long getCacheMissesBytesTotal();
 
+    /**
+     * Get the number of entries read from the local disk tier of the cache per second.
+     */
+    double getLocalDiskCacheHitsRate();
+
+    /**
+     * Cumulative number of entries read from the local disk tier of the cache.
+     */
+    long getLocalDiskCacheHitsTotal();
+
+    /**
+     * Cumulative amount of data read from the local disk tier of the cache in bytes.
+     */
+    long getLocalDiskCacheHitsBytesTotal();
+
+    /**
+     * Get the number of reads of spilled ledgers per second that the local disk tier of the cache couldn't serve.
+     */
+    double getLocalDiskCacheMissesRate();
+
+    /**
+     * Cumulative number of reads of spilled ledgers that the local disk tier of the cache couldn't serve.
+     */
+    long getLocalDiskCacheMissesTotal();
+
     /**
      * Get the number of cache evictions during the last minute.
      */
@@ -106,4 +131,34 @@ public interface ManagedLedgerFactoryMXBean {
      * Current number of entries in the cache.
      */
     long getCacheEntriesCount();
+
+    /**
+     * Get the number of ledgers deleted per second after they were trimmed.
+     */
+    double getLedgerDeletionsRate();
+
+    /**
+     * Get the amount of storage reclaimed by the deletion of the trimmed ledgers in byte/s.
+     */
+    double getLedgerDeletionsThroughput();
+
+    /**
+     * Cumulative number of ledgers deleted after they were trimmed.
+     */
+    long getLedgerDeletionsTotal();
+
+    /**
+     * Cumulative amount of storage reclaimed by the deletion of the trimmed ledgers in bytes.
+     */
+    long getLedgerDeletionsBytesTotal();
+
+    /**
+     * Cumulative number of trimmed ledgers which failed to be deleted.
+     */
+    long getLedgerDeletionFailuresTotal();
+
+    /**
+     * Current number of trimmed ledgers waiting to be deleted, or being deleted.
+     */
+    long getPendingLedgerDeletions();
 }
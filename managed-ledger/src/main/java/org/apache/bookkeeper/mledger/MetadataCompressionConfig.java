@@ -30,14 +30,28 @@ import org.apache.commons.lang3.StringUtils;
 public class MetadataCompressionConfig {
     MLDataFormats.CompressionType compressionType;
     long compressSizeThresholdInBytes;
+    /**
+     * Whether to write the metadata in its compact encoding, before compressing it.
+     */
+    boolean compactEncoding;
+
+    public MetadataCompressionConfig(MLDataFormats.CompressionType compressionType, long compressThreshold) {
+        this(compressionType, compressThreshold, false);
+    }
 
     public MetadataCompressionConfig(String compressionType) throws IllegalArgumentException {
         this(compressionType, 0);
     }
 
     public MetadataCompressionConfig(String compressionType, long compressThreshold) throws IllegalArgumentException {
+        this(compressionType, compressThreshold, false);
+    }
+
+    public MetadataCompressionConfig(String compressionType, long compressThreshold, boolean compactEncoding)
+            throws IllegalArgumentException {
         this.compressionType = parseCompressionType(compressionType);
         this.compressSizeThresholdInBytes = compressThreshold;
+        this.compactEncoding = compactEncoding;
     }
 
     public static MetadataCompressionConfig noCompression =
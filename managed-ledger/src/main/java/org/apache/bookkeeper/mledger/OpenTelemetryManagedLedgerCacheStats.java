@@ -71,6 +71,16 @@ public class OpenTelemetryManagedLedgerCacheStats implements AutoCloseable {
             "pulsar.broker.managed_ledger.cache.pool.allocation.size";
     private final ObservableLongMeasurement cachePoolActiveAllocationSizeCounter;
 
+    public static final String LEDGER_DELETION_COUNTER = "pulsar.broker.managed_ledger.ledger.deletion.count";
+    private final ObservableLongMeasurement ledgerDeletionCounter;
+
+    public static final String LEDGER_DELETION_SIZE_COUNTER = "pulsar.broker.managed_ledger.ledger.deletion.size";
+    private final ObservableLongMeasurement ledgerDeletionSizeCounter;
+
+    public static final String LEDGER_DELETION_PENDING_COUNTER =
+            "pulsar.broker.managed_ledger.ledger.deletion.pending.count";
+    private final ObservableLongMeasurement ledgerDeletionPendingCounter;
+
     private final BatchCallback batchCallback;
 
     public OpenTelemetryManagedLedgerCacheStats(OpenTelemetry openTelemetry, ManagedLedgerFactoryImpl factory) {
@@ -124,6 +134,23 @@ public class OpenTelemetryManagedLedgerCacheStats implements AutoCloseable {
                 .setDescription("The memory allocated in the direct arena.")
                 .buildObserver();
 
+        ledgerDeletionCounter = meter
+                .counterBuilder(LEDGER_DELETION_COUNTER)
+                .setUnit("{ledger}")
+                .setDescription("The total number of ledgers deleted after they were trimmed.")
+                .buildObserver();
+
+        ledgerDeletionSizeCounter = meter
+                .counterBuilder(LEDGER_DELETION_SIZE_COUNTER)
+                .setUnit("{By}")
+                .setDescription("The total byte amount of storage reclaimed by the deletion of the trimmed ledgers.")
+                .buildObserver();
+
+        ledgerDeletionPendingCounter = meter
+                .upDownCounterBuilder(LEDGER_DELETION_PENDING_COUNTER)
+                .setUnit("{ledger}")
+                .setDescription("The number of trimmed ledgers waiting to be deleted, or being deleted.")
+                .buildObserver();
 
         batchCallback = meter.batchCallback(() -> recordMetrics(factory),
                 managedLedgerCounter,
@@ -133,7 +160,10 @@ public class OpenTelemetryManagedLedgerCacheStats implements AutoCloseable {
                 cacheOperationCounter,
                 cacheOperationBytesCounter,
                 cachePoolActiveAllocationCounter,
-                cachePoolActiveAllocationSizeCounter);
+                cachePoolActiveAllocationSizeCounter,
+                ledgerDeletionCounter,
+                ledgerDeletionSizeCounter,
+                ledgerDeletionPendingCounter);
     }
 
     @Override
@@ -168,5 +198,9 @@ public class OpenTelemetryManagedLedgerCacheStats implements AutoCloseable {
         cachePoolActiveAllocationSizeCounter.record(allocatorStats.totalAllocated,
                 PoolChunkAllocationType.ALLOCATED.attributes);
         cachePoolActiveAllocationSizeCounter.record(allocatorStats.totalUsed, PoolChunkAllocationType.USED.attributes);
+
+        ledgerDeletionCounter.record(stats.getLedgerDeletionsTotal());
+        ledgerDeletionSizeCounter.record(stats.getLedgerDeletionsBytesTotal());
+        ledgerDeletionPendingCounter.record(stats.getPendingLedgerDeletions());
     }
 }
\ No newline at end of file
@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl;
+
+import io.netty.buffer.ByteBuf;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.bookkeeper.mledger.AddEntryCoalescer;
+import org.apache.bookkeeper.mledger.AddEntryCoalescer.CoalescingKey;
+import org.apache.bookkeeper.mledger.AsyncCallbacks.AddEntryCallback;
+import org.apache.bookkeeper.mledger.ManagedLedgerConfig;
+import org.apache.bookkeeper.mledger.ManagedLedgerException;
+import org.apache.bookkeeper.mledger.Position;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Group commit of the add operations of a managed ledger.
+ *
+ * <p/>The add operations whose entry can be coalesced, according to the {@link AddEntryCoalescer} of the managed
+ * ledger, are held in one group per source for up to
+ * {@link ManagedLedgerConfig#getAddEntryGroupCommitMaxDelayMicros()}. The entries of a group are then coalesced into a
+ * single entry, which is written with a single BookKeeper add, and once it's persisted the callback of each add
+ * operation of the group is completed with the position of the coalesced entry.
+ *
+ * <p/>A group is written before the delay when it reaches the maximum number of entries or bytes, or when an entry of
+ * its source has different attributes. All the groups are written before an entry that can't be coalesced, so that the
+ * entries of a source are always persisted in the order in which they were added.
+ *
+ * <p/>This class is not thread safe, it's called while holding the lock of the managed ledger.
+ */
+class AddEntryGroupCommitter {
+    private final ManagedLedgerImpl ml;
+    private final AddEntryCoalescer coalescer;
+    private final long maxDelayMicros;
+    private final int maxEntries;
+    private final int maxBytes;
+    // the open groups by source, in creation order
+    private final Map<Object, Group> groups = new LinkedHashMap<>();
+    private boolean flushScheduled;
+    private final LongAdder coalescedEntries = new LongAdder();
+    private final LongAdder writtenEntries = new LongAdder();
+
+    private static final class Group {
+        private final Object attributes;
+        private final List<OpAddEntry> addOperations = new ArrayList<>();
+        private int bytes;
+
+        private Group(Object attributes) {
+            this.attributes = attributes;
+        }
+    }
+
+    AddEntryGroupCommitter(ManagedLedgerImpl ml, ManagedLedgerConfig config) {
+        this.ml = ml;
+        this.coalescer = config.getAddEntryCoalescer();
+        this.maxDelayMicros = config.getAddEntryGroupCommitMaxDelayMicros();
+        this.maxEntries = config.getAddEntryGroupCommitMaxEntries();
+        this.maxBytes = config.getAddEntryGroupCommitMaxBytes();
+    }
+
+    /**
+     * Add an operation to the group of its source, or write it straight away if its entry can't be coalesced.
+     */
+    void add(OpAddEntry addOperation) {
+        CoalescingKey key;
+        try {
+            key = coalescer.getCoalescingKey(addOperation.getData());
+        } catch (Exception e) {
+            log.warn("[{}] Failed to get the coalescing key of an entry", ml.getName(), e);
+            key = null;
+        }
+        if (key == null) {
+            flush();
+            ml.internalAsyncAddEntry(addOperation);
+            return;
+        }
+
+        int size = addOperation.getData().readableBytes();
+        Group group = groups.get(key.source());
+        if (group != null && (!group.attributes.equals(key.attributes()) || group.bytes + size > maxBytes)) {
+            groups.remove(key.source());
+            write(group);
+            group = null;
+        }
+        if (group == null) {
+            group = new Group(key.attributes());
+            groups.put(key.source(), group);
+            scheduleFlush();
+        }
+        group.addOperations.add(addOperation);
+        group.bytes += size;
+        if (group.addOperations.size() >= maxEntries) {
+            groups.remove(key.source());
+            write(group);
+        }
+    }
+
+    /**
+     * Write all the open groups.
+     */
+    void flush() {
+        Iterator<Group> iterator = groups.values().iterator();
+        while (iterator.hasNext()) {
+            Group group = iterator.next();
+            iterator.remove();
+            write(group);
+        }
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled) {
+            return;
+        }
+        flushScheduled = true;
+        ml.getScheduledExecutor().schedule(() -> ml.getExecutor().execute(() -> {
+            synchronized (ml) {
+                flushScheduled = false;
+                flush();
+            }
+        }), maxDelayMicros, TimeUnit.MICROSECONDS);
+    }
+
+    private void write(Group group) {
+        List<OpAddEntry> addOperations = group.addOperations;
+        writtenEntries.increment();
+        if (addOperations.size() == 1) {
+            ml.internalAsyncAddEntry(addOperations.get(0));
+            return;
+        }
+
+        List<ByteBuf> entries = new ArrayList<>(addOperations.size());
+        int numberOfMessages = 0;
+        for (OpAddEntry addOperation : addOperations) {
+            entries.add(addOperation.getData());
+            numberOfMessages += addOperation.getNumberOfMessages();
+        }
+        ByteBuf data;
+        try {
+            data = coalescer.coalesce(entries);
+        } catch (Exception e) {
+            log.warn("[{}] Failed to coalesce {} entries, writing them one by one", ml.getName(), entries.size(), e);
+            writtenEntries.add(addOperations.size() - 1);
+            addOperations.forEach(ml::internalAsyncAddEntry);
+            return;
+        }
+        for (OpAddEntry addOperation : addOperations) {
+            addOperation.releaseCoalescedData();
+        }
+        coalescedEntries.add(addOperations.size());
+        if (log.isDebugEnabled()) {
+            log.debug("[{}] Coalesced {} entries into an entry of {} bytes", ml.getName(), addOperations.size(),
+                    data.readableBytes());
+        }
+        OpAddEntry groupOperation = OpAddEntry.createCoalesced(ml, data, numberOfMessages,
+                new GroupAddEntryCallback(addOperations), ml.currentLedgerTimeoutTriggered);
+        ml.internalAsyncAddEntry(groupOperation);
+    }
+
+    /**
+     * @return the number of entries which were coalesced with other entries
+     */
+    long getCoalescedEntries() {
+        return coalescedEntries.sum();
+    }
+
+    /**
+     * @return the number of entries written by the group commit, coalesced or not
+     */
+    long getWrittenEntries() {
+        return writtenEntries.sum();
+    }
+
+    /**
+     * Completes the add operations of a group once their coalesced entry is persisted.
+     */
+    private record GroupAddEntryCallback(List<OpAddEntry> addOperations) implements AddEntryCallback {
+        @Override
+        public void addComplete(Position position, ByteBuf entryData, Object ctx) {
+            for (int i = 0; i < addOperations.size(); i++) {
+                addOperations.get(i).completeCoalesced(position, entryData.duplicate(), i, addOperations.size());
+            }
+        }
+
+        @Override
+        public void addFailed(ManagedLedgerException exception, Object ctx) {
+            for (OpAddEntry addOperation : addOperations) {
+                addOperation.failCoalesced(exception);
+            }
+        }
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(AddEntryGroupCommitter.class);
+}
@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.bookkeeper.client.api.ReadHandle;
+import org.apache.bookkeeper.mledger.AsyncCallbacks.ReadEntriesCallback;
+import org.apache.bookkeeper.mledger.Entry;
+import org.apache.bookkeeper.mledger.ManagedLedgerConfig;
+import org.apache.bookkeeper.mledger.ManagedLedgerException;
+import org.apache.bookkeeper.mledger.Position;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Coalesces the catch-up reads issued by the different cursors of a managed ledger.
+ *
+ * <p/>When several subscriptions are replaying the backlog of a topic at nearby positions, each cursor would issue its
+ * own BookKeeper read for roughly the same entries, while the
+ * {@link org.apache.bookkeeper.mledger.impl.cache.PendingReadsManager} can only reuse a read that is already in flight
+ * and overlapping. The catch-up reads submitted to this scheduler are held for a short coalescing window. When the
+ * window expires, the reads on the same ledger are sorted by position and the ones that are close to each other are
+ * merged into a single, wider and sequential read. The entries of the merged read are then fanned out to each of the
+ * waiting {@link OpReadEntry}.
+ */
+class CatchUpReadScheduler {
+    private final ManagedLedgerImpl ml;
+
+    // Catch-up reads waiting for the coalescing window to expire, grouped by ledger id
+    private final Map<Long, List<PendingCatchUpRead>> pendingReads = new HashMap<>();
+
+    private final LongAdder scheduledReads = new LongAdder();
+    private final LongAdder storageReads = new LongAdder();
+
+    private record PendingCatchUpRead(ReadHandle ledger, long firstEntry, long lastEntry, OpReadEntry opReadEntry,
+                                      Object ctx) {
+    }
+
+    CatchUpReadScheduler(ManagedLedgerImpl ml) {
+        this.ml = ml;
+    }
+
+    /**
+     * Check whether a read should go through the scheduler.
+     *
+     * <p/>Only the reads of cursors that are catching up with the backlog are coalesced: the reads that are close to
+     * the tail of the managed ledger, or whose entries are in the entry cache, are served by the entry cache and
+     * shouldn't be delayed.
+     *
+     * @param ledger the ledger to read from
+     * @param firstEntry the first entry of the read
+     * @param lastEntry the last entry of the read
+     * @param lastConfirmedEntry the last confirmed entry of the managed ledger
+     * @param numberOfDurableCursors the number of durable cursors of the managed ledger
+     * @return true if the read should be passed to {@link #schedule}
+     */
+    boolean shouldSchedule(ReadHandle ledger, long firstEntry, long lastEntry, Position lastConfirmedEntry,
+                           int numberOfDurableCursors) {
+        ManagedLedgerConfig config = ml.getConfig();
+        if (config.getCatchUpReadCoalescingDelayMillis() <= 0 || numberOfDurableCursors < 2
+                || lastConfirmedEntry == null) {
+            return false;
+        }
+        boolean farFromTail = ledger.getId() != lastConfirmedEntry.getLedgerId()
+                || lastConfirmedEntry.getEntryId() - lastEntry > config.getCatchUpReadCoalescingMaxEntries();
+        return farFromTail && !ml.entryCache.isCached(ledger.getId(), firstEntry, lastEntry);
+    }
+
+    void schedule(ReadHandle ledger, long firstEntry, long lastEntry, OpReadEntry opReadEntry, Object ctx) {
+        final long ledgerId = ledger.getId();
+        boolean firstPendingRead;
+        synchronized (this) {
+            List<PendingCatchUpRead> reads = pendingReads.computeIfAbsent(ledgerId, k -> new ArrayList<>());
+            firstPendingRead = reads.isEmpty();
+            reads.add(new PendingCatchUpRead(ledger, firstEntry, lastEntry, opReadEntry, ctx));
+        }
+        scheduledReads.increment();
+        if (firstPendingRead) {
+            ml.getScheduledExecutor().schedule(() -> ml.getExecutor().execute(() -> flush(ledgerId)),
+                    ml.getConfig().getCatchUpReadCoalescingDelayMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @VisibleForTesting
+    void flush(long ledgerId) {
+        List<PendingCatchUpRead> reads;
+        synchronized (this) {
+            reads = pendingReads.remove(ledgerId);
+        }
+        if (reads == null || reads.isEmpty()) {
+            return;
+        }
+        reads.sort(Comparator.comparingLong(PendingCatchUpRead::firstEntry));
+        ManagedLedgerConfig config = ml.getConfig();
+        int maxEntriesPerRead = config.getCatchUpReadCoalescingMaxEntries();
+        int maxGapEntries = config.getCatchUpReadCoalescingMaxGapEntries();
+
+        int groupStart = 0;
+        long groupFirstEntry = reads.get(0).firstEntry;
+        long groupLastEntry = reads.get(0).lastEntry;
+        for (int i = 1; i < reads.size(); i++) {
+            PendingCatchUpRead read = reads.get(i);
+            long newGroupLastEntry = Math.max(groupLastEntry, read.lastEntry);
+            if (read.firstEntry <= groupLastEntry + 1 + maxGapEntries
+                    && newGroupLastEntry - groupFirstEntry + 1 <= maxEntriesPerRead) {
+                groupLastEntry = newGroupLastEntry;
+            } else {
+                readGroup(reads.subList(groupStart, i), groupFirstEntry, groupLastEntry);
+                groupStart = i;
+                groupFirstEntry = read.firstEntry;
+                groupLastEntry = read.lastEntry;
+            }
+        }
+        readGroup(reads.subList(groupStart, reads.size()), groupFirstEntry, groupLastEntry);
+    }
+
+    private void readGroup(List<PendingCatchUpRead> group, long firstEntry, long lastEntry) {
+        storageReads.increment();
+        if (group.size() == 1) {
+            PendingCatchUpRead read = group.get(0);
+            ml.asyncReadEntry(read.ledger, read.firstEntry, read.lastEntry, read.opReadEntry, read.ctx);
+            return;
+        }
+
+        boolean shouldCacheEntry = false;
+        for (PendingCatchUpRead read : group) {
+            shouldCacheEntry |= read.opReadEntry.cursor.isCacheReadEntry();
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("[{}] Coalesced {} catch-up reads into a single read of ledger {} - first={} last={}",
+                    ml.getName(), group.size(), group.get(0).ledger.getId(), firstEntry, lastEntry);
+        }
+
+        final List<PendingCatchUpRead> reads = List.copyOf(group);
+        // the coalesced read fails after readEntryTimeoutSeconds, as the reads it replaces would have
+        ml.asyncReadEntries(reads.get(0).ledger, firstEntry, lastEntry, shouldCacheEntry,
+                new ReadEntriesCallback() {
+                    @Override
+                    public void readEntriesComplete(List<Entry> entries, Object ctx) {
+                        try {
+                            for (PendingCatchUpRead read : reads) {
+                                // a failing reader mustn't prevent the delivery to the other readers
+                                final List<Entry> copies =
+                                        new ArrayList<>((int) (read.lastEntry - read.firstEntry + 1));
+                                boolean handedOff = false;
+                                try {
+                                    copyEntries(entries, read.firstEntry, read.lastEntry, copies);
+                                    // the reader owns the copies once they are handed to it, even if it fails
+                                    handedOff = true;
+                                    read.opReadEntry.readEntriesComplete(copies, read.ctx);
+                                } catch (Throwable t) {
+                                    log.warn("[{}] Failed to complete the coalesced catch-up read of entries {}-{}",
+                                            ml.getName(), read.firstEntry, read.lastEntry, t);
+                                    if (!handedOff) {
+                                        copies.forEach(Entry::release);
+                                    }
+                                }
+                            }
+                        } finally {
+                            entries.forEach(Entry::release);
+                        }
+                    }
+
+                    @Override
+                    public void readEntriesFailed(ManagedLedgerException exception, Object ctx) {
+                        for (PendingCatchUpRead read : reads) {
+                            try {
+                                read.opReadEntry.readEntriesFailed(exception, read.ctx);
+                            } catch (Throwable t) {
+                                log.warn("[{}] Failed to fail the coalesced catch-up read of entries {}-{}",
+                                        ml.getName(), read.firstEntry, read.lastEntry, t);
+                            }
+                        }
+                    }
+                }, null);
+    }
+
+    private static void copyEntries(List<Entry> entries, long firstEntry, long lastEntry, List<Entry> copies) {
+        for (Entry entry : entries) {
+            long entryId = entry.getEntryId();
+            if (firstEntry <= entryId && entryId <= lastEntry) {
+                copies.add(EntryImpl.create(entry));
+            }
+        }
+    }
+
+    /**
+     * @return the number of catch-up reads submitted to the scheduler
+     */
+    long getScheduledReads() {
+        return scheduledReads.sum();
+    }
+
+    /**
+     * @return the number of reads issued to the entry cache (and eventually to BookKeeper) by the scheduler
+     */
+    long getStorageReads() {
+        return storageReads.sum();
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(CatchUpReadScheduler.class);
+}
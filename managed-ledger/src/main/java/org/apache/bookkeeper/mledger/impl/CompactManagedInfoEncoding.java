@@ -0,0 +1,408 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.bookkeeper.mledger.proto.MLDataFormats.BatchedEntryDeletionIndexInfo;
+import org.apache.bookkeeper.mledger.proto.MLDataFormats.CompactLedgerExtras;
+import org.apache.bookkeeper.mledger.proto.MLDataFormats.CompactManagedCursorInfo;
+import org.apache.bookkeeper.mledger.proto.MLDataFormats.CompactManagedLedgerInfo;
+import org.apache.bookkeeper.mledger.proto.MLDataFormats.CompactOffloadContext;
+import org.apache.bookkeeper.mledger.proto.MLDataFormats.CompactOffloadDriverMetadata;
+import org.apache.bookkeeper.mledger.proto.MLDataFormats.CompactOffloadSegment;
+import org.apache.bookkeeper.mledger.proto.MLDataFormats.KeyValue;
+import org.apache.bookkeeper.mledger.proto.MLDataFormats.LongProperty;
+import org.apache.bookkeeper.mledger.proto.MLDataFormats.ManagedCursorInfo;
+import org.apache.bookkeeper.mledger.proto.MLDataFormats.ManagedLedgerInfo;
+import org.apache.bookkeeper.mledger.proto.MLDataFormats.ManagedLedgerInfo.LedgerInfo;
+import org.apache.bookkeeper.mledger.proto.MLDataFormats.MessageRange;
+import org.apache.bookkeeper.mledger.proto.MLDataFormats.NestedPositionInfo;
+import org.apache.bookkeeper.mledger.proto.MLDataFormats.OffloadContext;
+import org.apache.bookkeeper.mledger.proto.MLDataFormats.OffloadDriverMetadata;
+import org.apache.bookkeeper.mledger.proto.MLDataFormats.OffloadSegment;
+import org.apache.bookkeeper.mledger.proto.MLDataFormats.PackedLongList;
+import org.apache.bookkeeper.mledger.proto.MLDataFormats.StringProperty;
+
+/**
+ * Compact encoding of the {@link ManagedLedgerInfo} and {@link ManagedCursorInfo} stored in the metadata store.
+ *
+ * <p/>The strings, such as the keys of the properties and the offload driver metadata which are repeated for every
+ * ledger, are stored once in a dictionary of the encoded info. The ledger ids and the positions are delta-encoded
+ * from the previous ledger id or position, and packed as zigzag varints along with the ranges of individually deleted
+ * messages, so that most of the values take a single byte.
+ *
+ * <p/>The encoding is lossless: decoding an encoded info returns an info equal to the original one, including which
+ * optional fields are set. A field added to the info must be added to the compact encoding, with a new
+ * {@link #VERSION} if the older versions can't read it.
+ */
+final class CompactManagedInfoEncoding {
+    static final int VERSION = 1;
+
+    private static final int LEDGER_ENTRIES = 1;
+    private static final int LEDGER_SIZE = 2;
+    private static final int LEDGER_TIMESTAMP = 4;
+
+    private CompactManagedInfoEncoding() {
+    }
+
+    /**
+     * Dictionary of the strings of an info being encoded.
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+
+        int indexOf(String value) {
+            Integer index = indexes.get(value);
+            if (index == null) {
+                index = strings.size();
+                strings.add(value);
+                indexes.put(value, index);
+            }
+            return index;
+        }
+    }
+
+    static CompactManagedLedgerInfo encode(ManagedLedgerInfo info) {
+        CompactManagedLedgerInfo.Builder builder = CompactManagedLedgerInfo.newBuilder();
+        Dictionary dictionary = new Dictionary();
+        long previousLedgerId = 0;
+        long previousTimestamp = 0;
+        for (int i = 0; i < info.getLedgerInfoCount(); i++) {
+            LedgerInfo ledgerInfo = info.getLedgerInfo(i);
+            builder.addLedgerIds(ledgerInfo.getLedgerId() - previousLedgerId);
+            previousLedgerId = ledgerInfo.getLedgerId();
+            int fields = 0;
+            if (ledgerInfo.hasEntries()) {
+                fields |= LEDGER_ENTRIES;
+                builder.addEntries(ledgerInfo.getEntries());
+            }
+            if (ledgerInfo.hasSize()) {
+                fields |= LEDGER_SIZE;
+                builder.addSizes(ledgerInfo.getSize());
+            }
+            if (ledgerInfo.hasTimestamp()) {
+                fields |= LEDGER_TIMESTAMP;
+                builder.addTimestamps(ledgerInfo.getTimestamp() - previousTimestamp);
+                previousTimestamp = ledgerInfo.getTimestamp();
+            }
+            builder.addLedgerFields(fields);
+
+            if (ledgerInfo.hasOffloadContext() || ledgerInfo.getPropertiesCount() > 0 || ledgerInfo.hasEntryIndex()) {
+                CompactLedgerExtras.Builder extras = CompactLedgerExtras.newBuilder().setLedgerIndex(i);
+                if (ledgerInfo.hasOffloadContext()) {
+                    extras.setOffloadContext(encode(ledgerInfo.getOffloadContext(), dictionary));
+                }
+                extras.addAllProperties(encode(ledgerInfo.getPropertiesList(), dictionary));
+                if (ledgerInfo.hasEntryIndex()) {
+                    extras.setEntryIndex(ledgerInfo.getEntryIndex());
+                }
+                builder.addLedgerExtras(extras);
+            }
+        }
+        if (info.hasTerminatedPosition()) {
+            builder.setTerminatedPosition(info.getTerminatedPosition());
+        }
+        builder.addAllProperties(encode(info.getPropertiesList(), dictionary));
+        return builder.addAllDictionary(dictionary.strings).build();
+    }
+
+    static ManagedLedgerInfo decode(CompactManagedLedgerInfo compactInfo) {
+        ManagedLedgerInfo.Builder builder = ManagedLedgerInfo.newBuilder();
+        List<String> dictionary = compactInfo.getDictionaryList();
+        int extrasIndex = 0;
+        int entriesIndex = 0;
+        int sizeIndex = 0;
+        int timestampIndex = 0;
+        long ledgerId = 0;
+        long timestamp = 0;
+        for (int i = 0; i < compactInfo.getLedgerIdsCount(); i++) {
+            ledgerId += compactInfo.getLedgerIds(i);
+            LedgerInfo.Builder ledgerInfo = LedgerInfo.newBuilder().setLedgerId(ledgerId);
+            int fields = compactInfo.getLedgerFields(i);
+            if ((fields & LEDGER_ENTRIES) != 0) {
+                ledgerInfo.setEntries(compactInfo.getEntries(entriesIndex++));
+            }
+            if ((fields & LEDGER_SIZE) != 0) {
+                ledgerInfo.setSize(compactInfo.getSizes(sizeIndex++));
+            }
+            if ((fields & LEDGER_TIMESTAMP) != 0) {
+                timestamp += compactInfo.getTimestamps(timestampIndex++);
+                ledgerInfo.setTimestamp(timestamp);
+            }
+
+            if (extrasIndex < compactInfo.getLedgerExtrasCount()
+                    && compactInfo.getLedgerExtras(extrasIndex).getLedgerIndex() == i) {
+                CompactLedgerExtras extras = compactInfo.getLedgerExtras(extrasIndex++);
+                if (extras.hasOffloadContext()) {
+                    ledgerInfo.setOffloadContext(decode(extras.getOffloadContext(), dictionary));
+                }
+                ledgerInfo.addAllProperties(decode(extras.getPropertiesList(), dictionary));
+                if (extras.hasEntryIndex()) {
+                    ledgerInfo.setEntryIndex(extras.getEntryIndex());
+                }
+            }
+            builder.addLedgerInfo(ledgerInfo);
+        }
+        if (compactInfo.hasTerminatedPosition()) {
+            builder.setTerminatedPosition(compactInfo.getTerminatedPosition());
+        }
+        builder.addAllProperties(decode(compactInfo.getPropertiesList(), dictionary));
+        return builder.build();
+    }
+
+    static CompactManagedCursorInfo encode(ManagedCursorInfo info) {
+        CompactManagedCursorInfo.Builder builder = CompactManagedCursorInfo.newBuilder()
+                .setCursorsLedgerId(info.getCursorsLedgerId());
+        Dictionary dictionary = new Dictionary();
+        if (info.hasMarkDeleteLedgerId()) {
+            builder.setMarkDeleteLedgerId(info.getMarkDeleteLedgerId());
+        }
+        if (info.hasMarkDeleteEntryId()) {
+            builder.setMarkDeleteEntryId(info.getMarkDeleteEntryId());
+        }
+
+        List<Long> values = new ArrayList<>(info.getIndividualDeletedMessagesCount() * 4);
+        long[] previous = {info.getMarkDeleteLedgerId(), info.getMarkDeleteEntryId()};
+        for (MessageRange range : info.getIndividualDeletedMessagesList()) {
+            encodePosition(range.getLowerEndpoint(), previous, values);
+            encodePosition(range.getUpperEndpoint(), previous, values);
+        }
+        builder.addAllIndividualDeletedMessages(values);
+
+        for (LongProperty property : info.getPropertiesList()) {
+            builder.addPropertyNames(dictionary.indexOf(property.getName()));
+            builder.addPropertyValues(property.getValue());
+        }
+        if (info.hasLastActive()) {
+            builder.setLastActive(info.getLastActive());
+        }
+
+        values = new ArrayList<>(info.getBatchedEntryDeletionIndexInfoCount() * 2);
+        previous = new long[]{info.getMarkDeleteLedgerId(), info.getMarkDeleteEntryId()};
+        for (BatchedEntryDeletionIndexInfo deletionIndexInfo : info.getBatchedEntryDeletionIndexInfoList()) {
+            encodePosition(deletionIndexInfo.getPosition(), previous, values);
+            builder.addBatchedEntryDeletionSets(PackedLongList.newBuilder()
+                    .addAllValues(deletionIndexInfo.getDeleteSetList()));
+        }
+        builder.addAllBatchedEntryDeletionPositions(values);
+
+        for (StringProperty property : info.getCursorPropertiesList()) {
+            builder.addCursorProperties(dictionary.indexOf(property.getName()));
+            builder.addCursorProperties(dictionary.indexOf(property.getValue()));
+        }
+        return builder.addAllDictionary(dictionary.strings).build();
+    }
+
+    static ManagedCursorInfo decode(CompactManagedCursorInfo compactInfo) {
+        ManagedCursorInfo.Builder builder = ManagedCursorInfo.newBuilder()
+                .setCursorsLedgerId(compactInfo.getCursorsLedgerId());
+        List<String> dictionary = compactInfo.getDictionaryList();
+        if (compactInfo.hasMarkDeleteLedgerId()) {
+            builder.setMarkDeleteLedgerId(compactInfo.getMarkDeleteLedgerId());
+        }
+        if (compactInfo.hasMarkDeleteEntryId()) {
+            builder.setMarkDeleteEntryId(compactInfo.getMarkDeleteEntryId());
+        }
+
+        List<Long> values = compactInfo.getIndividualDeletedMessagesList();
+        long[] previous = {compactInfo.getMarkDeleteLedgerId(), compactInfo.getMarkDeleteEntryId()};
+        for (int i = 0; i + 3 < values.size(); i += 4) {
+            builder.addIndividualDeletedMessages(MessageRange.newBuilder()
+                    .setLowerEndpoint(decodePosition(values, i, previous))
+                    .setUpperEndpoint(decodePosition(values, i + 2, previous)));
+        }
+
+        for (int i = 0; i < compactInfo.getPropertyNamesCount(); i++) {
+            builder.addProperties(LongProperty.newBuilder()
+                    .setName(dictionary.get(compactInfo.getPropertyNames(i)))
+                    .setValue(compactInfo.getPropertyValues(i)));
+        }
+        if (compactInfo.hasLastActive()) {
+            builder.setLastActive(compactInfo.getLastActive());
+        }
+
+        values = compactInfo.getBatchedEntryDeletionPositionsList();
+        previous = new long[]{compactInfo.getMarkDeleteLedgerId(), compactInfo.getMarkDeleteEntryId()};
+        for (int i = 0; i < compactInfo.getBatchedEntryDeletionSetsCount(); i++) {
+            builder.addBatchedEntryDeletionIndexInfo(BatchedEntryDeletionIndexInfo.newBuilder()
+                    .setPosition(decodePosition(values, i * 2, previous))
+                    .addAllDeleteSet(compactInfo.getBatchedEntryDeletionSets(i).getValuesList()));
+        }
+
+        List<Integer> cursorProperties = compactInfo.getCursorPropertiesList();
+        for (int i = 0; i + 1 < cursorProperties.size(); i += 2) {
+            builder.addCursorProperties(StringProperty.newBuilder()
+                    .setName(dictionary.get(cursorProperties.get(i)))
+                    .setValue(dictionary.get(cursorProperties.get(i + 1))));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Encode a position as the delta of its ledger id from the previous position, followed by the delta of its entry
+     * id from the previous position if they are in the same ledger, or its entry id otherwise.
+     */
+    private static void encodePosition(NestedPositionInfo position, long[] previous, List<Long> values) {
+        values.add(position.getLedgerId() - previous[0]);
+        values.add(position.getLedgerId() == previous[0]
+                ? position.getEntryId() - previous[1] : position.getEntryId());
+        previous[0] = position.getLedgerId();
+        previous[1] = position.getEntryId();
+    }
+
+    private static NestedPositionInfo decodePosition(List<Long> values, int index, long[] previous) {
+        long ledgerId = previous[0] + values.get(index);
+        long entryId = ledgerId == previous[0] ? previous[1] + values.get(index + 1) : values.get(index + 1);
+        previous[0] = ledgerId;
+        previous[1] = entryId;
+        return NestedPositionInfo.newBuilder().setLedgerId(ledgerId).setEntryId(entryId).build();
+    }
+
+    private static List<Integer> encode(List<KeyValue> properties, Dictionary dictionary) {
+        List<Integer> indexes = new ArrayList<>(properties.size() * 2);
+        for (KeyValue property : properties) {
+            indexes.add(dictionary.indexOf(property.getKey()));
+            indexes.add(dictionary.indexOf(property.getValue()));
+        }
+        return indexes;
+    }
+
+    private static List<KeyValue> decode(List<Integer> indexes, List<String> dictionary) {
+        List<KeyValue> properties = new ArrayList<>(indexes.size() / 2);
+        for (int i = 0; i + 1 < indexes.size(); i += 2) {
+            properties.add(KeyValue.newBuilder().setKey(dictionary.get(indexes.get(i)))
+                    .setValue(dictionary.get(indexes.get(i + 1))).build());
+        }
+        return properties;
+    }
+
+    private static CompactOffloadDriverMetadata encode(OffloadDriverMetadata driverMetadata, Dictionary dictionary) {
+        return CompactOffloadDriverMetadata.newBuilder()
+                .setName(dictionary.indexOf(driverMetadata.getName()))
+                .addAllProperties(encode(driverMetadata.getPropertiesList(), dictionary))
+                .build();
+    }
+
+    private static OffloadDriverMetadata decode(CompactOffloadDriverMetadata driverMetadata, List<String> dictionary) {
+        return OffloadDriverMetadata.newBuilder()
+                .setName(dictionary.get(driverMetadata.getName()))
+                .addAllProperties(decode(driverMetadata.getPropertiesList(), dictionary))
+                .build();
+    }
+
+    private static CompactOffloadContext encode(OffloadContext context, Dictionary dictionary) {
+        CompactOffloadContext.Builder builder = CompactOffloadContext.newBuilder();
+        if (context.hasUidMsb()) {
+            builder.setUidMsb(context.getUidMsb());
+        }
+        if (context.hasUidLsb()) {
+            builder.setUidLsb(context.getUidLsb());
+        }
+        if (context.hasComplete()) {
+            builder.setComplete(context.getComplete());
+        }
+        if (context.hasBookkeeperDeleted()) {
+            builder.setBookkeeperDeleted(context.getBookkeeperDeleted());
+        }
+        if (context.hasTimestamp()) {
+            builder.setTimestamp(context.getTimestamp());
+        }
+        if (context.hasDriverMetadata()) {
+            builder.setDriverMetadata(encode(context.getDriverMetadata(), dictionary));
+        }
+        for (OffloadSegment segment : context.getOffloadSegmentList()) {
+            CompactOffloadSegment.Builder segmentBuilder = CompactOffloadSegment.newBuilder();
+            if (segment.hasUidMsb()) {
+                segmentBuilder.setUidMsb(segment.getUidMsb());
+            }
+            if (segment.hasUidLsb()) {
+                segmentBuilder.setUidLsb(segment.getUidLsb());
+            }
+            if (segment.hasComplete()) {
+                segmentBuilder.setComplete(segment.getComplete());
+            }
+            if (segment.hasAssignedTimestamp()) {
+                segmentBuilder.setAssignedTimestamp(segment.getAssignedTimestamp());
+            }
+            if (segment.hasOffloadedTimestamp()) {
+                segmentBuilder.setOffloadedTimestamp(segment.getOffloadedTimestamp());
+            }
+            if (segment.hasEndEntryId()) {
+                segmentBuilder.setEndEntryId(segment.getEndEntryId());
+            }
+            if (segment.hasDriverMetadata()) {
+                segmentBuilder.setDriverMetadata(encode(segment.getDriverMetadata(), dictionary));
+            }
+            builder.addOffloadSegment(segmentBuilder);
+        }
+        return builder.build();
+    }
+
+    private static OffloadContext decode(CompactOffloadContext context, List<String> dictionary) {
+        OffloadContext.Builder builder = OffloadContext.newBuilder();
+        if (context.hasUidMsb()) {
+            builder.setUidMsb(context.getUidMsb());
+        }
+        if (context.hasUidLsb()) {
+            builder.setUidLsb(context.getUidLsb());
+        }
+        if (context.hasComplete()) {
+            builder.setComplete(context.getComplete());
+        }
+        if (context.hasBookkeeperDeleted()) {
+            builder.setBookkeeperDeleted(context.getBookkeeperDeleted());
+        }
+        if (context.hasTimestamp()) {
+            builder.setTimestamp(context.getTimestamp());
+        }
+        if (context.hasDriverMetadata()) {
+            builder.setDriverMetadata(decode(context.getDriverMetadata(), dictionary));
+        }
+        for (CompactOffloadSegment segment : context.getOffloadSegmentList()) {
+            OffloadSegment.Builder segmentBuilder = OffloadSegment.newBuilder();
+            if (segment.hasUidMsb()) {
+                segmentBuilder.setUidMsb(segment.getUidMsb());
+            }
+            if (segment.hasUidLsb()) {
+                segmentBuilder.setUidLsb(segment.getUidLsb());
+            }
+            if (segment.hasComplete()) {
+                segmentBuilder.setComplete(segment.getComplete());
+            }
+            if (segment.hasAssignedTimestamp()) {
+                segmentBuilder.setAssignedTimestamp(segment.getAssignedTimestamp());
+            }
+            if (segment.hasOffloadedTimestamp()) {
+                segmentBuilder.setOffloadedTimestamp(segment.getOffloadedTimestamp());
+            }
+            if (segment.hasEndEntryId()) {
+                segmentBuilder.setEndEntryId(segment.getEndEntryId());
+            }
+            if (segment.hasDriverMetadata()) {
+                segmentBuilder.setDriverMetadata(decode(segment.getDriverMetadata(), dictionary));
+            }
+            builder.addOffloadSegment(segmentBuilder);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Limits the number of asynchronous operations in progress across the managed ledgers of a factory, the operations
+ * started once the limit is reached are queued until an operation in progress completes.
+ *
+ * <p/>The operations are not limited when the maximum number of operations in progress is 0. An operation which throws
+ * is considered completed. The queued operations are started on the executor when an operation completes, so that
+ * the operations completing synchronously don't start the next ones recursively.
+ */
+class ConcurrencyLimiter {
+    private final int maxConcurrentOperations;
+    private final Executor executor;
+    private final Queue<Runnable> pendingOperations = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger runningOperations = new AtomicInteger();
+
+    ConcurrencyLimiter(int maxConcurrentOperations, Executor executor) {
+        this.maxConcurrentOperations = maxConcurrentOperations;
+        this.executor = executor;
+    }
+
+    /**
+     * Run an operation once fewer than the maximum number of operations are in progress. The operation must call
+     * {@link #operationCompleted()} once it has completed, whatever its outcome.
+     */
+    void run(Runnable operation) {
+        if (maxConcurrentOperations <= 0) {
+            runningOperations.incrementAndGet();
+            runOperation(operation);
+            return;
+        }
+        pendingOperations.add(operation);
+        runPendingOperations(false);
+    }
+
+    /**
+     * Run an operation once fewer than the maximum number of operations are in progress, the operation is completed
+     * when the future it returns is completed.
+     */
+    <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> operation) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        run(() -> {
+            CompletableFuture<T> operationFuture;
+            try {
+                operationFuture = operation.get();
+            } catch (Throwable t) {
+                operationFuture = CompletableFuture.failedFuture(t);
+            }
+            operationFuture.whenComplete((result, ex) -> {
+                operationCompleted();
+                if (ex != null) {
+                    future.completeExceptionally(ex);
+                } else {
+                    future.complete(result);
+                }
+            });
+        });
+        return future;
+    }
+
+    void operationCompleted() {
+        runningOperations.decrementAndGet();
+        if (maxConcurrentOperations > 0) {
+            runPendingOperations(true);
+        }
+    }
+
+    private void runOperation(Runnable operation) {
+        try {
+            operation.run();
+        } catch (Throwable t) {
+            log.warn("Operation {} failed, releasing its slot", operation, t);
+            operationCompleted();
+        }
+    }
+
+    private void runPendingOperations(boolean onExecutor) {
+        while (!pendingOperations.isEmpty()) {
+            int running = runningOperations.get();
+            if (running >= maxConcurrentOperations) {
+                // a completing operation will run the next pending one
+                return;
+            }
+            if (!runningOperations.compareAndSet(running, running + 1)) {
+                continue;
+            }
+            Runnable operation = pendingOperations.poll();
+            if (operation == null) {
+                runningOperations.decrementAndGet();
+                continue;
+            }
+            if (onExecutor) {
+                try {
+                    executor.execute(() -> runOperation(operation));
+                } catch (RejectedExecutionException e) {
+                    // the executor is shut down, don't leave the operation queued
+                    runOperation(operation);
+                }
+            } else {
+                runOperation(operation);
+            }
+        }
+    }
+
+    int getPendingOperations() {
+        return pendingOperations.size();
+    }
+
+    int getRunningOperations() {
+        return runningOperations.get();
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(ConcurrencyLimiter.class);
+}
@@ -24,6 +24,7 @@ import io.netty.buffer.Unpooled;
 import io.netty.util.Recycler;
 import io.netty.util.Recycler.Handle;
 import io.netty.util.ReferenceCounted;
+import java.util.function.LongConsumer;
 import org.apache.bookkeeper.client.api.LedgerEntry;
 import org.apache.bookkeeper.client.impl.LedgerEntryImpl;
 import org.apache.bookkeeper.mledger.Entry;
@@ -32,6 +33,7 @@ import org.apache.bookkeeper.mledger.PositionFactory;
 import org.apache.bookkeeper.mledger.ReferenceCountedEntry;
 import org.apache.bookkeeper.mledger.intercept.ManagedLedgerInterceptor;
 import org.apache.bookkeeper.mledger.util.AbstractCASReferenceCounted;
+import org.apache.pulsar.common.api.proto.MessageMetadata;
 
 public final class EntryImpl extends AbstractCASReferenceCounted
         implements ReferenceCountedEntry, Comparable<EntryImpl> {
@@ -48,6 +50,10 @@ public final class EntryImpl extends AbstractCASReferenceCounted
     private long entryId;
     private Position position;
     ByteBuf data;
+    // the message metadata parsed from the data, shared by an entry in the cache and the entries copied from it
+    private SharedMessageMetadata messageMetadata;
+    // whether the size of the shared message metadata is accounted by this entry
+    private boolean accountsMessageMetadataSize;
 
     private Runnable onDeallocate;
 
@@ -130,6 +136,7 @@ public final class EntryImpl extends AbstractCASReferenceCounted
         entry.ledgerId = other.ledgerId;
         entry.entryId = other.entryId;
         entry.data = other.data.retainedDuplicate();
+        entry.messageMetadata = other.messageMetadata;
         entry.setRefCnt(1);
         return entry;
     }
@@ -140,6 +147,9 @@ public final class EntryImpl extends AbstractCASReferenceCounted
         entry.ledgerId = other.getLedgerId();
         entry.entryId = other.getEntryId();
         entry.data = other.getDataBuffer().retainedDuplicate();
+        if (other instanceof EntryImpl otherEntry) {
+            entry.messageMetadata = otherEntry.messageMetadata;
+        }
         entry.setRefCnt(1);
         return entry;
     }
@@ -164,6 +174,57 @@ public final class EntryImpl extends AbstractCASReferenceCounted
         }
     }
 
+    /**
+     * Get the message metadata attached to this entry, or to the cached entry it was copied from.
+     *
+     * @return the parsed message metadata, or null if it was not attached yet. It must not be modified.
+     */
+    public MessageMetadata getMessageMetadata() {
+        SharedMessageMetadata sharedMetadata = messageMetadata;
+        return sharedMetadata != null ? sharedMetadata.metadata : null;
+    }
+
+    /**
+     * Attach the message metadata parsed from the data of this entry, so that the other readers of the entry don't
+     * have to parse it again. The metadata is visible to the cached entry this entry was copied from and to all the
+     * other copies of it.
+     */
+    public void setMessageMetadata(MessageMetadata metadata) {
+        SharedMessageMetadata sharedMetadata = messageMetadata;
+        if (sharedMetadata != null) {
+            sharedMetadata.set(metadata);
+        } else {
+            sharedMetadata = new SharedMessageMetadata();
+            sharedMetadata.metadata = metadata;
+            messageMetadata = sharedMetadata;
+        }
+    }
+
+    /**
+     * Share the message metadata of the given entry, which holds the same data, with this entry.
+     */
+    public void shareMessageMetadata(EntryImpl other) {
+        if (other.messageMetadata == null) {
+            other.messageMetadata = new SharedMessageMetadata();
+        }
+        this.messageMetadata = other.messageMetadata;
+    }
+
+    /**
+     * Account the estimated size of the message metadata shared by this entry, now and whenever it's attached later,
+     * until this entry is deallocated. The metadata is then dropped, the other copies of this entry parse it again.
+     *
+     * @param sizeListener notified of the changes of the size of the metadata
+     * @return false if the size of the metadata is already accounted by another entry
+     */
+    public boolean accountMessageMetadataSize(LongConsumer sizeListener) {
+        if (messageMetadata == null) {
+            messageMetadata = new SharedMessageMetadata();
+        }
+        accountsMessageMetadataSize = messageMetadata.setSizeListener(sizeListener);
+        return accountsMessageMetadataSize;
+    }
+
     @Override
     public ByteBuf getDataBuffer() {
         return data;
@@ -240,6 +301,11 @@ public final class EntryImpl extends AbstractCASReferenceCounted
         ledgerId = -1;
         entryId = -1;
         position = null;
+        if (accountsMessageMetadataSize) {
+            messageMetadata.drop();
+            accountsMessageMetadataSize = false;
+        }
+        messageMetadata = null;
         recyclerHandle.recycle(this);
     }
 
@@ -253,4 +319,48 @@ public final class EntryImpl extends AbstractCASReferenceCounted
         return getClass().getName() + "@" + System.identityHashCode(this)
                 + "{ledgerId=" + ledgerId + ", entryId=" + entryId + '}';
     }
+
+    /**
+     * The message metadata shared by the copies of an entry, with its estimated size when it's accounted.
+     */
+    private static final class SharedMessageMetadata {
+        // rough estimate of the heap used by a parsed message metadata, on top of its serialized size
+        private static final int MESSAGE_METADATA_OVERHEAD_SIZE = 128;
+
+        private volatile MessageMetadata metadata;
+        private LongConsumer sizeListener;
+        private long size;
+
+        synchronized void set(MessageMetadata metadata) {
+            this.metadata = metadata;
+            updateSize();
+        }
+
+        synchronized boolean setSizeListener(LongConsumer sizeListener) {
+            if (this.sizeListener != null) {
+                return false;
+            }
+            this.sizeListener = sizeListener;
+            updateSize();
+            return true;
+        }
+
+        synchronized void drop() {
+            metadata = null;
+            updateSize();
+            sizeListener = null;
+        }
+
+        private void updateSize() {
+            if (sizeListener == null) {
+                return;
+            }
+            MessageMetadata metadata = this.metadata;
+            long newSize = metadata != null ? metadata.getSerializedSize() + MESSAGE_METADATA_OVERHEAD_SIZE : 0;
+            if (newSize != size) {
+                sizeListener.accept(newSize - size);
+                size = newSize;
+            }
+        }
+    }
 }
\ No newline at end of file
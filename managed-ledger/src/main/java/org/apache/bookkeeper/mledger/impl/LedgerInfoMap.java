@@ -0,0 +1,274 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl;
+
+import com.google.common.collect.BoundType;
+import com.google.common.collect.Range;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import org.apache.bookkeeper.mledger.Position;
+import org.apache.bookkeeper.mledger.proto.MLDataFormats.ManagedLedgerInfo.LedgerInfo;
+
+/**
+ * Map of the ledgers of a managed ledger, by ledger id, which keeps the cumulative number of entries and size of its
+ * ledgers.
+ *
+ * <p/>The cumulative counts are computed in a single pass over the ledgers the first time they are queried after the
+ * map was modified, that is after a rollover or a trimming of the ledgers, and they are then reused by all the
+ * queries until the next modification. The number of entries and the size between two positions, such as the backlog
+ * of a cursor, are thus answered with a binary search over the ledger ids instead of walking the ledgers between the
+ * two positions for every query.
+ *
+ * <p/>Only the modifications through the methods of the map itself are tracked, the map must not be modified through
+ * its views.
+ */
+class LedgerInfoMap extends ConcurrentSkipListMap<Long, LedgerInfo> {
+    private static final long serialVersionUID = 1L;
+    private static final AtomicLongFieldUpdater<LedgerInfoMap> VERSION_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(LedgerInfoMap.class, "version");
+
+    private volatile long version;
+    private transient volatile CumulativeCounts cumulativeCounts;
+
+    /**
+     * Snapshot of the cumulative counts of the ledgers, the counts at index i are the sums of the counts of the ledgers
+     * before the i-th ledger.
+     */
+    private record CumulativeCounts(long version, long[] ledgerIds, long[] entriesBefore, long[] sizeBefore) {
+        int ledgerIndex(long ledgerId) {
+            int index = Arrays.binarySearch(ledgerIds, ledgerId);
+            return index >= 0 ? index : -(index + 1);
+        }
+    }
+
+    LedgerInfoMap() {
+    }
+
+    LedgerInfoMap(Map<Long, LedgerInfo> ledgers) {
+        super(ledgers);
+    }
+
+    private CumulativeCounts getCumulativeCounts() {
+        CumulativeCounts counts = cumulativeCounts;
+        long currentVersion = version;
+        if (counts != null && counts.version == currentVersion) {
+            return counts;
+        }
+        // The map may be modified while it's iterated, the version is then changed and the counts are computed again
+        // by the next query
+        int capacity = 16;
+        long[] ledgerIds = new long[capacity];
+        long[] entriesBefore = new long[capacity + 1];
+        long[] sizeBefore = new long[capacity + 1];
+        int count = 0;
+        for (LedgerInfo ledgerInfo : values()) {
+            if (count == capacity) {
+                capacity *= 2;
+                ledgerIds = Arrays.copyOf(ledgerIds, capacity);
+                entriesBefore = Arrays.copyOf(entriesBefore, capacity + 1);
+                sizeBefore = Arrays.copyOf(sizeBefore, capacity + 1);
+            }
+            ledgerIds[count] = ledgerInfo.getLedgerId();
+            entriesBefore[count + 1] = entriesBefore[count] + ledgerInfo.getEntries();
+            sizeBefore[count + 1] = sizeBefore[count] + ledgerInfo.getSize();
+            count++;
+        }
+        counts = new CumulativeCounts(currentVersion, Arrays.copyOf(ledgerIds, count),
+                Arrays.copyOf(entriesBefore, count + 1), Arrays.copyOf(sizeBefore, count + 1));
+        cumulativeCounts = counts;
+        return counts;
+    }
+
+    /**
+     * Get the total number of entries of the ledgers whose id is lower than a ledger id.
+     */
+    long getNumberOfEntriesBefore(long ledgerId) {
+        CumulativeCounts counts = getCumulativeCounts();
+        return counts.entriesBefore[counts.ledgerIndex(ledgerId)];
+    }
+
+    /**
+     * Get the total size of the ledgers whose id is lower than a ledger id.
+     */
+    long getSizeBefore(long ledgerId) {
+        CumulativeCounts counts = getCumulativeCounts();
+        return counts.sizeBefore[counts.ledgerIndex(ledgerId)];
+    }
+
+    /**
+     * Get the number of entries between a contiguous range of two positions.
+     *
+     * <p/>The entries of the ledger of the upper position are counted from its entry id, so that the ledger being
+     * written, whose number of entries isn't known yet, can be counted as well.
+     */
+    long getNumberOfEntries(Range<Position> range) {
+        Position fromPosition = range.lowerEndpoint();
+        boolean fromIncluded = range.lowerBoundType() == BoundType.CLOSED;
+        Position toPosition = range.upperEndpoint();
+        boolean toIncluded = range.upperBoundType() == BoundType.CLOSED;
+
+        if (fromPosition.getLedgerId() == toPosition.getLedgerId()) {
+            // If the 2 positions are in the same ledger
+            long count = toPosition.getEntryId() - fromPosition.getEntryId() - 1;
+            count += fromIncluded ? 1 : 0;
+            count += toIncluded ? 1 : 0;
+            return count;
+        }
+        CumulativeCounts counts = getCumulativeCounts();
+        int fromIndex = counts.ledgerIndex(fromPosition.getLedgerId());
+        int toIndex = counts.ledgerIndex(toPosition.getLedgerId());
+        // The entries of the ledgers from the one of fromPosition, up to the one of toPosition excluded
+        long count = counts.entriesBefore[toIndex] - counts.entriesBefore[fromIndex];
+        // minus the entries of the ledger of fromPosition before it, if the ledger still exists
+        if (fromIndex < counts.ledgerIds.length && counts.ledgerIds[fromIndex] == fromPosition.getLedgerId()) {
+            count -= fromPosition.getEntryId() + (fromIncluded ? 0 : 1);
+        }
+        // plus the entries of the ledger of toPosition up to it
+        count += toPosition.getEntryId() + (toIncluded ? 1 : 0);
+        return count;
+    }
+
+    private void modified() {
+        VERSION_UPDATER.incrementAndGet(this);
+    }
+
+    @Override
+    public LedgerInfo put(Long ledgerId, LedgerInfo ledgerInfo) {
+        try {
+            return super.put(ledgerId, ledgerInfo);
+        } finally {
+            modified();
+        }
+    }
+
+    @Override
+    public LedgerInfo putIfAbsent(Long ledgerId, LedgerInfo ledgerInfo) {
+        try {
+            return super.putIfAbsent(ledgerId, ledgerInfo);
+        } finally {
+            modified();
+        }
+    }
+
+    @Override
+    public LedgerInfo remove(Object ledgerId) {
+        try {
+            return super.remove(ledgerId);
+        } finally {
+            modified();
+        }
+    }
+
+    @Override
+    public boolean remove(Object ledgerId, Object ledgerInfo) {
+        try {
+            return super.remove(ledgerId, ledgerInfo);
+        } finally {
+            modified();
+        }
+    }
+
+    @Override
+    public LedgerInfo replace(Long ledgerId, LedgerInfo ledgerInfo) {
+        try {
+            return super.replace(ledgerId, ledgerInfo);
+        } finally {
+            modified();
+        }
+    }
+
+    @Override
+    public boolean replace(Long ledgerId, LedgerInfo oldLedgerInfo, LedgerInfo newLedgerInfo) {
+        try {
+            return super.replace(ledgerId, oldLedgerInfo, newLedgerInfo);
+        } finally {
+            modified();
+        }
+    }
+
+    @Override
+    public LedgerInfo computeIfAbsent(Long ledgerId, Function<? super Long, ? extends LedgerInfo> mappingFunction) {
+        try {
+            return super.computeIfAbsent(ledgerId, mappingFunction);
+        } finally {
+            modified();
+        }
+    }
+
+    @Override
+    public LedgerInfo computeIfPresent(Long ledgerId,
+            BiFunction<? super Long, ? super LedgerInfo, ? extends LedgerInfo> remappingFunction) {
+        try {
+            return super.computeIfPresent(ledgerId, remappingFunction);
+        } finally {
+            modified();
+        }
+    }
+
+    @Override
+    public LedgerInfo compute(Long ledgerId,
+            BiFunction<? super Long, ? super LedgerInfo, ? extends LedgerInfo> remappingFunction) {
+        try {
+            return super.compute(ledgerId, remappingFunction);
+        } finally {
+            modified();
+        }
+    }
+
+    @Override
+    public LedgerInfo merge(Long ledgerId, LedgerInfo ledgerInfo,
+            BiFunction<? super LedgerInfo, ? super LedgerInfo, ? extends LedgerInfo> remappingFunction) {
+        try {
+            return super.merge(ledgerId, ledgerInfo, remappingFunction);
+        } finally {
+            modified();
+        }
+    }
+
+    @Override
+    public Map.Entry<Long, LedgerInfo> pollFirstEntry() {
+        try {
+            return super.pollFirstEntry();
+        } finally {
+            modified();
+        }
+    }
+
+    @Override
+    public Map.Entry<Long, LedgerInfo> pollLastEntry() {
+        try {
+            return super.pollLastEntry();
+        } finally {
+            modified();
+        }
+    }
+
+    @Override
+    public void clear() {
+        try {
+            super.clear();
+        } finally {
+            modified();
+        }
+    }
+}
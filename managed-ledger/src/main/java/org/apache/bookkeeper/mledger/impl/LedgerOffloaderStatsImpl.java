@@ -58,6 +58,12 @@ public final class LedgerOffloaderStatsImpl implements LedgerOffloaderStats, Run
     private final Gauge readOffloadRate;
     private final Summary readOffloadIndexLatency;
     private final Summary readOffloadDataLatency;
+    private final Counter readOffloadBlockCacheHit;
+    private final Counter readOffloadBlockCacheMiss;
+    private final Counter readOffloadPrefetch;
+    private final Counter readOffloadPrefetchBytes;
+    private final Counter readOffloadIndexCacheHit;
+    private final Counter readOffloadIndexCacheMiss;
 
     private final Map<String, Long> topicAccess;
     private final Map<String, Pair<LongAdder, LongAdder>> offloadAndReadOffloadBytesMap;
@@ -91,6 +97,18 @@ public final class LedgerOffloaderStatsImpl implements LedgerOffloaderStats, Run
                  .labelNames(labels).create().register();
         this.writeStorageError = Counter.build("brk_ledgeroffloader_write_storage_error", "-")
                 .labelNames(labels).create().register();
+        this.readOffloadBlockCacheHit = Counter.build("brk_ledgeroffloader_read_offload_block_cache_hit", "-")
+                .labelNames(labels).create().register();
+        this.readOffloadBlockCacheMiss = Counter.build("brk_ledgeroffloader_read_offload_block_cache_miss", "-")
+                .labelNames(labels).create().register();
+        this.readOffloadPrefetch = Counter.build("brk_ledgeroffloader_read_offload_prefetch", "-")
+                .labelNames(labels).create().register();
+        this.readOffloadPrefetchBytes = Counter.build("brk_ledgeroffloader_read_offload_prefetch_bytes", "-")
+                .labelNames(labels).create().register();
+        this.readOffloadIndexCacheHit = Counter.build("brk_ledgeroffloader_read_offload_index_cache_hit", "-")
+                .labelNames(labels).create().register();
+        this.readOffloadIndexCacheMiss = Counter.build("brk_ledgeroffloader_read_offload_index_cache_miss", "-")
+                .labelNames(labels).create().register();
 
         this.readOffloadIndexLatency = Summary.build("brk_ledgeroffloader_read_offload_index_latency", "-")
                 .labelNames(labels).quantile(0.50, 0.01)
@@ -199,6 +217,42 @@ public final class LedgerOffloaderStatsImpl implements LedgerOffloaderStats, Run
         this.addOrUpdateTopicAccess(topic);
     }
 
+    @Override
+    public void recordReadOffloadBlockCacheHit(String topic) {
+        String[] labelValues = this.labelValues(topic);
+        this.readOffloadBlockCacheHit.labels(labelValues).inc();
+        this.addOrUpdateTopicAccess(topic);
+    }
+
+    @Override
+    public void recordReadOffloadBlockCacheMiss(String topic) {
+        String[] labelValues = this.labelValues(topic);
+        this.readOffloadBlockCacheMiss.labels(labelValues).inc();
+        this.addOrUpdateTopicAccess(topic);
+    }
+
+    @Override
+    public void recordReadOffloadPrefetch(String topic, long size) {
+        String[] labelValues = this.labelValues(topic);
+        this.readOffloadPrefetch.labels(labelValues).inc();
+        this.readOffloadPrefetchBytes.labels(labelValues).inc(size);
+        this.addOrUpdateTopicAccess(topic);
+    }
+
+    @Override
+    public void recordReadOffloadIndexCacheHit(String topic) {
+        String[] labelValues = this.labelValues(topic);
+        this.readOffloadIndexCacheHit.labels(labelValues).inc();
+        this.addOrUpdateTopicAccess(topic);
+    }
+
+    @Override
+    public void recordReadOffloadIndexCacheMiss(String topic) {
+        String[] labelValues = this.labelValues(topic);
+        this.readOffloadIndexCacheMiss.labels(labelValues).inc();
+        this.addOrUpdateTopicAccess(topic);
+    }
+
     private void addOrUpdateTopicAccess(String topic) {
         topic = StringUtils.isBlank(topic) ? UNKNOWN : topic;
         this.topicAccess.put(topic, System.currentTimeMillis());
@@ -247,6 +301,12 @@ public final class LedgerOffloaderStatsImpl implements LedgerOffloaderStats, Run
                 this.readOffloadRate.remove(labelValues);
                 this.readOffloadIndexLatency.remove(labelValues);
                 this.readOffloadDataLatency.remove(labelValues);
+                this.readOffloadBlockCacheHit.remove(labelValues);
+                this.readOffloadBlockCacheMiss.remove(labelValues);
+                this.readOffloadPrefetch.remove(labelValues);
+                this.readOffloadPrefetchBytes.remove(labelValues);
+                this.readOffloadIndexCacheHit.remove(labelValues);
+                this.readOffloadIndexCacheMiss.remove(labelValues);
 
                 labelValues = this.labelValues(topic, SUCCEED);
                 this.deleteOffloadOps.remove(labelValues);
@@ -288,6 +348,12 @@ public final class LedgerOffloaderStatsImpl implements LedgerOffloaderStats, Run
             CollectorRegistry.defaultRegistry.unregister(this.readOffloadIndexLatency);
             CollectorRegistry.defaultRegistry.unregister(this.readOffloadDataLatency);
             CollectorRegistry.defaultRegistry.unregister(this.deleteOffloadOps);
+            CollectorRegistry.defaultRegistry.unregister(this.readOffloadBlockCacheHit);
+            CollectorRegistry.defaultRegistry.unregister(this.readOffloadBlockCacheMiss);
+            CollectorRegistry.defaultRegistry.unregister(this.readOffloadPrefetch);
+            CollectorRegistry.defaultRegistry.unregister(this.readOffloadPrefetchBytes);
+            CollectorRegistry.defaultRegistry.unregister(this.readOffloadIndexCacheHit);
+            CollectorRegistry.defaultRegistry.unregister(this.readOffloadIndexCacheMiss);
             instance = null;
         }
     }
@@ -346,6 +412,36 @@ public final class LedgerOffloaderStatsImpl implements LedgerOffloaderStats, Run
         return totalBytes;
     }
 
+    @VisibleForTesting
+    public long getReadOffloadBlockCacheHit(String topic) {
+        String[] labels = this.labelValues(topic);
+        return (long) this.readOffloadBlockCacheHit.labels(labels).get();
+    }
+
+    @VisibleForTesting
+    public long getReadOffloadBlockCacheMiss(String topic) {
+        String[] labels = this.labelValues(topic);
+        return (long) this.readOffloadBlockCacheMiss.labels(labels).get();
+    }
+
+    @VisibleForTesting
+    public long getReadOffloadPrefetch(String topic) {
+        String[] labels = this.labelValues(topic);
+        return (long) this.readOffloadPrefetch.labels(labels).get();
+    }
+
+    @VisibleForTesting
+    public long getReadOffloadIndexCacheHit(String topic) {
+        String[] labels = this.labelValues(topic);
+        return (long) this.readOffloadIndexCacheHit.labels(labels).get();
+    }
+
+    @VisibleForTesting
+    public long getReadOffloadIndexCacheMiss(String topic) {
+        String[] labels = this.labelValues(topic);
+        return (long) this.readOffloadIndexCacheMiss.labels(labels).get();
+    }
+
     @VisibleForTesting
     public Summary.Child.Value getReadLedgerLatency(String topic) {
         String[] labels = this.labelValues(topic);
@@ -342,6 +342,26 @@ public class ManagedCursorContainer implements Iterable<ManagedCursor> {
         return count > 0;
     }
 
+    /**
+     * Get the number of durable cursors.
+     * @return the number of durable cursors in the container
+     */
+    public int getNumberOfDurableCursors() {
+        long stamp = rwLock.tryOptimisticRead();
+        int count = durableCursorCount;
+        if (!rwLock.validate(stamp)) {
+            // Fallback to read lock
+            stamp = rwLock.readLock();
+            try {
+                count = durableCursorCount;
+            } finally {
+                rwLock.unlockRead(stamp);
+            }
+        }
+
+        return count;
+    }
+
     @Override
     public String toString() {
         long stamp = rwLock.readLock();
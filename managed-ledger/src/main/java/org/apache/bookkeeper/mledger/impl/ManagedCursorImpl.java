@@ -38,7 +38,6 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -46,6 +45,8 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.CountDownLatch;
@@ -55,7 +56,6 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicLongFieldUpdater;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -80,6 +80,7 @@ import org.apache.bookkeeper.mledger.AsyncCallbacks.ReadEntryCallback;
 import org.apache.bookkeeper.mledger.AsyncCallbacks.ScanCallback;
 import org.apache.bookkeeper.mledger.AsyncCallbacks.SkipEntriesCallback;
 import org.apache.bookkeeper.mledger.Entry;
+import org.apache.bookkeeper.mledger.EntryMetadataPredicate;
 import org.apache.bookkeeper.mledger.ManagedCursor;
 import org.apache.bookkeeper.mledger.ManagedCursorAttributes;
 import org.apache.bookkeeper.mledger.ManagedCursorMXBean;
@@ -97,6 +98,7 @@ import org.apache.bookkeeper.mledger.impl.MetaStore.MetaStoreCallback;
 import org.apache.bookkeeper.mledger.proto.MLDataFormats;
 import org.apache.bookkeeper.mledger.proto.MLDataFormats.LongListMap;
 import org.apache.bookkeeper.mledger.proto.MLDataFormats.LongProperty;
+import org.apache.bookkeeper.mledger.proto.MLDataFormats.LongRunLengthList;
 import org.apache.bookkeeper.mledger.proto.MLDataFormats.ManagedCursorInfo;
 import org.apache.bookkeeper.mledger.proto.MLDataFormats.ManagedLedgerInfo.LedgerInfo;
 import org.apache.bookkeeper.mledger.proto.MLDataFormats.MessageRange;
@@ -118,17 +120,6 @@ import org.slf4j.LoggerFactory;
 
 @SuppressWarnings("checkstyle:javadoctype")
 public class ManagedCursorImpl implements ManagedCursor {
-    private static final Comparator<Entry> ENTRY_COMPARATOR = (e1, e2) -> {
-        if (e1.getLedgerId() != e2.getLedgerId()) {
-            return e1.getLedgerId() < e2.getLedgerId() ? -1 : 1;
-        }
-
-        if (e1.getEntryId() != e2.getEntryId()) {
-            return e1.getEntryId() < e2.getEntryId() ? -1 : 1;
-        }
-
-        return 0;
-    };
     protected final BookKeeper bookkeeper;
     protected final ManagedLedgerImpl ledger;
     private final String name;
@@ -221,6 +212,13 @@ public class ManagedCursorImpl implements ManagedCursor {
     private long entriesReadCount;
     private long entriesReadSize;
     private int individualDeletedMessagesSerializedSize;
+    // Position in the cursor ledger of the last full snapshot of the individually deleted messages, the following
+    // entries only contain the ledgers that changed. Guarded by the lock.
+    private long individualAckSnapshotLedgerId = -1;
+    private long individualAckSnapshotEntryId = -1;
+    private int individualAckDeltasSinceSnapshot;
+    // Incremented when the snapshot is invalidated, so that a snapshot written before can't become the last one
+    private long individualAckSnapshotGeneration;
     private static final String COMPACTION_CURSOR_NAME = "__compaction";
     private volatile boolean cacheReadEntry = false;
 
@@ -643,13 +641,51 @@ public class ManagedCursorImpl implements ManagedCursor {
                 }
 
                 Position position = PositionFactory.create(positionInfo.getLedgerId(), positionInfo.getEntryId());
-                recoverIndividualDeletedMessages(positionInfo);
                 if (getConfig().isDeletionAtBatchIndexLevelEnabled()
                     && positionInfo.getBatchedEntryDeletionIndexInfoCount() > 0) {
                     recoverBatchDeletedIndexes(positionInfo.getBatchedEntryDeletionIndexInfoList());
                 }
-                recoveredCursor(position, recoveredProperties, cursorProperties, lh);
-                callback.operationComplete();
+                final Map<String, Long> finalRecoveredProperties = recoveredProperties;
+                if (!positionInfo.hasIndividualDeletedMessagesSnapshotEntryId()
+                        || positionInfo.getIndividualDeletedMessagesSnapshotEntryId() >= lastEntryInLedger) {
+                    recoverIndividualDeletedMessages(positionInfo);
+                    recoveredCursor(position, recoveredProperties, cursorProperties, lh);
+                    callback.operationComplete();
+                    return;
+                }
+
+                // The last entry only contains the changes since the previous entries, replay them from the snapshot
+                long snapshotEntryId = positionInfo.getIndividualDeletedMessagesSnapshotEntryId();
+                lh.asyncReadEntries(snapshotEntryId, lastEntryInLedger - 1, (rc2, lh2, seq2, ctx2) -> {
+                    if (isBkErrorNotRecoverable(rc2) || (rc2 != BKException.Code.OK && ledgerForceRecovery)) {
+                        log.error("[{}] Error reading from metadata ledger {} for cursor {}: {}", ledger.getName(),
+                                ledgerId, name, BKException.getMessage(rc2));
+                        // Rewind to the oldest entry available
+                        initialize(getRollbackPosition(info), Collections.emptyMap(), cursorProperties, callback);
+                        return;
+                    } else if (rc2 != BKException.Code.OK) {
+                        log.warn("[{}] Error reading from metadata ledger {} for cursor {}: {}", ledger.getName(),
+                                ledgerId, name, BKException.getMessage(rc2));
+                        callback.operationFailed(createManagedLedgerException(rc2));
+                        return;
+                    }
+
+                    List<PositionInfo> positionInfos = new ArrayList<>();
+                    try {
+                        while (seq2.hasMoreElements()) {
+                            LedgerEntry previousEntry = seq2.nextElement();
+                            mbean.addReadCursorLedgerSize(previousEntry.getLength());
+                            positionInfos.add(PositionInfo.parseFrom(previousEntry.getEntry()));
+                        }
+                    } catch (InvalidProtocolBufferException e) {
+                        callback.operationFailed(new ManagedLedgerException(e));
+                        return;
+                    }
+                    positionInfos.add(positionInfo);
+                    replayIndividualDeletedMessages(positionInfos, position);
+                    recoveredCursor(position, finalRecoveredProperties, cursorProperties, lh);
+                    callback.operationComplete();
+                }, null);
             }, null);
         };
         try {
@@ -665,6 +701,8 @@ public class ManagedCursorImpl implements ManagedCursor {
     public void recoverIndividualDeletedMessages(PositionInfo positionInfo) {
         if (positionInfo.getIndividualDeletedMessagesCount() > 0) {
             recoverIndividualDeletedMessages(positionInfo.getIndividualDeletedMessagesList());
+        } else if (positionInfo.getIndividualDeletedMessageRunsCount() > 0) {
+            recoverIndividualDeletedMessageRuns(positionInfo.getIndividualDeletedMessageRunsList());
         } else if (positionInfo.getIndividualDeletedMessageRangesCount() > 0) {
             List<LongListMap> rangeList = positionInfo.getIndividualDeletedMessageRangesList();
             lock.writeLock().lock();
@@ -719,6 +757,75 @@ public class ManagedCursorImpl implements ManagedCursor {
         return longListMap;
     }
 
+    private List<LongRunLengthList> buildLongRunLengthLists(Map<Long, long[]> runLengthRanges) {
+        List<LongRunLengthList> runLengthLists = new ArrayList<>(runLengthRanges.size());
+        int serializedSize = 0;
+        LongRunLengthList.Builder builder = LongRunLengthList.newBuilder();
+        for (Map.Entry<Long, long[]> entry : runLengthRanges.entrySet()) {
+            builder.clear().setKey(entry.getKey());
+            for (long run : entry.getValue()) {
+                builder.addRuns(run);
+            }
+            LongRunLengthList runLengthList = builder.build();
+            runLengthLists.add(runLengthList);
+            serializedSize += runLengthList.getSerializedSize();
+        }
+        individualDeletedMessagesSerializedSize = serializedSize;
+        return runLengthLists;
+    }
+
+    private void recoverIndividualDeletedMessageRuns(List<LongRunLengthList> runLengthLists) {
+        lock.writeLock().lock();
+        try {
+            individualDeletedMessages.clear();
+            addIndividualDeletedMessageRuns(runLengthLists);
+        } catch (Exception e) {
+            log.warn("[{}]-{} Failed to recover individualDeletedMessages from serialized data", ledger.getName(),
+                    name, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addIndividualDeletedMessageRuns(List<LongRunLengthList> runLengthLists) {
+        for (LongRunLengthList runLengthList : runLengthLists) {
+            long[] runs = new long[runLengthList.getRunsCount()];
+            for (int i = 0; i < runs.length; i++) {
+                runs[i] = runLengthList.getRuns(i);
+            }
+            individualDeletedMessages.addRunLengthRanges(runLengthList.getKey(), runs);
+        }
+    }
+
+    /**
+     * Rebuild the individually deleted messages from a full snapshot followed by the entries that only contain the
+     * ledgers that changed. The individually deleted messages only grow until the mark-delete position moves forward,
+     * so the changes can be added on top of each other and the ranges before the mark-delete position are trimmed at
+     * the end.
+     */
+    private void replayIndividualDeletedMessages(List<PositionInfo> positionInfos, Position markDeletePosition) {
+        recoverIndividualDeletedMessages(positionInfos.get(0));
+        lock.writeLock().lock();
+        try {
+            for (int i = 1; i < positionInfos.size(); i++) {
+                PositionInfo positionInfo = positionInfos.get(i);
+                if (positionInfo.hasIndividualDeletedMessagesSnapshotEntryId()) {
+                    addIndividualDeletedMessageRuns(positionInfo.getIndividualDeletedMessageRunsList());
+                } else {
+                    // A full snapshot written after the one the replay started from
+                    recoverIndividualDeletedMessages(positionInfo);
+                }
+            }
+            individualDeletedMessages.removeAtMost(markDeletePosition.getLedgerId(),
+                    markDeletePosition.getEntryId());
+        } catch (Exception e) {
+            log.warn("[{}]-{} Failed to replay individualDeletedMessages from serialized data", ledger.getName(),
+                    name, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
     private void recoverIndividualDeletedMessages(List<MLDataFormats.MessageRange> individualDeletedMessagesList) {
         lock.writeLock().lock();
         try {
@@ -1319,6 +1426,100 @@ public class ManagedCursorImpl implements ManagedCursor {
         return future;
     }
 
+    @Override
+    public CompletableFuture<ScanOutcome> scanMetadata(Optional<Position> position,
+                                                       EntryMetadataPredicate condition,
+                                                       int batchSize, int parallelism,
+                                                       long maxEntries, long timeOutMs) {
+        Position startPosition = position.orElseGet(
+                () -> ledger.getNextValidPosition(markDeletePosition));
+        Position lastPosition = ledger.getLastPosition();
+        long startTime = System.currentTimeMillis();
+        if (parallelism <= 1 || startPosition.getLedgerId() >= lastPosition.getLedgerId()) {
+            return scanLedger(startPosition, -1, condition, batchSize, new AtomicLong(maxEntries), startTime,
+                    timeOutMs);
+        }
+
+        // Scan each ledger separately, up to parallelism ledgers at a time. The max entries are handed out to the
+        // ledgers in order, so that the scanned entries are a prefix of the backlog as with a sequential scan.
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(parallelism, ledger.getExecutor());
+        AtomicBoolean interrupted = new AtomicBoolean();
+        EntryMetadataPredicate interruptibleCondition = (entryPosition, brokerEntryMetadata, metadata) -> {
+            if (!interrupted.get() && condition.test(entryPosition, brokerEntryMetadata, metadata)) {
+                return true;
+            }
+            // stop the scans of the other ledgers
+            interrupted.set(true);
+            return false;
+        };
+        List<CompletableFuture<ScanOutcome>> ledgerScans = new ArrayList<>();
+        long unassignedEntries = maxEntries;
+        for (LedgerInfo ledgerInfo : ledger.getLedgersInfo()
+                .subMap(startPosition.getLedgerId(), true, lastPosition.getLedgerId(), true).values()) {
+            if (unassignedEntries <= 0) {
+                // the following ledgers are beyond the max entries
+                ledgerScans.add(CompletableFuture.completedFuture(ScanOutcome.ABORTED));
+                break;
+            }
+            long ledgerId = ledgerInfo.getLedgerId();
+            Position ledgerStartPosition = ledgerId == startPosition.getLedgerId()
+                    ? startPosition : PositionFactory.create(ledgerId, 0);
+            long ledgerMaxEntries;
+            if (ledgerId == lastPosition.getLedgerId()) {
+                // entries may still be added to the last ledger
+                ledgerMaxEntries = unassignedEntries;
+            } else {
+                long entriesToScan = ledgerInfo.getEntries() - ledgerStartPosition.getEntryId();
+                if (entriesToScan <= 0) {
+                    continue;
+                }
+                // a scan aborts once its remaining entries reach 0, a ledger scanned entirely gets one more entry
+                ledgerMaxEntries = entriesToScan < unassignedEntries ? entriesToScan + 1 : unassignedEntries;
+                unassignedEntries -= Math.min(entriesToScan, unassignedEntries);
+            }
+            AtomicLong remainingEntries = new AtomicLong(ledgerMaxEntries);
+            ledgerScans.add(limiter.submit(() -> {
+                if (interrupted.get()) {
+                    return CompletableFuture.completedFuture(ScanOutcome.ABORTED);
+                }
+                return scanLedger(ledgerStartPosition, ledgerId, interruptibleCondition, batchSize, remainingEntries,
+                        startTime, timeOutMs);
+            }));
+        }
+        return FutureUtil.waitForAll(ledgerScans).thenApply(__ -> {
+            ScanOutcome outcome = ScanOutcome.COMPLETED;
+            for (CompletableFuture<ScanOutcome> ledgerScan : ledgerScans) {
+                ScanOutcome ledgerOutcome = ledgerScan.join();
+                if (ledgerOutcome == ScanOutcome.USER_INTERRUPTED) {
+                    return ledgerOutcome;
+                } else if (ledgerOutcome == ScanOutcome.ABORTED) {
+                    outcome = ledgerOutcome;
+                }
+            }
+            return outcome;
+        });
+    }
+
+    private CompletableFuture<ScanOutcome> scanLedger(Position startPosition, long ledgerId,
+                                                      EntryMetadataPredicate condition, int batchSize,
+                                                      AtomicLong remainingEntries, long startTime, long timeOutMs) {
+        CompletableFuture<ScanOutcome> future = new CompletableFuture<>();
+        OpScan op = new OpScan(this, batchSize, startPosition, ledgerId, condition, new ScanCallback() {
+            @Override
+            public void scanComplete(Position position, ScanOutcome scanOutcome, Object ctx) {
+                future.complete(scanOutcome);
+            }
+
+            @Override
+            public void scanFailed(ManagedLedgerException exception,
+                                   Optional<Position> failedReadPosition, Object ctx) {
+                future.completeExceptionally(exception);
+            }
+        }, null, remainingEntries, startTime, timeOutMs);
+        op.find();
+        return future;
+    }
+
     @Override
     public Position findNewestMatching(FindPositionConstraint constraint, Predicate<Entry> condition)
             throws InterruptedException, ManagedLedgerException {
@@ -1498,6 +1699,8 @@ public class ManagedCursorImpl implements ManagedCursor {
                     lastMarkDeleteEntry = new MarkDeleteEntry(newMarkDeletePosition, isCompactionCursor()
                             ? getProperties() : Collections.emptyMap(), null, null);
                     individualDeletedMessages.clear();
+                    // the acks past the new position are gone, the deltas can't be replayed on the last snapshot
+                    invalidateIndividualAckSnapshot();
                     if (batchDeletedIndexes != null) {
                         batchDeletedIndexes.clear();
                         AckSetStateUtil.maybeGetAckSetState(newReadPosition).ifPresent(ackSetState -> {
@@ -1674,9 +1877,8 @@ public class ManagedCursorImpl implements ManagedCursor {
     @Override
     public Set<? extends Position> asyncReplayEntries(Set<? extends Position> positions,
             ReadEntriesCallback callback, Object ctx, boolean sortEntries) {
-        List<Entry> entries = Lists.newArrayListWithExpectedSize(positions.size());
         if (positions.isEmpty()) {
-            callback.readEntriesComplete(entries, ctx);
+            callback.readEntriesComplete(new ArrayList<>(), ctx);
             return Collections.emptySet();
         }
 
@@ -1689,58 +1891,39 @@ public class ManagedCursorImpl implements ManagedCursor {
             lock.readLock().unlock();
         }
 
-        final int totalValidPositions = positions.size() - alreadyAcknowledgedPositions.size();
-        final AtomicReference<ManagedLedgerException> exception = new AtomicReference<>();
-        ReadEntryCallback cb = new ReadEntryCallback() {
-            int pendingCallbacks = totalValidPositions;
+        SortedSet<Position> positionsToRead = new TreeSet<>();
+        positions.stream().filter(position -> !alreadyAcknowledgedPositions.contains(position))
+                .forEach(p -> {
+                    if (p.compareTo(this.readPosition) == 0) {
+                        this.setReadPosition(this.readPosition.getNext());
+                        log.warn("[{}][{}] replayPosition{} equals readPosition{}," + " need set next readPosition",
+                                ledger.getName(), name, p, this.readPosition);
+                    }
+                    positionsToRead.add(p);
+                });
+        if (positionsToRead.isEmpty()) {
+            // the caller handles the replay of positions that were all acknowledged already
+            return alreadyAcknowledgedPositions;
+        }
 
+        // The consecutive positions are read with a single range read, through the read path of the ledger
+        ledger.asyncReadEntries(positionsToRead, sortEntries, new ReadEntriesCallback() {
             @Override
-            public synchronized void readEntryComplete(Entry entry, Object ctx) {
-                if (exception.get() != null) {
-                    // if there is already a failure for a different position, we should release the entry straight away
-                    // and not add it to the list
-                    entry.release();
-                    if (--pendingCallbacks == 0) {
-                        callback.readEntriesFailed(exception.get(), ctx);
-                    }
-                } else {
-                    entries.add(entry);
-                    if (--pendingCallbacks == 0) {
-                        if (sortEntries) {
-                            entries.sort(ENTRY_COMPARATOR);
-                        }
-                        callback.readEntriesComplete(entries, ctx);
-                    }
-                }
+            public void readEntriesComplete(List<Entry> entries, Object ctx) {
+                callback.readEntriesComplete(entries, ctx);
             }
 
             @Override
-            public synchronized void readEntryFailed(ManagedLedgerException mle, Object ctx) {
-                log.warn("[{}][{}] Error while replaying entries", ledger.getName(), name, mle);
-                if (exception.compareAndSet(null, mle)) {
-                    // release the entries just once, any further read success will release the entry straight away
-                    entries.forEach(Entry::release);
-                }
-                if (--pendingCallbacks == 0) {
-                    callback.readEntriesFailed(exception.get(), ctx);
-                }
+            public void readEntriesFailed(ManagedLedgerException exception, Object ctx) {
+                log.warn("[{}][{}] Error while replaying entries", ledger.getName(), name, exception);
+                callback.readEntriesFailed(exception, ctx);
             }
 
             @Override
             public String toString() {
                 return String.format("Cursor [%s] async replay entries", ManagedCursorImpl.this);
             }
-        };
-
-        positions.stream().filter(position -> !alreadyAcknowledgedPositions.contains(position))
-                .forEach(p ->{
-                    if (p.compareTo(this.readPosition) == 0) {
-                        this.setReadPosition(this.readPosition.getNext());
-                        log.warn("[{}][{}] replayPosition{} equals readPosition{}," + " need set next readPosition",
-                                ledger.getName(), name, p, this.readPosition);
-                    }
-                    ledger.asyncReadEntry(p, cb, ctx);
-                });
+        }, ctx);
 
         return alreadyAcknowledgedPositions;
     }
@@ -3277,7 +3460,6 @@ public class ManagedCursorImpl implements ManagedCursor {
             });
 
             this.individualDeletedMessagesSerializedSize = acksSerializedSize.get();
-            individualDeletedMessages.resetDirtyKeys();
             return rangeList;
         } finally {
             lock.writeLock().unlock();
@@ -3334,7 +3516,59 @@ public class ManagedCursorImpl implements ManagedCursor {
          * Do not enable the feature that https://github.com/apache/pulsar/pull/9292 introduced, to avoid serialization
          * and deserialization error.
          */
-        if (getConfig().isUnackedRangesOpenCacheSetEnabled() && getConfig().isPersistIndividualAckAsLongArray()) {
+        Map<Long, long[]> runLengthRanges = null;
+        boolean individualAckDelta = false;
+        long individualAckSnapshotEntryId = -1;
+        long individualAckSnapshotGeneration = -1;
+        final boolean individualAckDeltaEnabled = getConfig().isUnackedRangesOpenCacheSetEnabled()
+                && getConfig().isPersistentUnackedRangesWithMultipleEntriesEnabled();
+        if (individualAckDeltaEnabled) {
+            lock.writeLock().lock();
+            try {
+                // Only write the ledgers that changed since the previous entry, unless a new snapshot is needed
+                individualAckDelta = lh.getId() == this.individualAckSnapshotLedgerId
+                        && individualAckDeltasSinceSnapshot < getConfig().getPersistentUnackedRangesSnapshotInterval();
+                // The entry is limited like the other encodings, so that it always fits in a cursor ledger entry.
+                // A delta which reaches the limit would drop changes, a (limited) snapshot is written instead: as
+                // with the other encodings, the ranges beyond the limit are redelivered after a recovery.
+                final int maxRanges = getConfig().getMaxUnackedRangesToPersist();
+                if (individualAckDelta) {
+                    runLengthRanges = individualDeletedMessages.toRunLengthRanges(maxRanges, true);
+                    if (countRunLengthRanges(runLengthRanges) >= maxRanges) {
+                        individualAckDelta = false;
+                    }
+                }
+                if (!individualAckDelta) {
+                    runLengthRanges = individualDeletedMessages.toRunLengthRanges(maxRanges, false);
+                }
+                individualDeletedMessages.resetDirtyKeys();
+                individualAckSnapshotGeneration = this.individualAckSnapshotGeneration;
+                if (individualAckDelta) {
+                    individualAckSnapshotEntryId = this.individualAckSnapshotEntryId;
+                    individualAckDeltasSinceSnapshot++;
+                } else {
+                    individualAckDeltasSinceSnapshot = 0;
+                }
+            } catch (Exception e) {
+                log.warn("[{}]-{} Failed to serialize individualDeletedMessages", ledger.getName(), name, e);
+                runLengthRanges = null;
+                individualAckDelta = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } else if (getConfig().isUnackedRangesOpenCacheSetEnabled()
+                && getConfig().isPersistIndividualAckAsRunLength()) {
+            lock.readLock().lock();
+            try {
+                runLengthRanges =
+                        individualDeletedMessages.toRunLengthRanges(getConfig().getMaxUnackedRangesToPersist());
+            } catch (Exception e) {
+                log.warn("[{}]-{} Failed to serialize individualDeletedMessages", ledger.getName(), name, e);
+            } finally {
+                lock.readLock().unlock();
+            }
+        } else if (getConfig().isUnackedRangesOpenCacheSetEnabled()
+                && getConfig().isPersistIndividualAckAsLongArray()) {
             lock.readLock().lock();
             try {
                 internalRanges = individualDeletedMessages.toRanges(getConfig().getMaxUnackedRangesToPersist());
@@ -3344,7 +3578,12 @@ public class ManagedCursorImpl implements ManagedCursor {
                 lock.readLock().unlock();
             }
         }
-        if (internalRanges != null && !internalRanges.isEmpty()) {
+        if (individualAckDelta) {
+            piBuilder.setIndividualDeletedMessagesSnapshotEntryId(individualAckSnapshotEntryId);
+            piBuilder.addAllIndividualDeletedMessageRuns(buildLongRunLengthLists(runLengthRanges));
+        } else if (runLengthRanges != null && !runLengthRanges.isEmpty()) {
+            piBuilder.addAllIndividualDeletedMessageRuns(buildLongRunLengthLists(runLengthRanges));
+        } else if (internalRanges != null && !internalRanges.isEmpty()) {
             piBuilder.addAllIndividualDeletedMessageRanges(buildLongPropertiesMap(internalRanges));
         } else {
             piBuilder.addAllIndividualDeletedMessages(buildIndividualDeletedMessageRanges());
@@ -3358,12 +3597,17 @@ public class ManagedCursorImpl implements ManagedCursor {
 
         requireNonNull(lh);
         byte[] data = pi.toByteArray();
+        final boolean individualAckSnapshot = individualAckDeltaEnabled && !individualAckDelta;
+        final long snapshotGeneration = individualAckSnapshotGeneration;
         lh.asyncAddEntry(data, (rc, lh1, entryId, ctx) -> {
             if (rc == BKException.Code.OK) {
                 if (log.isDebugEnabled()) {
                     log.debug("[{}] Updated cursor {} position {} in meta-ledger {}", ledger.getName(), name, position,
                             lh1.getId());
                 }
+                if (individualAckSnapshot) {
+                    updateIndividualAckSnapshot(snapshotGeneration, lh1.getId(), entryId);
+                }
 
                 rolloverLedgerIfNeeded(lh1);
 
@@ -3380,6 +3624,15 @@ public class ManagedCursorImpl implements ManagedCursor {
                 }
                 log.warn("[{}] Error updating cursor {} position {} in meta-ledger {}: {}", ledger.getName(), name,
                         position, lh1.getId(), BKException.getMessage(rc));
+                if (individualAckDeltaEnabled) {
+                    // The changes of the failed entry are lost, the next entry has to be a full snapshot
+                    lock.writeLock().lock();
+                    try {
+                        invalidateIndividualAckSnapshot();
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                }
                 // If we've had a write error, the ledger will be automatically closed, we need to create a new one,
                 // in the meantime the mark-delete will be queued.
                 STATE_UPDATER.compareAndSet(ManagedCursorImpl.this, State.Open, State.NoLedger);
@@ -3390,6 +3643,38 @@ public class ManagedCursorImpl implements ManagedCursor {
         }, null);
     }
 
+    private static int countRunLengthRanges(Map<Long, long[]> runLengthRanges) {
+        int ranges = 0;
+        for (long[] runs : runLengthRanges.values()) {
+            // each run is a (gap, length) pair
+            ranges += runs.length / 2;
+        }
+        return ranges;
+    }
+
+    private void updateIndividualAckSnapshot(long generation, long ledgerId, long entryId) {
+        lock.writeLock().lock();
+        try {
+            // the snapshot was invalidated while it was written
+            if (generation == individualAckSnapshotGeneration) {
+                individualAckSnapshotLedgerId = ledgerId;
+                individualAckSnapshotEntryId = entryId;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Forget the last snapshot of the individually deleted messages, so that the next entry written to the cursor
+     * ledger is a full snapshot. Must be called with the write lock held.
+     */
+    private void invalidateIndividualAckSnapshot() {
+        individualAckSnapshotLedgerId = -1;
+        individualAckSnapshotEntryId = -1;
+        individualAckSnapshotGeneration++;
+    }
+
     public boolean periodicRollover() {
         LedgerHandle lh = cursorLedger;
         if (state == State.Open && lh != null && lh.getLength() > 0) {
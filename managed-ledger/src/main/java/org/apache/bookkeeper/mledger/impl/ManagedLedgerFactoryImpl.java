@@ -23,7 +23,6 @@ import static org.apache.bookkeeper.mledger.impl.ManagedLedgerImpl.NULL_OFFLOAD_
 import static org.apache.pulsar.common.util.Runnables.catchingAndLoggingThrowables;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Predicates;
-import com.google.common.collect.BoundType;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Range;
 import com.google.protobuf.InvalidProtocolBufferException;
@@ -31,6 +30,7 @@ import io.netty.util.concurrent.DefaultThreadFactory;
 import io.opentelemetry.api.OpenTelemetry;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.List;
@@ -50,6 +50,7 @@ import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import lombok.AccessLevel;
 import lombok.Getter;
 import org.apache.bookkeeper.client.AsyncCallback;
 import org.apache.bookkeeper.client.BKException;
@@ -129,6 +130,9 @@ public class ManagedLedgerFactoryImpl implements ManagedLedgerFactory {
     protected final ConcurrentHashMap<String, PendingInitializeManagedLedger> pendingInitializeLedgers =
         new ConcurrentHashMap<>();
     private final EntryCacheManager entryCacheManager;
+    private final ConcurrencyLimiter cursorRecoveryLimiter;
+    @Getter(AccessLevel.PACKAGE)
+    private final ConcurrencyLimiter ledgerDeletionLimiter;
 
     private long lastStatTimestamp = System.nanoTime();
     private final ScheduledFuture<?> statsTask;
@@ -241,6 +245,10 @@ public class ManagedLedgerFactoryImpl implements ManagedLedgerFactory {
                 compressionConfigForManagedLedgerInfo,
                 compressionConfigForManagedCursorInfo);
         this.config = config;
+        this.cursorRecoveryLimiter = new ConcurrencyLimiter(config.getMaxConcurrentCursorRecoveries(),
+                scheduledExecutor);
+        this.ledgerDeletionLimiter = new ConcurrencyLimiter(config.getMaxConcurrentLedgerDeletions(),
+                scheduledExecutor);
         this.mbean = new ManagedLedgerFactoryMBeanImpl(this);
         this.entryCacheManager = new RangeEntryCacheManagerImpl(this, scheduledExecutor, openTelemetry);
         this.statsTask = scheduledExecutor.scheduleWithFixedDelay(catchingAndLoggingThrowables(this::refreshStats),
@@ -480,6 +488,7 @@ public class ManagedLedgerFactoryImpl implements ManagedLedgerFactory {
                             @Override
                             public void initializeComplete() {
                                 log.info("[{}] Successfully initialize managed ledger", name);
+                                newledger.recordInitializationTimes();
                                 pendingInitializeLedgers.remove(name, pendingLedger);
                                 future.complete(newledger);
 
@@ -714,7 +723,7 @@ public class ManagedLedgerFactoryImpl implements ManagedLedgerFactory {
                     openTelemetryManagedLedgerStats.close();
                     openTelemetryCacheStats.close();
                     scheduledExecutor.shutdownNow();
-                    entryCacheManager.clear();
+                    entryCacheManager.shutdown();
                     if (bookkeeperFactory instanceof DefaultBkFactory defaultBkFactory) {
                         try {
                             defaultBkFactory.close();
@@ -739,6 +748,32 @@ public class ManagedLedgerFactoryImpl implements ManagedLedgerFactory {
         return store.asyncExists(ledgerName);
     }
 
+    @Override
+    public CompletableFuture<Void> asyncPrefetchMetadata(Collection<String> ledgerNames) {
+        // The managed ledgers which are already opened don't read their metadata again
+        List<String> ledgersToPrefetch = ledgerNames.stream().filter(name -> !ledgers.containsKey(name)).toList();
+        if (ledgersToPrefetch.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long startNanos = System.nanoTime();
+        return store.prefetch(ledgersToPrefetch).thenRun(() -> log.info("Prefetched the metadata of {} managed ledgers "
+                + "in {} ms", ledgersToPrefetch.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)));
+    }
+
+    /**
+     * Run a cursor recovery once fewer than {@link ManagedLedgerFactoryConfig#getMaxConcurrentCursorRecoveries()}
+     * recoveries are in progress. The recovery must call {@link #cursorRecoveryCompleted()} once it has completed,
+     * whatever its outcome.
+     */
+    void runCursorRecovery(Runnable recovery) {
+        cursorRecoveryLimiter.run(recovery);
+    }
+
+    void cursorRecoveryCompleted() {
+        cursorRecoveryLimiter.operationCompleted();
+    }
+
     @Override
     public ManagedLedgerInfo getManagedLedgerInfo(String name) throws InterruptedException, ManagedLedgerException {
         class Result {
@@ -1190,10 +1225,10 @@ public class ManagedLedgerFactoryImpl implements ManagedLedgerFactory {
         offlineTopicStats.statGeneratedAt.setTime(System.currentTimeMillis());
     }
 
-    private NavigableMap<Long, MLDataFormats.ManagedLedgerInfo.LedgerInfo> getManagedLedgersInfo(
+    private LedgerInfoMap getManagedLedgersInfo(
             final TopicName topicName, boolean accurate, BookKeeper.DigestType digestType, byte[] password)
             throws Exception {
-        final NavigableMap<Long, MLDataFormats.ManagedLedgerInfo.LedgerInfo> ledgers = new ConcurrentSkipListMap<>();
+        final LedgerInfoMap ledgers = new LedgerInfoMap();
 
         String managedLedgerName = topicName.getPersistenceNamingEncoding();
         MetaStore store = getMetaStore();
@@ -1283,6 +1318,8 @@ public class ManagedLedgerFactoryImpl implements ManagedLedgerFactory {
         final long errorInReadingCursor = -1;
         final var ledgerRetryMap = new ConcurrentHashMap<String, Long>();
 
+        // The backlog of each cursor is computed from the cumulative counts of the ledgers, computed once
+        final LedgerInfoMap ledgerInfoMap = ledgers instanceof LedgerInfoMap m ? m : new LedgerInfoMap(ledgers);
         final MLDataFormats.ManagedLedgerInfo.LedgerInfo ledgerInfo = ledgers.lastEntry().getValue();
         final Position lastLedgerPosition =
                 PositionFactory.create(ledgerInfo.getLedgerId(), ledgerInfo.getEntries() - 1);
@@ -1384,7 +1421,7 @@ public class ManagedLedgerFactoryImpl implements ManagedLedgerFactory {
                                             log.debug("[{}] Calculating backlog for cursor {} using range {}",
                                                     managedLedgerName, cursorName, range);
                                         }
-                                        long cursorBacklog = getNumberOfEntries(range, ledgers);
+                                        long cursorBacklog = ledgerInfoMap.getNumberOfEntries(range);
                                         offlineTopicStats.messageBacklog += cursorBacklog;
                                         offlineTopicStats.addCursorDetails(cursorName, cursorBacklog, lh.getId());
                                     }
@@ -1418,7 +1455,7 @@ public class ManagedLedgerFactoryImpl implements ManagedLedgerFactory {
                                             log.debug("[{}] Calculating backlog for cursor {} using range {}",
                                                     managedLedgerName, cursorName, range);
                                         }
-                                        long cursorBacklog = getNumberOfEntries(range, ledgers);
+                                        long cursorBacklog = ledgerInfoMap.getNumberOfEntries(range);
                                         offlineTopicStats.messageBacklog += cursorBacklog;
                                         offlineTopicStats.addCursorDetails(cursorName, cursorBacklog, cursorLedgerId);
                                         cursorCounter.countDown();
@@ -1480,7 +1517,7 @@ public class ManagedLedgerFactoryImpl implements ManagedLedgerFactory {
                         log.debug("[{}] Calculating backlog for cursor {} using range {}", managedLedgerName,
                                 cursorName, range);
                     }
-                    long cursorBacklog = getNumberOfEntries(range, ledgers);
+                    long cursorBacklog = ledgerInfoMap.getNumberOfEntries(range);
                     offlineTopicStats.messageBacklog += cursorBacklog;
                     offlineTopicStats.addCursorDetails(cursorName, cursorBacklog, ledgerId);
                 }
@@ -1488,45 +1525,6 @@ public class ManagedLedgerFactoryImpl implements ManagedLedgerFactory {
         }
     }
 
-    // need a better way than to duplicate the functionality below from ML
-    private long getNumberOfEntries(Range<Position> range,
-                                    NavigableMap<Long, MLDataFormats.ManagedLedgerInfo.LedgerInfo> ledgers) {
-        Position fromPosition = range.lowerEndpoint();
-        boolean fromIncluded = range.lowerBoundType() == BoundType.CLOSED;
-        Position toPosition = range.upperEndpoint();
-        boolean toIncluded = range.upperBoundType() == BoundType.CLOSED;
-
-        if (fromPosition.getLedgerId() == toPosition.getLedgerId()) {
-            // If the 2 positions are in the same ledger
-            long count = toPosition.getEntryId() - fromPosition.getEntryId() - 1;
-            count += fromIncluded ? 1 : 0;
-            count += toIncluded ? 1 : 0;
-            return count;
-        } else {
-            long count = 0;
-            // If the from & to are pointing to different ledgers, then we need to :
-            // 1. Add the entries in the ledger pointed by toPosition
-            count += toPosition.getEntryId();
-            count += toIncluded ? 1 : 0;
-
-            // 2. Add the entries in the ledger pointed by fromPosition
-            MLDataFormats.ManagedLedgerInfo.LedgerInfo li = ledgers.get(fromPosition.getLedgerId());
-            if (li != null) {
-                count += li.getEntries() - (fromPosition.getEntryId() + 1);
-                count += fromIncluded ? 1 : 0;
-            }
-
-            // 3. Add the whole ledgers entries in between
-            for (MLDataFormats.ManagedLedgerInfo.LedgerInfo ls : ledgers
-                    .subMap(fromPosition.getLedgerId(), false, toPosition.getLedgerId(), false).values()) {
-                count += ls.getEntries();
-            }
-
-            return count;
-        }
-    }
-
-
     private Position tryGetMDPosition(BookKeeper bookKeeper, long ledgerId, String cursorName) {
         BookKeeperAdmin bookKeeperAdmin = null;
         long lastEntry = LedgerHandle.INVALID_ENTRY_ID;
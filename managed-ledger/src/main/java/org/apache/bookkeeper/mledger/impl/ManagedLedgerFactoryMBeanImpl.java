@@ -21,21 +21,33 @@ package org.apache.bookkeeper.mledger.impl;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.LongAdder;
 import org.apache.bookkeeper.mledger.ManagedLedgerFactoryMXBean;
+import org.apache.bookkeeper.mledger.util.StatsBuckets;
 import org.apache.pulsar.common.stats.Rate;
 
 @SuppressWarnings("checkstyle:javadoctype")
 public class ManagedLedgerFactoryMBeanImpl implements ManagedLedgerFactoryMXBean {
 
+    public static final long[] OPEN_PHASE_LATENCY_BUCKETS_MS = { 10, 50, 100, 500, 1_000, 5_000, 10_000, 30_000 };
+
     private final ManagedLedgerFactoryImpl factory;
 
     final Rate cacheHits = new Rate();
     final Rate cacheMisses = new Rate();
     final Rate cacheEvictions = new Rate();
+    final Rate localDiskCacheHits = new Rate();
+    final Rate localDiskCacheMisses = new Rate();
+    final Rate ledgerDeletions = new Rate();
+    private final LongAdder ledgerDeletionFailures = new LongAdder();
 
     private final LongAdder insertedEntryCount = new LongAdder();
     private final LongAdder evictedEntryCount = new LongAdder();
     private final LongAdder cacheEntryCount = new LongAdder();
 
+    // Time spent in each phase of the opening of the managed ledgers
+    private final StatsBuckets openMetadataLatencyStatsMs = new StatsBuckets(OPEN_PHASE_LATENCY_BUCKETS_MS);
+    private final StatsBuckets openLedgersLatencyStatsMs = new StatsBuckets(OPEN_PHASE_LATENCY_BUCKETS_MS);
+    private final StatsBuckets openCursorsLatencyStatsMs = new StatsBuckets(OPEN_PHASE_LATENCY_BUCKETS_MS);
+
     public ManagedLedgerFactoryMBeanImpl(ManagedLedgerFactoryImpl factory) throws Exception {
         this.factory = factory;
     }
@@ -51,6 +63,12 @@ public class ManagedLedgerFactoryMBeanImpl implements ManagedLedgerFactoryMXBean
         cacheHits.calculateRate(seconds);
         cacheMisses.calculateRate(seconds);
         cacheEvictions.calculateRate(seconds);
+        localDiskCacheHits.calculateRate(seconds);
+        localDiskCacheMisses.calculateRate(seconds);
+        ledgerDeletions.calculateRate(seconds);
+        openMetadataLatencyStatsMs.refresh();
+        openLedgersLatencyStatsMs.refresh();
+        openCursorsLatencyStatsMs.refresh();
     }
 
     public void recordCacheHit(long size) {
@@ -65,6 +83,14 @@ public class ManagedLedgerFactoryMBeanImpl implements ManagedLedgerFactoryMXBean
         cacheMisses.recordMultipleEvents(count, totalSize);
     }
 
+    public void recordLocalDiskCacheHits(int count, long totalSize) {
+        localDiskCacheHits.recordMultipleEvents(count, totalSize);
+    }
+
+    public void recordLocalDiskCacheMiss() {
+        localDiskCacheMisses.recordEvent();
+    }
+
     public void recordCacheEviction() {
         cacheEvictions.recordEvent();
     }
@@ -79,6 +105,20 @@ public class ManagedLedgerFactoryMBeanImpl implements ManagedLedgerFactoryMXBean
         cacheEntryCount.add(-count);
     }
 
+    public void recordLedgerDeletion(long size) {
+        ledgerDeletions.recordEvent(size);
+    }
+
+    public void recordLedgerDeletionFailure() {
+        ledgerDeletionFailures.increment();
+    }
+
+    public void recordManagedLedgerOpen(long metadataNanos, long ledgersNanos, long cursorsNanos) {
+        openMetadataLatencyStatsMs.addValue(TimeUnit.NANOSECONDS.toMillis(metadataNanos));
+        openLedgersLatencyStatsMs.addValue(TimeUnit.NANOSECONDS.toMillis(ledgersNanos));
+        openCursorsLatencyStatsMs.addValue(TimeUnit.NANOSECONDS.toMillis(cursorsNanos));
+    }
+
     @Override
     public int getNumberOfManagedLedgers() {
         return factory.ledgers.size();
@@ -134,6 +174,31 @@ public class ManagedLedgerFactoryMBeanImpl implements ManagedLedgerFactoryMXBean
         return cacheMisses.getTotalValue();
     }
 
+    @Override
+    public double getLocalDiskCacheHitsRate() {
+        return localDiskCacheHits.getRate();
+    }
+
+    @Override
+    public long getLocalDiskCacheHitsTotal() {
+        return localDiskCacheHits.getTotalCount();
+    }
+
+    @Override
+    public long getLocalDiskCacheHitsBytesTotal() {
+        return localDiskCacheHits.getTotalValue();
+    }
+
+    @Override
+    public double getLocalDiskCacheMissesRate() {
+        return localDiskCacheMisses.getRate();
+    }
+
+    @Override
+    public long getLocalDiskCacheMissesTotal() {
+        return localDiskCacheMisses.getTotalCount();
+    }
+
     @Override
     public long getNumberOfCacheEvictions() {
         return cacheEvictions.getCount();
@@ -156,4 +221,56 @@ public class ManagedLedgerFactoryMBeanImpl implements ManagedLedgerFactoryMXBean
         return cacheEntryCount.sum();
     }
 
+    @Override
+    public double getLedgerDeletionsRate() {
+        return ledgerDeletions.getRate();
+    }
+
+    @Override
+    public double getLedgerDeletionsThroughput() {
+        return ledgerDeletions.getValueRate();
+    }
+
+    @Override
+    public long getLedgerDeletionsTotal() {
+        return ledgerDeletions.getTotalCount();
+    }
+
+    @Override
+    public long getLedgerDeletionsBytesTotal() {
+        return ledgerDeletions.getTotalValue();
+    }
+
+    @Override
+    public long getLedgerDeletionFailuresTotal() {
+        return ledgerDeletionFailures.sum();
+    }
+
+    @Override
+    public long getPendingLedgerDeletions() {
+        ConcurrencyLimiter limiter = factory.getLedgerDeletionLimiter();
+        return limiter.getPendingOperations() + limiter.getRunningOperations();
+    }
+
+    /**
+     * Time spent reading the managed ledger metadata when opening the managed ledgers.
+     */
+    public StatsBuckets getOpenMetadataLatencyBuckets() {
+        return openMetadataLatencyStatsMs;
+    }
+
+    /**
+     * Time spent opening the last ledger and creating the ledger to write to when opening the managed ledgers.
+     */
+    public StatsBuckets getOpenLedgersLatencyBuckets() {
+        return openLedgersLatencyStatsMs;
+    }
+
+    /**
+     * Time spent recovering the cursors when opening the managed ledgers.
+     */
+    public StatsBuckets getOpenCursorsLatencyBuckets() {
+        return openCursorsLatencyStatsMs;
+    }
+
 }
@@ -23,7 +23,6 @@ import static com.google.common.base.Preconditions.checkState;
 import static java.lang.Math.min;
 import static org.apache.bookkeeper.mledger.util.Errors.isNoSuchLedgerExistsException;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.collect.BoundType;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Queues;
 import com.google.common.collect.Range;
@@ -47,21 +46,23 @@ import java.util.Optional;
 import java.util.Queue;
 import java.util.Random;
 import java.util.Set;
+import java.util.SortedSet;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
@@ -128,6 +129,7 @@ import org.apache.bookkeeper.mledger.impl.cache.EntryCache;
 import org.apache.bookkeeper.mledger.intercept.ManagedLedgerInterceptor;
 import org.apache.bookkeeper.mledger.offload.OffloadUtils;
 import org.apache.bookkeeper.mledger.proto.MLDataFormats;
+import org.apache.bookkeeper.mledger.proto.MLDataFormats.EntryIndex;
 import org.apache.bookkeeper.mledger.proto.MLDataFormats.ManagedLedgerInfo;
 import org.apache.bookkeeper.mledger.proto.MLDataFormats.ManagedLedgerInfo.LedgerInfo;
 import org.apache.bookkeeper.mledger.proto.MLDataFormats.NestedPositionInfo;
@@ -149,6 +151,7 @@ import org.apache.pulsar.common.util.FutureUtil;
 import org.apache.pulsar.common.util.LazyLoadableValue;
 import org.apache.pulsar.common.util.collections.ConcurrentLongHashMap;
 import org.apache.pulsar.metadata.api.Stat;
+import org.jctools.queues.MpscUnboundedArrayQueue;
 import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -174,7 +177,7 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
                     .expectedItems(16) // initial capacity
                     .concurrencyLevel(1) // number of sections
                     .build();
-    protected final NavigableMap<Long, LedgerInfo> ledgers = new ConcurrentSkipListMap<>();
+    protected final LedgerInfoMap ledgers = new LedgerInfoMap();
     protected volatile Stat ledgersStat;
 
     // contains all cursors, where durable cursors are ordered by mark delete position
@@ -212,6 +215,10 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
     final Map<String, CompletableFuture<ManagedCursor>> uninitializedCursors;
 
     final EntryCache entryCache;
+    private final CatchUpReadScheduler catchUpReadScheduler;
+    // Sparse index of the entries of the current ledger, null when the entries are not indexed
+    final SparseEntryIndex sparseEntryIndex;
+    private final AddEntryGroupCommitter addEntryGroupCommitter;
 
     private ScheduledFuture<?> timeoutTask;
     private ScheduledFuture<?> checkLedgerRollTask;
@@ -316,6 +323,10 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
 
     @Getter
     protected final ManagedLedgerMBeanImpl mbean;
+    // Start times of the initialization phases of the managed ledger
+    private volatile long initializeStartNanos;
+    private volatile long metadataLoadedNanos;
+    private volatile long cursorsRecoveryStartNanos;
     protected final Clock clock;
 
     private static final AtomicLongFieldUpdater<ManagedLedgerImpl> READ_OP_COUNT_UPDATER = AtomicLongFieldUpdater
@@ -337,6 +348,28 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
      */
     final ConcurrentLinkedQueue<OpAddEntry> pendingAddEntries = new ConcurrentLinkedQueue<>();
 
+    private static final int QUEUED_ADD_ENTRIES_CHUNK_SIZE = 32;
+    // Maximum number of add operations processed by a single drain task, to not hold the executor for too long
+    private static final int MAX_ADD_ENTRIES_PER_DRAIN = 1000;
+    // Maximum number of add operations processed while holding the lock of the managed ledger, to not block the
+    // other users of the lock for too long
+    private static final int MAX_ADD_ENTRIES_PER_LOCK = 16;
+    private static final AtomicIntegerFieldUpdater<ManagedLedgerImpl> ADD_ENTRIES_DRAIN_SCHEDULED_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(ManagedLedgerImpl.class, "addEntriesDrainScheduled");
+
+    /**
+     * Queue of the add operations submitted by the publishers and not yet processed by the executor of the managed
+     * ledger. The publishers only append to this queue, and a single task drains it in batches on the executor, so
+     * that the lock of the managed ledger is taken once per small batch instead of once per entry.
+     * <p/>
+     * The add operations are still processed under the lock of the managed ledger: a ledger rollover or a trim that
+     * holds the lock delays the drain task, but no longer the publisher threads.
+     */
+    private final MpscUnboundedArrayQueue<OpAddEntry> queuedAddEntries =
+            new MpscUnboundedArrayQueue<>(QUEUED_ADD_ENTRIES_CHUNK_SIZE);
+    @SuppressWarnings("unused")
+    private volatile int addEntriesDrainScheduled = 0;
+
     @Getter
     private final ManagedLedgerAttributes managedLedgerAttributes;
 
@@ -378,6 +411,14 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
             this.managedLedgerInterceptor = config.getManagedLedgerInterceptor();
         }
         this.entryCache = factory.getEntryCacheManager().getEntryCache(this);
+        this.catchUpReadScheduler = new CatchUpReadScheduler(this);
+        this.sparseEntryIndex = config.getEntryIndexInterval() > 0
+                ? new SparseEntryIndex(config.getEntryIndexInterval(), config.getEntryIndexMaxSamplesPerLedger())
+                : null;
+        // The entries of a shadow managed ledger are written by its source managed ledger
+        this.addEntryGroupCommitter = config.getAddEntryGroupCommitMaxDelayMicros() > 0
+                && config.getAddEntryCoalescer() != null && !(this instanceof ShadowManagedLedgerImpl)
+                ? new AddEntryGroupCommitter(this, config) : null;
         this.waitingCursors = Queues.newConcurrentLinkedQueue();
         this.waitingEntryCallBacks = Queues.newConcurrentLinkedQueue();
         this.uninitializedCursors = new HashMap();
@@ -396,12 +437,14 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
 
     synchronized void initialize(final ManagedLedgerInitializeLedgerCallback callback, final Object ctx) {
         log.info("Opening managed ledger {}", name);
+        initializeStartNanos = System.nanoTime();
 
         // Fetch the list of existing ledgers in the managed ledger
         store.getManagedLedgerInfo(name, config.isCreateIfMissing(), config.getProperties(),
                 new MetaStoreCallback<ManagedLedgerInfo>() {
             @Override
             public void operationComplete(ManagedLedgerInfo mlInfo, Stat stat) {
+                metadataLoadedNanos = System.nanoTime();
                 ledgersStat = stat;
                 if (mlInfo.hasTerminatedPosition()) {
                     state = State.Terminated;
@@ -439,10 +482,14 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
                                 if (State.Terminated.equals(state)) {
                                     currentLedger = lh;
                                 }
-                                LedgerInfo info = LedgerInfo.newBuilder().setLedgerId(id)
+                                LedgerInfo.Builder infoBuilder = LedgerInfo.newBuilder().setLedgerId(id)
                                         .setEntries(lh.getLastAddConfirmed() + 1).setSize(lh.getLength())
-                                        .setTimestamp(clock.millis()).build();
-                                ledgers.put(id, info);
+                                        .setTimestamp(clock.millis());
+                                LedgerInfo oldInfo = ledgers.get(id);
+                                if (oldInfo != null && oldInfo.hasEntryIndex()) {
+                                    infoBuilder.setEntryIndex(oldInfo.getEntryIndex());
+                                }
+                                ledgers.put(id, infoBuilder.build());
                                 if (managedLedgerInterceptor != null) {
                                     managedLedgerInterceptor
                                             .onManagedLedgerLastLedgerInitialize(name, createLastEntryHandle(lh))
@@ -534,14 +581,13 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
 
         // Calculate total entries and size
         final List<Long> emptyLedgersToBeDeleted = Collections.synchronizedList(new ArrayList<>());
-        Iterator<LedgerInfo> iterator = ledgers.values().iterator();
-        while (iterator.hasNext()) {
-            LedgerInfo li = iterator.next();
+        for (LedgerInfo li : ledgers.values()) {
             if (li.getEntries() > 0) {
                 NUMBER_OF_ENTRIES_UPDATER.addAndGet(this, li.getEntries());
                 TOTAL_SIZE_UPDATER.addAndGet(this, li.getSize());
             } else {
-                iterator.remove();
+                // removed through the map, not its view, so that the map tracks the modification
+                ledgers.remove(li.getLedgerId());
                 emptyLedgersToBeDeleted.add(li.getLedgerId());
             }
         }
@@ -624,6 +670,7 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
         if (log.isDebugEnabled()) {
             log.debug("[{}] initializing cursors", name);
         }
+        cursorsRecoveryStartNanos = System.nanoTime();
         store.getCursors(name, new MetaStoreCallback<List<String>>() {
             @Override
             public void operationComplete(List<String> consumers, Stat s) {
@@ -646,9 +693,10 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
                         final ManagedCursorImpl cursor;
                         cursor = createCursor(ManagedLedgerImpl.this.bookKeeper, cursorName);
 
-                        cursor.recover(new VoidCallback() {
+                        recoverCursor(cursor, new VoidCallback() {
                             @Override
                             public void operationComplete() {
+                                factory.cursorRecoveryCompleted();
                                 log.info("[{}] Recovery for cursor {} completed. pos={} -- todo={}", name, cursorName,
                                         cursor.getMarkDeletedPosition(), cursorCount.get() - 1);
                                 cursor.setActive();
@@ -662,6 +710,7 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
 
                             @Override
                             public void operationFailed(ManagedLedgerException exception) {
+                                factory.cursorRecoveryCompleted();
                                 log.warn("[{}] Recovery for cursor {} failed", name, cursorName, exception);
                                 cursorCount.set(-1);
                                 callback.initializeFailed(exception);
@@ -679,9 +728,10 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
                         CompletableFuture<ManagedCursor> cursorRecoveryFuture = new CompletableFuture<>();
                         uninitializedCursors.put(cursorName, cursorRecoveryFuture);
 
-                        cursor.recover(new VoidCallback() {
+                        recoverCursor(cursor, new VoidCallback() {
                             @Override
                             public void operationComplete() {
+                                factory.cursorRecoveryCompleted();
                                 log.info("[{}] Lazy recovery for cursor {} completed. pos={} -- todo={}", name,
                                         cursorName, cursor.getMarkDeletedPosition(), cursorCount.get() - 1);
                                 cursor.setActive();
@@ -693,6 +743,7 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
 
                             @Override
                             public void operationFailed(ManagedLedgerException exception) {
+                                factory.cursorRecoveryCompleted();
                                 log.warn("[{}] Lazy recovery for cursor {} failed", name, cursorName, exception);
                                 synchronized (ManagedLedgerImpl.this) {
                                     uninitializedCursors.remove(cursor.getName()).completeExceptionally(exception);
@@ -713,6 +764,35 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
         });
     }
 
+    private void recoverCursor(ManagedCursorImpl cursor, VoidCallback callback) {
+        factory.runCursorRecovery(() -> {
+            try {
+                cursor.recover(callback);
+            } catch (Throwable t) {
+                // the callback releases the recovery slot
+                callback.operationFailed(ManagedLedgerException.getManagedLedgerException(t));
+            }
+        });
+    }
+
+    /**
+     * Record the time spent in each phase of the initialization, once it has completed.
+     */
+    void recordInitializationTimes() {
+        if (initializeStartNanos == 0 || metadataLoadedNanos == 0 || cursorsRecoveryStartNanos == 0) {
+            // the initialization was overridden and didn't go through all the phases
+            return;
+        }
+        long now = System.nanoTime();
+        long metadataNanos = metadataLoadedNanos - initializeStartNanos;
+        long ledgersNanos = cursorsRecoveryStartNanos - metadataLoadedNanos;
+        long cursorsNanos = now - cursorsRecoveryStartNanos;
+        factory.getMbean().recordManagedLedgerOpen(metadataNanos, ledgersNanos, cursorsNanos);
+        log.info("[{}] Initialized in {} ms -- metadata: {} ms, ledgers: {} ms, cursors: {} ms", name,
+                TimeUnit.NANOSECONDS.toMillis(now - initializeStartNanos), TimeUnit.NANOSECONDS.toMillis(metadataNanos),
+                TimeUnit.NANOSECONDS.toMillis(ledgersNanos), TimeUnit.NANOSECONDS.toMillis(cursorsNanos));
+    }
+
     private void addCursor(ManagedCursorImpl cursor) {
         Position positionForOrdering = null;
         if (cursor.isDurable()) {
@@ -813,12 +893,60 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
         // retain buffer in this thread
         buffer.retain();
 
-        // Jump to specific thread to avoid contention from writers writing from different threads
-        executor.execute(() -> {
-            OpAddEntry addOperation = OpAddEntry.createNoRetainBuffer(this, buffer, numberOfMessages, callback, ctx,
-                    currentLedgerTimeoutTriggered);
-            internalAsyncAddEntry(addOperation);
-        });
+        // Queue the operation and jump to the specific thread of the managed ledger to process it, to avoid contention
+        // from writers writing from different threads
+        OpAddEntry addOperation = OpAddEntry.createNoRetainBuffer(this, buffer, numberOfMessages, callback, ctx,
+                currentLedgerTimeoutTriggered);
+        queuedAddEntries.offer(addOperation);
+        scheduleQueuedAddEntriesDrain();
+    }
+
+    private void scheduleQueuedAddEntriesDrain() {
+        if (ADD_ENTRIES_DRAIN_SCHEDULED_UPDATER.compareAndSet(this, 0, 1)) {
+            try {
+                executor.execute(this::drainQueuedAddEntries);
+            } catch (RejectedExecutionException e) {
+                ADD_ENTRIES_DRAIN_SCHEDULED_UPDATER.set(this, 0);
+                // the executor is shut down, fail the queued operations to release their buffers
+                log.warn("[{}] Failed to schedule the queued add operations: {}", name, e.toString());
+                ManagedLedgerException exception = new ManagedLedgerException(
+                        "The executor of the managed ledger rejected the add operations", e);
+                OpAddEntry addOperation;
+                while ((addOperation = queuedAddEntries.poll()) != null) {
+                    addOperation.failed(exception);
+                }
+            }
+        }
+    }
+
+    private void drainQueuedAddEntries() {
+        try {
+            int drained = 0;
+            boolean empty = false;
+            while (!empty && drained < MAX_ADD_ENTRIES_PER_DRAIN) {
+                synchronized (this) {
+                    for (int i = 0; i < MAX_ADD_ENTRIES_PER_LOCK; i++) {
+                        OpAddEntry addOperation = queuedAddEntries.poll();
+                        if (addOperation == null) {
+                            empty = true;
+                            break;
+                        }
+                        drained++;
+                        if (addEntryGroupCommitter != null) {
+                            addEntryGroupCommitter.add(addOperation);
+                        } else {
+                            internalAsyncAddEntry(addOperation);
+                        }
+                    }
+                }
+            }
+        } finally {
+            ADD_ENTRIES_DRAIN_SCHEDULED_UPDATER.set(this, 0);
+            // Operations may have been queued after the last poll and before the drain was marked as done
+            if (!queuedAddEntries.isEmpty()) {
+                scheduleQueuedAddEntriesDrain();
+            }
+        }
     }
 
     protected synchronized void internalAsyncAddEntry(OpAddEntry addOperation) {
@@ -1183,6 +1311,16 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
         }
     }
 
+    @VisibleForTesting
+    CatchUpReadScheduler getCatchUpReadScheduler() {
+        return catchUpReadScheduler;
+    }
+
+    @VisibleForTesting
+    AddEntryGroupCommitter getAddEntryGroupCommitter() {
+        return addEntryGroupCommitter;
+    }
+
     @Override
     public ManagedCursorContainer getCursors() {
         return cursors;
@@ -1242,8 +1380,7 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
             // Subtract size of ledgers that were already fully consumed but not trimmed yet
             synchronized (this) {
                 size = getTotalSize();
-                size -= ledgers.values().stream().filter(li -> li.getLedgerId() < slowestConsumerLedgerId)
-                        .mapToLong(LedgerInfo::getSize).sum();
+                size -= ledgers.getSizeBefore(slowestConsumerLedgerId);
             }
 
             LedgerInfo ledgerInfo = null;
@@ -1333,8 +1470,7 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
 
     long estimateBacklogFromPosition(Position pos) {
         synchronized (this) {
-            long sizeBeforePosLedger = ledgers.headMap(pos.getLedgerId()).values()
-                    .stream().mapToLong(LedgerInfo::getSize).sum();
+            long sizeBeforePosLedger = ledgers.getSizeBefore(pos.getLedgerId());
             LedgerInfo ledgerInfo = ledgers.get(pos.getLedgerId());
             long sizeAfter = getTotalSize() - sizeBeforePosLedger;
             if (ledgerInfo == null) {
@@ -1883,9 +2019,13 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
             log.debug("[{}] Ledger has been closed id={} entries={}", name, lh.getId(), entriesInLedger);
         }
         if (entriesInLedger > 0) {
-            LedgerInfo info = LedgerInfo.newBuilder().setLedgerId(lh.getId()).setEntries(entriesInLedger)
-                    .setSize(lh.getLength()).setTimestamp(clock.millis()).build();
-            ledgers.put(lh.getId(), info);
+            LedgerInfo.Builder infoBuilder = LedgerInfo.newBuilder().setLedgerId(lh.getId())
+                    .setEntries(entriesInLedger).setSize(lh.getLength()).setTimestamp(clock.millis());
+            EntryIndex entryIndex = sparseEntryIndex != null ? sparseEntryIndex.get(lh.getId()) : null;
+            if (entryIndex != null) {
+                infoBuilder.setEntryIndex(entryIndex);
+            }
+            ledgers.put(lh.getId(), infoBuilder.build());
         } else {
             // The last ledger was empty, so we can discard it
             ledgers.remove(lh.getId());
@@ -1958,14 +2098,20 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
 
     @Override
     public CompletableFuture<Position> asyncFindPosition(Predicate<Entry> predicate) {
+        return asyncFindPosition(predicate, Range.all());
+    }
 
+    @Override
+    public CompletableFuture<Position> asyncFindPosition(Predicate<Entry> predicate, Range<Position> range) {
         CompletableFuture<Position> future = new CompletableFuture<>();
         Long firstLedgerId = ledgers.firstKey();
-        final Position startPosition = firstLedgerId == null ? null : PositionFactory.create(firstLedgerId, 0);
-        if (startPosition == null) {
+        Position firstPosition = firstLedgerId == null ? null : PositionFactory.create(firstLedgerId, 0);
+        if (firstPosition == null) {
             future.complete(null);
             return future;
         }
+        final Position startPosition = range.hasLowerBound() && range.lowerEndpoint().compareTo(firstPosition) > 0
+                ? range.lowerEndpoint() : firstPosition;
         AsyncCallbacks.FindEntryCallback findEntryCallback = new AsyncCallbacks.FindEntryCallback() {
             @Override
             public void findEntryComplete(Position position, Object ctx) {
@@ -1987,12 +2133,39 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
                 future.complete(null);
             }
         };
-        long max = getNumberOfEntries() - 1;
+        long max;
+        if (range.hasUpperBound()) {
+            max = getNumberOfEntries(Range.closed(startPosition, range.upperEndpoint())) - 1;
+        } else if (startPosition != firstPosition) {
+            max = getNumberOfEntries(Range.closed(startPosition, lastConfirmedEntry)) - 1;
+        } else {
+            max = getNumberOfEntries() - 1;
+        }
         OpFindNewest op = new OpFindNewest(this, startPosition, predicate, max, findEntryCallback, null);
         op.find();
         return future;
     }
 
+    @Override
+    public Optional<Range<Position>> findIndexedRangeByTimestamp(long timestamp, long maxClockSkewMillis) {
+        return findIndexedRange(true, timestamp, maxClockSkewMillis);
+    }
+
+    @Override
+    public Optional<Range<Position>> findIndexedRangeByIndex(long index) {
+        return findIndexedRange(false, index, 0);
+    }
+
+    private Optional<Range<Position>> findIndexedRange(boolean byTimestamp, long target, long tolerance) {
+        if (sparseEntryIndex == null) {
+            return Optional.empty();
+        }
+        LedgerHandle currentLedger = this.currentLedger;
+        long currentLedgerId = currentLedger != null ? currentLedger.getId() : -1;
+        return SparseEntryIndex.findRange(ledgers.values(), currentLedgerId, sparseEntryIndex.get(currentLedgerId),
+                byTimestamp, target, tolerance);
+    }
+
     @Override
     public ManagedLedgerInterceptor getManagedLedgerInterceptor() {
         return managedLedgerInterceptor;
@@ -2189,6 +2362,59 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
 
     }
 
+    @Override
+    public void asyncReadEntries(SortedSet<? extends Position> positions, ReadEntriesCallback callback, Object ctx) {
+        asyncReadEntries(positions, true, callback, ctx);
+    }
+
+    /**
+     * Read a sparse set of positions, see {@link #asyncReadEntries(SortedSet, ReadEntriesCallback, Object)}.
+     *
+     * @param sortEntries whether the entries are returned sorted by position, or in the order the reads complete
+     */
+    public void asyncReadEntries(SortedSet<? extends Position> positions, boolean sortEntries,
+                                 ReadEntriesCallback callback, Object ctx) {
+        if (positions.isEmpty()) {
+            callback.readEntriesComplete(new ArrayList<>(), ctx);
+            return;
+        }
+        List<OpReadSparseEntries.Run> runs = OpReadSparseEntries.planReads(positions);
+        if (log.isDebugEnabled()) {
+            log.debug("[{}] Reading {} sparse entries with {} reads", name, positions.size(), runs.size());
+        }
+        OpReadSparseEntries op = new OpReadSparseEntries(name, runs.size(), positions.size(), sortEntries,
+                callback, ctx);
+        for (OpReadSparseEntries.Run run : runs) {
+            asyncReadRun(run, op);
+        }
+    }
+
+    void asyncReadRun(OpReadSparseEntries.Run run, OpReadSparseEntries op) {
+        LedgerHandle currentLedger = this.currentLedger;
+        if (currentLedger != null && run.ledgerId() == currentLedger.getId()) {
+            asyncReadEntries(currentLedger, run.firstEntry(), run.lastEntry(), op);
+        } else if (ledgers.containsKey(run.ledgerId())) {
+            getLedgerHandle(run.ledgerId())
+                    .thenAccept(ledger -> asyncReadEntries(ledger, run.firstEntry(), run.lastEntry(), op))
+                    .exceptionally(ex -> {
+                        log.error("[{}] Error opening ledger {} for reading - {}", name, run.ledgerId(),
+                                ex.getMessage());
+                        op.readEntriesFailed(ManagedLedgerException.getManagedLedgerException(ex.getCause()), null);
+                        return null;
+                    });
+        } else {
+            log.error("[{}] Failed to read entries {}-{} of ledger {}, the ledgerId does not belong to this topic "
+                    + "or has been deleted.", name, run.firstEntry(), run.lastEntry(), run.ledgerId());
+            op.readEntriesFailed(new LedgerNotExistException("Message not found, "
+                    + "the ledgerId does not belong to this topic or has been deleted"), null);
+        }
+    }
+
+    void asyncReadEntries(ReadHandle ledger, long firstEntry, long lastEntry, ReadEntriesCallback callback) {
+        mbean.addEntriesRead((int) (lastEntry - firstEntry + 1));
+        asyncReadEntries(ledger, firstEntry, lastEntry, false, callback, null);
+    }
+
     private void internalReadFromLedger(ReadHandle ledger, OpReadEntry opReadEntry) {
 
         if (opReadEntry.readPosition.compareTo(opReadEntry.maxPosition) > 0) {
@@ -2276,7 +2502,13 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
             log.debug("[{}] Reading entries from ledger {} - first={} last={}", name, ledger.getId(), firstEntry,
                     lastEntry);
         }
-        asyncReadEntry(ledger, firstEntry, lastEntry, opReadEntry, opReadEntry.ctx);
+        if (catchUpReadScheduler.shouldSchedule(ledger, firstEntry, lastEntry, lastPosition,
+                cursors.getNumberOfDurableCursors())) {
+            // Give the other cursors catching up on the same ledger a chance to share a single read
+            catchUpReadScheduler.schedule(ledger, firstEntry, lastEntry, opReadEntry, opReadEntry.ctx);
+        } else {
+            asyncReadEntry(ledger, firstEntry, lastEntry, opReadEntry, opReadEntry.ctx);
+        }
     }
 
     protected void asyncReadEntry(ReadHandle ledger, Position position, ReadEntryCallback callback, Object ctx) {
@@ -2296,17 +2528,24 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
 
     protected void asyncReadEntry(ReadHandle ledger, long firstEntry, long lastEntry, OpReadEntry opReadEntry,
             Object ctx) {
-        boolean shouldCacheEntry = opReadEntry.cursor.isCacheReadEntry();
+        asyncReadEntries(ledger, firstEntry, lastEntry, opReadEntry.cursor.isCacheReadEntry(), opReadEntry, ctx);
+    }
+
+    /**
+     * Read a range of entries through the entry cache, failing the read after readEntryTimeoutSeconds.
+     */
+    void asyncReadEntries(ReadHandle ledger, long firstEntry, long lastEntry, boolean shouldCacheEntry,
+                          ReadEntriesCallback callback, Object ctx) {
         if (config.getReadEntryTimeoutSeconds() > 0) {
             // set readOpCount to uniquely validate if ReadEntryCallbackWrapper is already recycled
             long readOpCount = READ_OP_COUNT_UPDATER.incrementAndGet(this);
             long createdTime = System.nanoTime();
             ReadEntryCallbackWrapper readCallback = ReadEntryCallbackWrapper.create(name, ledger.getId(), firstEntry,
-                    opReadEntry, readOpCount, createdTime, ctx);
+                    callback, readOpCount, createdTime, ctx);
             lastReadCallback = readCallback;
             entryCache.asyncReadEntry(ledger, firstEntry, lastEntry, shouldCacheEntry, readCallback, readOpCount);
         } else {
-            entryCache.asyncReadEntry(ledger, firstEntry, lastEntry, shouldCacheEntry, opReadEntry, ctx);
+            entryCache.asyncReadEntry(ledger, firstEntry, lastEntry, shouldCacheEntry, callback, ctx);
         }
     }
 
@@ -3000,18 +3239,28 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
                     metadataMutex.unlock();
                     trimmerMutex.unlock();
 
+                    // The ledgers are deleted in parallel, up to the maximum number of deletions in progress across
+                    // all the managed ledgers
+                    ConcurrencyLimiter deletions = factory.getLedgerDeletionLimiter();
                     for (LedgerInfo ls : ledgersToDelete) {
                         log.info("[{}] Removing ledger {} - size: {}", name, ls.getLedgerId(), ls.getSize());
-                        asyncDeleteLedger(ls.getLedgerId(), ls);
+                        asyncDeleteLedger(ls.getLedgerId(), ls, deletions).thenAccept(__ -> {
+                            factory.getMbean().recordLedgerDeletion(ls.getSize());
+                        }).exceptionally(ex -> {
+                            factory.getMbean().recordLedgerDeletionFailure();
+                            return null;
+                        });
                     }
                     for (LedgerInfo ls : offloadedLedgersToDelete) {
                         log.info("[{}] Deleting offloaded ledger {} from bookkeeper - size: {}", name, ls.getLedgerId(),
                                 ls.getSize());
                         invalidateReadHandle(ls.getLedgerId());
-                        asyncDeleteLedgerFromBookKeeper(ls.getLedgerId()).thenAccept(__ -> {
+                        deletions.submit(() -> asyncDeleteLedgerFromBookKeeper(ls.getLedgerId())).thenAccept(__ -> {
+                            factory.getMbean().recordLedgerDeletion(ls.getSize());
                             log.info("[{}] Deleted and invalidated offloaded ledger {} from bookkeeper - size: {}",
                                     name, ls.getLedgerId(), ls.getSize());
                         }).exceptionally(ex -> {
+                            factory.getMbean().recordLedgerDeletionFailure();
                             log.error("[{}] Failed to delete offloaded ledger {} from bookkeeper - size: {}",
                                     name, ls.getLedgerId(), ls.getSize(), ex);
                             return null;
@@ -3242,18 +3491,22 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
         return asyncDeleteLedger(ledgerId, DEFAULT_LEDGER_DELETE_RETRIES);
     }
 
-    private void asyncDeleteLedger(long ledgerId, LedgerInfo info) {
+    private CompletableFuture<Void> asyncDeleteLedger(long ledgerId, LedgerInfo info, ConcurrencyLimiter deletions) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(2);
         if (!info.getOffloadContext().getBookkeeperDeleted()) {
             // only delete if it hasn't been previously deleted for offload
-            asyncDeleteLedger(ledgerId, DEFAULT_LEDGER_DELETE_RETRIES);
+            futures.add(deletions.submit(() -> asyncDeleteLedger(ledgerId, DEFAULT_LEDGER_DELETE_RETRIES)));
         }
 
         if (info.getOffloadContext().hasUidMsb()) {
+            // not limited with the BookKeeper deletions: the cleanup retries for up to hours when the tiered storage
+            // is unavailable, it mustn't hold the slots of the BookKeeper deletions meanwhile
             UUID uuid = new UUID(info.getOffloadContext().getUidMsb(), info.getOffloadContext().getUidLsb());
-            OffloadUtils.cleanupOffloaded(ledgerId, uuid, config,
+            futures.add(OffloadUtils.cleanupOffloaded(ledgerId, uuid, config,
                     OffloadUtils.getOffloadDriverMetadata(info, config.getLedgerOffloader().getOffloadDriverMetadata()),
-                    "Trimming", name, scheduledExecutor);
+                    "Trimming", name, scheduledExecutor));
         }
+        return FutureUtil.waitForAll(futures);
     }
 
     private CompletableFuture<Void> asyncDeleteLedger(long ledgerId, long retry) {
@@ -3275,7 +3528,7 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
                     future.completeExceptionally(BKException.create(rc));
                     return;
                 }
-                scheduledExecutor.schedule(() -> asyncDeleteLedger(ledgerId, retry - 1),
+                scheduledExecutor.schedule(() -> asyncDeleteLedgerWithRetry(future, ledgerId, retry - 1),
                         DEFAULT_LEDGER_DELETE_BACKOFF_TIME_SEC, TimeUnit.SECONDS);
             } else {
                 if (log.isDebugEnabled()) {
@@ -3716,39 +3969,7 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
      * @return the count of entries
      */
     public long getNumberOfEntries(Range<Position> range) {
-        Position fromPosition = range.lowerEndpoint();
-        boolean fromIncluded = range.lowerBoundType() == BoundType.CLOSED;
-        Position toPosition = range.upperEndpoint();
-        boolean toIncluded = range.upperBoundType() == BoundType.CLOSED;
-
-        if (fromPosition.getLedgerId() == toPosition.getLedgerId()) {
-            // If the 2 positions are in the same ledger
-            long count = toPosition.getEntryId() - fromPosition.getEntryId() - 1;
-            count += fromIncluded ? 1 : 0;
-            count += toIncluded ? 1 : 0;
-            return count;
-        } else {
-            long count = 0;
-            // If the from & to are pointing to different ledgers, then we need to :
-            // 1. Add the entries in the ledger pointed by toPosition
-            count += toPosition.getEntryId();
-            count += toIncluded ? 1 : 0;
-
-            // 2. Add the entries in the ledger pointed by fromPosition
-            LedgerInfo li = ledgers.get(fromPosition.getLedgerId());
-            if (li != null) {
-                count += li.getEntries() - (fromPosition.getEntryId() + 1);
-                count += fromIncluded ? 1 : 0;
-            }
-
-            // 3. Add the whole ledgers entries in between
-            for (LedgerInfo ls : ledgers.subMap(fromPosition.getLedgerId(), false, toPosition.getLedgerId(), false)
-                    .values()) {
-                count += ls.getEntries();
-            }
-
-            return count;
-        }
+        return ledgers.getNumberOfEntries(range);
     }
 
     /**
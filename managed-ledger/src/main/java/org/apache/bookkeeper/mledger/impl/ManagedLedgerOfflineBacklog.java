@@ -18,16 +18,11 @@
  */
 package org.apache.bookkeeper.mledger.impl;
 
-import com.google.common.collect.BoundType;
-import com.google.common.collect.Range;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.NavigableMap;
 import org.apache.bookkeeper.client.BookKeeper;
 import org.apache.bookkeeper.client.api.DigestType;
 import org.apache.bookkeeper.mledger.ManagedLedgerFactory;
-import org.apache.bookkeeper.mledger.Position;
-import org.apache.bookkeeper.mledger.proto.MLDataFormats;
 import org.apache.pulsar.common.naming.TopicName;
 import org.apache.pulsar.common.policies.data.PersistentOfflineTopicStats;
 import org.slf4j.Logger;
@@ -51,44 +46,6 @@ public class ManagedLedgerOfflineBacklog {
         this.brokerName = brokerName;
     }
 
-    // need a better way than to duplicate the functionality below from ML
-    private long getNumberOfEntries(Range<Position> range,
-            NavigableMap<Long, MLDataFormats.ManagedLedgerInfo.LedgerInfo> ledgers) {
-        Position fromPosition = range.lowerEndpoint();
-        boolean fromIncluded = range.lowerBoundType() == BoundType.CLOSED;
-        Position toPosition = range.upperEndpoint();
-        boolean toIncluded = range.upperBoundType() == BoundType.CLOSED;
-
-        if (fromPosition.getLedgerId() == toPosition.getLedgerId()) {
-            // If the 2 positions are in the same ledger
-            long count = toPosition.getEntryId() - fromPosition.getEntryId() - 1;
-            count += fromIncluded ? 1 : 0;
-            count += toIncluded ? 1 : 0;
-            return count;
-        } else {
-            long count = 0;
-            // If the from & to are pointing to different ledgers, then we need to :
-            // 1. Add the entries in the ledger pointed by toPosition
-            count += toPosition.getEntryId();
-            count += toIncluded ? 1 : 0;
-
-            // 2. Add the entries in the ledger pointed by fromPosition
-            MLDataFormats.ManagedLedgerInfo.LedgerInfo li = ledgers.get(fromPosition.getLedgerId());
-            if (li != null) {
-                count += li.getEntries() - (fromPosition.getEntryId() + 1);
-                count += fromIncluded ? 1 : 0;
-            }
-
-            // 3. Add the whole ledgers entries in between
-            for (MLDataFormats.ManagedLedgerInfo.LedgerInfo ls : ledgers
-                    .subMap(fromPosition.getLedgerId(), false, toPosition.getLedgerId(), false).values()) {
-                count += ls.getEntries();
-            }
-
-            return count;
-        }
-    }
-
     public PersistentOfflineTopicStats getEstimatedUnloadedTopicBacklog(ManagedLedgerFactory factory,
             String managedLedgerName) throws Exception {
         return estimateUnloadedTopicBacklog(factory, TopicName.get("persistent://" + managedLedgerName));
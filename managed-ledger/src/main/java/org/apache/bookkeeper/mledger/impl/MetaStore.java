@@ -18,6 +18,7 @@
  */
 package org.apache.bookkeeper.mledger.impl;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
@@ -177,6 +178,21 @@ public interface MetaStore {
     CompletableFuture<Boolean> asyncExists(String ledgerName);
 
 
+    /**
+     * Prefetch the metadata of a set of managed ledgers and of their cursors.
+     *
+     * <p/>The reads of all the managed ledgers are issued at once, so that the metadata store can batch them, and the
+     * results are kept for a short time to serve the next {@link #getManagedLedgerInfo}, {@link #getCursors} and
+     * {@link #asyncGetCursorInfo} calls of these managed ledgers. This is used to speed up the opening of many managed
+     * ledgers at once, e.g. when a namespace bundle is loaded.
+     *
+     * @param ledgerNames the names of the managed ledgers
+     * @return a future completed once the metadata is prefetched, the prefetch errors are ignored
+     */
+    default CompletableFuture<Void> prefetch(Collection<String> ledgerNames) {
+        return CompletableFuture.completedFuture(null);
+    }
+
     /**
      * Get managed ledger properties from meta store.
      *
@@ -23,6 +23,7 @@ import io.netty.buffer.ByteBuf;
 import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.Unpooled;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -31,6 +32,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.bookkeeper.common.util.OrderedExecutor;
@@ -46,6 +48,7 @@ import org.apache.pulsar.common.allocator.PulsarByteBufAllocator;
 import org.apache.pulsar.common.compression.CompressionCodec;
 import org.apache.pulsar.common.compression.CompressionCodecProvider;
 import org.apache.pulsar.common.util.FutureUtil;
+import org.apache.pulsar.metadata.api.GetResult;
 import org.apache.pulsar.metadata.api.MetadataStore;
 import org.apache.pulsar.metadata.api.MetadataStoreException;
 import org.apache.pulsar.metadata.api.Notification;
@@ -62,11 +65,33 @@ public class MetaStoreImpl implements MetaStore, Consumer<Notification> {
     private final OrderedExecutor executor;
 
     private static final int MAGIC_MANAGED_INFO_METADATA = 0x4778; // 0100 0111 0111 1000
+    private static final int MAGIC_COMPACT_MANAGED_INFO_METADATA = 0x4779; // 0100 0111 0111 1001
     private final MetadataCompressionConfig ledgerInfoCompressionConfig;
     private final MetadataCompressionConfig cursorInfoCompressionConfig;
 
     private final Map<String, UpdateCallback<ManagedLedgerInfo>> managedLedgerInfoUpdateCallbackMap;
 
+    // The prefetched metadata is served once, and only if it's read shortly after being prefetched
+    private static final long PREFETCH_EXPIRATION_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private final Map<String, Prefetched<GetResult>> prefetchedValues = new ConcurrentHashMap<>();
+    private final Map<String, Prefetched<List<String>>> prefetchedChildren = new ConcurrentHashMap<>();
+
+    /**
+     * A prefetched metadata value, or a pending prefetch when the value is null.
+     *
+     * <p/>The instances are compared by identity, so that a prefetch completing after the path was invalidated doesn't
+     * replace the invalidation.
+     */
+    private static final class Prefetched<T> {
+        private final T value;
+        private final long expirationNanos;
+
+        Prefetched(T value, long expirationNanos) {
+            this.value = value;
+            this.expirationNanos = expirationNanos;
+        }
+    }
+
     public MetaStoreImpl(MetadataStore store, OrderedExecutor executor) {
         this.store = store;
         this.executor = executor;
@@ -96,7 +121,7 @@ public class MetaStoreImpl implements MetaStore, Consumer<Notification> {
             MetaStoreCallback<ManagedLedgerInfo> callback) {
         // Try to get the content or create an empty node
         String path = PREFIX + ledgerName;
-        store.get(path)
+        getPrefetchedOrRead(path)
                 .thenAcceptAsync(optResult -> {
                     if (optResult.isPresent()) {
                         ManagedLedgerInfo info;
@@ -183,6 +208,7 @@ public class MetaStoreImpl implements MetaStore, Consumer<Notification> {
         }
 
         String path = PREFIX + ledgerName;
+        invalidatePrefetched(path);
         store.put(path, compressLedgerInfo(mlInfo), Optional.of(stat.getVersion()))
                 .thenAcceptAsync(newVersion -> callback.operationComplete(null, newVersion),
                         executor.chooseThread(ledgerName))
@@ -200,7 +226,10 @@ public class MetaStoreImpl implements MetaStore, Consumer<Notification> {
         }
 
         String path = PREFIX + ledgerName;
-        store.getChildren(path)
+        Prefetched<List<String>> prefetched = prefetchedChildren.remove(path);
+        CompletableFuture<List<String>> cursorsFuture = isValid(prefetched)
+                ? CompletableFuture.completedFuture(prefetched.value) : store.getChildren(path);
+        cursorsFuture
                 .thenAcceptAsync(cursors -> callback.operationComplete(cursors, null), executor
                         .chooseThread(ledgerName))
                 .exceptionally(ex -> {
@@ -218,7 +247,7 @@ public class MetaStoreImpl implements MetaStore, Consumer<Notification> {
             log.debug("Reading from {}", path);
         }
 
-        store.get(path)
+        getPrefetchedOrRead(path)
                 .thenAcceptAsync(optRes -> {
                     if (optRes.isPresent()) {
                         try {
@@ -248,6 +277,7 @@ public class MetaStoreImpl implements MetaStore, Consumer<Notification> {
         }
 
         String path = PREFIX + ledgerName + "/" + cursorName;
+        invalidatePrefetched(path);
         byte[] content = compressCursorInfo(info);
 
         long expectedVersion;
@@ -277,6 +307,8 @@ public class MetaStoreImpl implements MetaStore, Consumer<Notification> {
     public void asyncRemoveCursor(String ledgerName, String cursorName, MetaStoreCallback<Void> callback) {
         String path = PREFIX + ledgerName + "/" + cursorName;
         log.info("[{}] Remove cursor={}", ledgerName, cursorName);
+        invalidatePrefetched(path);
+        invalidatePrefetched(PREFIX + ledgerName);
 
         store.delete(path, Optional.empty())
                 .thenAcceptAsync(v -> {
@@ -304,6 +336,7 @@ public class MetaStoreImpl implements MetaStore, Consumer<Notification> {
         log.info("[{}] Remove ManagedLedger", ledgerName);
 
         String path = PREFIX + ledgerName;
+        invalidatePrefetched(path);
         store.delete(path, Optional.empty())
                 .thenAcceptAsync(v -> {
                     if (log.isDebugEnabled()) {
@@ -318,6 +351,65 @@ public class MetaStoreImpl implements MetaStore, Consumer<Notification> {
                 });
     }
 
+    @Override
+    public CompletableFuture<Void> prefetch(Collection<String> ledgerNames) {
+        long now = System.nanoTime();
+        prefetchedValues.values().removeIf(prefetched -> prefetched.expirationNanos < now);
+        prefetchedChildren.values().removeIf(prefetched -> prefetched.expirationNanos < now);
+
+        long expirationNanos = now + PREFETCH_EXPIRATION_NANOS;
+        List<CompletableFuture<Void>> futures = new ArrayList<>(ledgerNames.size() * 2);
+        for (String ledgerName : ledgerNames) {
+            String path = PREFIX + ledgerName;
+            futures.add(prefetchValue(path, expirationNanos));
+
+            Prefetched<List<String>> pending = new Prefetched<>(null, expirationNanos);
+            prefetchedChildren.put(path, pending);
+            futures.add(store.getChildren(path).thenCompose(cursors -> {
+                prefetchedChildren.replace(path, pending, new Prefetched<>(cursors, expirationNanos));
+                List<CompletableFuture<Void>> cursorFutures = new ArrayList<>(cursors.size());
+                for (String cursor : cursors) {
+                    cursorFutures.add(prefetchValue(path + "/" + cursor, expirationNanos));
+                }
+                return FutureUtil.waitForAll(cursorFutures);
+            }));
+        }
+        return FutureUtil.waitForAll(futures).exceptionally(ex -> {
+            log.warn("Failed to prefetch the metadata of {} managed ledgers: {}", ledgerNames.size(),
+                    ex.getMessage());
+            return null;
+        });
+    }
+
+    private CompletableFuture<Void> prefetchValue(String path, long expirationNanos) {
+        Prefetched<GetResult> pending = new Prefetched<>(null, expirationNanos);
+        prefetchedValues.put(path, pending);
+        return store.get(path).thenAccept(optResult -> {
+            if (optResult.isPresent()) {
+                prefetchedValues.replace(path, pending, new Prefetched<>(optResult.get(), expirationNanos));
+            } else {
+                prefetchedValues.remove(path, pending);
+            }
+        });
+    }
+
+    private CompletableFuture<Optional<GetResult>> getPrefetchedOrRead(String path) {
+        Prefetched<GetResult> prefetched = prefetchedValues.remove(path);
+        if (isValid(prefetched)) {
+            return CompletableFuture.completedFuture(Optional.of(prefetched.value));
+        }
+        return store.get(path);
+    }
+
+    private static boolean isValid(Prefetched<?> prefetched) {
+        return prefetched != null && prefetched.value != null && System.nanoTime() < prefetched.expirationNanos;
+    }
+
+    private void invalidatePrefetched(String path) {
+        prefetchedValues.remove(path);
+        prefetchedChildren.remove(path);
+    }
+
     @Override
     public Iterable<String> getManagedLedgers() throws MetaStoreException {
         try {
@@ -344,7 +436,11 @@ public class MetaStoreImpl implements MetaStore, Consumer<Notification> {
 
     @Override
     public void accept(Notification notification) {
-        if (!notification.getPath().startsWith(PREFIX) || notification.getType() != NotificationType.Modified) {
+        if (!notification.getPath().startsWith(PREFIX)) {
+            return;
+        }
+        invalidatePrefetched(notification.getPath());
+        if (notification.getType() != NotificationType.Modified) {
             return;
         }
         UpdateCallback<ManagedLedgerInfo> callback = managedLedgerInfoUpdateCallbackMap.get(notification.getPath());
@@ -409,6 +505,9 @@ public class MetaStoreImpl implements MetaStore, Consumer<Notification> {
     }
 
     public byte[] compressLedgerInfo(ManagedLedgerInfo managedLedgerInfo) {
+        if (ledgerInfoCompressionConfig.isCompactEncoding()) {
+            return compactLedgerInfo(managedLedgerInfo);
+        }
         CompressionType compressionType = ledgerInfoCompressionConfig.getCompressionType();
         if (compressionType.equals(CompressionType.NONE)) {
             return managedLedgerInfo.toByteArray();
@@ -421,7 +520,8 @@ public class MetaStoreImpl implements MetaStore, Consumer<Notification> {
                     .setCompressionType(compressionType)
                     .setUncompressedSize(uncompressedSize)
                     .build();
-            return compressManagedInfo(managedLedgerInfo.toByteArray(), mlInfoMetadata.toByteArray(),
+            return compressManagedInfo(MAGIC_MANAGED_INFO_METADATA, managedLedgerInfo.toByteArray(),
+                    mlInfoMetadata.toByteArray(),
                     mlInfoMetadata.getSerializedSize(), compressionType);
         }
 
@@ -429,6 +529,9 @@ public class MetaStoreImpl implements MetaStore, Consumer<Notification> {
     }
 
     public byte[] compressCursorInfo(ManagedCursorInfo managedCursorInfo) {
+        if (cursorInfoCompressionConfig.isCompactEncoding()) {
+            return compactCursorInfo(managedCursorInfo);
+        }
         CompressionType compressionType = cursorInfoCompressionConfig.getCompressionType();
         if (compressionType.equals(CompressionType.NONE)) {
             return managedCursorInfo.toByteArray();
@@ -441,17 +544,77 @@ public class MetaStoreImpl implements MetaStore, Consumer<Notification> {
                     .setCompressionType(compressionType)
                     .setUncompressedSize(uncompressedSize)
                     .build();
-            return compressManagedInfo(managedCursorInfo.toByteArray(), metadata.toByteArray(),
+            return compressManagedInfo(MAGIC_MANAGED_INFO_METADATA, managedCursorInfo.toByteArray(),
+                    metadata.toByteArray(),
                     metadata.getSerializedSize(), compressionType);
         }
 
         return managedCursorInfo.toByteArray();
     }
 
+    private byte[] compactLedgerInfo(ManagedLedgerInfo managedLedgerInfo) {
+        MLDataFormats.CompactManagedLedgerInfo compactInfo = CompactManagedInfoEncoding.encode(managedLedgerInfo);
+        int uncompressedSize = compactInfo.getSerializedSize();
+        CompressionType compressionType =
+                uncompressedSize > ledgerInfoCompressionConfig.getCompressSizeThresholdInBytes()
+                        ? ledgerInfoCompressionConfig.getCompressionType() : CompressionType.NONE;
+        MLDataFormats.ManagedLedgerInfoMetadata mlInfoMetadata = MLDataFormats.ManagedLedgerInfoMetadata
+                .newBuilder()
+                .setCompressionType(compressionType)
+                .setUncompressedSize(uncompressedSize)
+                .setCompactEncodingVersion(CompactManagedInfoEncoding.VERSION)
+                .build();
+        byte[] data = compressManagedInfo(MAGIC_COMPACT_MANAGED_INFO_METADATA, compactInfo.toByteArray(),
+                mlInfoMetadata.toByteArray(), mlInfoMetadata.getSerializedSize(), compressionType);
+        // The plain encoding is kept when it's smaller, such as for a managed ledger with few ledgers
+        return data.length < managedLedgerInfo.getSerializedSize() ? data : managedLedgerInfo.toByteArray();
+    }
+
+    private byte[] compactCursorInfo(ManagedCursorInfo managedCursorInfo) {
+        MLDataFormats.CompactManagedCursorInfo compactInfo = CompactManagedInfoEncoding.encode(managedCursorInfo);
+        int uncompressedSize = compactInfo.getSerializedSize();
+        CompressionType compressionType =
+                uncompressedSize > cursorInfoCompressionConfig.getCompressSizeThresholdInBytes()
+                        ? cursorInfoCompressionConfig.getCompressionType() : CompressionType.NONE;
+        MLDataFormats.ManagedCursorInfoMetadata metadata = MLDataFormats.ManagedCursorInfoMetadata
+                .newBuilder()
+                .setCompressionType(compressionType)
+                .setUncompressedSize(uncompressedSize)
+                .setCompactEncodingVersion(CompactManagedInfoEncoding.VERSION)
+                .build();
+        byte[] data = compressManagedInfo(MAGIC_COMPACT_MANAGED_INFO_METADATA, compactInfo.toByteArray(),
+                metadata.toByteArray(), metadata.getSerializedSize(), compressionType);
+        // The plain encoding is kept when it's smaller, such as for a cursor without individually deleted messages
+        return data.length < managedCursorInfo.getSerializedSize() ? data : managedCursorInfo.toByteArray();
+    }
+
     public ManagedLedgerInfo parseManagedLedgerInfo(byte[] data) throws InvalidProtocolBufferException {
         ByteBuf byteBuf = Unpooled.wrappedBuffer(data);
 
-        byte[] metadataBytes = extractCompressMetadataBytes(byteBuf);
+        byte[] compactMetadataBytes = extractCompressMetadataBytes(byteBuf, MAGIC_COMPACT_MANAGED_INFO_METADATA);
+        if (compactMetadataBytes != null) {
+            try {
+                MLDataFormats.ManagedLedgerInfoMetadata metadata =
+                        MLDataFormats.ManagedLedgerInfoMetadata.parseFrom(compactMetadataBytes);
+                checkCompactEncodingVersion(metadata.getCompactEncodingVersion());
+                ByteBuf uncompressed = getCompressionCodec(metadata.getCompressionType())
+                        .decode(byteBuf, metadata.getUncompressedSize());
+                try {
+                    return CompactManagedInfoEncoding.decode(
+                            MLDataFormats.CompactManagedLedgerInfo.parseFrom(uncompressed.nioBuffer()));
+                } finally {
+                    uncompressed.release();
+                }
+            } catch (InvalidProtocolBufferException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new InvalidProtocolBufferException(e);
+            } finally {
+                byteBuf.release();
+            }
+        }
+
+        byte[] metadataBytes = extractCompressMetadataBytes(byteBuf, MAGIC_MANAGED_INFO_METADATA);
         if (metadataBytes != null) {
             try {
                 MLDataFormats.ManagedLedgerInfoMetadata metadata =
@@ -478,7 +641,30 @@ public class MetaStoreImpl implements MetaStore, Consumer<Notification> {
     public ManagedCursorInfo parseManagedCursorInfo(byte[] data) throws InvalidProtocolBufferException {
         ByteBuf byteBuf = Unpooled.wrappedBuffer(data);
 
-        byte[] metadataBytes = extractCompressMetadataBytes(byteBuf);
+        byte[] compactMetadataBytes = extractCompressMetadataBytes(byteBuf, MAGIC_COMPACT_MANAGED_INFO_METADATA);
+        if (compactMetadataBytes != null) {
+            try {
+                MLDataFormats.ManagedCursorInfoMetadata metadata =
+                        MLDataFormats.ManagedCursorInfoMetadata.parseFrom(compactMetadataBytes);
+                checkCompactEncodingVersion(metadata.getCompactEncodingVersion());
+                ByteBuf uncompressed = getCompressionCodec(metadata.getCompressionType())
+                        .decode(byteBuf, metadata.getUncompressedSize());
+                try {
+                    return CompactManagedInfoEncoding.decode(
+                            MLDataFormats.CompactManagedCursorInfo.parseFrom(uncompressed.nioBuffer()));
+                } finally {
+                    uncompressed.release();
+                }
+            } catch (InvalidProtocolBufferException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new InvalidProtocolBufferException(e);
+            } finally {
+                byteBuf.release();
+            }
+        }
+
+        byte[] metadataBytes = extractCompressMetadataBytes(byteBuf, MAGIC_MANAGED_INFO_METADATA);
         if (metadataBytes != null) {
             try {
                 MLDataFormats.ManagedCursorInfoMetadata metadata =
@@ -507,10 +693,14 @@ public class MetaStoreImpl implements MetaStore, Consumer<Notification> {
      *
      * compression data structure
      * [MAGIC_NUMBER](2) + [METADATA_SIZE](4) + [METADATA_PAYLOAD] + [MANAGED_LEDGER_INFO_PAYLOAD]
+     *
+     * The payload is the compact encoding of the info when the magic number is MAGIC_COMPACT_MANAGED_INFO_METADATA,
+     * in which case it may also be left uncompressed.
      */
-    private byte[] compressManagedInfo(byte[] info, byte[] metadata, int metadataSerializedSize,
+    private byte[] compressManagedInfo(int magic, byte[] info, byte[] metadata, int metadataSerializedSize,
                                        MLDataFormats.CompressionType compressionType) {
-        if (compressionType == null || compressionType.equals(CompressionType.NONE)) {
+        boolean uncompressed = compressionType == null || compressionType.equals(CompressionType.NONE);
+        if (uncompressed && magic == MAGIC_MANAGED_INFO_METADATA) {
             return info;
         }
 
@@ -518,11 +708,11 @@ public class MetaStoreImpl implements MetaStore, Consumer<Notification> {
         try {
             ByteBuf metadataByteBuf = PulsarByteBufAllocator.DEFAULT.buffer(metadataSerializedSize + 6,
                     metadataSerializedSize + 6);
-            metadataByteBuf.writeShort(MAGIC_MANAGED_INFO_METADATA);
+            metadataByteBuf.writeShort(magic);
             metadataByteBuf.writeInt(metadataSerializedSize);
             metadataByteBuf.writeBytes(metadata);
-            ByteBuf encodeByteBuf = getCompressionCodec(compressionType)
-                    .encode(Unpooled.wrappedBuffer(info));
+            ByteBuf encodeByteBuf = uncompressed ? Unpooled.wrappedBuffer(info)
+                    : getCompressionCodec(compressionType).encode(Unpooled.wrappedBuffer(info));
             compositeByteBuf.addComponent(true, metadataByteBuf);
             compositeByteBuf.addComponent(true, encodeByteBuf);
             byte[] dataBytes = new byte[compositeByteBuf.readableBytes()];
@@ -533,8 +723,9 @@ public class MetaStoreImpl implements MetaStore, Consumer<Notification> {
         }
     }
 
-    private byte[] extractCompressMetadataBytes(ByteBuf data) {
-        if (data.readableBytes() > 0 && data.readShort() == MAGIC_MANAGED_INFO_METADATA) {
+    private byte[] extractCompressMetadataBytes(ByteBuf data, int magic) {
+        if (data.readableBytes() >= 2 && data.getShort(data.readerIndex()) == magic) {
+            data.skipBytes(2);
             int metadataSize = data.readInt();
             byte[] metadataBytes = new byte[metadataSize];
             data.readBytes(metadataBytes);
@@ -543,6 +734,12 @@ public class MetaStoreImpl implements MetaStore, Consumer<Notification> {
         return null;
     }
 
+    private static void checkCompactEncodingVersion(int version) throws InvalidProtocolBufferException {
+        if (version != CompactManagedInfoEncoding.VERSION) {
+            throw new InvalidProtocolBufferException("Unsupported compact encoding version " + version);
+        }
+    }
+
     private CompressionCodec getCompressionCodec(CompressionType compressionType) {
         return CompressionCodecProvider.getCompressionCodec(
                 org.apache.pulsar.common.api.proto.CompressionType.valueOf(compressionType.name()));
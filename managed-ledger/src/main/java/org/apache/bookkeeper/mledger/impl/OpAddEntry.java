@@ -84,6 +84,7 @@ public class OpAddEntry implements AddCallback, CloseCallback, Runnable, Managed
     public static OpAddEntry createNoRetainBuffer(ManagedLedgerImpl ml, ByteBuf data, AddEntryCallback callback,
                                                   Object ctx, AtomicBoolean timeoutTriggered) {
         OpAddEntry op = createOpAddEntryNoRetainBuffer(ml, data, callback, ctx, timeoutTriggered);
+        ml.mbean.addAddEntrySample(op.dataLength);
         if (log.isDebugEnabled()) {
             log.debug("Created new OpAddEntry {}", op);
         }
@@ -95,12 +96,27 @@ public class OpAddEntry implements AddCallback, CloseCallback, Runnable, Managed
                                                   AtomicBoolean timeoutTriggered) {
         OpAddEntry op = createOpAddEntryNoRetainBuffer(ml, data, callback, ctx, timeoutTriggered);
         op.numberOfMessages = numberOfMessages;
+        ml.mbean.addAddEntrySample(op.dataLength);
         if (log.isDebugEnabled()) {
             log.debug("Created new OpAddEntry {}", op);
         }
         return op;
     }
 
+    /**
+     * Create the operation which adds the entry coalesced from the entries of other add operations by the group
+     * commit. The add of the original entries was already recorded in the stats of the managed ledger.
+     */
+    static OpAddEntry createCoalesced(ManagedLedgerImpl ml, ByteBuf data, int numberOfMessages,
+                                      AddEntryCallback callback, AtomicBoolean timeoutTriggered) {
+        OpAddEntry op = createOpAddEntryNoRetainBuffer(ml, data, callback, null, timeoutTriggered);
+        op.numberOfMessages = numberOfMessages;
+        if (log.isDebugEnabled()) {
+            log.debug("Created new coalesced OpAddEntry {}", op);
+        }
+        return op;
+    }
+
     private static OpAddEntry createOpAddEntryNoRetainBuffer(ManagedLedgerImpl ml, ByteBuf data,
                                                              AddEntryCallback callback, Object ctx,
                                                              AtomicBoolean timeoutTriggered) {
@@ -118,7 +134,6 @@ public class OpAddEntry implements AddCallback, CloseCallback, Runnable, Managed
         op.state = State.OPEN;
         op.payloadProcessorHandle = null;
         op.timeoutTriggered = timeoutTriggered;
-        ml.mbean.addAddEntrySample(op.dataLength);
         return op;
     }
 
@@ -268,6 +283,10 @@ public class OpAddEntry implements AddCallback, CloseCallback, Runnable, Managed
             entry.release();
         }
 
+        if (ml.sparseEntryIndex != null) {
+            ml.sparseEntryIndex.add(ledgerId, entryId, data);
+        }
+
         Position lastEntry = PositionFactory.create(ledgerId, entryId);
         ManagedLedgerImpl.ENTRIES_ADDED_COUNTER_UPDATER.incrementAndGet(ml);
         ml.lastConfirmedEntry = lastEntry;
@@ -319,6 +338,40 @@ public class OpAddEntry implements AddCallback, CloseCallback, Runnable, Managed
         }
     }
 
+    /**
+     * Release the entry of an operation once it was coalesced into the entry of another operation by the group commit.
+     */
+    void releaseCoalescedData() {
+        ReferenceCountUtil.release(data);
+        data = null;
+    }
+
+    /**
+     * Complete an operation whose entry was coalesced, once the coalesced entry is persisted.
+     *
+     * @param coalescedIndex the index of the entry of this operation among the entries which were coalesced
+     * @param coalescedCount the number of entries which were coalesced
+     */
+    void completeCoalesced(Position position, ByteBuf entryData, int coalescedIndex, int coalescedCount) {
+        AddEntryCallback cb = callbackUpdater.getAndSet(this, null);
+        if (cb != null) {
+            cb.addComplete(position, entryData, coalescedIndex, coalescedCount, ctx);
+            this.recycle();
+        }
+    }
+
+    /**
+     * Fail an operation whose entry was coalesced, when the coalesced entry couldn't be persisted. The failure was
+     * already recorded for the coalesced entry.
+     */
+    void failCoalesced(ManagedLedgerException e) {
+        AddEntryCallback cb = callbackUpdater.getAndSet(this, null);
+        if (cb != null) {
+            cb.addFailed(e, ctx);
+            this.recycle();
+        }
+    }
+
     private void updateLatency() {
         ml.mbean.addAddEntryLatencySample(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
         ml.mbean.addLedgerAddEntryLatencySample(System.nanoTime() - lastInitTime, TimeUnit.NANOSECONDS);
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import org.apache.bookkeeper.mledger.AsyncCallbacks.ReadEntriesCallback;
+import org.apache.bookkeeper.mledger.Entry;
+import org.apache.bookkeeper.mledger.ManagedLedgerException;
+import org.apache.bookkeeper.mledger.Position;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Read operation of a sparse set of positions, see
+ * {@link org.apache.bookkeeper.mledger.ManagedLedger#asyncReadEntries(java.util.SortedSet, ReadEntriesCallback,
+ * Object)}.
+ *
+ * <p/>The positions are planned as the minimal list of runs of consecutive entries of the same ledger. Each run is read
+ * with a single range read, all the range reads are issued in parallel and their entries are gathered by this
+ * callback, which completes the original callback once all of them have completed.
+ */
+class OpReadSparseEntries implements ReadEntriesCallback {
+    private static final Comparator<Entry> ENTRY_COMPARATOR =
+            Comparator.comparingLong(Entry::getLedgerId).thenComparingLong(Entry::getEntryId);
+
+    private final String name;
+    private final ReadEntriesCallback callback;
+    private final Object ctx;
+    private final List<Entry> entries;
+    private final boolean sortEntries;
+    private int pendingReads;
+    private ManagedLedgerException exception;
+
+    /**
+     * A run of consecutive entries of a ledger.
+     */
+    record Run(long ledgerId, long firstEntry, long lastEntry) {
+    }
+
+    OpReadSparseEntries(String name, int numberOfReads, int numberOfEntries, boolean sortEntries,
+                        ReadEntriesCallback callback, Object ctx) {
+        this.name = name;
+        this.pendingReads = numberOfReads;
+        this.entries = new ArrayList<>(numberOfEntries);
+        this.sortEntries = sortEntries;
+        this.callback = callback;
+        this.ctx = ctx;
+    }
+
+    /**
+     * Plan the reads of the positions.
+     *
+     * @param positions the positions to read, sorted
+     * @return the runs of consecutive entries to read, in position order
+     */
+    static List<Run> planReads(Collection<? extends Position> positions) {
+        List<Run> runs = new ArrayList<>();
+        long ledgerId = -1;
+        long firstEntry = -1;
+        long lastEntry = -1;
+        for (Position position : positions) {
+            if (position.getLedgerId() == ledgerId && position.getEntryId() == lastEntry + 1) {
+                lastEntry = position.getEntryId();
+                continue;
+            }
+            if (firstEntry >= 0) {
+                runs.add(new Run(ledgerId, firstEntry, lastEntry));
+            }
+            ledgerId = position.getLedgerId();
+            firstEntry = position.getEntryId();
+            lastEntry = firstEntry;
+        }
+        if (firstEntry >= 0) {
+            runs.add(new Run(ledgerId, firstEntry, lastEntry));
+        }
+        return runs;
+    }
+
+    @Override
+    public synchronized void readEntriesComplete(List<Entry> readEntries, Object ctx) {
+        if (exception != null) {
+            // a read of another run already failed, release the entries straight away
+            readEntries.forEach(Entry::release);
+        } else {
+            entries.addAll(readEntries);
+        }
+        onReadCompleted();
+    }
+
+    @Override
+    public synchronized void readEntriesFailed(ManagedLedgerException mle, Object ctx) {
+        log.warn("[{}] Error while reading sparse entries", name, mle);
+        if (exception == null) {
+            exception = mle;
+            // release the entries just once, any further read success will release the entries straight away
+            entries.forEach(Entry::release);
+            entries.clear();
+        }
+        onReadCompleted();
+    }
+
+    private void onReadCompleted() {
+        if (--pendingReads > 0) {
+            return;
+        }
+        if (exception != null) {
+            callback.readEntriesFailed(exception, ctx);
+        } else {
+            if (sortEntries) {
+                entries.sort(ENTRY_COMPARATOR);
+            }
+            callback.readEntriesComplete(entries, ctx);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[%s] read sparse entries", name);
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(OpReadSparseEntries.class);
+}
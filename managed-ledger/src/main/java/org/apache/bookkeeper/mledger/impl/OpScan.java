@@ -27,6 +27,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.bookkeeper.mledger.AsyncCallbacks.ReadEntriesCallback;
 import org.apache.bookkeeper.mledger.AsyncCallbacks.ScanCallback;
 import org.apache.bookkeeper.mledger.Entry;
+import org.apache.bookkeeper.mledger.EntryMetadataPredicate;
 import org.apache.bookkeeper.mledger.ManagedLedgerException;
 import org.apache.bookkeeper.mledger.Position;
 import org.apache.bookkeeper.mledger.PositionBound;
@@ -39,10 +40,13 @@ class OpScan implements ReadEntriesCallback {
     private final ScanCallback callback;
     private final Predicate<Entry> condition;
     private final Object ctx;
-    private final AtomicLong remainingEntries = new AtomicLong();
+    private final AtomicLong remainingEntries;
     private final long timeOutMs;
-    private final long startTime = System.currentTimeMillis();
+    private final long startTime;
     private final int batchSize;
+    // the ledger the scan is limited to, or -1 if the scan continues up to the end of the managed ledger
+    private final long scannedLedgerId;
+
 
     Position searchPosition;
     Position lastSeenPosition = null;
@@ -50,6 +54,27 @@ class OpScan implements ReadEntriesCallback {
     public OpScan(ManagedCursorImpl cursor, int batchSize,
                   Position startPosition, Predicate<Entry> condition,
                   ScanCallback callback, Object ctx, long maxEntries, long timeOutMs) {
+        this(cursor, batchSize, startPosition, -1, condition, callback, ctx, new AtomicLong(maxEntries),
+                System.currentTimeMillis(), timeOutMs);
+    }
+
+    /**
+     * Scan that evaluates a condition on the metadata of the entries only, the metadata are parsed in place from the
+     * buffers of the entries without copying the payloads.
+     *
+     * <p/>The scan is limited to the ledger of the start position if scannedLedgerId is not -1, the remaining entries
+     * are then shared with the scans of the other ledgers.
+     */
+    OpScan(ManagedCursorImpl cursor, int batchSize, Position startPosition, long scannedLedgerId,
+           EntryMetadataPredicate metadataCondition, ScanCallback callback, Object ctx,
+           AtomicLong remainingEntries, long startTime, long timeOutMs) {
+        this(cursor, batchSize, startPosition, scannedLedgerId, metadataCondition.toEntryPredicate(), callback, ctx,
+                remainingEntries, startTime, timeOutMs);
+    }
+
+    private OpScan(ManagedCursorImpl cursor, int batchSize, Position startPosition, long scannedLedgerId,
+                   Predicate<Entry> condition, ScanCallback callback, Object ctx, AtomicLong remainingEntries,
+                   long startTime, long timeOutMs) {
         this.batchSize = batchSize;
         if (batchSize <= 0) {
             throw new IllegalArgumentException("batchSize " + batchSize);
@@ -60,13 +85,33 @@ class OpScan implements ReadEntriesCallback {
         this.condition = condition;
         this.ctx = ctx;
         this.searchPosition = startPosition;
-        this.remainingEntries.set(maxEntries);
+        this.scannedLedgerId = scannedLedgerId;
+        this.remainingEntries = remainingEntries;
+        this.startTime = startTime;
         this.timeOutMs = timeOutMs;
     }
 
+    private boolean isOutOfScannedLedger(Position position) {
+        return scannedLedgerId != -1 && position.getLedgerId() != scannedLedgerId;
+    }
+
     @Override
     public void readEntriesComplete(List<Entry> entries, Object ctx) {
         try {
+            if (scannedLedgerId != -1) {
+                // the read may have moved to the next ledger if the scanned ledger had no more entries
+                entries.removeIf(entry -> {
+                    if (isOutOfScannedLedger(entry.getPosition())) {
+                        entry.release();
+                        return true;
+                    }
+                    return false;
+                });
+                if (entries.isEmpty()) {
+                    callback.scanComplete(lastSeenPosition, ScanOutcome.COMPLETED, OpScan.this.ctx);
+                    return;
+                }
+            }
             Position lastPositionForBatch = entries.get(entries.size() - 1).getPosition();
             lastSeenPosition = lastPositionForBatch;
             // filter out the entry if it has been already deleted
@@ -94,7 +139,7 @@ class OpScan implements ReadEntriesCallback {
                 log.debug("readEntryComplete {} at {} next is {}", lastPositionForBatch, searchPosition);
             }
 
-            if (searchPosition.compareTo(lastPositionForBatch) == 0) {
+            if (searchPosition.compareTo(lastPositionForBatch) == 0 || isOutOfScannedLedger(searchPosition)) {
                 // we have reached the end of the ledger, as we are not doing progress
                 callback.scanComplete(lastSeenPosition, ScanOutcome.COMPLETED, OpScan.this.ctx);
                 return;
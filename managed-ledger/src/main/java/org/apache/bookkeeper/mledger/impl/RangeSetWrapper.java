@@ -21,9 +21,12 @@ package org.apache.bookkeeper.mledger.impl;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Range;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.LongPredicate;
 import org.apache.pulsar.common.util.collections.LongPairRangeSet;
 import org.apache.pulsar.common.util.collections.OpenLongPairRangeSet;
 import org.roaringbitmap.RoaringBitSet;
@@ -68,7 +71,8 @@ public class RangeSetWrapper<T extends Comparable<T>> implements LongPairRangeSe
     @Override
     public void addOpenClosed(long lowerKey, long lowerValue, long upperKey, long upperValue) {
         if (enableMultiEntry) {
-            dirtyLedgers.addOpenClosed(lowerKey, 0, upperKey, 0);
+            // Both the lower and the upper ledgers are modified
+            dirtyLedgers.addOpenClosed(lowerKey - 1, 0, upperKey, 0);
         }
         rangeSet.addOpenClosed(lowerKey, lowerValue, upperKey, upperValue);
     }
@@ -86,7 +90,8 @@ public class RangeSetWrapper<T extends Comparable<T>> implements LongPairRangeSe
     @Override
     public void removeAtMost(long key, long value) {
         if (enableMultiEntry) {
-            dirtyLedgers.removeAtMost(key, 0);
+            // The ledger of the position may still have ranges after the position
+            dirtyLedgers.removeAtMost(key - 1, 0);
         }
         rangeSet.removeAtMost(key, value);
     }
@@ -156,6 +161,51 @@ public class RangeSetWrapper<T extends Comparable<T>> implements LongPairRangeSe
         rangeSet.build(internalRange);
     }
 
+    /**
+     * Encode the ranges as runs of consecutive values, grouped by key.
+     *
+     * <p/>The runs of each key are stored as pairs of {@code (gap, length)}, where the gap is the distance between the
+     * end of the previous run (or 0 for the first run) and the first value of the run, and the length is the number of
+     * values of the run. Both numbers are small for the typical ack holes of a cursor, which makes the encoding very
+     * compact once stored as varints, and unlike {@link #toRanges(int)} the limit applies to the number of ranges and
+     * not to the number of acknowledged entries.
+     *
+     * @param maxRanges the max number of ranges to encode, the ranges beyond this limit are not encoded
+     * @return the encoded runs by key, in key order
+     */
+    public Map<Long, long[]> toRunLengthRanges(int maxRanges) {
+        return toRunLengthRanges(maxRanges, false);
+    }
+
+    /**
+     * Encode the ranges as runs of consecutive values, see {@link #toRunLengthRanges(int)}.
+     *
+     * @param maxRanges the max number of ranges to encode, the ranges beyond this limit are not encoded
+     * @param onlyDirtyKeys whether to only encode the keys that were modified since the last {@link #resetDirtyKeys()}
+     * @return the encoded runs by key, in key order
+     */
+    public Map<Long, long[]> toRunLengthRanges(int maxRanges, boolean onlyDirtyKeys) {
+        RunLengthEncoder encoder = new RunLengthEncoder(maxRanges, onlyDirtyKeys ? this::isDirtyLedgers : null);
+        rangeSet.forEachRawRange(encoder);
+        return encoder.finish();
+    }
+
+    /**
+     * Add the ranges encoded by {@link #toRunLengthRanges(int)} for a key.
+     *
+     * @param key the key of the ranges
+     * @param runs the encoded runs of the key
+     */
+    public void addRunLengthRanges(long key, long[] runs) {
+        long previousEnd = 0;
+        for (int i = 0; i + 1 < runs.length; i += 2) {
+            long start = previousEnd + runs[i];
+            long end = start + runs[i + 1];
+            addOpenClosed(key, start - 1, key, end - 1);
+            previousEnd = end;
+        }
+    }
+
     @Override
     public int cardinality(long lowerKey, long lowerValue, long upperKey, long upperValue) {
         return rangeSet.cardinality(lowerKey, lowerValue, upperKey, upperValue);
@@ -186,6 +236,66 @@ public class RangeSetWrapper<T extends Comparable<T>> implements LongPairRangeSe
         return dirtyLedgers.contains(ledgerId);
     }
 
+    private static final class RunLengthEncoder implements RawRangeProcessor {
+        private final Map<Long, long[]> runsByKey = new LinkedHashMap<>();
+        private final int maxRanges;
+        private final LongPredicate keyFilter;
+        private int rangeCount;
+        private long currentKey;
+        private long[] runs;
+        private int runsSize;
+        private long previousEnd;
+        private long skippedKey = -1;
+
+        RunLengthEncoder(int maxRanges, LongPredicate keyFilter) {
+            this.maxRanges = maxRanges;
+            this.keyFilter = keyFilter;
+        }
+
+        @Override
+        public boolean processRawRange(long lowerKey, long lowerValue, long upperKey, long upperValue) {
+            if (lowerKey != upperKey) {
+                throw new UnsupportedOperationException("Ranges that span multiple keys can't be run-length encoded");
+            }
+            if (lowerKey == skippedKey) {
+                return true;
+            }
+            if (keyFilter != null && (runs == null || lowerKey != currentKey) && !keyFilter.test(lowerKey)) {
+                skippedKey = lowerKey;
+                return true;
+            }
+            if (rangeCount++ >= maxRanges) {
+                return false;
+            }
+            if (runs == null || lowerKey != currentKey) {
+                flushCurrentKey();
+                currentKey = lowerKey;
+                runs = new long[16];
+                runsSize = 0;
+                previousEnd = 0;
+            } else if (runsSize + 2 > runs.length) {
+                runs = Arrays.copyOf(runs, runs.length * 2);
+            }
+            // The raw range is open on the lower bound and closed on the upper bound
+            runs[runsSize++] = lowerValue + 1 - previousEnd;
+            runs[runsSize++] = upperValue - lowerValue;
+            previousEnd = upperValue + 1;
+            return true;
+        }
+
+        private void flushCurrentKey() {
+            if (runs != null) {
+                runsByKey.put(currentKey, Arrays.copyOf(runs, runsSize));
+            }
+        }
+
+        Map<Long, long[]> finish() {
+            flushCurrentKey();
+            runs = null;
+            return runsByKey;
+        }
+    }
+
     @Override
     public String toString() {
         return rangeSet.toString();
@@ -161,6 +161,19 @@ public class ReadOnlyManagedLedgerImpl extends ManagedLedgerImpl {
                     });
     }
 
+    @Override
+    void asyncReadRun(OpReadSparseEntries.Run run, OpReadSparseEntries op) {
+        // as for the single entry reads, the ledgers are opened for reading whatever the current ledger is
+        this.getLedgerHandle(run.ledgerId())
+                .thenAccept((ledger) -> asyncReadEntries(ledger, run.firstEntry(), run.lastEntry(), op))
+                .exceptionally((ex) -> {
+                    log.error("[{}] Error opening ledger {} for reading entries {}-{} - {}", this.name,
+                            run.ledgerId(), run.firstEntry(), run.lastEntry(), ex.getMessage());
+                    op.readEntriesFailed(ManagedLedgerException.getManagedLedgerException(ex.getCause()), null);
+                    return null;
+                });
+    }
+
     @Override
     public long getNumberOfEntries() {
         return getNumberOfEntries(Range.openClosed(PositionFactory.EARLIEST, getLastPosition()));
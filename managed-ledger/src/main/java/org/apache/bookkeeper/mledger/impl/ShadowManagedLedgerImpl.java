@@ -20,7 +20,6 @@ package org.apache.bookkeeper.mledger.impl;
 
 import static org.apache.bookkeeper.mledger.util.Errors.isNoSuchLedgerExistsException;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
@@ -176,15 +175,13 @@ public class ShadowManagedLedgerImpl extends ManagedLedgerImpl {
         }
 
         // Calculate total entries and size
-        Iterator<LedgerInfo> iterator = ledgers.values().iterator();
-        while (iterator.hasNext()) {
-            LedgerInfo li = iterator.next();
+        for (LedgerInfo li : ledgers.values()) {
             if (li.getEntries() > 0) {
                 NUMBER_OF_ENTRIES_UPDATER.addAndGet(this, li.getEntries());
                 TOTAL_SIZE_UPDATER.addAndGet(this, li.getSize());
             } else if (li.getLedgerId() != currentLedger.getId()) {
                 //do not remove the last empty ledger.
-                iterator.remove();
+                ledgers.remove(li.getLedgerId());
             }
         }
 
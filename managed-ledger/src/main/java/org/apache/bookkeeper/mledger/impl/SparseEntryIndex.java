@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl;
+
+import com.google.common.collect.Range;
+import com.google.common.primitives.Longs;
+import io.netty.buffer.ByteBuf;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import org.apache.bookkeeper.mledger.Position;
+import org.apache.bookkeeper.mledger.PositionFactory;
+import org.apache.bookkeeper.mledger.proto.MLDataFormats.EntryIndex;
+import org.apache.bookkeeper.mledger.proto.MLDataFormats.ManagedLedgerInfo.LedgerInfo;
+import org.apache.pulsar.common.api.proto.BrokerEntryMetadata;
+import org.apache.pulsar.common.protocol.Commands;
+
+/**
+ * Sparse index of the entries of the ledger being written, which maps the timestamp and the broker entry metadata index
+ * of one entry every {@code interval} entries to its entry id.
+ *
+ * <p/>The index of a ledger is stored in its {@link LedgerInfo} when the ledger is closed, so that the positions
+ * between which an entry with a given timestamp or index is can be found from the metadata of the managed ledger,
+ * instead of binary searching the entries by reading them from the bookies. The indexes increase with the entry ids,
+ * while the publish timestamps are set by the producers and are only expected to increase within a clock skew.
+ *
+ * <p/>The index is stored in the metadata of the managed ledger, so the number of samples of a ledger is bounded by
+ * {@code maxSamplesPerLedger}: when a ledger reaches it, every other sample is dropped and the sampling interval of
+ * the ledger doubles.
+ *
+ * <p/>The entries which are not Pulsar messages are not indexed.
+ */
+class SparseEntryIndex {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int interval;
+    private final int maxSamplesPerLedger;
+    // the sampling interval of the ledger being indexed, a multiple of the configured interval
+    private long ledgerInterval;
+    private long ledgerId = -1;
+    private long[] entryIds;
+    private long[] timestamps;
+    private long[] indexes;
+    private int count;
+
+    SparseEntryIndex(int interval, int maxSamplesPerLedger) {
+        this.interval = interval;
+        // the first entry of a ledger is always sampled, at least one more sample is needed to downsample
+        this.maxSamplesPerLedger = Math.max(2, maxSamplesPerLedger);
+        int initialCapacity = Math.min(INITIAL_CAPACITY, this.maxSamplesPerLedger);
+        this.entryIds = new long[initialCapacity];
+        this.timestamps = new long[initialCapacity];
+        this.indexes = new long[initialCapacity];
+    }
+
+    /**
+     * Sample an entry added to the ledger being written, if it's on the sampling interval.
+     */
+    synchronized void add(long ledgerId, long entryId, ByteBuf data) {
+        if (ledgerId != this.ledgerId) {
+            this.ledgerId = ledgerId;
+            ledgerInterval = interval;
+            count = 0;
+        }
+        if (entryId % ledgerInterval != 0) {
+            return;
+        }
+        long timestamp;
+        long index;
+        try {
+            BrokerEntryMetadata brokerEntryMetadata = Commands.peekBrokerEntryMetadataIfExist(data);
+            index = brokerEntryMetadata != null && brokerEntryMetadata.hasIndex() ? brokerEntryMetadata.getIndex() : -1;
+            timestamp = Commands.getEntryTimestamp(data.duplicate());
+        } catch (Throwable t) {
+            // Not a Pulsar message
+            return;
+        }
+        while (count == maxSamplesPerLedger) {
+            downsample();
+        }
+        if (entryId % ledgerInterval != 0) {
+            return;
+        }
+        if (count == entryIds.length) {
+            int newCapacity = Math.min(count * 2, maxSamplesPerLedger);
+            entryIds = Arrays.copyOf(entryIds, newCapacity);
+            timestamps = Arrays.copyOf(timestamps, newCapacity);
+            indexes = Arrays.copyOf(indexes, newCapacity);
+        }
+        entryIds[count] = entryId;
+        timestamps[count] = timestamp;
+        indexes[count] = index;
+        count++;
+    }
+
+    private void downsample() {
+        ledgerInterval *= 2;
+        int newCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (entryIds[i] % ledgerInterval == 0) {
+                entryIds[newCount] = entryIds[i];
+                timestamps[newCount] = timestamps[i];
+                indexes[newCount] = indexes[i];
+                newCount++;
+            }
+        }
+        count = newCount;
+    }
+
+    /**
+     * Get the index of a ledger.
+     *
+     * @return the index, or null if the ledger is not the one being indexed or if no entry was indexed
+     */
+    synchronized EntryIndex get(long ledgerId) {
+        if (ledgerId != this.ledgerId || count == 0) {
+            return null;
+        }
+        return EntryIndex.newBuilder()
+                .addAllEntryIds(Longs.asList(Arrays.copyOf(entryIds, count)))
+                .addAllTimestamps(Longs.asList(Arrays.copyOf(timestamps, count)))
+                .addAllIndexes(Longs.asList(Arrays.copyOf(indexes, count)))
+                .build();
+    }
+
+    /**
+     * Find the positions between which is the newest entry whose key is lower than a target key.
+     *
+     * <p/>The keys within the tolerance of the target don't bound the range, so that the keys which don't increase
+     * with the positions by up to the tolerance are found within the range.
+     *
+     * @param ledgers the ledgers, in position order
+     * @param currentLedgerId the id of the ledger being written
+     * @param currentIndex the index of the ledger being written, or null
+     * @param byTimestamp whether the key is the timestamp of the entries, or their broker entry metadata index
+     * @param target the target key
+     * @param tolerance the tolerance on the keys
+     * @return the range between the newest sampled entry whose key is lower than the target minus the tolerance and
+     *         the oldest sampled entry whose key is not lower than the target plus the tolerance, unbounded on the
+     *         sides without such entry, or empty if no entry is indexed
+     */
+    static Optional<Range<Position>> findRange(Collection<LedgerInfo> ledgers, long currentLedgerId,
+                                               EntryIndex currentIndex, boolean byTimestamp, long target,
+                                               long tolerance) {
+        final long lowerTarget = target - tolerance;
+        final long upperTarget = target + tolerance;
+        Position start = null;
+        boolean indexed = false;
+        for (LedgerInfo ledgerInfo : ledgers) {
+            EntryIndex index = ledgerInfo.hasEntryIndex() ? ledgerInfo.getEntryIndex()
+                    : ledgerInfo.getLedgerId() == currentLedgerId ? currentIndex : null;
+            if (index == null || index.getEntryIdsCount() == 0) {
+                continue;
+            }
+            List<Long> keys = byTimestamp ? index.getTimestampsList() : index.getIndexesList();
+            for (int i = 0; i < keys.size(); i++) {
+                long key = keys.get(i);
+                if (key < 0) {
+                    // the entry has no broker entry metadata index
+                    continue;
+                }
+                indexed = true;
+                Position position = PositionFactory.create(ledgerInfo.getLedgerId(), index.getEntryIds(i));
+                if (key >= upperTarget) {
+                    return Optional.of(start == null ? Range.atMost(position) : Range.closed(start, position));
+                }
+                if (key < lowerTarget) {
+                    start = position;
+                }
+            }
+        }
+        if (!indexed) {
+            return Optional.empty();
+        }
+        return Optional.of(Range.atLeast(start));
+    }
+}
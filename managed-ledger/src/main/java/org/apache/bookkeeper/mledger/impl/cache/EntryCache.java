@@ -104,6 +104,21 @@ public interface EntryCache {
      */
     void asyncReadEntry(ReadHandle lh, Position position, ReadEntryCallback callback, Object ctx);
 
+    /**
+     * Check whether a range of entries is in the cache, without reading it.
+     *
+     * @param ledgerId
+     *            the ledger id
+     * @param firstEntry
+     *            the first entry of the range (inclusive)
+     * @param lastEntry
+     *            the last entry of the range (inclusive)
+     * @return true if the first and the last entries of the range are in the cache
+     */
+    default boolean isCached(long ledgerId, long firstEntry, long lastEntry) {
+        return false;
+    }
+
     /**
      * Get the total size in bytes of all the entries stored in this cache.
      *
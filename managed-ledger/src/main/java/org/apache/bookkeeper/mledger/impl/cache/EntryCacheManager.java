@@ -31,6 +31,13 @@ public interface EntryCacheManager {
 
     void clear();
 
+    /**
+     * Clear the cache and release the resources of the cache manager, once the managed ledger factory is shut down.
+     */
+    default void shutdown() {
+        clear();
+    }
+
     void updateCacheSizeAndThreshold(long maxSize);
 
     void updateCacheEvictionWatermark(double cacheEvictionWatermark);
@@ -0,0 +1,368 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+import org.apache.bookkeeper.mledger.Position;
+
+/**
+ * {@link RangeCacheIndex} which keeps one append-only segment per ledger.
+ *
+ * <p/>Each segment stores the cached entry ids in a sorted primitive {@code long[]}, with parallel arrays for the keys
+ * and the wrappers. Entries are usually added in increasing order (from the add path and from sequential reads), so
+ * an insert is an append to the tail of the segment and an invalidation is an advance of its head. Lookups are a
+ * binary search over the entry ids and range reads are a scan over a contiguous slice of the arrays, without
+ * allocating any per-entry map node.
+ *
+ * <p/>Only the (few) segments are kept in a concurrent map, keyed by ledger id.
+ */
+class LedgerSegmentedRangeCacheIndex implements RangeCacheIndex {
+    private static final int INITIAL_SEGMENT_CAPACITY = 64;
+
+    private final ConcurrentNavigableMap<Long, LedgerSegment> segments = new ConcurrentSkipListMap<>();
+
+    @Override
+    public boolean putIfAbsent(Position key, RangeCacheEntryWrapper wrapper) {
+        while (true) {
+            LedgerSegment segment = segments.computeIfAbsent(key.getLedgerId(), LedgerSegment::new);
+            int result = segment.putIfAbsent(key, wrapper);
+            if (result != LedgerSegment.SEGMENT_CLOSED) {
+                return result == LedgerSegment.ADDED;
+            }
+            // the segment was emptied and removed concurrently, retry with a new segment
+        }
+    }
+
+    @Override
+    public RangeCacheEntryWrapper get(Position key) {
+        LedgerSegment segment = segments.get(key.getLedgerId());
+        return segment != null ? segment.get(key.getEntryId()) : null;
+    }
+
+    @Override
+    public boolean containsKey(Position key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public boolean remove(Position key, RangeCacheEntryWrapper wrapper) {
+        LedgerSegment segment = segments.get(key.getLedgerId());
+        return segment != null && segment.remove(key.getEntryId(), wrapper);
+    }
+
+    @Override
+    public void forEachInRange(Position first, Position last, boolean lastInclusive,
+                               BiConsumer<Position, RangeCacheEntryWrapper> consumer) {
+        if (first.compareTo(last) > 0) {
+            throw new IllegalArgumentException("fromKey > toKey");
+        }
+        for (LedgerSegment segment : segments.subMap(first.getLedgerId(), true, last.getLedgerId(), true).values()) {
+            boolean isFirstLedger = segment.ledgerId == first.getLedgerId();
+            boolean isLastLedger = segment.ledgerId == last.getLedgerId();
+            segment.forEachInRange(isFirstLedger ? first.getEntryId() : Long.MIN_VALUE,
+                    isLastLedger ? last.getEntryId() : Long.MAX_VALUE, !isLastLedger || lastInclusive, consumer);
+        }
+    }
+
+    @Override
+    public boolean forFirst(BiConsumer<Position, RangeCacheEntryWrapper> consumer) {
+        while (true) {
+            Map.Entry<Long, LedgerSegment> firstSegment = segments.firstEntry();
+            if (firstSegment == null) {
+                return false;
+            }
+            if (firstSegment.getValue().forFirst(consumer)) {
+                return true;
+            }
+            // the segment was emptied concurrently, close it so that a concurrent insertion retries with a new one
+            firstSegment.getValue().closeIfEmpty();
+        }
+    }
+
+    @Override
+    public long size() {
+        long size = 0;
+        for (LedgerSegment segment : segments.values()) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Just for testing.
+     */
+    int getNumberOfSegments() {
+        return segments.size();
+    }
+
+    private final class LedgerSegment {
+        static final int ADDED = 0;
+        static final int ALREADY_PRESENT = 1;
+        static final int SEGMENT_CLOSED = 2;
+
+        private final long ledgerId;
+        private final StampedLock lock = new StampedLock();
+        // the slots in [head, tail) have strictly increasing entry ids. A slot with a null wrapper is a hole left by
+        // a removal, holes are dropped when the arrays are compacted.
+        private long[] entryIds;
+        private Position[] keys;
+        private RangeCacheEntryWrapper[] wrappers;
+        private int head;
+        private int tail;
+        private int count;
+        private boolean closed;
+
+        LedgerSegment(long ledgerId) {
+            this.ledgerId = ledgerId;
+            this.entryIds = new long[INITIAL_SEGMENT_CAPACITY];
+            this.keys = new Position[INITIAL_SEGMENT_CAPACITY];
+            this.wrappers = new RangeCacheEntryWrapper[INITIAL_SEGMENT_CAPACITY];
+        }
+
+        int putIfAbsent(Position key, RangeCacheEntryWrapper wrapper) {
+            long entryId = key.getEntryId();
+            long stamp = lock.writeLock();
+            try {
+                if (closed) {
+                    return SEGMENT_CLOSED;
+                }
+                int index;
+                if (head == tail || entryIds[tail - 1] < entryId) {
+                    // common case, append to the tail of the segment
+                    index = tail;
+                } else {
+                    index = lowerBound(entryId);
+                    if (index < tail && entryIds[index] == entryId) {
+                        if (wrappers[index] != null) {
+                            return ALREADY_PRESENT;
+                        }
+                        // reuse the hole
+                        keys[index] = key;
+                        wrappers[index] = wrapper;
+                        count++;
+                        return ADDED;
+                    }
+                }
+                if (index == head && head > 0) {
+                    // prepend in the free space before the head
+                    head--;
+                    index = head;
+                } else {
+                    if (tail == entryIds.length) {
+                        index = compact(index);
+                    }
+                    if (index < tail) {
+                        // out of order insertion, shift the tail of the segment
+                        System.arraycopy(entryIds, index, entryIds, index + 1, tail - index);
+                        System.arraycopy(keys, index, keys, index + 1, tail - index);
+                        System.arraycopy(wrappers, index, wrappers, index + 1, tail - index);
+                    }
+                    tail++;
+                }
+                entryIds[index] = entryId;
+                keys[index] = key;
+                wrappers[index] = wrapper;
+                count++;
+                return ADDED;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Move the live slots at the beginning of new arrays with room for at least one more slot, dropping the holes.
+         *
+         * @param insertionIndex an index in the current arrays
+         * @return the index in the new arrays matching the given insertion index
+         */
+        private int compact(int insertionIndex) {
+            int newCapacity = Math.max(INITIAL_SEGMENT_CAPACITY, (count + 1) * 2);
+            long[] newEntryIds = new long[newCapacity];
+            Position[] newKeys = new Position[newCapacity];
+            RangeCacheEntryWrapper[] newWrappers = new RangeCacheEntryWrapper[newCapacity];
+            int newInsertionIndex = 0;
+            int j = 0;
+            for (int i = head; i < tail; i++) {
+                if (i == insertionIndex) {
+                    newInsertionIndex = j;
+                }
+                if (wrappers[i] != null) {
+                    newEntryIds[j] = entryIds[i];
+                    newKeys[j] = keys[i];
+                    newWrappers[j] = wrappers[i];
+                    j++;
+                }
+            }
+            if (insertionIndex >= tail) {
+                newInsertionIndex = j;
+            }
+            entryIds = newEntryIds;
+            keys = newKeys;
+            wrappers = newWrappers;
+            head = 0;
+            tail = j;
+            return newInsertionIndex;
+        }
+
+        RangeCacheEntryWrapper get(long entryId) {
+            long stamp = lock.readLock();
+            try {
+                int index = lowerBound(entryId);
+                return index < tail && entryIds[index] == entryId ? wrappers[index] : null;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        boolean remove(long entryId, RangeCacheEntryWrapper wrapper) {
+            long stamp = lock.writeLock();
+            try {
+                int index = lowerBound(entryId);
+                if (index >= tail || entryIds[index] != entryId || wrappers[index] != wrapper) {
+                    return false;
+                }
+                keys[index] = null;
+                wrappers[index] = null;
+                count--;
+                if (count == 0) {
+                    head = 0;
+                    tail = 0;
+                    closed = true;
+                    segments.remove(ledgerId, this);
+                } else {
+                    while (wrappers[head] == null) {
+                        head++;
+                    }
+                    while (wrappers[tail - 1] == null) {
+                        tail--;
+                    }
+                }
+                return true;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void closeIfEmpty() {
+            long stamp = lock.writeLock();
+            try {
+                if (count == 0) {
+                    head = 0;
+                    tail = 0;
+                    closed = true;
+                    segments.remove(ledgerId, this);
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void forEachInRange(long firstEntryId, long lastEntryId, boolean lastInclusive,
+                            BiConsumer<Position, RangeCacheEntryWrapper> consumer) {
+            Position[] keysInRange;
+            RangeCacheEntryWrapper[] wrappersInRange;
+            int length;
+            // copy the slice while holding the read lock since the consumer might remove entries
+            long stamp = lock.readLock();
+            try {
+                int fromIndex = lowerBound(firstEntryId);
+                int toIndex = lastInclusive ? upperBound(lastEntryId) : lowerBound(lastEntryId);
+                length = toIndex - fromIndex;
+                if (length <= 0) {
+                    return;
+                }
+                keysInRange = new Position[length];
+                wrappersInRange = new RangeCacheEntryWrapper[length];
+                System.arraycopy(keys, fromIndex, keysInRange, 0, length);
+                System.arraycopy(wrappers, fromIndex, wrappersInRange, 0, length);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+            for (int i = 0; i < length; i++) {
+                if (wrappersInRange[i] != null) {
+                    consumer.accept(keysInRange[i], wrappersInRange[i]);
+                }
+            }
+        }
+
+        boolean forFirst(BiConsumer<Position, RangeCacheEntryWrapper> consumer) {
+            Position key;
+            RangeCacheEntryWrapper wrapper;
+            long stamp = lock.readLock();
+            try {
+                if (count == 0) {
+                    return false;
+                }
+                key = keys[head];
+                wrapper = wrappers[head];
+            } finally {
+                lock.unlockRead(stamp);
+            }
+            consumer.accept(key, wrapper);
+            return true;
+        }
+
+        int size() {
+            long stamp = lock.readLock();
+            try {
+                return count;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        /**
+         * @return the index of the first slot with an entry id greater than or equal to the given one
+         */
+        private int lowerBound(long entryId) {
+            int low = head;
+            int high = tail;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (entryIds[mid] < entryId) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * @return the index of the first slot with an entry id strictly greater than the given one
+         */
+        private int upperBound(long entryId) {
+            int low = head;
+            int high = tail;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (entryIds[mid] <= entryId) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,421 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl.cache;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.internal.PlatformDependent;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+import org.apache.bookkeeper.mledger.Entry;
+import org.apache.bookkeeper.mledger.Position;
+import org.apache.bookkeeper.mledger.impl.EntryImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Second-level tier of the entry cache, which keeps the entries evicted from the memory cache in memory-mapped files
+ * on the local disk of the broker.
+ *
+ * <p/>The entries of each ledger are appended to a segment file of fixed capacity. The mapping of a segment starts
+ * small and doubles as the entries are appended, so that the ledgers with few spilled entries don't map a full
+ * segment. The position index of a segment is made of sorted primitive arrays of entry ids, offsets and lengths, so a
+ * lookup is a binary search and a range read is a scan over a contiguous slice of the arrays. When a segment is full,
+ * the following entries of its ledger are not spilled.
+ *
+ * <p/>The evicted entries are spilled on a dedicated executor, see {@link #newSpillExecutor()}, so that the copy to the
+ * segment and the page faults don't slow down the eviction of the memory cache nor the managed ledger executors. The
+ * spills are dropped when the size of the pending spills exceeds {@link #MAX_PENDING_SPILL_SIZE}.
+ *
+ * <p/>The total size of the segments is bounded, when it's exceeded the least recently accessed segments are deleted
+ * as a whole. The entries are copied out of the mapped segment when they are read, so that a segment can be unmapped
+ * while the entries that were read from it are still in use.
+ */
+class LocalDiskEntryCache {
+    private static final String SEGMENT_FILE_SUFFIX = ".segment";
+    private static final int INITIAL_INDEX_CAPACITY = 256;
+    private static final int INITIAL_MAPPING_SIZE = 1024 * 1024;
+    static final long MAX_PENDING_SPILL_SIZE = 64 * 1024 * 1024;
+    private static final int MAX_PENDING_SPILLS = 16 * 1024;
+
+    private final File directory;
+    private final long maxSize;
+    private final int segmentSize;
+    private final ConcurrentMap<Long, Segment> segments = new ConcurrentHashMap<>();
+    private final AtomicLong size = new AtomicLong();
+    private final AtomicLong segmentSequence = new AtomicLong();
+    private final Executor spillExecutor;
+    private final AtomicLong pendingSpillSize = new AtomicLong();
+    private volatile boolean closed;
+
+    LocalDiskEntryCache(File directory, long maxSize, long segmentSize, Executor spillExecutor) throws IOException {
+        this.directory = directory;
+        this.spillExecutor = spillExecutor;
+        this.maxSize = maxSize;
+        this.segmentSize = (int) Math.min(segmentSize, Integer.MAX_VALUE);
+        Files.createDirectories(directory.toPath());
+        // The index of the segments is only kept in memory, segments left by a previous run can't be used
+        File[] staleSegments = directory.listFiles((dir, name) -> name.endsWith(SEGMENT_FILE_SUFFIX));
+        if (staleSegments != null) {
+            for (File staleSegment : staleSegments) {
+                Files.deleteIfExists(staleSegment.toPath());
+            }
+        }
+        log.info("Initialized managed-ledger local disk cache of {} Mb in {}", maxSize / RangeEntryCacheManagerImpl.MB,
+                directory);
+    }
+
+    /**
+     * Create the executor spilling the entries: a single thread with a bounded queue, the spills rejected when the
+     * queue is full are dropped.
+     */
+    static ExecutorService newSpillExecutor() {
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(MAX_PENDING_SPILLS),
+                new DefaultThreadFactory("bookkeeper-ml-cache-disk-spill"));
+    }
+
+    /**
+     * Copy an entry into the segment of its ledger on the spill executor.
+     *
+     * @param position the position of the entry
+     * @param data the payload of the entry, it's retained until it's copied
+     * @param stillNeeded checked before the copy, the entry is not spilled if its ledger was removed in the meantime
+     */
+    void spill(Position position, ByteBuf data, BooleanSupplier stillNeeded) {
+        int length = data.readableBytes();
+        if (length > segmentSize) {
+            return;
+        }
+        if (pendingSpillSize.addAndGet(length) > MAX_PENDING_SPILL_SIZE) {
+            // the spills don't keep up with the evictions, drop the entry
+            pendingSpillSize.addAndGet(-length);
+            return;
+        }
+        ByteBuf retainedData = data.retainedDuplicate();
+        try {
+            spillExecutor.execute(() -> {
+                try {
+                    if (stillNeeded.getAsBoolean()) {
+                        put(position, retainedData);
+                    }
+                } catch (Throwable t) {
+                    log.warn("Failed to spill entry {} to the local disk cache", position, t);
+                } finally {
+                    pendingSpillSize.addAndGet(-length);
+                    retainedData.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendingSpillSize.addAndGet(-length);
+            retainedData.release();
+        }
+    }
+
+    /**
+     * Copy an entry into the segment of its ledger.
+     *
+     * @param position the position of the entry
+     * @param data the payload of the entry, its reader index is left unchanged
+     * @return whether the entry was added, false if it was already present or if it doesn't fit in the segment
+     */
+    boolean put(Position position, ByteBuf data) {
+        int length = data.readableBytes();
+        if (closed || length > segmentSize) {
+            return false;
+        }
+        long ledgerId = position.getLedgerId();
+        while (true) {
+            Segment segment = segments.computeIfAbsent(ledgerId, this::createSegment);
+            if (segment == null) {
+                return false;
+            }
+            int result;
+            try {
+                result = segment.put(position.getEntryId(), data, length);
+            } catch (IOException e) {
+                log.warn("Failed to grow the local disk cache segment of ledger {}: {}", ledgerId, e.getMessage());
+                return false;
+            }
+            if (result == Segment.SEGMENT_CLOSED) {
+                // the segment was evicted concurrently, retry with a new segment
+                segments.remove(ledgerId, segment);
+                continue;
+            }
+            if (result != Segment.ADDED) {
+                return false;
+            }
+            if (closed) {
+                // closed while the entry was added
+                removeLedger(ledgerId);
+                return false;
+            }
+            if (size.get() > maxSize) {
+                evictLeastRecentlyAccessedSegments();
+            }
+            return true;
+        }
+    }
+
+    private Segment createSegment(long ledgerId) {
+        try {
+            return new Segment(ledgerId);
+        } catch (IOException e) {
+            log.warn("Failed to create the local disk cache segment of ledger {}: {}", ledgerId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Read a range of entries of a ledger.
+     *
+     * @return the entries, or null if some entries of the range are not present
+     */
+    List<Entry> getRange(long ledgerId, long firstEntryId, long lastEntryId) {
+        Segment segment = segments.get(ledgerId);
+        return segment != null ? segment.getRange(firstEntryId, lastEntryId) : null;
+    }
+
+    /**
+     * Delete the segment of a ledger.
+     */
+    void removeLedger(long ledgerId) {
+        Segment segment = segments.remove(ledgerId);
+        if (segment != null) {
+            segment.delete();
+        }
+    }
+
+    /**
+     * Delete all the segments and stop adding entries, the pending spills are dropped.
+     */
+    void close() {
+        closed = true;
+        clear();
+    }
+
+    /**
+     * Delete all the segments.
+     */
+    void clear() {
+        for (Long ledgerId : new ArrayList<>(segments.keySet())) {
+            removeLedger(ledgerId);
+        }
+    }
+
+    private synchronized void evictLeastRecentlyAccessedSegments() {
+        if (size.get() <= maxSize) {
+            return;
+        }
+        List<Segment> candidates = new ArrayList<>(segments.values());
+        candidates.sort(Comparator.comparingLong(segment -> segment.lastAccessNanos));
+        for (Segment segment : candidates) {
+            if (size.get() <= maxSize) {
+                break;
+            }
+            if (segments.remove(segment.ledgerId, segment)) {
+                long removedSize = segment.delete();
+                if (log.isDebugEnabled()) {
+                    log.debug("Evicted local disk cache segment of ledger {} - Size: {}", segment.ledgerId,
+                            removedSize);
+                }
+            }
+        }
+    }
+
+    long getSize() {
+        return size.get();
+    }
+
+    /**
+     * Just for testing.
+     */
+    long getPendingSpillSize() {
+        return pendingSpillSize.get();
+    }
+
+    /**
+     * Just for testing.
+     */
+    int getNumberOfSegments() {
+        return segments.size();
+    }
+
+    private final class Segment {
+        static final int ADDED = 0;
+        static final int NOT_ADDED = 1;
+        static final int SEGMENT_CLOSED = 2;
+
+        private final long ledgerId;
+        private final File file;
+        private MappedByteBuffer buffer;
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        // sorted by entry id, with the offset and the length of each entry in the parallel arrays
+        private long[] entryIds = new long[INITIAL_INDEX_CAPACITY];
+        private int[] offsets = new int[INITIAL_INDEX_CAPACITY];
+        private int[] lengths = new int[INITIAL_INDEX_CAPACITY];
+        private int count;
+        private int writeOffset;
+        private boolean closed;
+        private volatile long lastAccessNanos = System.nanoTime();
+
+        Segment(long ledgerId) throws IOException {
+            this.ledgerId = ledgerId;
+            this.file = new File(directory,
+                    ledgerId + "-" + segmentSequence.incrementAndGet() + SEGMENT_FILE_SUFFIX);
+            this.buffer = map(Math.min(segmentSize, INITIAL_MAPPING_SIZE));
+        }
+
+        private MappedByteBuffer map(int mappingSize) throws IOException {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                // the mapping stays valid once the file is closed, and the file stays sparse until it's written
+                return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, mappingSize);
+            }
+        }
+
+        int put(long entryId, ByteBuf data, int length) throws IOException {
+            lock.writeLock().lock();
+            try {
+                if (closed) {
+                    return SEGMENT_CLOSED;
+                }
+                if (writeOffset + length > segmentSize) {
+                    return NOT_ADDED;
+                }
+                int index = count > 0 && entryIds[count - 1] < entryId ? -(count + 1)
+                        : Arrays.binarySearch(entryIds, 0, count, entryId);
+                if (index >= 0) {
+                    return NOT_ADDED;
+                }
+                index = -(index + 1);
+                // grow the mapping and write the data before updating the index, so that a failure leaves the
+                // segment unchanged
+                if (writeOffset + length > buffer.capacity()) {
+                    // the readers hold the read lock, the previous mapping can be released
+                    MappedByteBuffer previousBuffer = buffer;
+                    buffer = map((int) Math.min(segmentSize,
+                            Math.max(2L * buffer.capacity(), (long) writeOffset + length)));
+                    PlatformDependent.freeDirectBuffer(previousBuffer);
+                }
+                ByteBuffer target = buffer.duplicate();
+                target.position(writeOffset);
+                data.getBytes(data.readerIndex(), target.limit(writeOffset + length));
+                if (count == entryIds.length) {
+                    int newCapacity = entryIds.length * 2;
+                    entryIds = Arrays.copyOf(entryIds, newCapacity);
+                    offsets = Arrays.copyOf(offsets, newCapacity);
+                    lengths = Arrays.copyOf(lengths, newCapacity);
+                }
+                if (index < count) {
+                    System.arraycopy(entryIds, index, entryIds, index + 1, count - index);
+                    System.arraycopy(offsets, index, offsets, index + 1, count - index);
+                    System.arraycopy(lengths, index, lengths, index + 1, count - index);
+                }
+                entryIds[index] = entryId;
+                offsets[index] = writeOffset;
+                lengths[index] = length;
+                count++;
+                writeOffset += length;
+                // accounted under the lock of the segment, so that a concurrent delete removes the same size
+                size.addAndGet(length);
+                lastAccessNanos = System.nanoTime();
+                return ADDED;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        List<Entry> getRange(long firstEntryId, long lastEntryId) {
+            lock.readLock().lock();
+            try {
+                if (closed) {
+                    return null;
+                }
+                int firstIndex = Arrays.binarySearch(entryIds, 0, count, firstEntryId);
+                if (firstIndex < 0) {
+                    return null;
+                }
+                int lastIndex = firstIndex + (int) (lastEntryId - firstEntryId);
+                // the entry ids are unique and sorted, the range is complete if the last entry is at the end of it
+                if (lastIndex >= count || entryIds[lastIndex] != lastEntryId) {
+                    return null;
+                }
+                List<Entry> entries = new ArrayList<>(lastIndex - firstIndex + 1);
+                for (int i = firstIndex; i <= lastIndex; i++) {
+                    ByteBuffer source = buffer.duplicate();
+                    source.limit(offsets[i] + lengths[i]).position(offsets[i]);
+                    ByteBuf data = RangeEntryCacheImpl.ALLOCATOR.directBuffer(lengths[i], lengths[i]);
+                    data.writeBytes(source);
+                    entries.add(EntryImpl.create(ledgerId, entryIds[i], data));
+                    data.release();
+                }
+                lastAccessNanos = System.nanoTime();
+                return entries;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Unmap and delete the segment file.
+         *
+         * @return the size of the entries of the segment
+         */
+        long delete() {
+            lock.writeLock().lock();
+            try {
+                if (closed) {
+                    return 0;
+                }
+                closed = true;
+                size.addAndGet(-writeOffset);
+                PlatformDependent.freeDirectBuffer(buffer);
+                try {
+                    Files.deleteIfExists(file.toPath());
+                } catch (IOException e) {
+                    log.warn("Failed to delete the local disk cache segment {}: {}", file, e.getMessage());
+                }
+                return writeOffset;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(LocalDiskEntryCache.class);
+}
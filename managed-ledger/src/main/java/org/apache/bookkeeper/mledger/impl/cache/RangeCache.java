@@ -22,10 +22,8 @@ import io.netty.util.IllegalReferenceCountException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentNavigableMap;
-import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.bookkeeper.mledger.Position;
@@ -34,7 +32,8 @@ import org.apache.commons.lang3.tuple.Pair;
 
 /**
  * Special type of cache where get() and delete() operations can be done over a range of keys.
- * The implementation avoids locks and synchronization by relying on ConcurrentSkipListMap for storing the entries.
+ * The implementation avoids locks and synchronization by relying on a concurrent {@link RangeCacheIndex} for storing
+ * the entries (a ConcurrentSkipListMap by default, or per-ledger segments, see {@link LedgerSegmentedRangeCacheIndex}).
  * Since there are no locks, it's necessary to ensure that a single entry in the cache is removed exactly once.
  * Removing an entry multiple times could result in the entries of the cache being released multiple times,
  * even while they are still in use. This is prevented by using a custom wrapper around the value to store in the map
@@ -44,16 +43,34 @@ import org.apache.commons.lang3.tuple.Pair;
  */
 @Slf4j
 class RangeCache {
-    private final ConcurrentNavigableMap<Position, RangeCacheEntryWrapper> entries;
+    private final RangeCacheIndex entries;
     private final RangeCacheRemovalQueue removalQueue;
+    private final BiConsumer<Position, ReferenceCountedEntry> evictionListener;
     private AtomicLong size; // Total size of values stored in cache
 
     /**
      * Construct a new RangeCache.
      */
     public RangeCache(RangeCacheRemovalQueue removalQueue) {
+        this(new SkipListRangeCacheIndex(), removalQueue);
+    }
+
+    /**
+     * Construct a new RangeCache using the given index to lookup the entries by position.
+     */
+    public RangeCache(RangeCacheIndex entries, RangeCacheRemovalQueue removalQueue) {
+        this(entries, removalQueue, null);
+    }
+
+    /**
+     * Construct a new RangeCache using the given index to lookup the entries by position, and notifying the entries
+     * that are evicted from the cache by size or by time to the given listener, before they are released.
+     */
+    public RangeCache(RangeCacheIndex entries, RangeCacheRemovalQueue removalQueue,
+                      BiConsumer<Position, ReferenceCountedEntry> evictionListener) {
         this.removalQueue = removalQueue;
-        this.entries = new ConcurrentSkipListMap<>();
+        this.entries = entries;
+        this.evictionListener = evictionListener;
         this.size = new AtomicLong(0);
     }
 
@@ -73,7 +90,7 @@ class RangeCache {
             }
             long entrySize = value.getLength();
             boolean added = RangeCacheEntryWrapper.withNewInstance(this, key, value, entrySize, newWrapper -> {
-                if (entries.putIfAbsent(key, newWrapper) == null && removalQueue.addEntry(newWrapper)) {
+                if (entries.putIfAbsent(key, newWrapper) && removalQueue.addEntry(newWrapper)) {
                     this.size.addAndGet(entrySize);
                     return true;
                 } else {
@@ -112,9 +129,10 @@ class RangeCache {
     /**
      * @apiNote the returned value must be released if it's not null
      */
-    private ReferenceCountedEntry getValueMatchingEntry(Map.Entry<Position, RangeCacheEntryWrapper> entry) {
-        ReferenceCountedEntry valueMatchingEntry = RangeCacheEntryWrapper.getValueMatchingMapEntry(entry);
-        return getRetainedValueMatchingKey(entry.getKey(), valueMatchingEntry);
+    private ReferenceCountedEntry getValueMatchingEntry(Position key, RangeCacheEntryWrapper entryWrapper) {
+        ReferenceCountedEntry valueMatchingEntry = RangeCacheEntryWrapper.getValueMatchingKeyInstance(key,
+                entryWrapper);
+        return getRetainedValueMatchingKey(key, valueMatchingEntry);
     }
 
     // validates that the value matches the key and that the value has not been recycled
@@ -157,13 +175,12 @@ class RangeCache {
         List<ReferenceCountedEntry> values = new ArrayList();
 
         // Return the values of the entries found in cache
-        for (Map.Entry<Position, RangeCacheEntryWrapper> entry : entries.subMap(first, true, last, true)
-                .entrySet()) {
-            ReferenceCountedEntry value = getValueMatchingEntry(entry);
+        entries.forEachInRange(first, last, true, (key, entryWrapper) -> {
+            ReferenceCountedEntry value = getValueMatchingEntry(key, entryWrapper);
             if (value != null) {
                 values.add(value);
             }
-        }
+        });
 
         return values;
     }
@@ -180,10 +197,8 @@ class RangeCache {
             log.debug("Removing entries in range [{}, {}], lastInclusive: {}", first, last, lastInclusive);
         }
         RangeCacheRemovalCounters counters = RangeCacheRemovalCounters.create();
-        Map<Position, RangeCacheEntryWrapper> subMap = entries.subMap(first, true, last, lastInclusive);
-        for (Map.Entry<Position, RangeCacheEntryWrapper> entry : subMap.entrySet()) {
-            removeEntryWithWriteLock(entry.getKey(), entry.getValue(), counters);
-        }
+        entries.forEachInRange(first, last, lastInclusive,
+                (key, entryWrapper) -> removeEntryWithWriteLock(key, entryWrapper, counters));
         return handleRemovalResult(counters);
     }
 
@@ -229,7 +244,11 @@ class RangeCache {
             if (removedSize > -1) {
                 counters.entryRemoved(removedSize);
                 if (updateSize) {
+                    // the entry is evicted by the removal queue
                     size.addAndGet(-removedSize);
+                    if (evictionListener != null) {
+                        evictionListener.accept(key, value);
+                    }
                 }
                 if (value.refCnt() > 1) {
                     // remove the cache reference
@@ -277,11 +296,9 @@ class RangeCache {
         }
         RangeCacheRemovalCounters counters = RangeCacheRemovalCounters.create();
         while (!Thread.currentThread().isInterrupted()) {
-            Map.Entry<Position, RangeCacheEntryWrapper> entry = entries.firstEntry();
-            if (entry == null) {
+            if (!entries.forFirst((key, entryWrapper) -> removeEntryWithWriteLock(key, entryWrapper, counters))) {
                 break;
             }
-            removeEntryWithWriteLock(entry.getKey(), entry.getValue(), counters);
         }
         return handleRemovalResult(counters);
     }
@@ -19,16 +19,16 @@
 package org.apache.bookkeeper.mledger.impl.cache;
 
 import io.netty.util.Recycler;
-import java.util.Map;
 import java.util.concurrent.locks.StampedLock;
 import java.util.function.Function;
 import org.apache.bookkeeper.mledger.Position;
 import org.apache.bookkeeper.mledger.ReferenceCountedEntry;
 
 /**
- * Wrapper around the value to store in Map. This is needed to ensure that a specific instance can be removed from
- * the map by calling the {@link Map#remove(Object, Object)} method. Certain race conditions could result in the
- * wrong value being removed from the map. The instances of this class are recycled to avoid creating new objects.
+ * Wrapper around the value to store in the index. This is needed to ensure that a specific instance can be
+ * removed from the index by calling the {@link RangeCacheIndex#remove(Position, RangeCacheEntryWrapper)} method.
+ * Certain race conditions could result in the wrong value being removed from the index. The instances of this class
+ * are recycled to avoid creating new objects.
  */
 class RangeCacheEntryWrapper {
     private final Recycler.Handle<RangeCacheEntryWrapper> recyclerHandle;
@@ -80,14 +80,15 @@ class RangeCacheEntryWrapper {
     }
 
     /**
-     * Get the value associated with the Map.Entry's key and value. Exact instance of the key is required to match.
+     * Get the value associated with the key of an index entry. Exact instance of the key is required to match.
      *
-     * @param entry the entry which contains the key and {@link RangeCacheEntryWrapper} value to get the value from
+     * @param key the key of the index entry
+     * @param entryWrapper the {@link RangeCacheEntryWrapper} of the index entry to get the value from
      * @return the value associated with the key, or null if the value has already been recycled or the key does not
      * exactly match the same instance
      */
-    static ReferenceCountedEntry getValueMatchingMapEntry(Map.Entry<Position, RangeCacheEntryWrapper> entry) {
-        return entry.getValue().getValueInternal(entry.getKey(), true);
+    static ReferenceCountedEntry getValueMatchingKeyInstance(Position key, RangeCacheEntryWrapper entryWrapper) {
+        return entryWrapper.getValueInternal(key, true);
     }
 
     /**
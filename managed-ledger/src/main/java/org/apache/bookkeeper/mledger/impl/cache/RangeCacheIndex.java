@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl.cache;
+
+import java.util.function.BiConsumer;
+import org.apache.bookkeeper.mledger.Position;
+
+/**
+ * Ordered index of the {@link RangeCacheEntryWrapper} instances held by a {@link RangeCache}.
+ *
+ * <p/>Implementations must be thread-safe. The callbacks passed to {@link #forEachInRange} and {@link #forFirst} are
+ * invoked without holding any lock of the index, so that they are allowed to call {@link #remove}.
+ */
+interface RangeCacheIndex {
+
+    /**
+     * Associate the wrapper with the key, unless the key is already present in the index.
+     *
+     * @return true if the wrapper was added to the index
+     */
+    boolean putIfAbsent(Position key, RangeCacheEntryWrapper wrapper);
+
+    RangeCacheEntryWrapper get(Position key);
+
+    boolean containsKey(Position key);
+
+    /**
+     * Remove the mapping for the key, only if it is currently mapped to the given wrapper instance.
+     *
+     * @return true if the mapping was removed
+     */
+    boolean remove(Position key, RangeCacheEntryWrapper wrapper);
+
+    /**
+     * Visit, in ascending order, all the entries in the range [first, last] or [first, last).
+     */
+    void forEachInRange(Position first, Position last, boolean lastInclusive,
+                        BiConsumer<Position, RangeCacheEntryWrapper> consumer);
+
+    /**
+     * Visit the first entry of the index.
+     *
+     * @return false if the index is empty
+     */
+    boolean forFirst(BiConsumer<Position, RangeCacheEntryWrapper> consumer);
+
+    /**
+     * Just for testing. Depending on the implementation, getting the number of entries could be expensive.
+     */
+    long size();
+}
@@ -28,8 +28,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.NavigableSet;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.LongAdder;
 import org.apache.bookkeeper.client.api.BKException;
@@ -80,6 +82,10 @@ public class RangeEntryCacheImpl implements EntryCache {
     private final RangeCache entries;
     private final boolean copyEntries;
     private final PendingReadsManager pendingReadsManager;
+    // the local disk tier shared by all the caches, null when it's disabled
+    private final LocalDiskEntryCache localDiskCache;
+    // the ledgers of this managed ledger that have entries spilled to the local disk tier
+    private final NavigableSet<Long> spilledLedgers = new ConcurrentSkipListSet<>();
 
     private static final double MB = 1024 * 1024;
 
@@ -88,12 +94,19 @@ public class RangeEntryCacheImpl implements EntryCache {
 
     public RangeEntryCacheImpl(RangeEntryCacheManagerImpl manager, ManagedLedgerImpl ml, boolean copyEntries,
                                RangeCacheRemovalQueue rangeCacheRemovalQueue) {
+        this(manager, ml, copyEntries, new SkipListRangeCacheIndex(), rangeCacheRemovalQueue);
+    }
+
+    RangeEntryCacheImpl(RangeEntryCacheManagerImpl manager, ManagedLedgerImpl ml, boolean copyEntries,
+                        RangeCacheIndex rangeCacheIndex, RangeCacheRemovalQueue rangeCacheRemovalQueue) {
 
         this.manager = manager;
         this.ml = ml;
         this.pendingReadsManager = new PendingReadsManager(this);
         this.interceptor = ml.getManagedLedgerInterceptor();
-        this.entries = new RangeCache(rangeCacheRemovalQueue);
+        this.localDiskCache = manager.getLocalDiskCache();
+        this.entries = new RangeCache(rangeCacheIndex, rangeCacheRemovalQueue,
+                localDiskCache != null ? this::spillEvictedEntry : null);
         this.copyEntries = copyEntries;
 
         if (log.isDebugEnabled()) {
@@ -147,8 +160,14 @@ public class RangeEntryCacheImpl implements EntryCache {
             cachedData = entry.getDataBuffer().retain();
         }
 
-        ReferenceCountedEntry cacheEntry = EntryImpl.createWithRetainedDuplicate(position, cachedData);
+        EntryImpl cacheEntry = EntryImpl.createWithRetainedDuplicate(position, cachedData);
         cachedData.release();
+        if (entry instanceof EntryImpl entryImpl) {
+            // the metadata parsed by the readers of the entry is kept with the cached entry, its size is accounted in
+            // the size of the cache until the entry is evicted
+            cacheEntry.shareMessageMetadata(entryImpl);
+            cacheEntry.accountMessageMetadataSize(manager::messageMetadataSizeChanged);
+        }
         if (entries.put(position, cacheEntry)) {
             totalAddedEntriesSize.add(entryLength);
             totalAddedEntriesCount.increment();
@@ -184,6 +203,20 @@ public class RangeEntryCacheImpl implements EntryCache {
         return cachedData;
     }
 
+    private void spillEvictedEntry(Position position, ReferenceCountedEntry entry) {
+        long ledgerId = position.getLedgerId();
+        // added before the spill, so that a removal of the ledger in the meantime cancels the spill
+        spilledLedgers.add(ledgerId);
+        localDiskCache.spill(position, entry.getDataBuffer(), () -> spilledLedgers.contains(ledgerId));
+    }
+
+    private void removeSpilledLedgers(NavigableSet<Long> ledgerIds) {
+        Long ledgerId;
+        while ((ledgerId = ledgerIds.pollFirst()) != null) {
+            localDiskCache.removeLedger(ledgerId);
+        }
+    }
+
     @Override
     public void invalidateEntries(final Position lastPosition) {
         final Position firstPosition = PositionFactory.create(-1, 0);
@@ -205,6 +238,10 @@ public class RangeEntryCacheImpl implements EntryCache {
         }
 
         manager.entriesRemoved(sizeRemoved, entriesRemoved);
+        if (localDiskCache != null && !spilledLedgers.isEmpty()) {
+            // the ledgers before the one of the slowest reader won't be read anymore
+            removeSpilledLedgers(spilledLedgers.headSet(lastPosition.getLedgerId(), false));
+        }
     }
 
     @Override
@@ -222,6 +259,15 @@ public class RangeEntryCacheImpl implements EntryCache {
 
         manager.entriesRemoved(sizeRemoved, entriesRemoved);
         pendingReadsManager.invalidateLedger(ledgerId);
+        if (localDiskCache != null && spilledLedgers.remove(ledgerId)) {
+            localDiskCache.removeLedger(ledgerId);
+        }
+    }
+
+    @Override
+    public boolean isCached(long ledgerId, long firstEntry, long lastEntry) {
+        return entries.exists(PositionFactory.create(ledgerId, firstEntry))
+                && entries.exists(PositionFactory.create(ledgerId, lastEntry));
     }
 
     @Override
@@ -410,6 +456,29 @@ public class RangeEntryCacheImpl implements EntryCache {
                 cachedEntries.forEach(entry -> entry.release());
             }
 
+            // Check the local disk tier before going to bookkeeper
+            List<Entry> spilledEntries = null;
+            if (localDiskCache != null && spilledLedgers.contains(lh.getId())) {
+                spilledEntries = localDiskCache.getRange(lh.getId(), firstPosition.getEntryId(),
+                        lastPosition.getEntryId());
+                if (spilledEntries == null) {
+                    manager.mlFactoryMBean.recordLocalDiskCacheMiss();
+                }
+            }
+            if (spilledEntries != null) {
+                long totalSpilledSize = 0;
+                for (Entry entry : spilledEntries) {
+                    totalSpilledSize += entry.getLength();
+                }
+                manager.mlFactoryMBean.recordLocalDiskCacheHits(spilledEntries.size(), totalSpilledSize);
+                if (log.isDebugEnabled()) {
+                    log.debug("[{}] Local disk cache hit for {} entries in range {} to {}", ml.getName(),
+                            numberOfEntries, firstPosition, lastPosition);
+                }
+                callback.readEntriesComplete(spilledEntries, ctx);
+                return;
+            }
+
             // Read all the entries from bookkeeper
             pendingReadsManager.readEntries(lh, firstPosition.getEntryId(), lastPosition.getEntryId(),
                     shouldCacheEntry, callback, ctx);
@@ -488,6 +557,9 @@ public class RangeEntryCacheImpl implements EntryCache {
         Pair<Integer, Long> removedPair = entries.clear();
         manager.entriesRemoved(removedPair.getRight(), removedPair.getLeft());
         pendingReadsManager.clear();
+        if (localDiskCache != null) {
+            removeSpilledLedgers(spilledLedgers);
+        }
     }
 
     @Override
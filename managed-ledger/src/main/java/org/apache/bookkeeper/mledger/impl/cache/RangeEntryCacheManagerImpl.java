@@ -19,10 +19,13 @@
 package org.apache.bookkeeper.mledger.impl.cache;
 
 import io.opentelemetry.api.OpenTelemetry;
+import java.io.File;
+import java.io.IOException;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
@@ -50,6 +53,8 @@ public class RangeEntryCacheManagerImpl implements EntryCacheManager {
     private final ManagedLedgerFactoryImpl mlFactory;
     protected final ManagedLedgerFactoryMBeanImpl mlFactoryMBean;
     private final InflightReadsLimiter inflightReadsLimiter;
+    private final LocalDiskEntryCache localDiskCache;
+    private final ExecutorService localDiskSpillExecutor;
 
     protected static final double MB = 1024 * 1024;
     private static final double evictionTriggerThresholdPercent = 0.98;
@@ -69,18 +74,40 @@ public class RangeEntryCacheManagerImpl implements EntryCacheManager {
         this.mlFactoryMBean = factory.getMbean();
         this.rangeCacheRemovalQueue = new RangeCacheRemovalQueue();
         this.evictionHandler = new RangeEntryCacheManagerEvictionHandler(this, rangeCacheRemovalQueue);
+        this.localDiskSpillExecutor = isLocalDiskCacheEnabled(config) ? LocalDiskEntryCache.newSpillExecutor() : null;
+        this.localDiskCache = localDiskSpillExecutor != null
+                ? createLocalDiskCache(config, localDiskSpillExecutor) : null;
 
         log.info("Initialized managed-ledger entry cache of {} Mb", maxSize / MB);
     }
 
+    private static boolean isLocalDiskCacheEnabled(ManagedLedgerFactoryConfig config) {
+        return config.getMaxCacheSize() > 0 && config.getCacheLocalDiskMaxSize() > 0;
+    }
+
+    private static LocalDiskEntryCache createLocalDiskCache(ManagedLedgerFactoryConfig config,
+                                                            ExecutorService spillExecutor) {
+        try {
+            return new LocalDiskEntryCache(new File(config.getCacheLocalDiskDirectory()),
+                    config.getCacheLocalDiskMaxSize(), config.getCacheLocalDiskSegmentSize(), spillExecutor);
+        } catch (IOException e) {
+            log.warn("Failed to initialize the managed-ledger local disk cache in {}, it is disabled",
+                    config.getCacheLocalDiskDirectory(), e);
+            return null;
+        }
+    }
+
     public EntryCache getEntryCache(ManagedLedgerImpl ml) {
         if (maxSize == 0) {
             // Cache is disabled
             return new EntryCacheDisabled(ml);
         }
 
-        EntryCache newEntryCache =
-                new RangeEntryCacheImpl(this, ml, mlFactory.getConfig().isCopyEntriesInCache(), rangeCacheRemovalQueue);
+        ManagedLedgerFactoryConfig config = mlFactory.getConfig();
+        RangeCacheIndex rangeCacheIndex = config.isCacheLedgerSegmentedIndexEnabled()
+                ? new LedgerSegmentedRangeCacheIndex() : new SkipListRangeCacheIndex();
+        EntryCache newEntryCache = new RangeEntryCacheImpl(this, ml, config.isCopyEntriesInCache(), rangeCacheIndex,
+                rangeCacheRemovalQueue);
         EntryCache currentEntryCache = caches.putIfAbsent(ml.getName(), newEntryCache);
         if (currentEntryCache != null) {
             return currentEntryCache;
@@ -183,6 +210,13 @@ public class RangeEntryCacheManagerImpl implements EntryCacheManager {
         triggerEvictionWhenNeeded();
     }
 
+    void messageMetadataSizeChanged(long sizeDelta) {
+        currentSize.addAndGet(sizeDelta);
+        if (sizeDelta > 0) {
+            triggerEvictionWhenNeeded();
+        }
+    }
+
     void entriesRemoved(long size, int count) {
         mlFactoryMBean.recordNumberOfCacheEntriesEvicted(count);
         currentSize.addAndGet(-size);
@@ -220,11 +254,37 @@ public class RangeEntryCacheManagerImpl implements EntryCacheManager {
     @Override
     public void clear() {
         caches.values().forEach(EntryCache::clear);
+        if (localDiskCache != null) {
+            localDiskCache.clear();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        clear();
+        if (localDiskCache != null) {
+            localDiskCache.close();
+        }
+        if (localDiskSpillExecutor != null) {
+            // the pending spills are dropped by the closed disk cache, which releases their data
+            localDiskSpillExecutor.shutdown();
+        }
     }
 
     public InflightReadsLimiter getInflightReadsLimiter() {
         return inflightReadsLimiter;
     }
 
+    LocalDiskEntryCache getLocalDiskCache() {
+        return localDiskCache;
+    }
+
+    /**
+     * Just for testing.
+     */
+    public long getLocalDiskCacheSize() {
+        return localDiskCache != null ? localDiskCache.getSize() : 0;
+    }
+
     private static final Logger log = LoggerFactory.getLogger(RangeEntryCacheManagerImpl.class);
 }
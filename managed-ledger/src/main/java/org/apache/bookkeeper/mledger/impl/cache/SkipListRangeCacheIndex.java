@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BiConsumer;
+import org.apache.bookkeeper.mledger.Position;
+
+/**
+ * {@link RangeCacheIndex} backed by a {@link ConcurrentSkipListMap} keyed by {@link Position}.
+ */
+class SkipListRangeCacheIndex implements RangeCacheIndex {
+    private final ConcurrentNavigableMap<Position, RangeCacheEntryWrapper> entries = new ConcurrentSkipListMap<>();
+
+    @Override
+    public boolean putIfAbsent(Position key, RangeCacheEntryWrapper wrapper) {
+        return entries.putIfAbsent(key, wrapper) == null;
+    }
+
+    @Override
+    public RangeCacheEntryWrapper get(Position key) {
+        return entries.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Position key) {
+        return entries.containsKey(key);
+    }
+
+    @Override
+    public boolean remove(Position key, RangeCacheEntryWrapper wrapper) {
+        return entries.remove(key, wrapper);
+    }
+
+    @Override
+    public void forEachInRange(Position first, Position last, boolean lastInclusive,
+                               BiConsumer<Position, RangeCacheEntryWrapper> consumer) {
+        for (Map.Entry<Position, RangeCacheEntryWrapper> entry : entries.subMap(first, true, last, lastInclusive)
+                .entrySet()) {
+            consumer.accept(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public boolean forFirst(BiConsumer<Position, RangeCacheEntryWrapper> consumer) {
+        Map.Entry<Position, RangeCacheEntryWrapper> entry = entries.firstEntry();
+        if (entry == null) {
+            return false;
+        }
+        consumer.accept(entry.getKey(), entry.getValue());
+        return true;
+    }
+
+    @Override
+    public long size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import lombok.Cleanup;
+import org.apache.bookkeeper.client.api.ReadHandle;
+import org.apache.bookkeeper.mledger.AsyncCallbacks.ReadEntriesCallback;
+import org.apache.bookkeeper.mledger.Entry;
+import org.apache.bookkeeper.mledger.ManagedCursor;
+import org.apache.bookkeeper.mledger.ManagedCursor.IndividualDeletedEntries;
+import org.apache.bookkeeper.mledger.ManagedLedgerConfig;
+import org.apache.bookkeeper.mledger.ManagedLedgerException;
+import org.apache.bookkeeper.mledger.ManagedLedgerFactoryConfig;
+import org.apache.bookkeeper.mledger.Position;
+import org.apache.bookkeeper.mledger.PositionFactory;
+import org.apache.bookkeeper.test.MockedBookKeeperTestCase;
+import org.testng.annotations.Test;
+
+public class CatchUpReadSchedulerTest extends MockedBookKeeperTestCase {
+
+    @Override
+    protected void initManagedLedgerFactoryConfig(ManagedLedgerFactoryConfig config) {
+        super.initManagedLedgerFactoryConfig(config);
+        // disable the entry cache so that all the reads go to the bookies
+        config.setMaxCacheSize(0);
+    }
+
+    @Test
+    public void testCoalesceNearbyCatchUpReads() throws Exception {
+        ManagedLedgerConfig config = new ManagedLedgerConfig();
+        config.setMaxEntriesPerLedger(50);
+        config.setCatchUpReadCoalescingDelayMillis(200);
+        ManagedLedgerImpl ledger = (ManagedLedgerImpl) factory.open("my_test_ledger", config);
+
+        List<ManagedCursor> cursors = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            cursors.add(ledger.openCursor("c" + i));
+        }
+        for (int i = 0; i < 120; i++) {
+            ledger.addEntry(("entry-" + i).getBytes(StandardCharsets.UTF_8));
+        }
+        // place the cursors on nearby positions of the first ledger, 5 entries apart
+        for (int i = 0; i < cursors.size(); i++) {
+            cursors.get(i).skipEntries(i * 5, IndividualDeletedEntries.Exclude);
+        }
+
+        List<CompletableFuture<List<Entry>>> futures = new ArrayList<>();
+        for (ManagedCursor cursor : cursors) {
+            futures.add(readEntries(cursor, 10));
+        }
+
+        for (int i = 0; i < cursors.size(); i++) {
+            List<Entry> entries = futures.get(i).get(10, TimeUnit.SECONDS);
+            assertEquals(entries.size(), 10);
+            for (int j = 0; j < entries.size(); j++) {
+                assertEquals(new String(entries.get(j).getData(), StandardCharsets.UTF_8), "entry-" + (i * 5 + j));
+            }
+            entries.forEach(Entry::release);
+        }
+
+        CatchUpReadScheduler scheduler = ledger.getCatchUpReadScheduler();
+        assertEquals(scheduler.getScheduledReads(), 5);
+        // all the reads were in the range [0, 29] of the first ledger
+        assertEquals(scheduler.getStorageReads(), 1);
+    }
+
+    @Test
+    public void testDistantCatchUpReadsAreNotCoalesced() throws Exception {
+        ManagedLedgerConfig config = new ManagedLedgerConfig();
+        config.setMaxEntriesPerLedger(100);
+        config.setCatchUpReadCoalescingDelayMillis(200);
+        config.setCatchUpReadCoalescingMaxGapEntries(10);
+        ManagedLedgerImpl ledger = (ManagedLedgerImpl) factory.open("my_test_ledger", config);
+
+        ManagedCursor c1 = ledger.openCursor("c1");
+        ManagedCursor c2 = ledger.openCursor("c2");
+        for (int i = 0; i < 150; i++) {
+            ledger.addEntry(("entry-" + i).getBytes(StandardCharsets.UTF_8));
+        }
+        c2.skipEntries(50, IndividualDeletedEntries.Exclude);
+
+        CompletableFuture<List<Entry>> f1 = readEntries(c1, 10);
+        CompletableFuture<List<Entry>> f2 = readEntries(c2, 10);
+        List<Entry> entries1 = f1.get(10, TimeUnit.SECONDS);
+        List<Entry> entries2 = f2.get(10, TimeUnit.SECONDS);
+        assertEquals(entries1.get(0).getPosition(), PositionFactory.create(entries1.get(0).getLedgerId(), 0));
+        assertEquals(entries2.get(0).getPosition(), PositionFactory.create(entries2.get(0).getLedgerId(), 50));
+        entries1.forEach(Entry::release);
+        entries2.forEach(Entry::release);
+
+        CatchUpReadScheduler scheduler = ledger.getCatchUpReadScheduler();
+        assertEquals(scheduler.getScheduledReads(), 2);
+        assertEquals(scheduler.getStorageReads(), 2);
+    }
+
+    @Test
+    public void testCachedReadsAreNotScheduled() throws Exception {
+        @Cleanup("shutdown")
+        ManagedLedgerFactoryImpl cachingFactory = new ManagedLedgerFactoryImpl(metadataStore, bkc,
+                new ManagedLedgerFactoryConfig());
+        ManagedLedgerConfig config = new ManagedLedgerConfig();
+        config.setCatchUpReadCoalescingDelayMillis(200);
+        ManagedLedgerImpl ledger = (ManagedLedgerImpl) cachingFactory.open("my_test_ledger", config);
+        CatchUpReadScheduler scheduler = ledger.getCatchUpReadScheduler();
+        ReadHandle readHandle = mock(ReadHandle.class);
+        when(readHandle.getId()).thenReturn(1L);
+        Position lastConfirmedEntry = PositionFactory.create(2, 0);
+
+        assertTrue(scheduler.shouldSchedule(readHandle, 0, 9, lastConfirmedEntry, 2));
+
+        // the entries in the entry cache are not delayed
+        for (long entryId : new long[] {0, 9}) {
+            EntryImpl entry = EntryImpl.create(1, entryId, ("entry-" + entryId).getBytes(StandardCharsets.UTF_8));
+            assertTrue(ledger.entryCache.insert(entry));
+            entry.release();
+        }
+        assertFalse(scheduler.shouldSchedule(readHandle, 0, 9, lastConfirmedEntry, 2));
+        assertTrue(scheduler.shouldSchedule(readHandle, 0, 10, lastConfirmedEntry, 2));
+    }
+
+    private static CompletableFuture<List<Entry>> readEntries(ManagedCursor cursor, int numberOfEntries) {
+        CompletableFuture<List<Entry>> future = new CompletableFuture<>();
+        cursor.asyncReadEntries(numberOfEntries, new ReadEntriesCallback() {
+            @Override
+            public void readEntriesComplete(List<Entry> entries, Object ctx) {
+                future.complete(entries);
+            }
+
+            @Override
+            public void readEntriesFailed(ManagedLedgerException exception, Object ctx) {
+                future.completeExceptionally(exception);
+            }
+        }, null, PositionFactory.LATEST);
+        return future;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl;
+
+import static org.testng.Assert.assertEquals;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.annotations.Test;
+
+public class ConcurrencyLimiterTest {
+
+    @Test
+    public void testThrowingOperationReleasesItsSlot() {
+        Queue<Runnable> tasks = new ArrayDeque<>();
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, tasks::add);
+        AtomicInteger completed = new AtomicInteger();
+
+        limiter.run(() -> {
+            throw new IllegalStateException("failed");
+        });
+        assertEquals(limiter.getRunningOperations(), 0);
+
+        limiter.run(completed::incrementAndGet);
+        limiter.run(completed::incrementAndGet);
+        assertEquals(completed.get(), 1);
+        assertEquals(limiter.getRunningOperations(), 1);
+        assertEquals(limiter.getPendingOperations(), 1);
+
+        limiter.operationCompleted();
+        // the pending operation is started on the executor
+        assertEquals(completed.get(), 1);
+        tasks.poll().run();
+        assertEquals(completed.get(), 2);
+        assertEquals(limiter.getPendingOperations(), 0);
+    }
+
+    @Test
+    public void testSynchronousCompletionsDontRecurse() {
+        Queue<Runnable> tasks = new ArrayDeque<>();
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, tasks::add);
+        AtomicInteger depth = new AtomicInteger();
+        AtomicInteger maxDepth = new AtomicInteger();
+        AtomicInteger completed = new AtomicInteger();
+        Runnable operation = () -> {
+            maxDepth.accumulateAndGet(depth.incrementAndGet(), Math::max);
+            completed.incrementAndGet();
+            limiter.operationCompleted();
+            depth.decrementAndGet();
+        };
+
+        // the first operation is queued behind a running one
+        limiter.run(() -> { });
+        for (int i = 0; i < 1000; i++) {
+            limiter.run(operation);
+        }
+        limiter.operationCompleted();
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+        assertEquals(completed.get(), 1000);
+        assertEquals(maxDepth.get(), 1);
+        assertEquals(limiter.getRunningOperations(), 0);
+    }
+}
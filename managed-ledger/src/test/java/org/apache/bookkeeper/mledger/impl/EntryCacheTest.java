@@ -18,6 +18,7 @@
  */
 package org.apache.bookkeeper.mledger.impl;
 
+import static org.awaitility.Awaitility.await;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
@@ -26,8 +27,11 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 import io.netty.buffer.Unpooled;
+import java.io.File;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -44,11 +48,15 @@ import org.apache.bookkeeper.mledger.AsyncCallbacks.ReadEntriesCallback;
 import org.apache.bookkeeper.mledger.Entry;
 import org.apache.bookkeeper.mledger.ManagedLedgerConfig;
 import org.apache.bookkeeper.mledger.ManagedLedgerException;
+import org.apache.bookkeeper.mledger.ManagedLedgerFactoryConfig;
 import org.apache.bookkeeper.mledger.PositionFactory;
 import org.apache.bookkeeper.mledger.impl.cache.EntryCache;
 import org.apache.bookkeeper.mledger.impl.cache.EntryCacheManager;
+import org.apache.bookkeeper.mledger.impl.cache.RangeEntryCacheManagerImpl;
 import org.apache.bookkeeper.mledger.proto.MLDataFormats;
 import org.apache.bookkeeper.test.MockedBookKeeperTestCase;
+import org.apache.commons.io.FileUtils;
+import org.apache.pulsar.common.api.proto.MessageMetadata;
 import org.testng.annotations.Test;
 
 public class EntryCacheTest extends MockedBookKeeperTestCase {
@@ -90,6 +98,88 @@ public class EntryCacheTest extends MockedBookKeeperTestCase {
         verify(lh, never()).readAsync(anyLong(), anyLong());
     }
 
+    @Test(timeOut = 5000)
+    public void testMessageMetadataSharedWithCachedEntry() throws Exception {
+        ReadHandle lh = getLedgerHandle();
+        when(lh.getId()).thenReturn((long) 0);
+
+        EntryCacheManager cacheManager = factory.getEntryCacheManager();
+        @Cleanup(value = "clear")
+        EntryCache entryCache = cacheManager.getEntryCache(ml);
+        EntryImpl insertedEntry = EntryImpl.create(0, 0, new byte[10]);
+        entryCache.insert(insertedEntry);
+        insertedEntry.release();
+
+        when(ml.getLastConfirmedEntry()).thenReturn(PositionFactory.create(0, 0));
+        List<Entry> entries = readEntry(entryCache, lh, 0, 0, false, null);
+        EntryImpl firstRead = (EntryImpl) entries.get(0);
+        assertNull(firstRead.getMessageMetadata());
+        MessageMetadata metadata = new MessageMetadata().setProducerName("producer").setSequenceId(1)
+                .setPublishTime(1);
+        firstRead.setMessageMetadata(metadata);
+        firstRead.release();
+
+        // the metadata attached by the first reader is kept with the cached entry and accounted in the cache size
+        assertTrue(cacheManager.getSize() > 10);
+        entries = readEntry(entryCache, lh, 0, 0, false, null);
+        EntryImpl secondRead = (EntryImpl) entries.get(0);
+        assertSame(secondRead.getMessageMetadata(), metadata);
+        verify(lh, never()).readAsync(anyLong(), anyLong());
+
+        // the metadata is dropped with the evicted entry
+        entryCache.invalidateAllEntries(0);
+        assertEquals(cacheManager.getSize(), 0);
+        assertNull(secondRead.getMessageMetadata());
+        secondRead.release();
+    }
+
+    @Test(timeOut = 10000)
+    public void testReadFromLocalDiskCache() throws Exception {
+        ReadHandle lh = getLedgerHandle();
+        when(lh.getId()).thenReturn((long) 0);
+
+        File directory = Files.createTempDirectory("local-disk-cache").toFile();
+        ManagedLedgerFactoryConfig config = new ManagedLedgerFactoryConfig();
+        config.setCacheEvictionTimeThresholdMillis(60_000);
+        config.setCacheLocalDiskMaxSize(1024 * 1024);
+        config.setCacheLocalDiskDirectory(directory.getAbsolutePath());
+        @Cleanup("shutdown")
+        ManagedLedgerFactoryImpl factory2 = new ManagedLedgerFactoryImpl(metadataStore, bkc, config);
+
+        EntryCacheManager cacheManager = factory2.getEntryCacheManager();
+        EntryCache entryCache = cacheManager.getEntryCache(ml);
+        for (int i = 0; i < 10; i++) {
+            entryCache.insert(EntryImpl.create(0, i, ("entry-" + i).getBytes()));
+        }
+
+        // evict all the entries by time, they are spilled to the local disk tier
+        cacheManager.doCacheEviction(System.nanoTime() + 1);
+        assertEquals(entryCache.getSize(), 0);
+        // the entries are spilled in the background
+        await().untilAsserted(() ->
+                assertEquals(((RangeEntryCacheManagerImpl) cacheManager).getLocalDiskCacheSize(), 10 * 7));
+
+        when(ml.getLastConfirmedEntry()).thenReturn(PositionFactory.create(0, 9));
+        final var entries = readEntry(entryCache, lh, 2, 7, false, null);
+        assertEquals(entries.size(), 6);
+        for (int i = 0; i < entries.size(); i++) {
+            assertEquals(new String(entries.get(i).getData()), "entry-" + (i + 2));
+            entries.get(i).release();
+        }
+        verify(lh, never()).readUnconfirmedAsync(anyLong(), anyLong());
+        verify(lh, never()).readAsync(anyLong(), anyLong());
+        // the reads served by the local disk tier are accounted separately from the memory cache hits
+        assertEquals(factory2.getCacheStats().getLocalDiskCacheHitsTotal(), 6);
+        assertEquals(factory2.getCacheStats().getLocalDiskCacheHitsBytesTotal(), 6 * 7);
+        assertEquals(factory2.getCacheStats().getCacheHitsTotal(), 0);
+
+        // the ledger is dropped from the local disk tier once the slowest reader moves past it
+        entryCache.invalidateEntries(PositionFactory.create(1, 0));
+        readEntry(entryCache, lh, 2, 7, false, null).forEach(Entry::release);
+        verify(lh).readUnconfirmedAsync(2, 7);
+        FileUtils.deleteDirectory(directory);
+    }
+
     @Test(timeOut = 5000)
     public void testReadMissingBefore() throws Exception {
         ReadHandle lh = getLedgerHandle();
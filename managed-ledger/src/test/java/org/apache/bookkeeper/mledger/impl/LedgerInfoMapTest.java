@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl;
+
+import static org.testng.Assert.assertEquals;
+import com.google.common.collect.Range;
+import org.apache.bookkeeper.mledger.Position;
+import org.apache.bookkeeper.mledger.PositionFactory;
+import org.apache.bookkeeper.mledger.proto.MLDataFormats.ManagedLedgerInfo.LedgerInfo;
+import org.testng.annotations.Test;
+
+public class LedgerInfoMapTest {
+
+    private static LedgerInfo ledgerInfo(long ledgerId, long entries, long size) {
+        return LedgerInfo.newBuilder().setLedgerId(ledgerId).setEntries(entries).setSize(size).build();
+    }
+
+    private static Position position(long ledgerId, long entryId) {
+        return PositionFactory.create(ledgerId, entryId);
+    }
+
+    @Test
+    public void testCumulativeCounts() {
+        LedgerInfoMap ledgers = new LedgerInfoMap();
+        ledgers.put(1L, ledgerInfo(1, 100, 1000));
+        ledgers.put(3L, ledgerInfo(3, 50, 500));
+        ledgers.put(5L, ledgerInfo(5, 200, 2000));
+        // the ledger being written
+        ledgers.put(8L, ledgerInfo(8, 0, 0));
+
+        assertEquals(ledgers.getNumberOfEntriesBefore(1), 0);
+        assertEquals(ledgers.getNumberOfEntriesBefore(3), 100);
+        assertEquals(ledgers.getNumberOfEntriesBefore(4), 150);
+        assertEquals(ledgers.getNumberOfEntriesBefore(8), 350);
+        assertEquals(ledgers.getSizeBefore(5), 1500);
+        assertEquals(ledgers.getSizeBefore(100), 3500);
+
+        assertEquals(ledgers.getNumberOfEntries(Range.closed(position(1, 10), position(1, 19))), 10);
+        assertEquals(ledgers.getNumberOfEntries(Range.openClosed(position(1, 99), position(3, 0))), 1);
+        assertEquals(ledgers.getNumberOfEntries(Range.openClosed(position(1, 49), position(8, 9))), 50 + 50 + 200 + 10);
+        assertEquals(ledgers.getNumberOfEntries(Range.closedOpen(position(3, 0), position(5, 0))), 50);
+        // the ledger of the lower position was deleted
+        assertEquals(ledgers.getNumberOfEntries(Range.openClosed(position(2, 10), position(5, 9))), 50 + 10);
+
+        // the counts follow the rollovers and the trimming of the ledgers
+        ledgers.put(8L, ledgerInfo(8, 20, 200));
+        ledgers.put(9L, ledgerInfo(9, 0, 0));
+        ledgers.remove(1L);
+        assertEquals(ledgers.getNumberOfEntriesBefore(9), 270);
+        assertEquals(ledgers.getSizeBefore(9), 2700);
+        assertEquals(ledgers.getNumberOfEntries(Range.openClosed(position(1, 99), position(9, 4))), 275);
+
+        ledgers.clear();
+        assertEquals(ledgers.getNumberOfEntriesBefore(9), 0);
+        assertEquals(ledgers.getNumberOfEntries(Range.openClosed(position(1, 99), position(9, 4))), 5);
+    }
+}
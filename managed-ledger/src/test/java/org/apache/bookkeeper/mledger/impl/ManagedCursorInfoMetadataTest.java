@@ -101,6 +101,52 @@ public class ManagedCursorInfoMetadataTest {
         assertEquals(info1, info2);
     }
 
+    @Test(dataProvider = "compressionTypeProvider")
+    public void testCompactEncoding(String compressionType) throws IOException {
+        if (INVALID_TYPE.equals(compressionType)) {
+            return;
+        }
+        long ledgerId = 10000;
+        MLDataFormats.ManagedCursorInfo.Builder builder = generateManagedCursorInfo(ledgerId, 100)
+                .setMarkDeleteEntryId(5)
+                .setLastActive(System.currentTimeMillis());
+        for (int i = 0; i < 1000; i++) {
+            long rangeLedgerId = ledgerId + i / 100;
+            long entryId = (i % 100) * 3 + 10;
+            builder.addIndividualDeletedMessages(MLDataFormats.MessageRange.newBuilder()
+                    .setLowerEndpoint(MLDataFormats.NestedPositionInfo.newBuilder()
+                            .setLedgerId(rangeLedgerId).setEntryId(entryId))
+                    .setUpperEndpoint(MLDataFormats.NestedPositionInfo.newBuilder()
+                            .setLedgerId(rangeLedgerId).setEntryId(entryId + 1)));
+        }
+        builder.setBatchedEntryDeletionIndexInfo(0, builder.getBatchedEntryDeletionIndexInfo(0).toBuilder()
+                .addDeleteSet(-1).addDeleteSet(7));
+        builder.addProperties(MLDataFormats.LongProperty.newBuilder().setName("#pulsar.property").setValue(-1));
+        builder.addCursorProperties(MLDataFormats.StringProperty.newBuilder().setName("name").setValue("value"));
+        MLDataFormats.ManagedCursorInfo managedCursorInfo = builder.build();
+
+        MetaStoreImpl metaStore = new MetaStoreImpl(null, null, null,
+                new MetadataCompressionConfig(compressionType, 0, true));
+        byte[] data = metaStore.compressCursorInfo(managedCursorInfo);
+        log.info("[{}] Plain data size: {}, compact data size: {}",
+                compressionType, managedCursorInfo.getSerializedSize(), data.length);
+        assertTrue(data.length < managedCursorInfo.getSerializedSize() / 2);
+        assertEquals(metaStore.parseManagedCursorInfo(data), managedCursorInfo);
+
+        // the other formats are still read
+        assertEquals(metaStore.parseManagedCursorInfo(managedCursorInfo.toByteArray()), managedCursorInfo);
+        MetaStoreImpl compressingMetaStore = new MetaStoreImpl(null, null, null,
+                new MetadataCompressionConfig(compressionType));
+        assertEquals(metaStore.parseManagedCursorInfo(compressingMetaStore.compressCursorInfo(managedCursorInfo)),
+                managedCursorInfo);
+        assertEquals(compressingMetaStore.parseManagedCursorInfo(data), managedCursorInfo);
+
+        // the plain encoding is kept when it's smaller
+        MLDataFormats.ManagedCursorInfo smallInfo = MLDataFormats.ManagedCursorInfo.newBuilder()
+                .setCursorsLedgerId(-1).setMarkDeleteLedgerId(ledgerId).setMarkDeleteEntryId(5).build();
+        assertEquals(metaStore.compressCursorInfo(smallInfo), smallInfo.toByteArray());
+    }
+
     @Test(dataProvider = "compressionTypeProvider")
     public void testCompressionThreshold(String compressionType) throws IOException {
         int compressThreshold = 512;
@@ -37,6 +37,8 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Range;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
 import java.lang.reflect.Field;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
@@ -111,6 +113,10 @@ import org.apache.commons.collections.iterators.EmptyIterator;
 import org.apache.commons.lang3.mutable.MutableBoolean;
 import org.apache.pulsar.common.api.proto.CommandSubscribe;
 import org.apache.pulsar.common.api.proto.IntRange;
+import org.apache.pulsar.common.api.proto.MessageMetadata;
+import org.apache.pulsar.common.intercept.AppendIndexMetadataInterceptor;
+import org.apache.pulsar.common.intercept.BrokerEntryMetadataInterceptor;
+import org.apache.pulsar.common.protocol.Commands;
 import org.apache.pulsar.common.util.FutureUtil;
 import org.apache.pulsar.common.util.collections.BitSetRecyclable;
 import org.apache.pulsar.common.util.collections.LongPairRangeSet;
@@ -2252,6 +2258,81 @@ public class ManagedCursorTest extends MockedBookKeeperTestCase {
 
     }
 
+    @Test(dataProvider = "testScanValues", timeOut = 30000)
+    void testScanMetadata(int numEntries, int batchSize) throws Exception {
+        ManagedLedger ledger = factory.open("my_test_ledger_scan_metadata_" + numEntries + "_" + batchSize,
+                new ManagedLedgerConfig().setMaxEntriesPerLedger(3));
+        ManagedCursorImpl c1 = (ManagedCursorImpl) ledger.openCursor("c1");
+
+        Set<BrokerEntryMetadataInterceptor> interceptors = Set.of(new AppendIndexMetadataInterceptor());
+        List<Position> positions = new ArrayList<>();
+        for (int i = 0; i < numEntries; i++) {
+            MessageMetadata metadata = new MessageMetadata().setProducerName("producer").setSequenceId(i)
+                    .setPublishTime(i);
+            metadata.addProperty().setKey("parity").setValue(i % 2 == 0 ? "even" : "odd");
+            ByteBuf data = Commands.serializeMetadataAndPayload(Commands.ChecksumType.Crc32c, metadata,
+                    Unpooled.wrappedBuffer(("a" + i).getBytes(Encoding)));
+            if (i % 3 == 0) {
+                data = Commands.addBrokerEntryMetadata(data, interceptors, 1);
+            }
+            positions.add(ledger.addEntry(ByteBufUtil.getBytes(data)));
+            data.release();
+        }
+
+        for (int parallelism : new int[] {1, 2, 10}) {
+            Map<Position, Long> evenSequenceIds = new ConcurrentHashMap<>();
+            Set<Position> withBrokerEntryMetadata = ConcurrentHashMap.newKeySet();
+            assertEquals(c1.scanMetadata(Optional.empty(), (position, brokerEntryMetadata, metadata) -> {
+                if (brokerEntryMetadata != null && brokerEntryMetadata.hasIndex()) {
+                    withBrokerEntryMetadata.add(position);
+                }
+                if (metadata.getPropertyAt(0).getValue().equals("even")) {
+                    evenSequenceIds.put(position, metadata.getSequenceId());
+                }
+                return true;
+            }, batchSize, parallelism, Long.MAX_VALUE, Long.MAX_VALUE).get(), ScanOutcome.COMPLETED);
+
+            assertEquals(evenSequenceIds.size(), (numEntries + 1) / 2);
+            assertEquals(withBrokerEntryMetadata.size(), (numEntries + 2) / 3);
+            for (int i = 0; i < numEntries; i++) {
+                assertEquals(evenSequenceIds.get(positions.get(i)), i % 2 == 0 ? Long.valueOf(i) : null);
+                assertEquals(withBrokerEntryMetadata.contains(positions.get(i)), i % 3 == 0);
+            }
+
+            if (numEntries > 0) {
+                AtomicInteger scanned = new AtomicInteger();
+                assertEquals(c1.scanMetadata(Optional.empty(), (position, brokerEntryMetadata, metadata) -> {
+                    scanned.incrementAndGet();
+                    return metadata.getSequenceId() != numEntries / 2;
+                }, batchSize, parallelism, Long.MAX_VALUE, Long.MAX_VALUE).get(), ScanOutcome.USER_INTERRUPTED);
+                assertTrue(scanned.get() <= numEntries);
+                assertEquals(c1.scanMetadata(Optional.empty(), (position, brokerEntryMetadata, metadata) -> true,
+                        batchSize, parallelism, 1, Long.MAX_VALUE).get(), ScanOutcome.ABORTED);
+
+                // the entries scanned up to the max entries are the first entries of the backlog, as the scan
+                // aborts on the last one they are the first 4 entries
+                Set<Position> scannedPositions = ConcurrentHashMap.newKeySet();
+                assertEquals(c1.scanMetadata(Optional.empty(), (position, brokerEntryMetadata, metadata) -> {
+                    scannedPositions.add(position);
+                    return true;
+                }, batchSize, parallelism, 5, Long.MAX_VALUE).get(), ScanOutcome.ABORTED);
+                assertEquals(scannedPositions, Set.copyOf(positions.subList(0, 4)));
+            }
+        }
+
+        // the deleted entries are skipped
+        if (numEntries > 2) {
+            c1.delete(positions.get(2));
+            Set<Position> scannedPositions = ConcurrentHashMap.newKeySet();
+            assertEquals(c1.scanMetadata(Optional.empty(), (position, brokerEntryMetadata, metadata) -> {
+                scannedPositions.add(position);
+                return true;
+            }, batchSize, 4, Long.MAX_VALUE, Long.MAX_VALUE).get(), ScanOutcome.COMPLETED);
+            assertEquals(scannedPositions.size(), numEntries - 1);
+            assertFalse(scannedPositions.contains(positions.get(2)));
+        }
+    }
+
     @Test(timeOut = 20000)
     void testFindNewestMatchingOdd1() throws Exception {
         ManagedLedger ledger = factory.open("my_test_ledger");
@@ -20,6 +20,7 @@ package org.apache.bookkeeper.mledger.impl;
 
 import static org.apache.pulsar.common.util.PortManager.releaseLockedPort;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotEquals;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
@@ -28,6 +29,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import io.netty.buffer.ByteBuf;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Enumeration;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -815,4 +817,178 @@ public class ManagedLedgerBkTest extends BookKeeperClusterTestCase {
         ledger1.close();
         factory.shutdown();
     }
+
+    @Test
+    public void testPersistIndividualAckAsRunLength() throws Exception {
+        final String mlName = "ml" + UUID.randomUUID().toString().replaceAll("-", "");
+        final String cursorName = "c1";
+        ManagedLedgerFactoryConfig factoryConf = new ManagedLedgerFactoryConfig();
+        ManagedLedgerFactory factory = new ManagedLedgerFactoryImpl(metadataStore, bkc, factoryConf);
+        final ManagedLedgerConfig config = new ManagedLedgerConfig()
+                .setEnsembleSize(1).setWriteQuorumSize(1).setAckQuorumSize(1)
+                .setMetadataEnsembleSize(1).setMetadataWriteQuorumSize(1).setMetadataAckQuorumSize(1)
+                .setMaxUnackedRangesToPersistInMetadataStore(1)
+                .setUnackedRangesOpenCacheSetEnabled(true).setPersistIndividualAckAsRunLength(true);
+        // More acknowledged entries than the max ranges, but fewer ranges.
+        config.setMaxUnackedRangesToPersist(100);
+
+        ManagedLedger ledger1 = factory.open(mlName, config);
+        ManagedCursorImpl cursor1 = (ManagedCursorImpl) ledger1.openCursor(cursorName);
+
+        int totalEntries = 500;
+        List<Position> entries = new ArrayList<>();
+        for (int i = 0; i < totalEntries; i++) {
+            entries.add(ledger1.addEntry("entry".getBytes()));
+        }
+        // Make 50 ranges of 9 acknowledged entries separated by ack holes.
+        for (int i = 1; i < totalEntries; i++) {
+            if (i % 10 != 0) {
+                cursor1.delete(entries.get(i));
+            }
+        }
+        assertEquals(cursor1.getIndividuallyDeletedMessagesSet().size(), 50);
+        assertTrue(cursor1.isCursorDataFullyPersistable());
+        // Trigger a mark deletion.
+        cursor1.markDelete(entries.get(0));
+        Awaitility.await().untilAsserted(() -> {
+            assertEquals(cursor1.pendingMarkDeleteOps.size(), 0);
+        });
+        Position expectedMarkDeletedPosition = cursor1.getMarkDeletedPosition();
+        String expectedRanges = cursor1.getIndividuallyDeletedMessages();
+
+        long cursorLedgerLac = cursor1.cursorLedger.getLastAddConfirmed();
+        LedgerEntry ledgerEntry = cursor1.cursorLedger.readEntries(cursorLedgerLac, cursorLedgerLac).nextElement();
+        MLDataFormats.PositionInfo positionInfo = MLDataFormats.PositionInfo.parseFrom(ledgerEntry.getEntry());
+        assertEquals(positionInfo.getIndividualDeletedMessageRunsCount(), 1);
+        assertEquals(positionInfo.getIndividualDeletedMessageRuns(0).getRunsCount(), 2 * 49);
+        assertEquals(positionInfo.getIndividualDeletedMessageRangesCount(), 0);
+        assertEquals(positionInfo.getIndividualDeletedMessagesCount(), 0);
+        ledger1.close();
+        factory.shutdown();
+
+        // Verify the ack holes are recovered.
+        ManagedLedgerFactory factory2 = new ManagedLedgerFactoryImpl(metadataStore, bkc, factoryConf);
+        ManagedLedger ledger2 = factory2.open(mlName, config);
+        ManagedCursorImpl cursor2 = (ManagedCursorImpl) ledger2.openCursor(cursorName);
+        assertEquals(cursor2.getMarkDeletedPosition(), expectedMarkDeletedPosition);
+        assertEquals(cursor2.getIndividuallyDeletedMessages(), expectedRanges);
+
+        // cleanup
+        ledger2.close();
+        factory2.shutdown();
+    }
+
+    @Test
+    public void testPersistIndividualAckAsDelta() throws Exception {
+        final String mlName = "ml" + UUID.randomUUID().toString().replaceAll("-", "");
+        final String cursorName = "c1";
+        ManagedLedgerFactoryConfig factoryConf = new ManagedLedgerFactoryConfig();
+        ManagedLedgerFactory factory = new ManagedLedgerFactoryImpl(metadataStore, bkc, factoryConf);
+        final ManagedLedgerConfig config = new ManagedLedgerConfig()
+                .setEnsembleSize(1).setWriteQuorumSize(1).setAckQuorumSize(1)
+                .setMetadataEnsembleSize(1).setMetadataWriteQuorumSize(1).setMetadataAckQuorumSize(1)
+                .setMaxUnackedRangesToPersistInMetadataStore(1)
+                .setUnackedRangesOpenCacheSetEnabled(true)
+                .setPersistentUnackedRangesSnapshotInterval(1000)
+                .setMaxEntriesPerLedger(20);
+        config.setPersistentUnackedRangesWithMultipleEntriesEnabled(true);
+
+        ManagedLedger ledger1 = factory.open(mlName, config);
+        ManagedCursorImpl cursor1 = (ManagedCursorImpl) ledger1.openCursor(cursorName);
+
+        int totalEntries = 100;
+        List<Position> entries = new ArrayList<>();
+        for (int i = 0; i < totalEntries; i++) {
+            entries.add(ledger1.addEntry("entry".getBytes()));
+        }
+        // Make ack holes in every ledger.
+        for (int i = 1; i < totalEntries; i += 2) {
+            cursor1.delete(entries.get(i));
+        }
+        cursor1.markDelete(cursor1.getMarkDeletedPosition());
+        Awaitility.await().untilAsserted(() -> {
+            assertEquals(cursor1.pendingMarkDeleteOps.size(), 0);
+        });
+
+        // The cursor ledger starts with a full snapshot, then each entry only contains the ledger that changed.
+        long cursorLedgerLac = cursor1.cursorLedger.getLastAddConfirmed();
+        Enumeration<LedgerEntry> ledgerEntries = cursor1.cursorLedger.readEntries(0, cursorLedgerLac);
+        MLDataFormats.PositionInfo firstPositionInfo =
+                MLDataFormats.PositionInfo.parseFrom(ledgerEntries.nextElement().getEntry());
+        assertFalse(firstPositionInfo.hasIndividualDeletedMessagesSnapshotEntryId());
+        while (ledgerEntries.hasMoreElements()) {
+            MLDataFormats.PositionInfo positionInfo =
+                    MLDataFormats.PositionInfo.parseFrom(ledgerEntries.nextElement().getEntry());
+            assertEquals(positionInfo.getIndividualDeletedMessagesSnapshotEntryId(), 0);
+            assertTrue(positionInfo.getIndividualDeletedMessageRunsCount() <= 1);
+        }
+        Position expectedMarkDeletedPosition = cursor1.getMarkDeletedPosition();
+        String expectedRanges = cursor1.getIndividuallyDeletedMessages();
+
+        // Crash without closing the cursor, the recovery has to replay the changes since the snapshot.
+        factory.shutdown();
+        ManagedLedgerFactory factory2 = new ManagedLedgerFactoryImpl(metadataStore, bkc, factoryConf);
+        ManagedLedger ledger2 = factory2.open(mlName, config);
+        ManagedCursorImpl cursor2 = (ManagedCursorImpl) ledger2.openCursor(cursorName);
+        assertEquals(cursor2.getMarkDeletedPosition(), expectedMarkDeletedPosition);
+        assertEquals(cursor2.getIndividuallyDeletedMessages(), expectedRanges);
+
+        // cleanup
+        ledger2.close();
+        factory2.shutdown();
+    }
+
+    @Test
+    public void testPersistIndividualAckAsDeltaAfterResetCursor() throws Exception {
+        final String mlName = "ml" + UUID.randomUUID().toString().replaceAll("-", "");
+        final String cursorName = "c1";
+        ManagedLedgerFactoryConfig factoryConf = new ManagedLedgerFactoryConfig();
+        ManagedLedgerFactory factory = new ManagedLedgerFactoryImpl(metadataStore, bkc, factoryConf);
+        final ManagedLedgerConfig config = new ManagedLedgerConfig()
+                .setEnsembleSize(1).setWriteQuorumSize(1).setAckQuorumSize(1)
+                .setMetadataEnsembleSize(1).setMetadataWriteQuorumSize(1).setMetadataAckQuorumSize(1)
+                .setMaxUnackedRangesToPersistInMetadataStore(1)
+                .setUnackedRangesOpenCacheSetEnabled(true)
+                .setPersistentUnackedRangesSnapshotInterval(1000)
+                .setMaxEntriesPerLedger(20);
+        config.setPersistentUnackedRangesWithMultipleEntriesEnabled(true);
+
+        ManagedLedger ledger1 = factory.open(mlName, config);
+        ManagedCursorImpl cursor1 = (ManagedCursorImpl) ledger1.openCursor(cursorName);
+
+        int totalEntries = 100;
+        List<Position> entries = new ArrayList<>();
+        for (int i = 0; i < totalEntries; i++) {
+            entries.add(ledger1.addEntry("entry".getBytes()));
+        }
+        for (int i = 1; i < totalEntries; i += 2) {
+            cursor1.delete(entries.get(i));
+        }
+        Awaitility.await().untilAsserted(() -> assertEquals(cursor1.pendingMarkDeleteOps.size(), 0));
+
+        // Seek back: the acks past the new position are dropped and must not come back after the recovery.
+        cursor1.resetCursor(entries.get(10));
+        cursor1.delete(entries.get(13));
+        cursor1.delete(entries.get(16));
+        Awaitility.await().untilAsserted(() -> assertEquals(cursor1.pendingMarkDeleteOps.size(), 0));
+        Position expectedMarkDeletedPosition = cursor1.getMarkDeletedPosition();
+        String expectedRanges = cursor1.getIndividuallyDeletedMessages();
+        assertFalse(cursor1.isMessageDeleted(entries.get(11)));
+        assertTrue(cursor1.isMessageDeleted(entries.get(13)));
+
+        // Crash without closing the cursor, the recovery has to replay the changes since the snapshot.
+        factory.shutdown();
+        ManagedLedgerFactory factory2 = new ManagedLedgerFactoryImpl(metadataStore, bkc, factoryConf);
+        ManagedLedger ledger2 = factory2.open(mlName, config);
+        ManagedCursorImpl cursor2 = (ManagedCursorImpl) ledger2.openCursor(cursorName);
+        assertEquals(cursor2.getMarkDeletedPosition(), expectedMarkDeletedPosition);
+        assertEquals(cursor2.getIndividuallyDeletedMessages(), expectedRanges);
+        for (int i = 11; i < totalEntries; i++) {
+            assertEquals(cursor2.isMessageDeleted(entries.get(i)), i == 13 || i == 16);
+        }
+
+        // cleanup
+        ledger2.close();
+        factory2.shutdown();
+    }
 }
@@ -20,14 +20,19 @@ package org.apache.bookkeeper.mledger.impl;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import org.apache.bookkeeper.mledger.ManagedCursor;
 import org.apache.bookkeeper.mledger.ManagedLedgerConfig;
+import org.apache.bookkeeper.mledger.ManagedLedgerFactoryConfig;
 import org.apache.bookkeeper.mledger.ManagedLedgerInfo;
 import org.apache.bookkeeper.mledger.ManagedLedgerInfo.CursorInfo;
 import org.apache.bookkeeper.mledger.ManagedLedgerInfo.MessageRangeInfo;
 import org.apache.bookkeeper.mledger.Position;
+import org.apache.bookkeeper.mledger.proto.MLDataFormats.ManagedLedgerInfo.LedgerInfo;
 import org.apache.bookkeeper.test.MockedBookKeeperTestCase;
 import org.awaitility.Awaitility;
 import org.testng.Assert;
@@ -114,6 +119,72 @@ public class ManagedLedgerFactoryTest extends MockedBookKeeperTestCase {
         managedLedger2.close();
     }
 
+    @Test(timeOut = 20000)
+    public void testOpenWithPrefetchedMetadataAndBoundedCursorRecoveries() throws Exception {
+        ManagedLedgerImpl ledger = (ManagedLedgerImpl) factory.open("testOpenWithPrefetchedMetadata");
+        ledger.addEntry("entry".getBytes());
+        for (int i = 0; i < 5; i++) {
+            ledger.openCursor("c" + i);
+        }
+        ledger.close();
+
+        ManagedLedgerFactoryConfig factoryConfig = new ManagedLedgerFactoryConfig();
+        factoryConfig.setMaxConcurrentCursorRecoveries(1);
+        ManagedLedgerFactoryImpl factory2 = new ManagedLedgerFactoryImpl(metadataStore, bkc, factoryConfig);
+        try {
+            factory2.asyncPrefetchMetadata(List.of("testOpenWithPrefetchedMetadata")).get();
+            ManagedLedgerImpl ledger2 = (ManagedLedgerImpl) factory2.open("testOpenWithPrefetchedMetadata");
+            assertEquals(ledger2.getCursors().getNumberOfDurableCursors(), 5);
+            assertEquals(ledger2.getNumberOfEntries(), 1);
+
+            factory2.getMbean().getOpenCursorsLatencyBuckets().refresh();
+            assertEquals(factory2.getMbean().getOpenCursorsLatencyBuckets().getCount(), 1);
+        } finally {
+            factory2.shutdown();
+        }
+    }
+
+    @Test(timeOut = 20000)
+    public void testBoundedLedgerDeletions() throws Exception {
+        ManagedLedgerFactoryConfig factoryConfig = new ManagedLedgerFactoryConfig();
+        factoryConfig.setMaxConcurrentLedgerDeletions(2);
+        ManagedLedgerFactoryImpl factory2 = new ManagedLedgerFactoryImpl(metadataStore, bkc, factoryConfig);
+        try {
+            ManagedLedgerConfig conf = new ManagedLedgerConfig();
+            conf.setMaxEntriesPerLedger(1);
+            conf.setRetentionTime(0, TimeUnit.MILLISECONDS);
+            conf.setRetentionSizeInMB(0);
+            ManagedLedgerImpl ledger = (ManagedLedgerImpl) factory2.open("testBoundedLedgerDeletions", conf);
+            ManagedCursor cursor = ledger.openCursor("c1");
+            Position lastPosition = null;
+            for (int i = 0; i < 10; i++) {
+                lastPosition = ledger.addEntry(("entry-" + i).getBytes());
+            }
+            List<LedgerInfo> ledgers = List.copyOf(ledger.getLedgersInfo().values());
+            cursor.markDelete(lastPosition);
+
+            CompletableFuture<Void> promise = new CompletableFuture<>();
+            ledger.trimConsumedLedgersInBackground(promise);
+            promise.get();
+            List<LedgerInfo> trimmedLedgers = ledgers.stream()
+                    .filter(ledgerInfo -> !ledger.getLedgersInfo().containsKey(ledgerInfo.getLedgerId())).toList();
+            int trimmedCount = trimmedLedgers.size();
+            long trimmedSize = trimmedLedgers.stream().mapToLong(LedgerInfo::getSize).sum();
+            assertTrue(trimmedCount >= 9);
+
+            // all the trimmed ledgers are deleted, at most 2 at a time
+            ManagedLedgerFactoryMBeanImpl mbean = factory2.getMbean();
+            Awaitility.await().untilAsserted(() -> {
+                assertEquals(mbean.getLedgerDeletionsTotal(), trimmedCount);
+                assertEquals(mbean.getPendingLedgerDeletions(), 0);
+            });
+            assertEquals(mbean.getLedgerDeletionsBytesTotal(), trimmedSize);
+            assertEquals(mbean.getLedgerDeletionFailuresTotal(), 0);
+        } finally {
+            factory2.shutdown();
+        }
+    }
+
     private void waitManagedLedgerStateEquals(ManagedLedgerImpl managedLedger, ManagedLedgerImpl.State expectedStat){
         Awaitility.await().untilAsserted(() ->
                 Assert.assertTrue(managedLedger.getState() == expectedStat));
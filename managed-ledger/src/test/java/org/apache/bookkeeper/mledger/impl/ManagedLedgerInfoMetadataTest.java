@@ -126,6 +126,47 @@ public class ManagedLedgerInfoMetadataTest {
         Assert.assertEquals(info1, info2);
     }
 
+    @Test(dataProvider = "compressionTypeProvider")
+    public void testCompactEncoding(String compressionType) throws IOException {
+        if ("INVALID_TYPE".equals(compressionType)) {
+            return;
+        }
+        MLDataFormats.ManagedLedgerInfo.Builder builder = generateManagedLedgerInfo(10000, 100);
+        builder.getLedgerInfoBuilder(50).addProperties(MLDataFormats.KeyValue.newBuilder()
+                .setKey("key").setValue("value"));
+        builder.getLedgerInfoBuilder(60).getEntryIndexBuilder().addEntryIds(0).addTimestamps(1).addIndexes(-1);
+        builder.getLedgerInfoBuilder(70).getOffloadContextBuilder().setComplete(true)
+                .addOffloadSegment(MLDataFormats.OffloadSegment.newBuilder().setUidMsb(1).setUidLsb(2)
+                        .setEndEntryId(10).setDriverMetadata(builder.getLedgerInfo(70).getOffloadContext()
+                                .getDriverMetadata()));
+        // the ledger being written
+        builder.addLedgerInfo(MLDataFormats.ManagedLedgerInfo.LedgerInfo.newBuilder().setLedgerId(10200));
+        builder.setTerminatedPosition(MLDataFormats.NestedPositionInfo.newBuilder().setLedgerId(10200)
+                .setEntryId(-1));
+        builder.addProperties(MLDataFormats.KeyValue.newBuilder().setKey("key").setValue("other-value"));
+        MLDataFormats.ManagedLedgerInfo managedLedgerInfo = builder.build();
+
+        MetaStoreImpl metaStore = new MetaStoreImpl(null, null,
+                new MetadataCompressionConfig(compressionType, 0, true), null);
+        byte[] data = metaStore.compressLedgerInfo(managedLedgerInfo);
+        log.info("[{}] Plain data size: {}, compact data size: {}",
+                compressionType, managedLedgerInfo.getSerializedSize(), data.length);
+        assertTrue(data.length < managedLedgerInfo.getSerializedSize() / 2);
+        assertEquals(metaStore.parseManagedLedgerInfo(data), managedLedgerInfo);
+
+        // the other formats are still read
+        assertEquals(metaStore.parseManagedLedgerInfo(managedLedgerInfo.toByteArray()), managedLedgerInfo);
+        MetaStoreImpl compressingMetaStore = new MetaStoreImpl(null, null,
+                new MetadataCompressionConfig(compressionType), null);
+        assertEquals(metaStore.parseManagedLedgerInfo(compressingMetaStore.compressLedgerInfo(managedLedgerInfo)),
+                managedLedgerInfo);
+        assertEquals(compressingMetaStore.parseManagedLedgerInfo(data), managedLedgerInfo);
+
+        // the plain encoding is kept when it's smaller
+        MLDataFormats.ManagedLedgerInfo emptyInfo = MLDataFormats.ManagedLedgerInfo.getDefaultInstance();
+        assertEquals(metaStore.compressLedgerInfo(emptyInfo), emptyInfo.toByteArray());
+    }
+
     @Test
     public void testParseEmptyData() throws InvalidProtocolBufferException {
         MetaStoreImpl metaStore = new MetaStoreImpl(null, null);
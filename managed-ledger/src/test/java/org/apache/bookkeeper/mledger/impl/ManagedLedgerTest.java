@@ -42,10 +42,13 @@ import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
+import com.google.common.collect.Range;
 import com.google.common.collect.Sets;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
 import io.netty.util.concurrent.DefaultThreadFactory;
+import java.io.IOException;
 import java.lang.reflect.Field;
 import java.nio.ReadOnlyBufferException;
 import java.nio.charset.Charset;
@@ -65,13 +68,16 @@ import java.util.NavigableMap;
 import java.util.Optional;
 import java.util.Queue;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
@@ -82,6 +88,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
 import lombok.Cleanup;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
@@ -101,6 +108,7 @@ import org.apache.bookkeeper.client.api.ReadHandle;
 import org.apache.bookkeeper.common.util.BoundedScheduledExecutorService;
 import org.apache.bookkeeper.common.util.OrderedScheduler;
 import org.apache.bookkeeper.conf.ClientConfiguration;
+import org.apache.bookkeeper.mledger.AddEntryCoalescer;
 import org.apache.bookkeeper.mledger.AsyncCallbacks;
 import org.apache.bookkeeper.mledger.AsyncCallbacks.AddEntryCallback;
 import org.apache.bookkeeper.mledger.AsyncCallbacks.CloseCallback;
@@ -138,10 +146,13 @@ import org.apache.bookkeeper.test.MockedBookKeeperTestCase;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.commons.lang3.mutable.MutableBoolean;
 import org.apache.commons.lang3.mutable.MutableObject;
+import org.apache.commons.lang3.reflect.FieldUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.pulsar.common.api.proto.CommandSubscribe.InitialPosition;
+import org.apache.pulsar.common.api.proto.MessageMetadata;
 import org.apache.pulsar.common.policies.data.EnsemblePlacementPolicyConfig;
 import org.apache.pulsar.common.policies.data.OffloadPoliciesImpl;
+import org.apache.pulsar.common.protocol.Commands;
 import org.apache.pulsar.common.util.FutureUtil;
 import org.apache.pulsar.metadata.api.MetadataStoreException;
 import org.apache.pulsar.metadata.api.Stat;
@@ -2749,6 +2760,325 @@ public class ManagedLedgerTest extends MockedBookKeeperTestCase {
         assertEquals(backlog, 0);
     }
 
+    @Test
+    public void testReadSparseEntries() throws Exception {
+        ManagedLedgerConfig conf = new ManagedLedgerConfig();
+        initManagedLedgerConfig(conf);
+        conf.setMaxEntriesPerLedger(5);
+        ManagedLedgerImpl ledger = (ManagedLedgerImpl) factory.open("testReadSparseEntries", conf);
+        ledger.openCursor("c1");
+        List<Position> positions = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            positions.add(ledger.addEntry(("entry-" + i).getBytes()));
+        }
+
+        // two runs in the first ledger, one run across the end of the first ledger and the start of the second one
+        TreeSet<Position> positionsToRead = new TreeSet<>(List.of(positions.get(0), positions.get(1),
+                positions.get(3), positions.get(4), positions.get(5), positions.get(6), positions.get(11)));
+        List<OpReadSparseEntries.Run> runs = OpReadSparseEntries.planReads(positionsToRead);
+        assertEquals(runs.size(), 4);
+        assertEquals(runs.get(0), new OpReadSparseEntries.Run(positions.get(0).getLedgerId(), 0, 1));
+        assertEquals(runs.get(1), new OpReadSparseEntries.Run(positions.get(0).getLedgerId(), 3, 4));
+        assertEquals(runs.get(2), new OpReadSparseEntries.Run(positions.get(5).getLedgerId(), 0, 1));
+        assertEquals(runs.get(3), new OpReadSparseEntries.Run(positions.get(11).getLedgerId(), 1, 1));
+
+        CompletableFuture<List<Entry>> future = new CompletableFuture<>();
+        ledger.asyncReadEntries(positionsToRead, new ReadEntriesCallback() {
+            @Override
+            public void readEntriesComplete(List<Entry> entries, Object ctx) {
+                future.complete(entries);
+            }
+
+            @Override
+            public void readEntriesFailed(ManagedLedgerException exception, Object ctx) {
+                future.completeExceptionally(exception);
+            }
+        }, null);
+        List<Entry> entries = future.get(10, TimeUnit.SECONDS);
+        assertEquals(entries.size(), positionsToRead.size());
+        int i = 0;
+        for (Position position : positionsToRead) {
+            assertEquals(entries.get(i).getPosition(), position);
+            assertEquals(new String(entries.get(i).getData()), "entry-" + positions.indexOf(position));
+            i++;
+        }
+        entries.forEach(Entry::release);
+
+        // the default implementation reads the positions one by one, and keeps them in position order
+        ManagedLedger perEntryLedger = mock(ManagedLedger.class, Mockito.CALLS_REAL_METHODS);
+        List<Runnable> pendingReads = new ArrayList<>();
+        doAnswer(invocation -> {
+            pendingReads.add(() -> ledger.asyncReadEntry(invocation.getArgument(0), invocation.getArgument(1),
+                    invocation.getArgument(2)));
+            return null;
+        }).when(perEntryLedger).asyncReadEntry(any(), any(), any());
+        CompletableFuture<List<Entry>> perEntryFuture = new CompletableFuture<>();
+        perEntryLedger.asyncReadEntries(positionsToRead, new ReadEntriesCallback() {
+            @Override
+            public void readEntriesComplete(List<Entry> entries, Object ctx) {
+                perEntryFuture.complete(entries);
+            }
+
+            @Override
+            public void readEntriesFailed(ManagedLedgerException exception, Object ctx) {
+                perEntryFuture.completeExceptionally(exception);
+            }
+        }, null);
+        assertEquals(pendingReads.size(), positionsToRead.size());
+        Collections.reverse(pendingReads);
+        pendingReads.forEach(Runnable::run);
+        entries = perEntryFuture.get(10, TimeUnit.SECONDS);
+        assertEquals(entries.stream().map(Entry::getPosition).toList(), new ArrayList<>(positionsToRead));
+        entries.forEach(Entry::release);
+
+        // the read fails if one of the ledgers doesn't exist
+        positionsToRead.add(PositionFactory.create(-2, 0));
+        CompletableFuture<List<Entry>> failedFuture = new CompletableFuture<>();
+        ledger.asyncReadEntries(positionsToRead, new ReadEntriesCallback() {
+            @Override
+            public void readEntriesComplete(List<Entry> entries, Object ctx) {
+                failedFuture.complete(entries);
+            }
+
+            @Override
+            public void readEntriesFailed(ManagedLedgerException exception, Object ctx) {
+                failedFuture.completeExceptionally(exception);
+            }
+        }, null);
+        try {
+            failedFuture.get(10, TimeUnit.SECONDS);
+            fail("Should have failed");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ManagedLedgerException.LedgerNotExistException);
+        }
+    }
+
+    @Test
+    public void testConcurrentAddEntriesDuringRollover() throws Exception {
+        ManagedLedgerConfig conf = new ManagedLedgerConfig();
+        initManagedLedgerConfig(conf);
+        conf.setMaxEntriesPerLedger(50);
+        ManagedLedgerImpl ledger = (ManagedLedgerImpl) factory.open("testConcurrentAddEntriesDuringRollover", conf);
+        ledger.openCursor("c1");
+        int numberOfPublishers = 8;
+        int entriesPerPublisher = 200;
+        List<List<CompletableFuture<Position>>> futures = new ArrayList<>();
+        CyclicBarrier barrier = new CyclicBarrier(numberOfPublishers);
+        ExecutorService publishers = Executors.newFixedThreadPool(numberOfPublishers);
+        try {
+            List<Future<?>> publishersDone = new ArrayList<>();
+            for (int p = 0; p < numberOfPublishers; p++) {
+                List<CompletableFuture<Position>> publisherFutures = new ArrayList<>();
+                futures.add(publisherFutures);
+                int publisher = p;
+                publishersDone.add(publishers.submit(() -> {
+                    barrier.await();
+                    for (int i = 0; i < entriesPerPublisher; i++) {
+                        CompletableFuture<Position> future = new CompletableFuture<>();
+                        publisherFutures.add(future);
+                        ledger.asyncAddEntry(("entry-" + publisher + "-" + i).getBytes(), new AddEntryCallback() {
+                            @Override
+                            public void addComplete(Position position, ByteBuf entryData, Object ctx) {
+                                future.complete(position);
+                            }
+
+                            @Override
+                            public void addFailed(ManagedLedgerException exception, Object ctx) {
+                                future.completeExceptionally(exception);
+                            }
+                        }, null);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> publisherDone : publishersDone) {
+                publisherDone.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            publishers.shutdownNow();
+        }
+
+        // all the entries are added, in the order in which each publisher added them
+        for (List<CompletableFuture<Position>> publisherFutures : futures) {
+            Position previous = null;
+            for (CompletableFuture<Position> future : publisherFutures) {
+                Position position = future.get(10, TimeUnit.SECONDS);
+                if (previous != null) {
+                    assertTrue(position.compareTo(previous) > 0);
+                }
+                previous = position;
+            }
+        }
+        assertEquals(ledger.getNumberOfEntries(), numberOfPublishers * entriesPerPublisher);
+        assertTrue(ledger.getLedgersInfo().size() >= numberOfPublishers * entriesPerPublisher / 50);
+    }
+
+    @Test
+    public void testQueuedAddEntriesFailedWhenExecutorRejects() throws Exception {
+        ManagedLedgerImpl ledger = (ManagedLedgerImpl) factory.open("testQueuedAddEntriesFailedWhenExecutorRejects");
+        ExecutorService executor = WhiteboxImpl.getInternalState(ledger, "executor");
+        ExecutorService rejectingExecutor = Executors.newSingleThreadExecutor();
+        rejectingExecutor.shutdown();
+        FieldUtils.writeField(ledger, "executor", rejectingExecutor, true);
+        ByteBuf data = Unpooled.wrappedBuffer("entry".getBytes());
+        CompletableFuture<Position> future = new CompletableFuture<>();
+        try {
+            ledger.asyncAddEntry(data, new AddEntryCallback() {
+                @Override
+                public void addComplete(Position position, ByteBuf entryData, Object ctx) {
+                    future.complete(position);
+                }
+
+                @Override
+                public void addFailed(ManagedLedgerException exception, Object ctx) {
+                    future.completeExceptionally(exception);
+                }
+            }, null);
+        } finally {
+            FieldUtils.writeField(ledger, "executor", executor, true);
+        }
+        // the operation is failed and releases the buffer it retained
+        assertTrue(future.isCompletedExceptionally());
+        assertEquals(data.refCnt(), 1);
+        assertEquals(ledger.addEntry("entry".getBytes()).getEntryId(), 0);
+    }
+
+    @Test
+    public void testAddEntryGroupCommit() throws Exception {
+        // The entries are "<source>:<attributes>:<payload>", the entries without source can't be coalesced
+        AddEntryCoalescer coalescer = new AddEntryCoalescer() {
+            @Override
+            public CoalescingKey getCoalescingKey(ByteBuf entry) {
+                String[] parts = entry.toString(StandardCharsets.UTF_8).split(":");
+                return parts.length == 3 ? new CoalescingKey(parts[0], parts[1]) : null;
+            }
+
+            @Override
+            public ByteBuf coalesce(List<ByteBuf> entries) {
+                return Unpooled.wrappedBuffer(entries.stream().map(entry -> entry.toString(StandardCharsets.UTF_8))
+                        .collect(Collectors.joining("|")).getBytes(StandardCharsets.UTF_8));
+            }
+        };
+        ManagedLedgerConfig conf = new ManagedLedgerConfig();
+        initManagedLedgerConfig(conf);
+        conf.setAddEntryGroupCommitMaxDelayMicros(TimeUnit.MILLISECONDS.toMicros(50));
+        conf.setAddEntryGroupCommitMaxEntries(3);
+        conf.setAddEntryCoalescer(coalescer);
+        ManagedLedgerImpl ledger = (ManagedLedgerImpl) factory.open("testAddEntryGroupCommit", conf);
+        ManagedCursor cursor = ledger.openCursor("c1");
+
+        List<String> added = List.of("a:x:1", "b:x:1", "a:x:2", "a:y:3", "b:x:2", "a:y:4", "a:y:5", "a:y:6", "b:x:3",
+                "c:x:1", "plain", "c:x:2");
+        List<CompletableFuture<Position>> futures = new ArrayList<>();
+        List<String> coalescedIndexes = Collections.synchronizedList(new ArrayList<>());
+        for (String data : added) {
+            CompletableFuture<Position> future = new CompletableFuture<>();
+            futures.add(future);
+            ledger.asyncAddEntry(data.getBytes(StandardCharsets.UTF_8), new AddEntryCallback() {
+                @Override
+                public void addComplete(Position position, ByteBuf entryData, Object ctx) {
+                    future.complete(position);
+                }
+
+                @Override
+                public void addComplete(Position position, ByteBuf entryData, int coalescedIndex,
+                                        int coalescedCount, Object ctx) {
+                    coalescedIndexes.add(data + "=" + coalescedIndex + "/" + coalescedCount);
+                    addComplete(position, entryData, ctx);
+                }
+
+                @Override
+                public void addFailed(ManagedLedgerException exception, Object ctx) {
+                    future.completeExceptionally(exception);
+                }
+            }, null);
+        }
+        FutureUtil.waitForAll(futures).get(10, TimeUnit.SECONDS);
+
+        // The groups are written when they are full, when the attributes of their source change, before the entry
+        // which can't be coalesced, and by the flush once the delay is elapsed
+        List<String> entries = cursor.readEntries(100).stream().map(entry -> {
+            String data = new String(entry.getData(), StandardCharsets.UTF_8);
+            entry.release();
+            return data;
+        }).toList();
+        assertEquals(entries, List.of("a:x:1|a:x:2", "a:y:3|a:y:4|a:y:5", "b:x:1|b:x:2|b:x:3", "a:y:6", "c:x:1",
+                "plain", "c:x:2"));
+        assertEquals(ledger.getNumberOfEntries(), entries.size());
+        assertEquals(futures.get(0).get(), futures.get(2).get());
+        assertEquals(futures.get(1).get(), futures.get(8).get());
+        assertNotEquals(futures.get(2).get(), futures.get(3).get());
+        assertEquals(ledger.getAddEntryGroupCommitter().getCoalescedEntries(), 8);
+        assertEquals(ledger.getAddEntryGroupCommitter().getWrittenEntries(), 6);
+        // each coalesced entry is completed with its index in the coalesced entry
+        assertEquals(new HashSet<>(coalescedIndexes), Set.of("a:x:1=0/2", "a:x:2=1/2", "a:y:3=0/3", "a:y:4=1/3",
+                "a:y:5=2/3", "b:x:1=0/3", "b:x:2=1/3", "b:x:3=2/3"));
+    }
+
+    @Test
+    public void testSparseEntryIndex() throws Exception {
+        ManagedLedgerConfig conf = new ManagedLedgerConfig();
+        initManagedLedgerConfig(conf);
+        conf.setMaxEntriesPerLedger(10);
+        conf.setEntryIndexInterval(4);
+        ManagedLedgerImpl ledger = (ManagedLedgerImpl) factory.open("testSparseEntryIndex", conf);
+        List<Position> positions = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            MessageMetadata metadata = new MessageMetadata().setProducerName("p").setSequenceId(i)
+                    .setPublishTime(1000 + i * 10);
+            ByteBuf data = Commands.serializeMetadataAndPayload(Commands.ChecksumType.Crc32c, metadata,
+                    Unpooled.wrappedBuffer(("entry-" + i).getBytes()));
+            byte[] bytes = new byte[data.readableBytes()];
+            data.readBytes(bytes);
+            data.release();
+            positions.add(ledger.addEntry(bytes));
+        }
+        // 3 ledgers, the entries 0, 4 and 8 of each ledger are sampled
+        assertEquals(ledger.getLedgersInfo().size(), 3);
+        assertTrue(ledger.getLedgersInfo().get(positions.get(0).getLedgerId()).hasEntryIndex());
+        assertEquals(ledger.getLedgersInfo().get(positions.get(10).getLedgerId()).getEntryIndex().getEntryIdsList(),
+                List.of(0L, 4L, 8L));
+        assertFalse(ledger.getLedgersInfo().get(positions.get(20).getLedgerId()).hasEntryIndex());
+
+        Predicate<Entry> publishedBefore1135 = entry -> {
+            try {
+                return Commands.getEntryTimestamp(entry.getDataBuffer()) < 1135;
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            } finally {
+                entry.release();
+            }
+        };
+        Range<Position> range = ledger.findIndexedRangeByTimestamp(1135, 0).get();
+        assertEquals(range, Range.closed(positions.get(10), positions.get(14)));
+        assertEquals(ledger.asyncFindPosition(publishedBefore1135, range).get(), positions.get(14));
+        assertEquals(ledger.asyncFindPosition(publishedBefore1135).get(), positions.get(14));
+        // the samples published within the clock skew of the timestamp don't bound the range
+        assertEquals(ledger.findIndexedRangeByTimestamp(1135, 50).get(),
+                Range.closed(positions.get(8), positions.get(20)));
+
+        // the index of the current ledger is kept in memory
+        assertEquals(ledger.findIndexedRangeByTimestamp(1245, 0).get(), Range.atLeast(positions.get(24)));
+        assertEquals(ledger.findIndexedRangeByTimestamp(1000, 0).get(), Range.atMost(positions.get(0)));
+        // the entries have no broker entry metadata index
+        assertFalse(ledger.findIndexedRangeByIndex(10).isPresent());
+        ledger.close();
+
+        // the index of the closed ledgers is persisted
+        ManagedLedgerFactoryImpl factory2 = new ManagedLedgerFactoryImpl(metadataStore, bkc);
+        ManagedLedgerImpl ledger2 = (ManagedLedgerImpl) factory2.open("testSparseEntryIndex", conf);
+        assertEquals(ledger2.findIndexedRangeByTimestamp(1135, 0).get(), range);
+        assertEquals(ledger2.asyncFindPosition(publishedBefore1135, range).get(), positions.get(14));
+        factory2.shutdown();
+
+        // the entries are not indexed when the index is disabled
+        conf.setEntryIndexInterval(0);
+        ManagedLedgerFactoryImpl factory3 = new ManagedLedgerFactoryImpl(metadataStore, bkc);
+        ManagedLedgerImpl ledger3 = (ManagedLedgerImpl) factory3.open("testSparseEntryIndex", conf);
+        assertFalse(ledger3.findIndexedRangeByTimestamp(1135, 0).isPresent());
+        factory3.shutdown();
+    }
+
     @Test
     public void testGetNextValidPosition() throws Exception {
         ManagedLedgerConfig conf = new ManagedLedgerConfig();
@@ -18,17 +18,21 @@
  */
 package org.apache.bookkeeper.mledger.impl;
 
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicReference;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.apache.bookkeeper.mledger.ManagedLedger;
 import org.apache.bookkeeper.mledger.ManagedLedgerException.MetaStoreException;
 import org.apache.bookkeeper.mledger.impl.MetaStore.MetaStoreCallback;
 import org.apache.bookkeeper.mledger.proto.MLDataFormats;
@@ -253,4 +257,61 @@ public class MetaStoreImplTest extends MockedBookKeeperTestCase {
         }, 5, 1000);
         assertFalse(objCache1.getChildren(path).get().isEmpty());
     }
+
+    private static <T> MetaStoreCallback<T> completing(CompletableFuture<T> future) {
+        return new MetaStoreCallback<>() {
+            @Override
+            public void operationComplete(T result, Stat stat) {
+                future.complete(result);
+            }
+
+            @Override
+            public void operationFailed(MetaStoreException e) {
+                future.completeExceptionally(e);
+            }
+        };
+    }
+
+    @Test(timeOut = 20000)
+    public void testPrefetch() throws Exception {
+        ManagedLedger ledger = factory.open("prefetch_test");
+        ledger.openCursor("c1");
+        ledger.openCursor("c2");
+        ledger.close();
+
+        MetaStore store = new MetaStoreImpl(metadataStore, executor);
+        store.prefetch(List.of("prefetch_test", "non-existing")).get();
+
+        // the prefetched metadata is served without reading the metadata store
+        metadataStore.setAlwaysFail(new MetadataStoreException("error"));
+        CompletableFuture<ManagedLedgerInfo> mlInfo = new CompletableFuture<>();
+        store.getManagedLedgerInfo("prefetch_test", false, completing(mlInfo));
+        assertTrue(mlInfo.get().getLedgerInfoCount() > 0);
+        CompletableFuture<List<String>> cursors = new CompletableFuture<>();
+        store.getCursors("prefetch_test", completing(cursors));
+        assertEquals(cursors.get().stream().sorted().toList(), List.of("c1", "c2"));
+        CompletableFuture<ManagedCursorInfo> cursorInfo = new CompletableFuture<>();
+        store.asyncGetCursorInfo("prefetch_test", "c1", completing(cursorInfo));
+        assertNotNull(cursorInfo.get());
+
+        // the prefetched metadata is served only once
+        CompletableFuture<ManagedCursorInfo> cursorInfoAgain = new CompletableFuture<>();
+        store.asyncGetCursorInfo("prefetch_test", "c1", completing(cursorInfoAgain));
+        try {
+            cursorInfoAgain.get();
+            fail("should have read the metadata store");
+        } catch (ExecutionException e) {
+            // ok
+        }
+        metadataStore.unsetAlwaysFail();
+
+        // the prefetched metadata is discarded when it's updated
+        store.prefetch(List.of("prefetch_test")).get();
+        CompletableFuture<Void> removed = new CompletableFuture<>();
+        store.asyncRemoveCursor("prefetch_test", "c2", completing(removed));
+        removed.get();
+        CompletableFuture<List<String>> cursorsAfterRemoval = new CompletableFuture<>();
+        store.getCursors("prefetch_test", completing(cursorsAfterRemoval));
+        assertEquals(cursorsAfterRemoval.get(), List.of("c1"));
+    }
 }
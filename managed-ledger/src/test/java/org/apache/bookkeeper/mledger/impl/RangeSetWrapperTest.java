@@ -29,6 +29,7 @@ import com.google.common.collect.Range;
 import com.google.common.collect.TreeRangeSet;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.apache.bookkeeper.mledger.ManagedLedgerConfig;
 import org.apache.pulsar.common.util.collections.LongPairRangeSet.LongPair;
@@ -76,18 +77,25 @@ public class RangeSetWrapperTest {
         // Test add range
         rangeSetWrapper.addOpenClosed(10, 0, 20, 0);
         assertEquals(rangeSetWrapper.size(), 1);
-        assertFalse(rangeSetWrapper.isDirtyLedgers(10L));
-        for (long i = 11; i < 20; i++) {
+        assertFalse(rangeSetWrapper.isDirtyLedgers(9L));
+        for (long i = 10; i <= 20; i++) {
             assertTrue(rangeSetWrapper.isDirtyLedgers(i));
         }
+        assertFalse(rangeSetWrapper.isDirtyLedgers(21L));
 
         // Test remove range
         rangeSetWrapper.removeAtMost(11, 0);
         assertEquals(rangeSetWrapper.size(), 1);
-        assertFalse(rangeSetWrapper.isDirtyLedgers(11L));
-        for (long i = 12; i < 20; i++) {
+        assertFalse(rangeSetWrapper.isDirtyLedgers(10L));
+        for (long i = 11; i <= 20; i++) {
             assertTrue(rangeSetWrapper.isDirtyLedgers(i));
         }
+
+        // Test add range in a single ledger
+        rangeSetWrapper.resetDirtyKeys();
+        rangeSetWrapper.addOpenClosed(30, 4, 30, 5);
+        assertTrue(rangeSetWrapper.isDirtyLedgers(30L));
+        assertFalse(rangeSetWrapper.isDirtyLedgers(20L));
     }
 
     @Test
@@ -442,6 +450,36 @@ public class RangeSetWrapperTest {
         assertEquals(ranges.get(count), (Range.openClosed(new LongPair(2, 12), new LongPair(2, 26))));
     }
 
+    @Test
+    public void testRunLengthRanges() {
+        RangeSetWrapper<LongPair> set = new RangeSetWrapper<>(CONSUMER, REVERSE_CONVERT, managedCursor);
+        set.addOpenClosed(1, -1, 1, 0);
+        set.addOpenClosed(1, 4, 1, 9);
+        set.addOpenClosed(1, 1000, 1, 1001);
+        set.addOpenClosed(5, 20, 5, 30);
+
+        Map<Long, long[]> runs = set.toRunLengthRanges(Integer.MAX_VALUE);
+        assertEquals(runs.keySet(), Set.of(1L, 5L));
+        assertEquals(runs.get(1L), new long[] {0, 1, 4, 5, 991, 1});
+        assertEquals(runs.get(5L), new long[] {21, 10});
+
+        RangeSetWrapper<LongPair> recovered = new RangeSetWrapper<>(CONSUMER, REVERSE_CONVERT, managedCursor);
+        runs.forEach(recovered::addRunLengthRanges);
+        assertEquals(recovered.asRanges(), set.asRanges());
+
+        // The limit applies to the number of ranges
+        Map<Long, long[]> limited = set.toRunLengthRanges(2);
+        assertEquals(limited.keySet(), Set.of(1L));
+        assertEquals(limited.get(1L), new long[] {0, 1, 4, 5});
+
+        // Only encode the keys modified since the last reset
+        set.resetDirtyKeys();
+        set.addOpenClosed(5, 40, 5, 41);
+        Map<Long, long[]> dirty = set.toRunLengthRanges(Integer.MAX_VALUE, true);
+        assertEquals(dirty.keySet(), Set.of(5L));
+        assertEquals(dirty.get(5L), new long[] {21, 10, 10, 1});
+    }
+
     @Test
     public void testRangeContaining() {
         set = new RangeSetWrapper<>(CONSUMER, REVERSE_CONVERT, managedCursor);
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl;
+
+import static org.testng.Assert.assertEquals;
+import com.google.common.collect.Range;
+import com.google.common.primitives.Longs;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.List;
+import org.apache.bookkeeper.mledger.Position;
+import org.apache.bookkeeper.mledger.PositionFactory;
+import org.apache.bookkeeper.mledger.proto.MLDataFormats.EntryIndex;
+import org.apache.bookkeeper.mledger.proto.MLDataFormats.ManagedLedgerInfo.LedgerInfo;
+import org.apache.pulsar.common.api.proto.MessageMetadata;
+import org.apache.pulsar.common.protocol.Commands;
+import org.testng.annotations.Test;
+
+public class SparseEntryIndexTest {
+
+    private static ByteBuf message(long publishTime) {
+        MessageMetadata metadata = new MessageMetadata().setProducerName("p").setSequenceId(0)
+                .setPublishTime(publishTime);
+        return Commands.serializeMetadataAndPayload(Commands.ChecksumType.Crc32c, metadata,
+                Unpooled.wrappedBuffer("entry".getBytes()));
+    }
+
+    @Test
+    public void testSamplesAreBoundedPerLedger() {
+        int maxSamples = 16;
+        SparseEntryIndex index = new SparseEntryIndex(1, maxSamples);
+        int entries = maxSamples * 4;
+        for (int i = 0; i < entries; i++) {
+            ByteBuf data = message(1000 + i);
+            index.add(1, i, data);
+            data.release();
+        }
+        // the interval doubled twice, the samples still cover the whole ledger
+        List<Long> entryIds = index.get(1).getEntryIdsList();
+        assertEquals(entryIds.size(), maxSamples);
+        for (int i = 0; i < entryIds.size(); i++) {
+            assertEquals(entryIds.get(i).longValue(), i * 4L);
+        }
+        assertEquals(index.get(1).getTimestamps(entryIds.size() - 1), 1000 + entries - 4);
+
+        // the interval is reset for the next ledger
+        ByteBuf data = message(5000);
+        index.add(2, 1, data);
+        data.release();
+        assertEquals(index.get(2).getEntryIdsList(), List.of(1L));
+    }
+
+    @Test
+    public void testFindRangeWithNonMonotonicTimestamps() {
+        // the entries 0 to 50 are sampled every 10 entries, the clock of the producer of entry 20 is ahead
+        LedgerInfo ledgerInfo = LedgerInfo.newBuilder().setLedgerId(1).setEntries(51)
+                .setEntryIndex(EntryIndex.newBuilder()
+                        .addAllEntryIds(Longs.asList(0, 10, 20, 30, 40, 50))
+                        .addAllTimestamps(Longs.asList(1000, 1100, 1290, 1300, 1400, 1500))
+                        .addAllIndexes(Longs.asList(-1, -1, -1, -1, -1, -1)))
+                .build();
+        Position p10 = PositionFactory.create(1, 10);
+        Position p20 = PositionFactory.create(1, 20);
+        Position p40 = PositionFactory.create(1, 40);
+
+        assertEquals(SparseEntryIndex.findRange(List.of(ledgerInfo), -1, null, true, 1250, 0).get(),
+                Range.closed(p10, p20));
+        assertEquals(SparseEntryIndex.findRange(List.of(ledgerInfo), -1, null, true, 1250, 100).get(),
+                Range.closed(p10, p40));
+        // the broker entry metadata indexes are not set
+        assertEquals(SparseEntryIndex.findRange(List.of(ledgerInfo), -1, null, false, 10, 0).isPresent(), false);
+    }
+}
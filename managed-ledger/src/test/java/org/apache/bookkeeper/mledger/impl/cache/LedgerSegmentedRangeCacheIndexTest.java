@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import io.netty.buffer.Unpooled;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.bookkeeper.mledger.Position;
+import org.apache.bookkeeper.mledger.PositionFactory;
+import org.apache.bookkeeper.mledger.ReferenceCountedEntry;
+import org.apache.bookkeeper.mledger.impl.EntryImpl;
+import org.apache.commons.lang3.tuple.Pair;
+import org.testng.annotations.Test;
+
+public class LedgerSegmentedRangeCacheIndexTest {
+
+    @Test
+    public void appendGetAndRangeAcrossLedgers() {
+        LedgerSegmentedRangeCacheIndex index = new LedgerSegmentedRangeCacheIndex();
+        RangeCache cache = new RangeCache(index, new RangeCacheRemovalQueue());
+
+        for (int i = 0; i < 200; i++) {
+            putToCache(cache, 1, i, "a");
+        }
+        for (int i = 0; i < 10; i++) {
+            putToCache(cache, 2, i, "bb");
+        }
+
+        assertEquals(index.getNumberOfSegments(), 2);
+        assertEquals(cache.getNumberOfEntries(), 210);
+        assertEquals(cache.getSize(), 220);
+        assertFalse(cache.put(PositionFactory.create(1, 5), createCachedEntry(1, 5, "x")));
+
+        ReferenceCountedEntry entry = cache.get(PositionFactory.create(2, 3));
+        assertEquals(entry.getData(), "bb".getBytes());
+        entry.release();
+        assertNull(cache.get(PositionFactory.create(2, 10)));
+        assertNull(cache.get(PositionFactory.create(3, 0)));
+
+        List<Position> positions = releaseAndGetPositions(
+                cache.getRange(PositionFactory.create(1, 198), PositionFactory.create(2, 1)));
+        assertThat(positions).containsExactly(PositionFactory.create(1, 198), PositionFactory.create(1, 199),
+                PositionFactory.create(2, 0), PositionFactory.create(2, 1));
+
+        assertEquals(cache.removeRange(PositionFactory.create(1, 0), PositionFactory.create(2, 0), false),
+                Pair.of(200, 200L));
+        assertEquals(index.getNumberOfSegments(), 1);
+        assertEquals(cache.getNumberOfEntries(), 10);
+
+        cache.clear();
+        assertEquals(index.getNumberOfSegments(), 0);
+        assertEquals(cache.getNumberOfEntries(), 0);
+        assertEquals(cache.getSize(), 0);
+    }
+
+    @Test
+    public void outOfOrderInsertionAndHoles() {
+        LedgerSegmentedRangeCacheIndex index = new LedgerSegmentedRangeCacheIndex();
+        RangeCache cache = new RangeCache(index, new RangeCacheRemovalQueue());
+
+        // entries from the add path
+        for (int i = 100; i < 110; i++) {
+            putToCache(cache, 1, i, "a");
+        }
+        // entries from a catch-up read, inserted before the tail entries
+        for (int i = 50; i < 60; i++) {
+            putToCache(cache, 1, i, "a");
+        }
+        putToCache(cache, 1, 75, "a");
+
+        List<Position> positions = releaseAndGetPositions(
+                cache.getRange(PositionFactory.create(1, 58), PositionFactory.create(1, 101)));
+        assertThat(positions).containsExactly(PositionFactory.create(1, 58), PositionFactory.create(1, 59),
+                PositionFactory.create(1, 75), PositionFactory.create(1, 100), PositionFactory.create(1, 101));
+
+        // create a hole in the middle of the segment and fill it again
+        assertEquals(cache.removeRange(PositionFactory.create(1, 75), PositionFactory.create(1, 75), true),
+                Pair.of(1, 1L));
+        assertNull(cache.get(PositionFactory.create(1, 75)));
+        putToCache(cache, 1, 75, "a");
+        assertTrue(cache.exists(PositionFactory.create(1, 75)));
+
+        // invalidate the head of the segment and insert before it
+        assertEquals(cache.removeRange(PositionFactory.create(1, 0), PositionFactory.create(1, 55), false),
+                Pair.of(5, 5L));
+        putToCache(cache, 1, 54, "a");
+        positions = releaseAndGetPositions(
+                cache.getRange(PositionFactory.create(1, 0), PositionFactory.create(1, 56)));
+        assertThat(positions).containsExactly(PositionFactory.create(1, 54), PositionFactory.create(1, 55),
+                PositionFactory.create(1, 56));
+        assertEquals(cache.getNumberOfEntries(), 17);
+    }
+
+    @Test
+    public void slidingWindowCompaction() {
+        LedgerSegmentedRangeCacheIndex index = new LedgerSegmentedRangeCacheIndex();
+        RangeCacheRemovalQueue removalQueue = new RangeCacheRemovalQueue();
+        RangeCache cache = new RangeCache(index, removalQueue);
+
+        for (int i = 0; i < 10_000; i++) {
+            putToCache(cache, 1, i, "a");
+            if (i >= 100) {
+                assertEquals(removalQueue.evictLeastAccessedEntries(1), Pair.of(1, 1L));
+            }
+        }
+        assertEquals(cache.getNumberOfEntries(), 100);
+        List<Position> positions = releaseAndGetPositions(
+                cache.getRange(PositionFactory.create(1, 0), PositionFactory.create(1, 10_000)));
+        assertEquals(positions.size(), 100);
+        assertEquals(positions.get(0), PositionFactory.create(1, 9_900));
+        assertEquals(positions.get(99), PositionFactory.create(1, 9_999));
+        cache.clear();
+    }
+
+    private static void putToCache(RangeCache cache, long ledgerId, long entryId, String str) {
+        ReferenceCountedEntry cachedEntry = createCachedEntry(ledgerId, entryId, str);
+        assertTrue(cache.put(cachedEntry.getPosition(), cachedEntry));
+    }
+
+    private static ReferenceCountedEntry createCachedEntry(long ledgerId, long entryId, String str) {
+        return EntryImpl.create(PositionFactory.create(ledgerId, entryId), Unpooled.wrappedBuffer(str.getBytes()));
+    }
+
+    private static List<Position> releaseAndGetPositions(Iterable<ReferenceCountedEntry> entries) {
+        List<Position> positions = new ArrayList<>();
+        for (ReferenceCountedEntry entry : entries) {
+            positions.add(entry.getPosition());
+            entry.release();
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl.cache;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.mledger.Entry;
+import org.apache.bookkeeper.mledger.PositionFactory;
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class LocalDiskEntryCacheTest {
+
+    private File directory;
+
+    @BeforeMethod
+    public void setup() throws Exception {
+        directory = Files.createTempDirectory("local-disk-entry-cache").toFile();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void cleanup() throws Exception {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    private static boolean put(LocalDiskEntryCache cache, long ledgerId, long entryId, String data) {
+        return cache.put(PositionFactory.create(ledgerId, entryId), Unpooled.wrappedBuffer(data.getBytes()));
+    }
+
+    private static void assertRange(List<Entry> entries, long ledgerId, long firstEntryId, String... data) {
+        assertEquals(entries.size(), data.length);
+        for (int i = 0; i < data.length; i++) {
+            Entry entry = entries.get(i);
+            assertEquals(entry.getLedgerId(), ledgerId);
+            assertEquals(entry.getEntryId(), firstEntryId + i);
+            assertEquals(new String(entry.getData()), data[i]);
+            entry.release();
+        }
+    }
+
+    @Test
+    public void testPutAndGetRange() throws Exception {
+        LocalDiskEntryCache cache = new LocalDiskEntryCache(directory, 1024, 256, Runnable::run);
+
+        // entries are usually spilled in order, but older entries may be spilled later
+        assertTrue(put(cache, 1, 2, "c"));
+        assertTrue(put(cache, 1, 3, "dd"));
+        assertTrue(put(cache, 1, 0, "a"));
+        assertTrue(put(cache, 1, 1, "bbb"));
+        assertFalse(put(cache, 1, 1, "x"));
+        assertTrue(put(cache, 2, 0, "e"));
+
+        assertEquals(cache.getNumberOfSegments(), 2);
+        assertEquals(cache.getSize(), 8);
+        assertRange(cache.getRange(1, 0, 3), 1, 0, "a", "bbb", "c", "dd");
+        assertRange(cache.getRange(1, 1, 2), 1, 1, "bbb", "c");
+        assertRange(cache.getRange(2, 0, 0), 2, 0, "e");
+
+        // incomplete ranges are not returned
+        assertNull(cache.getRange(1, 2, 4));
+        assertNull(cache.getRange(2, 1, 1));
+        assertNull(cache.getRange(3, 0, 0));
+
+        cache.removeLedger(1);
+        assertNull(cache.getRange(1, 0, 0));
+        assertEquals(cache.getNumberOfSegments(), 1);
+        assertEquals(cache.getSize(), 1);
+
+        cache.clear();
+        assertEquals(cache.getNumberOfSegments(), 0);
+        assertEquals(cache.getSize(), 0);
+        assertEquals(directory.list().length, 0);
+    }
+
+    @Test
+    public void testSegmentFull() throws Exception {
+        LocalDiskEntryCache cache = new LocalDiskEntryCache(directory, 1024, 4, Runnable::run);
+
+        assertTrue(put(cache, 1, 0, "aaa"));
+        assertFalse(put(cache, 1, 1, "bb"));
+        assertFalse(put(cache, 2, 0, "eeeee"));
+        assertTrue(put(cache, 2, 0, "e"));
+        assertEquals(cache.getSize(), 4);
+    }
+
+    @Test
+    public void testEvictLeastRecentlyAccessedSegment() throws Exception {
+        LocalDiskEntryCache cache = new LocalDiskEntryCache(directory, 10, 8, Runnable::run);
+
+        put(cache, 1, 0, "aaaa");
+        put(cache, 2, 0, "bbbb");
+        // access the first segment, the second one is the least recently accessed
+        assertRange(cache.getRange(1, 0, 0), 1, 0, "aaaa");
+
+        put(cache, 3, 0, "cccc");
+        assertEquals(cache.getNumberOfSegments(), 2);
+        assertEquals(cache.getSize(), 8);
+        assertNull(cache.getRange(2, 0, 0));
+        assertRange(cache.getRange(1, 0, 0), 1, 0, "aaaa");
+        assertRange(cache.getRange(3, 0, 0), 3, 0, "cccc");
+        cache.clear();
+    }
+
+    @Test
+    public void testMappingGrows() throws Exception {
+        LocalDiskEntryCache cache = new LocalDiskEntryCache(directory, 16 * 1024 * 1024, 4 * 1024 * 1024,
+                Runnable::run);
+        String data = "a".repeat(300 * 1024);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(put(cache, 1, i, data));
+        }
+        assertEquals(cache.getSize(), 10 * data.length());
+        List<Entry> entries = cache.getRange(1, 0, 9);
+        assertRange(entries, 1, 0, Collections.nCopies(10, data).toArray(new String[0]));
+        cache.clear();
+    }
+
+    @Test
+    public void testSpill() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            LocalDiskEntryCache cache = new LocalDiskEntryCache(directory, 1024, 256, executor);
+            ByteBuf data = Unpooled.wrappedBuffer("a".getBytes());
+            cache.spill(PositionFactory.create(1, 0), data, () -> true);
+            cache.spill(PositionFactory.create(1, 1), data, () -> false);
+            executor.submit(() -> { }).get(10, TimeUnit.SECONDS);
+
+            // the data is retained until it's spilled
+            assertEquals(data.refCnt(), 1);
+            assertEquals(cache.getPendingSpillSize(), 0);
+            assertRange(cache.getRange(1, 0, 0), 1, 0, "a");
+            assertNull(cache.getRange(1, 1, 1));
+            cache.clear();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSpillDroppedWhenTooManyPending() throws Exception {
+        List<Runnable> pendingSpills = new ArrayList<>();
+        LocalDiskEntryCache cache = new LocalDiskEntryCache(directory, 1024 * 1024 * 1024,
+                LocalDiskEntryCache.MAX_PENDING_SPILL_SIZE, pendingSpills::add);
+        ByteBuf data = Unpooled.wrappedBuffer(new byte[(int) (LocalDiskEntryCache.MAX_PENDING_SPILL_SIZE / 2)]);
+        for (int i = 0; i < 3; i++) {
+            cache.spill(PositionFactory.create(1, i), data, () -> true);
+        }
+        assertEquals(pendingSpills.size(), 2);
+        assertEquals(data.refCnt(), 3);
+
+        pendingSpills.forEach(Runnable::run);
+        assertEquals(data.refCnt(), 1);
+        assertEquals(cache.getPendingSpillSize(), 0);
+        assertEquals(cache.getSize(), LocalDiskEntryCache.MAX_PENDING_SPILL_SIZE);
+        cache.clear();
+    }
+
+    @Test
+    public void testStaleSegmentsDeletedOnStartup() throws Exception {
+        LocalDiskEntryCache cache = new LocalDiskEntryCache(directory, 1024, 256, Runnable::run);
+        put(cache, 1, 0, "a");
+        assertEquals(directory.list().length, 1);
+
+        LocalDiskEntryCache newCache = new LocalDiskEntryCache(directory, 1024, 256, Runnable::run);
+        assertEquals(directory.list().length, 0);
+        assertNull(newCache.getRange(1, 0, 0));
+        cache.clear();
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        LocalDiskEntryCache cache = new LocalDiskEntryCache(directory, 1024, 256, Runnable::run);
+        put(cache, 1, 0, "a");
+
+        cache.close();
+        assertEquals(cache.getNumberOfSegments(), 0);
+        assertFalse(put(cache, 1, 1, "b"));
+        assertEquals(directory.list().length, 0);
+    }
+}
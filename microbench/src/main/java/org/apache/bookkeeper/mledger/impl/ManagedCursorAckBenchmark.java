@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.mledger.ManagedLedgerConfig;
+import org.apache.bookkeeper.mledger.Position;
+import org.apache.pulsar.common.api.proto.CommandSubscribe.InitialPosition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the individual acknowledgments and the mark-delete of a cursor with a large number of
+ * acknowledgment holes.
+ *
+ * <p/>Before each invocation, a new cursor acknowledges every other entry of the managed ledger, which leaves
+ * {@code holes} unacknowledged entries. Each invocation then fills all the holes, so the benchmarks run in single shot
+ * mode and report the time to fill all of them. The mark-delete persistence is throttled so that the benchmarks
+ * measure the in-memory acknowledgment state rather than the writes to the BookKeeper mock.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class ManagedCursorAckBenchmark {
+
+    @Param({"1000", "10000", "50000"})
+    public int holes;
+
+    private MockedManagedLedgerFactory factory;
+    private ManagedLedgerImpl ledger;
+    private List<Position> positions;
+    private ManagedCursorImpl cursor;
+    private int cursorSequence;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws Exception {
+        factory = new MockedManagedLedgerFactory();
+        ManagedLedgerConfig config = new ManagedLedgerConfig();
+        config.setMaxEntriesPerLedger(10_000);
+        config.setThrottleMarkDelete(1);
+        ledger = factory.open("managed-cursor-ack-benchmark", config);
+        positions = MockedManagedLedgerFactory.addEntries(ledger, 2 * holes, 100);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() throws Exception {
+        factory.close();
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation() throws Exception {
+        cursor = (ManagedCursorImpl) ledger.openCursor("cursor-" + cursorSequence++, InitialPosition.Earliest);
+        for (int i = 1; i < positions.size(); i += 2) {
+            cursor.delete(positions.get(i));
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDownInvocation() throws Exception {
+        ledger.deleteCursor(cursor.getName());
+    }
+
+    /**
+     * Fill the holes from the oldest one, the mark-delete position moves forward at each acknowledgment.
+     */
+    @Benchmark
+    public void individualAckInOrder() throws Exception {
+        for (int i = 0; i < positions.size(); i += 2) {
+            cursor.delete(positions.get(i));
+        }
+    }
+
+    /**
+     * Fill the holes from the newest one, the mark-delete position only moves forward at the last acknowledgment.
+     */
+    @Benchmark
+    public void individualAckInReverseOrder() throws Exception {
+        for (int i = positions.size() - 2; i >= 0; i -= 2) {
+            cursor.delete(positions.get(i));
+        }
+    }
+
+    /**
+     * Fill all the holes with a single mark-delete.
+     */
+    @Benchmark
+    public void markDelete() throws Exception {
+        cursor.markDelete(positions.get(positions.size() - 1));
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.mledger.ManagedCursor;
+import org.apache.bookkeeper.mledger.ManagedLedgerConfig;
+import org.apache.bookkeeper.mledger.Position;
+import org.apache.bookkeeper.mledger.PositionFactory;
+import org.apache.commons.lang3.tuple.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the updates of the slowest reader heap of {@link ManagedCursorContainer} with many cursors.
+ *
+ * <p/>The cursors are real non-durable cursors of a managed ledger of the BookKeeper mock, they are only used for
+ * their names, the positions tracked by the container are updated by the benchmarks.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ManagedCursorContainerBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    public int numberOfCursors;
+
+    private MockedManagedLedgerFactory factory;
+    private ManagedCursor[] cursors;
+    private long[] entryIds;
+    private ManagedCursorContainer container;
+    private int nextCursor;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        factory = new MockedManagedLedgerFactory();
+        ManagedLedgerImpl ledger = factory.open("managed-cursor-container-benchmark", new ManagedLedgerConfig());
+        cursors = new ManagedCursor[numberOfCursors];
+        entryIds = new long[numberOfCursors];
+        container = new ManagedCursorContainer();
+        for (int i = 0; i < numberOfCursors; i++) {
+            cursors[i] = ledger.newNonDurableCursor(PositionFactory.EARLIEST, "cursor-" + i);
+            entryIds[i] = i;
+            container.add(cursors[i], PositionFactory.create(1, i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        factory.close();
+    }
+
+    /**
+     * Move the slowest cursor ahead of all the others, like subscriptions consuming at the same rate.
+     */
+    @Benchmark
+    public Pair<Position, Position> updateSlowestCursor() {
+        int i = nextCursor;
+        nextCursor = (i + 1) % numberOfCursors;
+        entryIds[i] += numberOfCursors;
+        return container.cursorUpdated(cursors[i], PositionFactory.create(1, entryIds[i]));
+    }
+
+    /**
+     * Move a random cursor forward.
+     */
+    @Benchmark
+    public Pair<Position, Position> updateRandomCursor() {
+        int i = ThreadLocalRandom.current().nextInt(numberOfCursors);
+        entryIds[i] += numberOfCursors;
+        return container.cursorUpdated(cursors[i], PositionFactory.create(1, entryIds[i]));
+    }
+
+    @Benchmark
+    public Position getSlowestReaderPosition() {
+        return container.getSlowestReaderPosition();
+    }
+}
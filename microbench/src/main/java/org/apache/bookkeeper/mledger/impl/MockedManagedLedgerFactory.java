@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl;
+
+import io.netty.buffer.ByteBuf;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.apache.bookkeeper.client.PulsarMockBookKeeper;
+import org.apache.bookkeeper.common.util.OrderedScheduler;
+import org.apache.bookkeeper.mledger.AsyncCallbacks.AddEntryCallback;
+import org.apache.bookkeeper.mledger.ManagedLedgerConfig;
+import org.apache.bookkeeper.mledger.ManagedLedgerException;
+import org.apache.bookkeeper.mledger.ManagedLedgerFactoryConfig;
+import org.apache.bookkeeper.mledger.Position;
+import org.apache.pulsar.metadata.api.MetadataStoreConfig;
+import org.apache.pulsar.metadata.api.extended.MetadataStoreExtended;
+
+/**
+ * Managed ledger factory backed by the in-memory BookKeeper mock and by an in-memory metadata store, for the
+ * benchmarks which need real managed ledgers and cursors without a BookKeeper cluster.
+ */
+class MockedManagedLedgerFactory implements AutoCloseable {
+    private final OrderedScheduler executor;
+    private final MetadataStoreExtended metadataStore;
+    private final PulsarMockBookKeeper bookKeeper;
+    private final ManagedLedgerFactoryImpl factory;
+
+    MockedManagedLedgerFactory() throws Exception {
+        executor = OrderedScheduler.newSchedulerBuilder().numThreads(2).name("benchmark-bookkeeper").build();
+        metadataStore = MetadataStoreExtended.create("memory:local",
+                MetadataStoreConfig.builder().metadataStoreName("benchmark").build());
+        bookKeeper = new PulsarMockBookKeeper(executor);
+        factory = new ManagedLedgerFactoryImpl(metadataStore, bookKeeper, new ManagedLedgerFactoryConfig());
+    }
+
+    ManagedLedgerImpl open(String name, ManagedLedgerConfig config) throws Exception {
+        return (ManagedLedgerImpl) factory.open(name, config);
+    }
+
+    /**
+     * Add entries to a managed ledger, without waiting for each add to complete before the next one.
+     *
+     * @return the positions of the entries, in order
+     */
+    static List<Position> addEntries(ManagedLedgerImpl ledger, int numberOfEntries, int entrySize)
+            throws Exception {
+        byte[] data = new byte[entrySize];
+        List<CompletableFuture<Position>> futures = new ArrayList<>(numberOfEntries);
+        for (int i = 0; i < numberOfEntries; i++) {
+            CompletableFuture<Position> future = new CompletableFuture<>();
+            ledger.asyncAddEntry(data, new AddEntryCallback() {
+                @Override
+                public void addComplete(Position position, ByteBuf entryData, Object ctx) {
+                    future.complete(position);
+                }
+
+                @Override
+                public void addFailed(ManagedLedgerException exception, Object ctx) {
+                    future.completeExceptionally(exception);
+                }
+            }, null);
+            futures.add(future);
+        }
+        List<Position> positions = new ArrayList<>(numberOfEntries);
+        for (CompletableFuture<Position> future : futures) {
+            positions.add(future.get());
+        }
+        return positions;
+    }
+
+    @Override
+    public void close() throws Exception {
+        factory.shutdown();
+        bookKeeper.shutdown();
+        metadataStore.close();
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.bookkeeper.mledger.ManagedLedgerConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for the creation and the recycling of {@link OpAddEntry}, which happen for each entry added to a managed
+ * ledger.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OpAddEntryBenchmark {
+    private MockedManagedLedgerFactory factory;
+    private ManagedLedgerImpl ledger;
+    private ByteBuf data;
+    private final AtomicBoolean timeoutTriggered = new AtomicBoolean();
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        factory = new MockedManagedLedgerFactory();
+        ledger = factory.open("op-add-entry-benchmark", new ManagedLedgerConfig());
+        data = Unpooled.wrappedBuffer(new byte[1024]);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        factory.close();
+    }
+
+    @Threads(1)
+    @Benchmark
+    public void createAndRecycle001Threads(Blackhole blackhole) {
+        createAndRecycle(blackhole);
+    }
+
+    @Threads(4)
+    @Benchmark
+    public void createAndRecycle004Threads(Blackhole blackhole) {
+        createAndRecycle(blackhole);
+    }
+
+    private void createAndRecycle(Blackhole blackhole) {
+        OpAddEntry op = OpAddEntry.createNoRetainBuffer(ledger, data, null, null, timeoutTriggered);
+        blackhole.consume(op);
+        op.recycle();
+    }
+}
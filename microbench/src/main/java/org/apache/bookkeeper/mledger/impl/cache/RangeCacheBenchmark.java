@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl.cache;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.mledger.Position;
+import org.apache.bookkeeper.mledger.PositionFactory;
+import org.apache.bookkeeper.mledger.ReferenceCountedEntry;
+import org.apache.bookkeeper.mledger.impl.EntryImpl;
+import org.apache.commons.lang3.tuple.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the put, get, range read and eviction operations of {@link RangeCache}, with both position indexes.
+ *
+ * <p/>The cache holds {@code ENTRIES_PER_LEDGER} entries in each of {@code LEDGERS} ledgers. The put benchmark evicts
+ * the least accessed entries after each put, so that the size of the cache stays the same during the iteration.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RangeCacheBenchmark {
+    private static final int LEDGERS = 10;
+    private static final int ENTRIES_PER_LEDGER = 10_000;
+    private static final int ENTRY_SIZE = 100;
+    private static final int RANGE_SIZE = 100;
+
+    @Param({"skiplist", "segmented"})
+    public String index;
+
+    private ByteBuf data;
+    private RangeCacheRemovalQueue removalQueue;
+    private RangeCache cache;
+    private long nextEntryId;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        data = Unpooled.wrappedBuffer(new byte[ENTRY_SIZE]);
+        removalQueue = new RangeCacheRemovalQueue();
+        cache = new RangeCache("segmented".equals(index) ? new LedgerSegmentedRangeCacheIndex()
+                : new SkipListRangeCacheIndex(), removalQueue);
+        for (long ledgerId = 0; ledgerId < LEDGERS; ledgerId++) {
+            for (long entryId = 0; entryId < ENTRIES_PER_LEDGER; entryId++) {
+                put(ledgerId, entryId);
+            }
+        }
+        nextEntryId = ENTRIES_PER_LEDGER;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        cache.clear();
+        data.release();
+    }
+
+    private boolean put(long ledgerId, long entryId) {
+        EntryImpl entry = EntryImpl.create(ledgerId, entryId, data);
+        // the reference of the entry is passed on to the cache
+        if (!cache.put(entry.getPosition(), entry)) {
+            entry.release();
+            return false;
+        }
+        return true;
+    }
+
+    @Benchmark
+    public long get() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        ReferenceCountedEntry entry = cache.get(
+                PositionFactory.create(random.nextInt(LEDGERS), random.nextInt(ENTRIES_PER_LEDGER)));
+        if (entry == null) {
+            return -1;
+        }
+        long entryId = entry.getEntryId();
+        entry.release();
+        return entryId;
+    }
+
+    @Benchmark
+    public int getRange() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int ledgerId = random.nextInt(LEDGERS);
+        int firstEntryId = random.nextInt(ENTRIES_PER_LEDGER - RANGE_SIZE);
+        Position first = PositionFactory.create(ledgerId, firstEntryId);
+        Position last = PositionFactory.create(ledgerId, firstEntryId + RANGE_SIZE - 1);
+        Collection<ReferenceCountedEntry> entries = cache.getRange(first, last);
+        entries.forEach(ReferenceCountedEntry::release);
+        return entries.size();
+    }
+
+    @Benchmark
+    public Pair<Integer, Long> putAndEvict() {
+        put(LEDGERS, nextEntryId++);
+        return removalQueue.evictLeastAccessedEntries(ENTRY_SIZE);
+    }
+}
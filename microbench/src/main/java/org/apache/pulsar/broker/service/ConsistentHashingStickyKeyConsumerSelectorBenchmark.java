@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link ConsistentHashingStickyKeyConsumerSelector}, which selects the consumer of the sticky key
+ * hash of every message dispatched on Key_Shared subscriptions.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConsistentHashingStickyKeyConsumerSelectorBenchmark {
+
+    @Param({"10", "100", "500"})
+    public int numberOfConsumers;
+
+    @Param({"100", "1000"})
+    public int numberOfPoints;
+
+    private ConsistentHashingStickyKeyConsumerSelector selector;
+    private Consumer[] consumers;
+    private int nextConsumer;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        selector = new ConsistentHashingStickyKeyConsumerSelector(numberOfPoints);
+        consumers = new Consumer[numberOfConsumers];
+        for (int i = 0; i < numberOfConsumers; i++) {
+            // the consumers have no connection, use the consumer name for the identity
+            consumers[i] = new Consumer("consumer-" + i, 1000) {
+                @Override
+                public int hashCode() {
+                    return consumerName().hashCode();
+                }
+
+                @Override
+                public boolean equals(Object obj) {
+                    return obj instanceof Consumer && consumerName().equals(((Consumer) obj).consumerName());
+                }
+            };
+            selector.addConsumer(consumers[i]);
+        }
+    }
+
+    @Threads(1)
+    @Benchmark
+    public Consumer select001Threads() {
+        return selector.select(ThreadLocalRandom.current().nextInt(StickyKeyConsumerSelector.DEFAULT_RANGE_SIZE));
+    }
+
+    @Threads(8)
+    @Benchmark
+    public Consumer select008Threads() {
+        return selector.select(ThreadLocalRandom.current().nextInt(StickyKeyConsumerSelector.DEFAULT_RANGE_SIZE));
+    }
+
+    /**
+     * Remove a consumer and add it back, like a consumer reconnecting, which rebuilds the hash ring twice.
+     */
+    @Threads(1)
+    @Benchmark
+    public Consumer reconnectConsumer() {
+        Consumer consumer = consumers[nextConsumer];
+        nextConsumer = (nextConsumer + 1) % numberOfConsumers;
+        selector.removeConsumer(consumer);
+        selector.addConsumer(consumer);
+        return consumer;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.service.plugin;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.mledger.Entry;
+import org.apache.bookkeeper.mledger.impl.EntryImpl;
+import org.apache.pulsar.broker.service.Subscription;
+import org.apache.pulsar.common.api.proto.KeyValue;
+import org.apache.pulsar.common.api.proto.MessageMetadata;
+import org.apache.pulsar.common.protocol.Commands;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link ExpressionEntryFilter}, which evaluates the filter expression of a subscription against the
+ * message metadata parsed by the dispatcher, compared to a plugin filter which parses the message metadata of the
+ * entry itself to evaluate the same condition.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(1)
+public class ExpressionEntryFilterBenchmark {
+
+    private static final String EXPRESSION = "properties.region IN ('eu', 'us') AND NOT key MATCHES 'test-.*'";
+
+    private Entry entry;
+    private FilterContext context;
+    private FilterExpression expression;
+    private ExpressionEntryFilter expressionFilter;
+    private EntryFilter pluginFilter;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        MessageMetadata metadata = new MessageMetadata()
+                .setProducerName("producer")
+                .setSequenceId(1)
+                .setPublishTime(System.currentTimeMillis())
+                .setPartitionKey("order-42");
+        metadata.addProperty().setKey("tenant").setValue("public");
+        metadata.addProperty().setKey("region").setValue("us");
+        ByteBuf data = Commands.serializeMetadataAndPayload(Commands.ChecksumType.Crc32c, metadata,
+                Unpooled.wrappedBuffer("payload".getBytes(UTF_8)));
+        entry = EntryImpl.create(1, 1, data);
+        data.release();
+
+        // the subscription only provides its properties to the filters
+        Map<String, String> subscriptionProperties = Map.of(ExpressionEntryFilter.EXPRESSION_PROPERTY, EXPRESSION);
+        Subscription subscription = (Subscription) Proxy.newProxyInstance(Subscription.class.getClassLoader(),
+                new Class<?>[] {Subscription.class},
+                (proxy, method, args) -> method.getName().equals("getSubscriptionProperties")
+                        ? subscriptionProperties : null);
+        context = new FilterContext();
+        context.setSubscription(subscription);
+        context.setMsgMetadata(Commands.peekAndCopyMessageMetadata(entry.getDataBuffer(), "sub", -1));
+
+        expression = FilterExpression.compile(EXPRESSION);
+        expressionFilter = new ExpressionEntryFilter();
+        pluginFilter = new PropertyEntryFilter();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        entry.release();
+    }
+
+    @Benchmark
+    public boolean compiledExpression() {
+        return expression.test(context.getMsgMetadata());
+    }
+
+    @Benchmark
+    public EntryFilter.FilterResult expressionEntryFilter() {
+        return expressionFilter.filterEntry(entry, context);
+    }
+
+    @Benchmark
+    public EntryFilter.FilterResult pluginEntryFilter() {
+        return pluginFilter.filterEntry(entry, context);
+    }
+
+    /**
+     * Evaluates the expression of the benchmark the way a plugin does, parsing the message metadata of each entry.
+     */
+    private static class PropertyEntryFilter implements EntryFilter {
+
+        @Override
+        public FilterResult filterEntry(Entry entry, FilterContext context) {
+            MessageMetadata metadata = Commands.peekMessageMetadata(entry.getDataBuffer(), "sub", -1);
+            if (metadata == null) {
+                return FilterResult.ACCEPT;
+            }
+            String region = null;
+            for (KeyValue property : metadata.getPropertiesList()) {
+                if (property.getKey().equals("region")) {
+                    region = property.getValue();
+                }
+            }
+            boolean accept = ("eu".equals(region) || "us".equals(region))
+                    && !(metadata.hasPartitionKey() && metadata.getPartitionKey().matches("test-.*"));
+            return accept ? FilterResult.ACCEPT : FilterResult.REJECT;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -782,6 +782,13 @@ public class ServiceConfiguration implements PulsarConfiguration {
             doc = "Maximum number of entries to process while scanning a subscription to calculate the accurate backlog"
     )
     private long subscriptionBacklogScanMaxEntries = 10_000;
+    @FieldContext(
+            category = CATEGORY_POLICIES,
+            doc = "Maximum number of ledgers to scan concurrently while scanning a subscription to calculate the"
+                    + " accurate backlog. The ledgers are scanned concurrently only when no entry filter is"
+                    + " configured, the scan then reads the metadata of the entries only."
+    )
+    private int subscriptionBacklogScanMaxParallelism = 1;
     @FieldContext(
         category = CATEGORY_POLICIES,
         doc = "How long to delete inactive subscriptions from last consuming."
@@ -1009,6 +1016,18 @@ public class ServiceConfiguration implements PulsarConfiguration {
     )
     private long keySharedUnblockingIntervalMs = 10L;
 
+    @FieldContext(
+            category = CATEGORY_POLICIES,
+            doc = "For Key_Shared subscriptions, the maximum number of batches of messages sent to a consumer whose"
+                    + " write to the consumer's connection is still in progress. When it's set, the dispatcher reads"
+                    + " the next entries while the messages are being written to the connections of the consumers,"
+                    + " instead of waiting for the writes to all the consumers to complete, and stops dispatching"
+                    + " to a consumer once this limit is reached.\n"
+                    + "Setting this value to 0 disables the pipelining of the reads.",
+            dynamic = true
+    )
+    private int keySharedMaxPendingSendsPerConsumer = 0;
+
     @FieldContext(
         category = CATEGORY_POLICIES,
         doc = "Once broker reaches maxUnackedMessagesPerBroker limit, it blocks subscriptions which has higher "
@@ -1241,6 +1260,23 @@ public class ServiceConfiguration implements PulsarConfiguration {
     )
     private int dispatcherMinReadBatchSize = 1;
 
+    @FieldContext(
+        category = CATEGORY_SERVER,
+        doc = "Adapt the read batch size of Shared and Key_Shared subscriptions to the rate at which their consumers"
+            + " drain the entries, within dispatcherMinReadBatchSize and dispatcherMaxReadBatchSize. When disabled,"
+            + " the read batch size doubles after each successful read up to dispatcherMaxReadBatchSize."
+    )
+    private boolean dispatcherAdaptiveReadSizeEnabled = false;
+
+    @FieldContext(
+        dynamic = true,
+        category = CATEGORY_SERVER,
+        doc = "With dispatcherAdaptiveReadSizeEnabled=true, the time worth of entries, at the current drain rate of"
+            + " the subscription, that a read should fetch. The read batch shrinks when the entries of a read are"
+            + " held by the dispatcher for longer than this time."
+    )
+    private long dispatcherAdaptiveReadTargetIntervalMs = 100;
+
     @FieldContext(
         dynamic = true,
         category = CATEGORY_SERVER,
@@ -1320,6 +1356,43 @@ public class ServiceConfiguration implements PulsarConfiguration {
     )
     private boolean allowOverrideEntryFilters = false;
 
+    @FieldContext(
+            category = CATEGORY_SERVER,
+            doc = "Number of threads of the pool that runs the entry filters of the dispatchers. When it's set, the"
+                    + " entry filters evaluate all the entries of a read batch at once, with"
+                    + " EntryFilter#filterEntries, on this pool instead of evaluating them one by one on the"
+                    + " dispatcher thread.\n"
+                    + "Setting this value to 0 runs the entry filters on the dispatcher thread."
+    )
+    private int entryFiltersExecutorThreads = 0;
+
+    @FieldContext(
+            category = CATEGORY_SERVER,
+            dynamic = true,
+            doc = "Maximum number of tasks the entries of a read batch are split into, to run the entry filters on"
+                    + " the pool of entryFiltersExecutorThreads threads. The entry filters which don't support"
+                    + " concurrent batches, see EntryFilter#supportsConcurrentBatches, filter one task at a time."
+    )
+    private int entryFiltersMaxParallelismPerReadBatch = 4;
+
+    @FieldContext(
+            category = CATEGORY_SERVER,
+            dynamic = true,
+            doc = "Maximum time in milliseconds the dispatcher waits for the entry filters of a read batch which run"
+                    + " on the pool of entryFiltersExecutorThreads threads. The entries whose filters didn't complete"
+                    + " in time are rescheduled. The pool queues at most 16 tasks per thread, the dispatcher runs"
+                    + " the tasks which can't be queued itself."
+    )
+    private long entryFiltersExecutorTimeoutMillis = 1000;
+
+    @FieldContext(
+            category = CATEGORY_SERVER,
+            doc = "Whether the dispatchers evaluate the filter expression set in the 'pulsar.filter.expression'"
+                    + " property of the subscriptions, with the built-in expression entry filter, before the"
+                    + " other entry filters. The entries that don't match the expression are rejected."
+    )
+    private boolean entryFilterExpressionsEnabled = false;
+
     @FieldContext(
         dynamic = true,
         category = CATEGORY_SERVER,
@@ -1473,6 +1546,21 @@ public class ServiceConfiguration implements PulsarConfiguration {
             + "delete position can be recovered or not.")
     private boolean lazyCursorRecovery = false;
 
+    @FieldContext(category = CATEGORY_SERVER, doc = "Maximum number of cursors recovered concurrently across all the "
+            + "managed ledgers being opened, e.g. when a namespace bundle with many topics is loaded. "
+            + "Use 0 to not limit the recoveries")
+    private int managedLedgerMaxConcurrentCursorRecoveries = 0;
+
+    @FieldContext(category = CATEGORY_SERVER, doc = "Maximum number of ledgers deleted concurrently from BookKeeper "
+            + "across all the managed ledgers after they were trimmed, e.g. when a retention change makes many ledgers "
+            + "expire at once. The cleanup of their offloaded data isn't limited. Use 0 to not limit the deletions")
+    private int managedLedgerMaxConcurrentLedgerDeletions = 0;
+
+    @FieldContext(category = CATEGORY_SERVER, doc = "Whether to prefetch the metadata of the managed ledgers and of "
+            + "their cursors of all the topics of a namespace bundle in batched metadata store reads when the bundle "
+            + "is loaded, before opening the topics")
+    private boolean managedLedgerPrefetchMetadataOnBundleLoad = false;
+
     @FieldContext(
         category = CATEGORY_SERVER,
         doc = "Check between intervals to see if consumed ledgers need to be trimmed"
@@ -2119,6 +2207,27 @@ public class ServiceConfiguration implements PulsarConfiguration {
             + "inserting in cache")
     private boolean managedLedgerCacheCopyEntries = false;
 
+    @FieldContext(category = CATEGORY_STORAGE_ML, doc = "Whether the managed ledger cache should index the cached "
+            + "entries with one append-only segment per ledger, addressed by entry id, instead of a skip-list keyed "
+            + "by position. This reduces the per-entry heap overhead and speeds up range reads from the cache")
+    private boolean managedLedgerCacheLedgerSegmentedIndexEnabled = false;
+
+    @FieldContext(category = CATEGORY_STORAGE_ML, doc = "Maximum size of the local disk tier of the managed ledger "
+            + "cache, in MB. When set, the entries evicted from the cache by size or by time are spilled to "
+            + "memory-mapped segment files, one per ledger, and the reads check them before reading from "
+            + "BookKeeper. This serves catch-up reads of consumers that lag behind by a few minutes from the local "
+            + "disk of the broker. The least recently accessed segments are deleted when the size is exceeded. "
+            + "0 disables the local disk tier")
+    private int managedLedgerCacheLocalDiskSizeMB = 0;
+
+    @FieldContext(category = CATEGORY_STORAGE_ML, doc = "Directory of the segment files of the local disk tier of "
+            + "the managed ledger cache. The segment files found in this directory are deleted when the broker starts")
+    private String managedLedgerCacheLocalDiskDirectory = "data/managed-ledger-cache";
+
+    @FieldContext(category = CATEGORY_STORAGE_ML, doc = "Capacity of each segment file of the local disk tier of the "
+            + "managed ledger cache, in MB. The entries of a ledger are not spilled anymore once its segment is full")
+    private int managedLedgerCacheLocalDiskSegmentSizeMB = 64;
+
     @FieldContext(category = CATEGORY_STORAGE_ML, doc = "Maximum buffer size for bytes read from storage."
             + " This is the memory retained by data read from storage (or cache) until it has been delivered to the"
             + " Consumer Netty channel. Use O to disable")
@@ -2306,11 +2415,27 @@ public class ServiceConfiguration implements PulsarConfiguration {
                     + "NOTE: This setting requires managedLedgerUnackedRangesOpenCacheSetEnabled=true to be effective.")
     private boolean managedLedgerPersistIndividualAckAsLongArray = true;
 
+    @FieldContext(category = CATEGORY_STORAGE_ML,
+            doc = "When storing acknowledgement state, encode the individual acknowledgements as runs of consecutive"
+                    + " entry ids, which is more compact than the long array format for a large number of"
+                    + " acknowledgment holes. The managedLedgerMaxUnackedRangesToPersist limit applies to the number"
+                    + " of holes instead of the number of acknowledged messages. It takes precedence over"
+                    + " managedLedgerPersistIndividualAckAsLongArray.\n\n"
+                    + "NOTE: This setting requires managedLedgerUnackedRangesOpenCacheSetEnabled=true to be effective.")
+    private boolean managedLedgerPersistIndividualAckAsRunLength = false;
+
     @FieldContext(
         category = CATEGORY_STORAGE_ML,
         doc = "If enabled, the maximum \"acknowledgment holes\" will not be limited and \"acknowledgment holes\" "
-                + "are stored in multiple entries.")
+                + "are stored in multiple entries: each entry of the cursor ledger only contains the ledgers whose "
+                + "acknowledgments changed since the previous entry, and a full snapshot is periodically written. "
+                + "Requires managedLedgerUnackedRangesOpenCacheSetEnabled=true.")
     private boolean persistentUnackedRangesWithMultipleEntriesEnabled = false;
+    @FieldContext(
+        category = CATEGORY_STORAGE_ML,
+        doc = "Max number of incremental entries written to the cursor ledger between two full snapshots of the "
+                + "\"acknowledgment holes\" when persistentUnackedRangesWithMultipleEntriesEnabled=true.")
+    private int persistentUnackedRangesSnapshotInterval = 100;
     @Deprecated
     @FieldContext(
         category = CATEGORY_STORAGE_ML,
@@ -2412,6 +2537,14 @@ public class ServiceConfiguration implements PulsarConfiguration {
                     + "0 means compression will always apply.\n")
     private long managedLedgerInfoCompressionThresholdInBytes = 16 * 1024;
 
+    @FieldContext(category = CATEGORY_STORAGE_ML,
+            doc = "Whether to store the ManagedLedgerInfo in its compact encoding, which delta-encodes the ledger ids "
+                    + "and stores the repeated properties and offload driver metadata once.\n"
+                    + "The compression, if enabled, is applied to the compact encoding. The brokers of the versions "
+                    + "without the compact encoding can't read it, so it must only be enabled once all the brokers "
+                    + "are upgraded.")
+    private boolean managedLedgerInfoCompactEncodingEnabled = false;
+
 
     @FieldContext(category = CATEGORY_STORAGE_ML,
             doc = "ManagedCursorInfo compression type, option values (NONE, LZ4, ZLIB, ZSTD, SNAPPY). \n"
@@ -2425,6 +2558,14 @@ public class ServiceConfiguration implements PulsarConfiguration {
                     + "0 means compression will always apply.\n")
     private long managedCursorInfoCompressionThresholdInBytes = 16 * 1024;
 
+    @FieldContext(category = CATEGORY_STORAGE_ML,
+            doc = "Whether to store the ManagedCursorInfo in its compact encoding, which delta-encodes the positions "
+                    + "and packs the individually deleted message ranges.\n"
+                    + "The compression, if enabled, is applied to the compact encoding. The brokers of the versions "
+                    + "without the compact encoding can't read it, so it must only be enabled once all the brokers "
+                    + "are upgraded.")
+    private boolean managedCursorInfoCompactEncodingEnabled = false;
+
     @FieldContext(
             dynamic = true,
             category = CATEGORY_STORAGE_ML,
@@ -2445,6 +2586,58 @@ public class ServiceConfiguration implements PulsarConfiguration {
             doc = "Maximum backlog entry difference to prevent caching entries that can't be reused"
     )
     private int managedLedgerMaxBacklogBetweenCursorsForCaching = 1000;
+    @FieldContext(
+            category = CATEGORY_STORAGE_ML,
+            doc = "Time to hold the catch-up reads of the cursors of a topic, so that the reads of different"
+                    + " subscriptions on nearby positions of the same ledger are coalesced into a single, sequential"
+                    + " read from the bookies. (0 to disable the coalescing of catch-up reads)"
+    )
+    private long managedLedgerCatchUpReadCoalescingDelayMillis = 0;
+    @FieldContext(
+            category = CATEGORY_STORAGE_ML,
+            doc = "Maximum number of entries of a coalesced catch-up read"
+    )
+    private int managedLedgerCatchUpReadCoalescingMaxEntries = 1000;
+    @FieldContext(
+            category = CATEGORY_STORAGE_ML,
+            doc = "Maximum number of entries between two catch-up reads that are coalesced into a single read"
+    )
+    private int managedLedgerCatchUpReadCoalescingMaxGapEntries = 100;
+    @FieldContext(
+            category = CATEGORY_STORAGE_ML,
+            doc = "Interval, in number of entries, at which the publish time and the broker entry metadata index of"
+                    + " the entries are sampled into a sparse index stored in the metadata of the ledgers, so that"
+                    + " the seeks by timestamp or by index only search the entries between two samples."
+                    + " (0 to disable the sparse entry index)"
+    )
+    private int managedLedgerEntryIndexInterval = 0;
+    @FieldContext(
+            category = CATEGORY_STORAGE_ML,
+            doc = "Maximum number of samples of the sparse entry index of a ledger, the sampling interval of the ledger"
+                    + " doubles when it's reached. The samples of all the ledgers of a topic are stored in the"
+                    + " metadata of its managed ledger, which size is limited by the metadata store"
+    )
+    private int managedLedgerEntryIndexMaxSamplesPerLedger = 16;
+    @FieldContext(
+            category = CATEGORY_STORAGE_ML,
+            doc = "Maximum time, in microseconds, to hold the non-batched messages published concurrently so that the"
+                    + " consecutive messages of a producer with the same key and schema are coalesced into a single"
+                    + " batch entry, written with a single BookKeeper add. Only the uncompressed, unencrypted messages"
+                    + " outside of transactions, without chunking or delayed delivery, are coalesced."
+                    + " (0 to disable the group commit)"
+    )
+    private long managedLedgerAddEntryGroupCommitMaxDelayMicros = 0;
+    @FieldContext(
+            category = CATEGORY_STORAGE_ML,
+            doc = "Maximum number of messages coalesced into a single entry by the group commit"
+    )
+    private int managedLedgerAddEntryGroupCommitMaxEntries = 100;
+    @FieldContext(
+            category = CATEGORY_STORAGE_ML,
+            doc = "Maximum size, in bytes, of the messages coalesced into a single entry by the group commit."
+                    + " It's capped by maxMessageSize"
+    )
+    private int managedLedgerAddEntryGroupCommitMaxBytes = 128 * 1024;
 
     /*** --- Load balancer. --- ****/
      @FieldContext(
@@ -78,6 +78,17 @@ public class ManagedLedgerClientFactory implements ManagedLedgerStorage {
         managedLedgerFactoryConfig.setCacheEvictionTimeThresholdMillis(
                 conf.getManagedLedgerCacheEvictionTimeThresholdMillis());
         managedLedgerFactoryConfig.setCopyEntriesInCache(conf.isManagedLedgerCacheCopyEntries());
+        managedLedgerFactoryConfig.setCacheLedgerSegmentedIndexEnabled(
+                conf.isManagedLedgerCacheLedgerSegmentedIndexEnabled());
+        managedLedgerFactoryConfig.setCacheLocalDiskMaxSize(
+                conf.getManagedLedgerCacheLocalDiskSizeMB() * 1024L * 1024L);
+        managedLedgerFactoryConfig.setCacheLocalDiskDirectory(conf.getManagedLedgerCacheLocalDiskDirectory());
+        managedLedgerFactoryConfig.setCacheLocalDiskSegmentSize(
+                conf.getManagedLedgerCacheLocalDiskSegmentSizeMB() * 1024L * 1024L);
+        managedLedgerFactoryConfig.setMaxConcurrentCursorRecoveries(
+                conf.getManagedLedgerMaxConcurrentCursorRecoveries());
+        managedLedgerFactoryConfig.setMaxConcurrentLedgerDeletions(
+                conf.getManagedLedgerMaxConcurrentLedgerDeletions());
         long managedLedgerMaxReadsInFlightSizeBytes = conf.getManagedLedgerMaxReadsInFlightSizeInMB() * 1024L * 1024L;
         if (managedLedgerMaxReadsInFlightSizeBytes > 0 && conf.getDispatcherMaxReadSizeBytes() > 0
                 && managedLedgerMaxReadsInFlightSizeBytes < conf.getDispatcherMaxReadSizeBytes()) {
@@ -100,10 +111,14 @@ public class ManagedLedgerClientFactory implements ManagedLedgerStorage {
         managedLedgerFactoryConfig.setManagedLedgerInfoCompressionType(conf.getManagedLedgerInfoCompressionType());
         managedLedgerFactoryConfig.setManagedLedgerInfoCompressionThresholdInBytes(
                 conf.getManagedLedgerInfoCompressionThresholdInBytes());
+        managedLedgerFactoryConfig.setManagedLedgerInfoCompactEncodingEnabled(
+                conf.isManagedLedgerInfoCompactEncodingEnabled());
         managedLedgerFactoryConfig.setStatsPeriodSeconds(conf.getManagedLedgerStatsPeriodSeconds());
         managedLedgerFactoryConfig.setManagedCursorInfoCompressionType(conf.getManagedCursorInfoCompressionType());
         managedLedgerFactoryConfig.setManagedCursorInfoCompressionThresholdInBytes(
                 conf.getManagedCursorInfoCompressionThresholdInBytes());
+        managedLedgerFactoryConfig.setManagedCursorInfoCompactEncodingEnabled(
+                conf.isManagedCursorInfoCompactEncodingEnabled());
 
         Configuration configuration = new ClientConfiguration();
         if (conf.isBookkeeperClientExposeStatsToPrometheus()) {
@@ -1434,21 +1434,41 @@ public class PulsarService implements AutoCloseable, ShutdownService {
             List<CompletableFuture<Optional<Topic>>> persistentTopics = new ArrayList<>();
             long topicLoadStart = System.nanoTime();
 
+            List<TopicName> topicsToLoad = new ArrayList<>();
             for (String topic : getNamespaceService().getListOfPersistentTopics(nsName)
                     .get(config.getMetadataStoreOperationTimeoutSeconds(), TimeUnit.SECONDS)) {
                 try {
                     TopicName topicName = TopicName.get(topic);
                     if (bundle.includes(topicName) && !isTransactionInternalName(topicName)) {
-                        CompletableFuture<Optional<Topic>> future = brokerService.getTopicIfExists(topic);
-                        if (future != null) {
-                            persistentTopics.add(future);
-                        }
+                        topicsToLoad.add(topicName);
                     }
                 } catch (Throwable t) {
                     LOG.warn("Failed to preload topic {}", topic, t);
                 }
             }
 
+            if (config.isManagedLedgerPrefetchMetadataOnBundleLoad() && !topicsToLoad.isEmpty()) {
+                // The topics which use another storage class than the default one read their metadata when opened
+                try {
+                    getDefaultManagedLedgerFactory().asyncPrefetchMetadata(topicsToLoad.stream()
+                                    .map(TopicName::getPersistenceNamingEncoding).toList())
+                            .get(config.getMetadataStoreOperationTimeoutSeconds(), TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    LOG.warn("Failed to prefetch the metadata of the topics on bundle {}", bundle, e);
+                }
+            }
+
+            for (TopicName topicName : topicsToLoad) {
+                try {
+                    CompletableFuture<Optional<Topic>> future = brokerService.getTopicIfExists(topicName.toString());
+                    if (future != null) {
+                        persistentTopics.add(future);
+                    }
+                } catch (Throwable t) {
+                    LOG.warn("Failed to preload topic {}", topicName, t);
+                }
+            }
+
             if (!persistentTopics.isEmpty()) {
                 FutureUtil.waitForAll(persistentTopics).thenRun(() -> {
                     double topicLoadTimeSeconds = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - topicLoadStart)
@@ -49,6 +49,7 @@ import org.apache.pulsar.broker.resources.ClusterResources;
 import org.apache.pulsar.broker.service.TopicEventsListener.EventStage;
 import org.apache.pulsar.broker.service.TopicEventsListener.TopicEvent;
 import org.apache.pulsar.broker.service.TopicPoliciesService;
+import org.apache.pulsar.broker.service.plugin.ExpressionEntryFilter;
 import org.apache.pulsar.broker.service.plugin.InvalidEntryFilterException;
 import org.apache.pulsar.broker.web.PulsarWebResource;
 import org.apache.pulsar.broker.web.RestException;
@@ -938,6 +939,14 @@ public abstract class AdminResource extends PulsarWebResource {
         }
     }
 
+    protected void validateSubscriptionProperties(Map<String, String> subscriptionProperties) {
+        try {
+            ExpressionEntryFilter.validateSubscriptionProperties(subscriptionProperties);
+        } catch (InvalidEntryFilterException ex) {
+            throw new RestException(Status.BAD_REQUEST, ex.getMessage());
+        }
+    }
+
     /**
      * Check current exception whether is redirect exception.
      *
@@ -27,6 +27,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectReader;
 import com.github.zafarkhaja.semver.Version;
 import com.google.common.base.Throwables;
+import com.google.common.collect.Range;
 import com.google.common.collect.Sets;
 import com.google.gson.Gson;
 import io.netty.buffer.ByteBuf;
@@ -2207,6 +2208,7 @@ public class PersistentTopicsBase extends AdminResource {
 
     protected void internalCreateSubscription(AsyncResponse asyncResponse, String subscriptionName,
             MessageIdImpl messageId, boolean authoritative, boolean replicated, Map<String, String> properties) {
+        validateSubscriptionProperties(properties);
         CompletableFuture<Void> ret = validateTopicOperationAsync(topicName, TopicOperation.SUBSCRIBE,
                 subscriptionName);
         ret.thenCompose(__ -> {
@@ -2373,6 +2375,7 @@ public class PersistentTopicsBase extends AdminResource {
     protected void internalUpdateSubscriptionProperties(AsyncResponse asyncResponse, String subName,
                                                         Map<String, String> subscriptionProperties,
                                                         boolean authoritative) {
+        validateSubscriptionProperties(subscriptionProperties);
         CompletableFuture<Void> future = validateTopicOperationAsync(topicName, TopicOperation.SUBSCRIBE, subName);
         future.thenCompose(__ -> {
             if (topicName.isGlobal()) {
@@ -2869,6 +2872,13 @@ public class PersistentTopicsBase extends AdminResource {
             });
     }
 
+    private Range<Position> findIndexedRangeByTimestamp(ManagedLedger managedLedger, long timestamp) {
+        int maxClockSkewMillis = pulsar().getConfiguration()
+                .getManagedLedgerCursorResetLedgerCloseTimestampMaxClockSkewMillis();
+        return maxClockSkewMillis < 0 ? Range.all()
+                : managedLedger.findIndexedRangeByTimestamp(timestamp, maxClockSkewMillis).orElse(Range.all());
+    }
+
     private CompletableFuture<MessageId> findMessageIdByPublishTime(long timestamp, ManagedLedger managedLedger) {
         return managedLedger.asyncFindPosition(entry -> {
             try {
@@ -2882,7 +2892,7 @@ public class PersistentTopicsBase extends AdminResource {
                 entry.release();
             }
             return false;
-        }).thenApply(position -> {
+        }, findIndexedRangeByTimestamp(managedLedger, timestamp)).thenApply(position -> {
             if (position == null) {
                 return null;
             } else {
@@ -5568,7 +5578,7 @@ public class PersistentTopicsBase extends AdminResource {
                                         } finally {
                                             entry.release();
                                         }
-                                    });
+                                    }, managedLedger.findIndexedRangeByIndex(index).orElse(Range.all()));
                                 }
                             }).thenCompose(position -> {
                                 if (position.compareTo(lastPosition) > 0) {
@@ -134,8 +134,25 @@ public abstract class AbstractBaseDispatcher extends EntryFilterSupport implemen
         int filteredMessageCount = 0;
         int filteredEntryCount = 0;
         long filteredBytesCount = 0;
-        List<Position> entriesToFiltered = hasFilter ? new ArrayList<>() : null;
-        List<Position> entriesToRedeliver = hasFilter ? new ArrayList<>() : null;
+        // checked once for the read batch, the filter expression of the subscription can be updated concurrently
+        final boolean runFilters = hasFilter();
+        List<Position> entriesToFiltered = runFilters ? new ArrayList<>() : null;
+        List<Position> entriesToRedeliver = runFilters ? new ArrayList<>() : null;
+        EntryFilter.FilterResult[] filterResults = null;
+        if (runFilters && filterExecutor != null) {
+            // run the entry filters for the whole read batch on the entry filters executor
+            if (metadataArray == null) {
+                metadataArray = new MessageMetadata[entries.size()];
+                startOffset = 0;
+                for (int i = 0, entriesSize = entries.size(); i < entriesSize; i++) {
+                    final Entry entry = entries.get(i);
+                    if (entry != null) {
+                        metadataArray[i] = EntryAndMetadata.peekAndCopyMessageMetadata(entry, subscription.toString());
+                    }
+                }
+            }
+            filterResults = runFiltersForEntries(entries, metadataArray, startOffset, consumer);
+        }
         for (int i = 0, entriesSize = entries.size(); i < entriesSize; i++) {
             final Entry entry = entries.get(i);
             if (entry == null) {
@@ -147,18 +164,17 @@ public abstract class AbstractBaseDispatcher extends EntryFilterSupport implemen
             MessageMetadata msgMetadata;
             if (metadataArray != null) {
                 msgMetadata = metadataArray[metadataIndex];
-            } else if (entry instanceof EntryAndMetadata) {
-                msgMetadata = ((EntryAndMetadata) entry).getMetadata();
             } else {
-                msgMetadata = Commands.peekAndCopyMessageMetadata(metadataAndPayload, subscription.toString(), -1);
+                msgMetadata = EntryAndMetadata.peekAndCopyMessageMetadata(entry, subscription.toString());
             }
 
             int entryMsgCnt = msgMetadata == null ? 1 : msgMetadata.getNumMessagesInBatch();
-            if (hasFilter) {
+            if (runFilters) {
                 this.filterProcessedMsgs.add(entryMsgCnt);
             }
 
-            EntryFilter.FilterResult filterResult = runFiltersForEntry(entry, msgMetadata, consumer);
+            EntryFilter.FilterResult filterResult = filterResults != null ? filterResults[i]
+                    : runFilters ? runFiltersForEntry(entry, msgMetadata, consumer) : EntryFilter.FilterResult.ACCEPT;
             if (filterResult == EntryFilter.FilterResult.REJECT) {
                 entriesToFiltered.add(entry.getPosition());
                 entries.set(i, null);
@@ -232,7 +248,7 @@ public abstract class AbstractBaseDispatcher extends EntryFilterSupport implemen
                 continue;
             }
 
-            if (hasFilter) {
+            if (runFilters) {
                 this.filterAcceptedMsgs.add(entryMsgCnt);
             }
 
@@ -289,9 +305,11 @@ public abstract class AbstractBaseDispatcher extends EntryFilterSupport implemen
 
             BrokerInterceptor interceptor = subscription.interceptor();
             if (null != interceptor) {
+                // the metadata is shared with the other subscriptions reading the entry, the interceptor gets a copy
+                final MessageMetadata metadataForInterceptor = copyMessageMetadata(msgMetadata);
                 // keep for compatibility if users has implemented the old interface
-                interceptor.beforeSendMessage(subscription, entry, ackSet, msgMetadata);
-                interceptor.beforeSendMessage(subscription, entry, ackSet, msgMetadata, consumer);
+                interceptor.beforeSendMessage(subscription, entry, ackSet, metadataForInterceptor);
+                interceptor.beforeSendMessage(subscription, entry, ackSet, metadataForInterceptor, consumer);
             }
         }
         if (CollectionUtils.isNotEmpty(entriesToFiltered)) {
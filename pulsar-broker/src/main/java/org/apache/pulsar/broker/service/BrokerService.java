@@ -132,6 +132,7 @@ import org.apache.pulsar.broker.service.persistent.AbstractPersistentDispatcherM
 import org.apache.pulsar.broker.service.persistent.DispatchRateLimiter;
 import org.apache.pulsar.broker.service.persistent.DispatchRateLimiterFactory;
 import org.apache.pulsar.broker.service.persistent.DispatchRateLimiterFactoryClassic;
+import org.apache.pulsar.broker.service.persistent.MessageBatchCoalescer;
 import org.apache.pulsar.broker.service.persistent.PersistentTopic;
 import org.apache.pulsar.broker.service.persistent.SystemTopic;
 import org.apache.pulsar.broker.service.plugin.EntryFilterProvider;
@@ -2067,8 +2068,12 @@ public class BrokerService implements Closeable {
                     serviceConfig.getManagedLedgerMaxBatchDeletedIndexToPersist());
             managedLedgerConfig
                     .setPersistIndividualAckAsLongArray(serviceConfig.isManagedLedgerPersistIndividualAckAsLongArray());
+            managedLedgerConfig
+                    .setPersistIndividualAckAsRunLength(serviceConfig.isManagedLedgerPersistIndividualAckAsRunLength());
             managedLedgerConfig.setPersistentUnackedRangesWithMultipleEntriesEnabled(
                     serviceConfig.isPersistentUnackedRangesWithMultipleEntriesEnabled());
+            managedLedgerConfig.setPersistentUnackedRangesSnapshotInterval(
+                    serviceConfig.getPersistentUnackedRangesSnapshotInterval());
             managedLedgerConfig.setMaxUnackedRangesToPersistInMetadataStore(
                     serviceConfig.getManagedLedgerMaxUnackedRangesToPersistInMetadataStore());
             managedLedgerConfig.setMaxEntriesPerLedger(serviceConfig.getManagedLedgerMaxEntriesPerLedger());
@@ -2116,6 +2121,25 @@ public class BrokerService implements Closeable {
                     serviceConfig.getManagedLedgerMinimumBacklogEntriesForCaching());
             managedLedgerConfig.setMaxBacklogBetweenCursorsForCaching(
                     serviceConfig.getManagedLedgerMaxBacklogBetweenCursorsForCaching());
+            managedLedgerConfig.setCatchUpReadCoalescingDelayMillis(
+                    serviceConfig.getManagedLedgerCatchUpReadCoalescingDelayMillis());
+            managedLedgerConfig.setCatchUpReadCoalescingMaxEntries(
+                    serviceConfig.getManagedLedgerCatchUpReadCoalescingMaxEntries());
+            managedLedgerConfig.setCatchUpReadCoalescingMaxGapEntries(
+                    serviceConfig.getManagedLedgerCatchUpReadCoalescingMaxGapEntries());
+            managedLedgerConfig.setEntryIndexInterval(serviceConfig.getManagedLedgerEntryIndexInterval());
+            managedLedgerConfig.setEntryIndexMaxSamplesPerLedger(
+                    serviceConfig.getManagedLedgerEntryIndexMaxSamplesPerLedger());
+            if (serviceConfig.getManagedLedgerAddEntryGroupCommitMaxDelayMicros() > 0) {
+                managedLedgerConfig.setAddEntryGroupCommitMaxDelayMicros(
+                        serviceConfig.getManagedLedgerAddEntryGroupCommitMaxDelayMicros());
+                managedLedgerConfig.setAddEntryGroupCommitMaxEntries(
+                        serviceConfig.getManagedLedgerAddEntryGroupCommitMaxEntries());
+                managedLedgerConfig.setAddEntryGroupCommitMaxBytes(
+                        Math.min(serviceConfig.getManagedLedgerAddEntryGroupCommitMaxBytes(),
+                                serviceConfig.getMaxMessageSize()));
+                managedLedgerConfig.setAddEntryCoalescer(MessageBatchCoalescer.INSTANCE);
+            }
 
             OffloadPoliciesImpl nsLevelOffloadPolicies =
                     (OffloadPoliciesImpl) policies.map(p -> p.offload_policies).orElse(null);
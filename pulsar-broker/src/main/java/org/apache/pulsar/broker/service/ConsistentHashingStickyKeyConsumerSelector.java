@@ -19,6 +19,7 @@
 package org.apache.pulsar.broker.service;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -100,8 +101,58 @@ public class ConsistentHashingStickyKeyConsumerSelector implements StickyKeyCons
         }
     }
 
-    // Consistent-Hash ring
+    /**
+     * Immutable copy of the hash ring used to select consumers: the hash ring points sorted in ascending order, and
+     * the consumer selected for each point. It's rebuilt when consumers are added or removed, so that selecting a
+     * consumer is a binary search without locking, nor boxing.
+     */
+    private static final class HashRingSnapshot {
+        static final HashRingSnapshot EMPTY = new HashRingSnapshot(new int[0], new Consumer[0]);
+
+        private final int[] hashes;
+        private final Consumer[] consumers;
+
+        private HashRingSnapshot(int[] hashes, Consumer[] consumers) {
+            this.hashes = hashes;
+            this.consumers = consumers;
+        }
+
+        static HashRingSnapshot of(NavigableMap<Integer, HashRingPointEntry> hashRing) {
+            if (hashRing.isEmpty()) {
+                return EMPTY;
+            }
+            int[] hashes = new int[hashRing.size()];
+            Consumer[] consumers = new Consumer[hashRing.size()];
+            int i = 0;
+            for (Map.Entry<Integer, HashRingPointEntry> entry : hashRing.entrySet()) {
+                hashes[i] = entry.getKey();
+                consumers[i] = entry.getValue().selectedConsumer;
+                i++;
+            }
+            return new HashRingSnapshot(hashes, consumers);
+        }
+
+        Consumer select(int hash) {
+            if (hashes.length == 0) {
+                return null;
+            }
+            int index = Arrays.binarySearch(hashes, hash);
+            if (index < 0) {
+                // the insertion point is the index of the first point greater than the hash
+                index = -index - 1;
+                if (index == hashes.length) {
+                    // Handle wrap-around in the hash ring, return the first consumer
+                    index = 0;
+                }
+            }
+            return consumers[index];
+        }
+    }
+
+    // Consistent-Hash ring, modified while holding the write lock
     private final NavigableMap<Integer, HashRingPointEntry> hashRing;
+    // Copy of the hash ring used by select, published after each change of the hash ring
+    private volatile HashRingSnapshot hashRingSnapshot = HashRingSnapshot.EMPTY;
     // Tracks the used consumer name indexes for each consumer name
     private final ConsumerNameIndexTracker consumerNameIndexTracker = new ConsumerNameIndexTracker();
 
@@ -169,6 +220,7 @@ public class ConsistentHashingStickyKeyConsumerSelector implements StickyKeyCons
                 log.debug("Added consumer '{}' with {} points, {} collisions", consumer, hashPointsAdded,
                         hashPointCollisions);
             }
+            hashRingSnapshot = HashRingSnapshot.of(hashRing);
             if (!addOrRemoveReturnsImpactedConsumersResult) {
                 return CompletableFuture.completedFuture(Optional.empty());
             }
@@ -219,6 +271,7 @@ public class ConsistentHashingStickyKeyConsumerSelector implements StickyKeyCons
                     consumerNameIndexTracker.decreaseConsumerRefCount(consumerIdentityWrapper);
                 }
             }
+            hashRingSnapshot = HashRingSnapshot.of(hashRing);
             if (!addOrRemoveReturnsImpactedConsumersResult) {
                 return Optional.empty();
             }
@@ -234,21 +287,7 @@ public class ConsistentHashingStickyKeyConsumerSelector implements StickyKeyCons
 
     @Override
     public Consumer select(int hash) {
-        rwLock.readLock().lock();
-        try {
-            if (hashRing.isEmpty()) {
-                return null;
-            }
-            Map.Entry<Integer, HashRingPointEntry> ceilingEntry = hashRing.ceilingEntry(hash);
-            if (ceilingEntry != null) {
-                return ceilingEntry.getValue().selectedConsumer;
-            } else {
-                // Handle wrap-around in the hash ring, return the first consumer
-                return hashRing.firstEntry().getValue().selectedConsumer;
-            }
-        } finally {
-            rwLock.readLock().unlock();
-        }
+        return hashRingSnapshot.select(hash);
     }
 
     @Override
@@ -120,6 +120,15 @@ public class Consumer {
     private static final AtomicIntegerFieldUpdater<Consumer> PERMITS_RECEIVED_WHILE_CONSUMER_BLOCKED_UPDATER =
             AtomicIntegerFieldUpdater.newUpdater(Consumer.class, "permitsReceivedWhileConsumerBlocked");
     private volatile int permitsReceivedWhileConsumerBlocked = 0;
+    // number of batches of messages handed to the connection whose write and flush haven't completed yet
+    private static final AtomicIntegerFieldUpdater<Consumer> PENDING_SENDS_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(Consumer.class, "pendingSends");
+    private volatile int pendingSends = 0;
+    // set when the dispatcher skipped the consumer because of its pending sends, and cleared by the first send which
+    // completes after that, so that the dispatcher reads again once per limit reached
+    private static final AtomicIntegerFieldUpdater<Consumer> PENDING_SENDS_LIMIT_REACHED_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(Consumer.class, "pendingSendsLimitReached");
+    private volatile int pendingSendsLimitReached = 0;
 
     private final PendingAcksMap pendingAcks;
 
@@ -428,10 +437,12 @@ public class Consumer {
                    topicName, subscription, ackedCount, totalMessages, consumerId, avgMessagesPerEntry.get());
         }
         incrementUnackedMessages(unackedMessages);
+        PENDING_SENDS_UPDATER.incrementAndGet(this);
         Future<Void> writeAndFlushPromise =
                 cnx.getCommandSender().sendMessagesToConsumer(consumerId, topicName, subscription, partitionIdx,
                         entries, batchSizes, batchIndexesAcks, redeliveryTracker, epoch);
         writeAndFlushPromise.addListener(status -> {
+            PENDING_SENDS_UPDATER.decrementAndGet(this);
             // only increment counters after the messages have been successfully written to the TCP/IP connection
             if (status.isSuccess()) {
                 if (firstMessagesSentTimestamp == 0) {
@@ -896,6 +907,24 @@ public class Consumer {
         return MESSAGE_PERMITS_UPDATER.get(this);
     }
 
+    /**
+     * @return the number of batches of messages sent to the consumer whose write to the connection hasn't completed
+     */
+    public int getPendingSends() {
+        return PENDING_SENDS_UPDATER.get(this);
+    }
+
+    public void setPendingSendsLimitReached() {
+        PENDING_SENDS_LIMIT_REACHED_UPDATER.set(this, 1);
+    }
+
+    /**
+     * @return true if the consumer had reached the limit of pending sends, only once per limit reached
+     */
+    public boolean clearPendingSendsLimitReached() {
+        return PENDING_SENDS_LIMIT_REACHED_UPDATER.compareAndSet(this, 1, 0);
+    }
+
     /**
      * return 0 if there is no entry dispatched yet.
      */
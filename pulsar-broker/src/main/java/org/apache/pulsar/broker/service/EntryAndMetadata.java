@@ -24,6 +24,7 @@ import java.util.function.ToIntFunction;
 import lombok.Getter;
 import org.apache.bookkeeper.mledger.Entry;
 import org.apache.bookkeeper.mledger.Position;
+import org.apache.bookkeeper.mledger.impl.EntryImpl;
 import org.apache.pulsar.common.api.proto.MessageMetadata;
 import org.apache.pulsar.common.protocol.Commands;
 import org.jspecify.annotations.Nullable;
@@ -47,7 +48,32 @@ public class EntryAndMetadata implements Entry {
 
     @VisibleForTesting
     public static EntryAndMetadata create(final Entry entry) {
-        return create(entry, Commands.peekAndCopyMessageMetadata(entry.getDataBuffer(), "", -1));
+        return create(entry, peekAndCopyMessageMetadata(entry, ""));
+    }
+
+    /**
+     * Get the message metadata of the entry. The metadata is parsed only once per entry: it's attached to the entry,
+     * and to the cached entry it was read from, so that the other subscriptions and consumers reading the entry reuse
+     * it.
+     *
+     * @return the message metadata of the entry, which must not be modified, or null if it couldn't be parsed
+     */
+    @Nullable
+    public static MessageMetadata peekAndCopyMessageMetadata(final Entry entry, final String subscription) {
+        if (entry instanceof EntryAndMetadata entryAndMetadata) {
+            return entryAndMetadata.getMetadata();
+        }
+        if (entry instanceof EntryImpl entryImpl) {
+            MessageMetadata metadata = entryImpl.getMessageMetadata();
+            if (metadata == null) {
+                metadata = Commands.peekAndCopyMessageMetadata(entry.getDataBuffer(), subscription, -1);
+                if (metadata != null) {
+                    entryImpl.setMessageMetadata(metadata);
+                }
+            }
+            return metadata;
+        }
+        return Commands.peekAndCopyMessageMetadata(entry.getDataBuffer(), subscription, -1);
     }
 
     public byte[] getStickyKey() {
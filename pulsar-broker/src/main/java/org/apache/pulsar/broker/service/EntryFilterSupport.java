@@ -18,20 +18,56 @@
  */
 package org.apache.pulsar.broker.service;
 
+import io.netty.util.ReferenceCounted;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.bookkeeper.mledger.Entry;
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.pulsar.broker.ServiceConfiguration;
 import org.apache.pulsar.broker.service.plugin.EntryFilter;
+import org.apache.pulsar.broker.service.plugin.EntryFilterWithClassLoader;
+import org.apache.pulsar.broker.service.plugin.ExpressionEntryFilter;
 import org.apache.pulsar.broker.service.plugin.FilterContext;
+import org.apache.pulsar.broker.stats.prometheus.metrics.Summary;
 import org.apache.pulsar.common.api.proto.MessageMetadata;
 
+@Slf4j
 public class EntryFilterSupport {
 
+    // a read batch isn't split into tasks of fewer entries than this
+    private static final int MIN_ENTRIES_PER_FILTER_TASK = 16;
+
+    private static final Summary ENTRY_FILTER_BATCH_LATENCY = Summary
+            .build("pulsar_broker_entry_filter_batch_latency", "-")
+            .labelNames("filter")
+            .quantile(0.50)
+            .quantile(0.95)
+            .quantile(0.99)
+            .quantile(0.999)
+            .quantile(1.0)
+            .register();
+
     protected final List<EntryFilter> entryFilters;
     protected final boolean hasFilter;
+    // evaluated before the entry filters when the subscription has a filter expression, null if they are disabled
+    protected final ExpressionEntryFilter expressionFilter;
     protected final FilterContext filterContext;
     protected final Subscription subscription;
+    protected final ExecutorService filterExecutor;
+    private final ServiceConfiguration serviceConfiguration;
 
     public EntryFilterSupport(Subscription subscription) {
         this.subscription = subscription;
@@ -40,35 +76,383 @@ public class EntryFilterSupport {
             final BrokerService brokerService = subscription.getTopic().getBrokerService();
             final boolean allowOverrideEntryFilters = brokerService
                     .pulsar().getConfiguration().isAllowOverrideEntryFilters();
+            List<EntryFilter> filters;
             if (!allowOverrideEntryFilters) {
-                this.entryFilters = brokerService.getEntryFilterProvider().getBrokerEntryFilters();
+                filters = brokerService.getEntryFilterProvider().getBrokerEntryFilters();
             } else {
                 List<EntryFilter> topicEntryFilters =
                         subscription.getTopic().getEntryFilters();
                 if (topicEntryFilters != null && !topicEntryFilters.isEmpty()) {
-                    this.entryFilters = topicEntryFilters;
+                    filters = topicEntryFilters;
                 } else {
-                    this.entryFilters = brokerService.getEntryFilterProvider().getBrokerEntryFilters();
+                    filters = brokerService.getEntryFilterProvider().getBrokerEntryFilters();
                 }
             }
+            this.entryFilters = filters;
+            this.expressionFilter = brokerService.pulsar().getConfiguration().isEntryFilterExpressionsEnabled()
+                    ? new ExpressionEntryFilter() : null;
             this.filterContext = new FilterContext();
+            this.filterExecutor = brokerService.getEntryFilterProvider().getFilterExecutor();
+            this.serviceConfiguration = brokerService.pulsar().getConfiguration();
         } else {
             this.entryFilters = Collections.emptyList();
+            this.expressionFilter = null;
             this.filterContext = FilterContext.FILTER_CONTEXT_DISABLED;
+            this.filterExecutor = null;
+            this.serviceConfiguration = null;
         }
         hasFilter = CollectionUtils.isNotEmpty(entryFilters);
     }
 
+    /**
+     * @return true if the entries must go through the entry filters, either because entry filters are configured or
+     * because the subscription has a filter expression
+     */
+    public boolean hasFilter() {
+        return hasFilter || hasFilterExpression();
+    }
+
+    private boolean hasFilterExpression() {
+        if (expressionFilter == null) {
+            return false;
+        }
+        final Map<String, String> subscriptionProperties = subscription.getSubscriptionProperties();
+        return subscriptionProperties != null
+                && subscriptionProperties.containsKey(ExpressionEntryFilter.EXPRESSION_PROPERTY);
+    }
+
+    /**
+     * @return the filters to run for the entries, starting with the expression filter when the subscription has a
+     * filter expression
+     */
+    private List<EntryFilter> getEntryFilters() {
+        if (!hasFilterExpression()) {
+            return hasFilter ? entryFilters : Collections.emptyList();
+        }
+        if (!hasFilter) {
+            return List.of(expressionFilter);
+        }
+        // the expression of the subscription is cheap to evaluate, it runs before the other filters
+        final List<EntryFilter> filters = new ArrayList<>(entryFilters.size() + 1);
+        filters.add(expressionFilter);
+        filters.addAll(entryFilters);
+        return filters;
+    }
+
     public EntryFilter.FilterResult runFiltersForEntry(Entry entry, MessageMetadata msgMetadata,
                                                        Consumer consumer) {
-        if (hasFilter) {
+        if (hasFilterExpression()) {
             fillContext(filterContext, msgMetadata, subscription, consumer);
+            final EntryFilter.FilterResult filterResult = expressionFilter.filterEntry(entry, filterContext);
+            if (filterResult != null && filterResult != EntryFilter.FilterResult.ACCEPT) {
+                return filterResult;
+            }
+            if (!hasFilter) {
+                return EntryFilter.FilterResult.ACCEPT;
+            }
+            fillContext(filterContext, copyMessageMetadata(msgMetadata), subscription, consumer);
+            return getFilterResult(filterContext, entry, entryFilters);
+        } else if (hasFilter) {
+            fillContext(filterContext, copyMessageMetadata(msgMetadata), subscription, consumer);
             return getFilterResult(filterContext, entry, entryFilters);
         } else {
             return EntryFilter.FilterResult.ACCEPT;
         }
     }
 
+    /**
+     * Run the entry filters for all the entries of a read batch on the entry filters executor. The batch is split
+     * into at most <tt>entryFiltersMaxParallelismPerReadBatch</tt> tasks, the calling thread runs one of them, then
+     * runs the tasks which the executor didn't start yet and waits for the others.
+     *
+     * <p/>The wait is bounded by <tt>entryFiltersExecutorTimeoutMillis</tt>: the entries of the tasks which didn't
+     * complete in time are rescheduled. The entries handed to the executor are copied and retained until their task
+     * completes, so that a late task never reads released or recycled entries. The filters which don't
+     * {@link EntryFilter#supportsConcurrentBatches() support concurrent batches} filter one batch at a time.
+     *
+     * @param entries the entries of the read batch, null entries are skipped
+     * @param metadataArray the message metadata of the entries
+     * @param startOffset the index in <tt>metadataArray</tt> of the message metadata of the first entry
+     * @return the filter result of each entry, in the order of the entries, null for the null entries
+     */
+    public EntryFilter.FilterResult[] runFiltersForEntries(List<? extends Entry> entries,
+                                                           MessageMetadata[] metadataArray, int startOffset,
+                                                           Consumer consumer) {
+        final EntryFilter.FilterResult[] results = new EntryFilter.FilterResult[entries.size()];
+        final int[] entryIndexes = new int[entries.size()];
+        int batchSize = 0;
+        for (int i = 0, entriesSize = entries.size(); i < entriesSize; i++) {
+            if (entries.get(i) != null) {
+                entryIndexes[batchSize++] = i;
+                results[i] = EntryFilter.FilterResult.ACCEPT;
+            }
+        }
+        final List<EntryFilter> filters = getEntryFilters();
+        if (batchSize == 0 || filters.isEmpty()) {
+            return results;
+        }
+
+        final int tasks = Math.max(1, Math.min(serviceConfiguration.getEntryFiltersMaxParallelismPerReadBatch(),
+                (batchSize + MIN_ENTRIES_PER_FILTER_TASK - 1) / MIN_ENTRIES_PER_FILTER_TASK));
+        final int entriesPerTask = (batchSize + tasks - 1) / tasks;
+        final List<FilterTask> submittedTasks = new ArrayList<>(tasks - 1);
+        int from = 0;
+        for (; from + entriesPerTask < batchSize; from += entriesPerTask) {
+            final FilterTask task = new FilterTask(filters, entries, metadataArray, startOffset, consumer,
+                    Arrays.copyOfRange(entryIndexes, from, from + entriesPerTask));
+            task.retainEntries();
+            try {
+                filterExecutor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // the executor is saturated or shutting down with the broker, the task is run below
+            }
+            submittedTasks.add(task);
+        }
+        RuntimeException failure = null;
+        try {
+            new FilterTask(filters, entries, metadataArray, startOffset, consumer,
+                    Arrays.copyOfRange(entryIndexes, from, batchSize)).runInline(results);
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+
+        final long deadline = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(serviceConfiguration.getEntryFiltersExecutorTimeoutMillis());
+        for (FilterTask task : submittedTasks) {
+            if (failure != null) {
+                task.cancel();
+                continue;
+            }
+            try {
+                task.complete(results, deadline);
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    /**
+     * The entry filters of a part of a read batch. A single filter context is updated for each entry.
+     */
+    private final class FilterTask implements Runnable {
+        private final List<EntryFilter> filters;
+        private final Consumer consumer;
+        // the indexes in the read batch of the entries of the task
+        private final int[] entryIndexes;
+        // the entries of the task and their metadata, copied from the read batch since the dispatcher nulls out and
+        // releases the entries of the batch once it stops waiting for the task
+        private final Entry[] taskEntries;
+        private final MessageMetadata[] taskMetadata;
+        private final AtomicBoolean started = new AtomicBoolean();
+        private final CompletableFuture<EntryFilter.FilterResult[]> future = new CompletableFuture<>();
+        private ReferenceCounted[] retainedEntries;
+
+        private FilterTask(List<EntryFilter> filters, List<? extends Entry> entries, MessageMetadata[] metadataArray,
+                           int startOffset, Consumer consumer, int[] entryIndexes) {
+            this.filters = filters;
+            this.consumer = consumer;
+            this.entryIndexes = entryIndexes;
+            this.taskEntries = new Entry[entryIndexes.length];
+            this.taskMetadata = new MessageMetadata[entryIndexes.length];
+            for (int i = 0; i < entryIndexes.length; i++) {
+                taskEntries[i] = entries.get(entryIndexes[i]);
+                taskMetadata[i] = metadataArray[entryIndexes[i] + startOffset];
+            }
+        }
+
+        /**
+         * Retain the entries of the task, so that they aren't recycled before the task completes. The entries which
+         * aren't reference counted only have their data retained.
+         */
+        private void retainEntries() {
+            retainedEntries = new ReferenceCounted[taskEntries.length];
+            for (int i = 0; i < taskEntries.length; i++) {
+                final Entry entry = taskEntries[i] instanceof EntryAndMetadata entryAndMetadata
+                        ? entryAndMetadata.unwrap() : taskEntries[i];
+                retainedEntries[i] = entry instanceof ReferenceCounted referenceCounted
+                        ? referenceCounted.retain() : entry.getDataBuffer().retain();
+            }
+        }
+
+        private void releaseEntries() {
+            if (retainedEntries != null) {
+                for (ReferenceCounted entry : retainedEntries) {
+                    entry.release();
+                }
+                retainedEntries = null;
+            }
+        }
+
+        @Override
+        public void run() {
+            if (!started.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                future.complete(filter());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            } finally {
+                releaseEntries();
+            }
+        }
+
+        private void cancel() {
+            if (started.compareAndSet(false, true)) {
+                releaseEntries();
+            }
+        }
+
+        private void runInline(EntryFilter.FilterResult[] results) {
+            started.set(true);
+            merge(filter(), results);
+        }
+
+        /**
+         * Run the task if the executor didn't start it yet, or wait for it until the deadline, and set its results.
+         */
+        private void complete(EntryFilter.FilterResult[] results, long deadline) {
+            if (started.compareAndSet(false, true)) {
+                try {
+                    merge(filter(), results);
+                } finally {
+                    releaseEntries();
+                }
+                return;
+            }
+            try {
+                merge(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS), results);
+            } catch (TimeoutException e) {
+                log.warn("[{}] The entry filters didn't complete in {} ms, rescheduling {} entries", subscription,
+                        serviceConfiguration.getEntryFiltersExecutorTimeoutMillis(), entryIndexes.length);
+                reschedule(results);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                reschedule(results);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new CompletionException(e.getCause());
+            }
+        }
+
+        private void merge(EntryFilter.FilterResult[] taskResults, EntryFilter.FilterResult[] results) {
+            for (int i = 0; i < entryIndexes.length; i++) {
+                if (taskResults[i] != null) {
+                    results[entryIndexes[i]] = taskResults[i];
+                }
+            }
+        }
+
+        private void reschedule(EntryFilter.FilterResult[] results) {
+            for (int entryIndex : entryIndexes) {
+                results[entryIndex] = EntryFilter.FilterResult.RESCHEDULE;
+            }
+        }
+
+        /**
+         * @return the result of each entry of the task, null for the accepted entries
+         */
+        private EntryFilter.FilterResult[] filter() {
+            final EntryFilter.FilterResult[] taskResults = new EntryFilter.FilterResult[entryIndexes.length];
+            final FilterContext context = new FilterContext();
+            // the copies of the shared metadata handed to the plugin filters, made once per entry
+            final MessageMetadata[] metadataCopies = new MessageMetadata[entryIndexes.length];
+            // the positions in the task of the entries accepted by the previous filters
+            final int[] accepted = new int[entryIndexes.length];
+            for (int i = 0; i < accepted.length; i++) {
+                accepted[i] = i;
+            }
+            int acceptedCount = accepted.length;
+            for (EntryFilter entryFilter : filters) {
+                final int count = acceptedCount;
+                final boolean pluginFilter = !(entryFilter instanceof ExpressionEntryFilter);
+                final List<Entry> filteredEntries = new AbstractList<>() {
+                    @Override
+                    public Entry get(int index) {
+                        return taskEntries[accepted[index]];
+                    }
+
+                    @Override
+                    public int size() {
+                        return count;
+                    }
+                };
+                final List<FilterContext> contexts = new AbstractList<>() {
+                    @Override
+                    public FilterContext get(int index) {
+                        final int position = accepted[index];
+                        MessageMetadata msgMetadata = taskMetadata[position];
+                        if (pluginFilter) {
+                            if (metadataCopies[position] == null) {
+                                metadataCopies[position] = copyMessageMetadata(msgMetadata);
+                            }
+                            msgMetadata = metadataCopies[position];
+                        }
+                        fillContext(context, msgMetadata, subscription, consumer);
+                        return context;
+                    }
+
+                    @Override
+                    public int size() {
+                        return count;
+                    }
+                };
+                final long startTime = System.nanoTime();
+                final List<EntryFilter.FilterResult> filterResults;
+                if (entryFilter.supportsConcurrentBatches()) {
+                    filterResults = entryFilter.filterEntries(filteredEntries, contexts);
+                } else {
+                    // the other tasks of the batch, and of the other dispatchers, wait for this one
+                    synchronized (unwrap(entryFilter)) {
+                        filterResults = entryFilter.filterEntries(filteredEntries, contexts);
+                    }
+                }
+                ENTRY_FILTER_BATCH_LATENCY.labels(getFilterName(entryFilter))
+                        .observe(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+
+                // the next filters only see the entries accepted by this one
+                acceptedCount = 0;
+                for (int i = 0; i < count; i++) {
+                    EntryFilter.FilterResult filterResult = filterResults.get(i);
+                    if (filterResult == null || filterResult == EntryFilter.FilterResult.ACCEPT) {
+                        accepted[acceptedCount++] = accepted[i];
+                    } else {
+                        taskResults[accepted[i]] = filterResult;
+                    }
+                }
+                if (acceptedCount == 0) {
+                    break;
+                }
+            }
+            return taskResults;
+        }
+    }
+
+    private static EntryFilter unwrap(EntryFilter entryFilter) {
+        if (entryFilter instanceof EntryFilterWithClassLoader entryFilterWithClassLoader) {
+            return entryFilterWithClassLoader.getEntryFilter();
+        }
+        return entryFilter;
+    }
+
+    private static String getFilterName(EntryFilter entryFilter) {
+        return unwrap(entryFilter).getClass().getName();
+    }
+
+    /**
+     * The message metadata of the entries is parsed once and shared by all the subscriptions reading the entry, the
+     * entry filter plugins get their own copy so that they can't modify the metadata seen by the other subscriptions.
+     */
+    static MessageMetadata copyMessageMetadata(MessageMetadata msgMetadata) {
+        return msgMetadata != null ? new MessageMetadata().copyFrom(msgMetadata) : null;
+    }
+
     private void fillContext(FilterContext context, MessageMetadata msgMetadata,
                              Subscription subscription, Consumer consumer) {
         context.reset();
@@ -406,6 +406,10 @@ public class Producer {
 
         private long entryTimestamp;
 
+        // the index of the message in the entry it was coalesced into, -1 if it wasn't coalesced
+        private int coalescedIndex = -1;
+        private int coalescedCount;
+
         @Override
         public long getLedgerId() {
             return ledgerId;
@@ -460,6 +464,12 @@ public class Producer {
             return highestSequenceId;
         }
 
+        @Override
+        public void setCoalescedIndex(int coalescedIndex, int coalescedCount) {
+            this.coalescedIndex = coalescedIndex;
+            this.coalescedCount = coalescedCount;
+        }
+
         @Override
         public void setOriginalProducerName(String originalProducerName) {
             this.originalProducerName = originalProducerName;
@@ -610,6 +620,11 @@ public class Producer {
         }
 
         private void sendSendReceiptResponseNormal() {
+            if (coalescedIndex >= 0) {
+                producer.cnx.getCommandSender().sendSendReceiptResponse(producer.producerId, sequenceId,
+                        highestSequenceId, ledgerId, entryId, coalescedIndex, coalescedCount);
+                return;
+            }
             producer.cnx.getCommandSender().sendSendReceiptResponse(producer.producerId, sequenceId, highestSequenceId,
                     ledgerId, entryId);
         }
@@ -696,6 +711,8 @@ public class Producer {
             ledgerId = -1L;
             entryId = -1L;
             batchSize = 0;
+            coalescedIndex = -1;
+            coalescedCount = 0;
             startTimeNs = -1L;
             chunked = false;
             isMarker = false;
@@ -49,6 +49,12 @@ public interface PulsarCommandSender {
     void sendSendReceiptResponse(long producerId, long sequenceId, long highestId, long ledgerId,
                                  long entryId);
 
+    /**
+     * Send the receipt of a message which was persisted as the message {@code batchIndex} of a batch entry.
+     */
+    void sendSendReceiptResponse(long producerId, long sequenceId, long highestId, long ledgerId,
+                                 long entryId, int batchIndex, int batchSize);
+
     void sendSendError(long producerId, long sequenceId, ServerError error, String errorMsg);
 
     void sendGetTopicsOfNamespaceResponse(List<String> topics, String topicsHash, boolean filtered,
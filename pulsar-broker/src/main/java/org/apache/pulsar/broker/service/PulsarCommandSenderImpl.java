@@ -111,6 +111,16 @@ public class PulsarCommandSenderImpl implements PulsarCommandSender {
         writeAndFlush(outBuf);
     }
 
+    @Override
+    public void sendSendReceiptResponse(long producerId, long sequenceId, long highestId, long ledgerId,
+                                        long entryId, int batchIndex, int batchSize) {
+        BaseCommand command = Commands.newSendReceiptCommand(producerId, sequenceId, highestId, ledgerId,
+                entryId, batchIndex, batchSize);
+        safeIntercept(command, cnx);
+        ByteBuf outBuf = Commands.serializeWithSize(command);
+        writeAndFlush(outBuf);
+    }
+
     @Override
     public void sendSendError(long producerId, long sequenceId, ServerError error, String errorMsg) {
         BaseCommand command = Commands.newSendErrorCommand(producerId, sequenceId, error, errorMsg);
@@ -84,6 +84,13 @@ public interface Topic {
         default void setMetadataFromEntryData(ByteBuf entryData) {
         }
 
+        /**
+         * Set the index of the message in the batch entry it was coalesced into by the group commit of the managed
+         * ledger, see {@link org.apache.bookkeeper.mledger.AddEntryCoalescer}.
+         */
+        default void setCoalescedIndex(int coalescedIndex, int coalescedCount) {
+        }
+
         default long getHighestSequenceId() {
             return  -1L;
         }
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.service.persistent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.apache.pulsar.broker.ServiceConfiguration;
+
+/**
+ * Adapts the number of entries and bytes read by a dispatcher to the rate at which its consumers drain them.
+ *
+ * <p/>The controller tracks, for each completed read:
+ * <ul>
+ *     <li>the drain rate of the subscription, that is the number of entries written to the consumers per second,
+ *     and</li>
+ *     <li>the time the entries of the read were held by the broker, between the completion of the read from the
+ *     entry cache or from BookKeeper and the completion of their writes to the connections of the consumers. The
+ *     writes of slow consumers stay pending in the outbound buffers of their connections.</li>
+ * </ul>
+ * The read batch size targets {@code dispatcherAdaptiveReadTargetIntervalMs} worth of entries at the current drain
+ * rate. It doubles after each read that was fully drained within the target interval, so that fast consumers quickly
+ * reach large reads and fewer round-trips, and it shrinks towards the drain rate when the entries are held for longer
+ * than the target interval, so that slow consumers don't keep large batches in memory. The batch size is always kept
+ * within {@code dispatcherMinReadBatchSize} and {@code dispatcherMaxReadBatchSize}, and the read size in bytes is
+ * derived from the average entry size, up to {@code dispatcherMaxReadSizeBytes}.
+ *
+ * <p/>This class is thread safe: the writes complete on the event loops of the connections of the consumers.
+ */
+class AdaptiveReadSizeController {
+    // Weight of the last sample in the moving averages
+    private static final double EWMA_ALPHA = 0.25;
+    // Headroom applied to the average entry size when computing the bytes to read
+    private static final int READ_SIZE_BYTES_HEADROOM = 2;
+
+    private final ServiceConfiguration serviceConfig;
+    private final LongSupplier nanoClock;
+
+    private int readBatchSize;
+    private double drainRate = -1;
+    private double avgEntrySize = -1;
+    private long lastWriteCompleteNanos = -1;
+    private long readBatchSizeIncreasedCount;
+    private long readBatchSizeDecreasedCount;
+
+    AdaptiveReadSizeController(ServiceConfiguration serviceConfig) {
+        this(serviceConfig, System::nanoTime);
+    }
+
+    AdaptiveReadSizeController(ServiceConfiguration serviceConfig, LongSupplier nanoClock) {
+        this.serviceConfig = serviceConfig;
+        this.nanoClock = nanoClock;
+        this.readBatchSize = serviceConfig.getDispatcherMaxReadBatchSize();
+    }
+
+    /**
+     * Record a completed read.
+     *
+     * @param entries the number of entries read
+     * @param bytes the total size of the entries read
+     * @return the completion time of the read, to pass to {@link #onEntriesWritten(long, int)}
+     */
+    synchronized long onReadComplete(int entries, long bytes) {
+        if (entries > 0) {
+            avgEntrySize = ewma(avgEntrySize, (double) bytes / entries);
+        }
+        return nanoClock.getAsLong();
+    }
+
+    /**
+     * Record the completion of the writes of the entries of a read to the consumers and adapt the read batch size.
+     *
+     * @param readCompleteNanos the completion time of the read, as returned by {@link #onReadComplete(int, long)}
+     * @param entriesProcessed the number of entries processed by the consumers
+     */
+    synchronized void onEntriesWritten(long readCompleteNanos, int entriesProcessed) {
+        long now = nanoClock.getAsLong();
+        if (lastWriteCompleteNanos > 0 && now > lastWriteCompleteNanos) {
+            drainRate = ewma(drainRate, entriesProcessed * (double) TimeUnit.SECONDS.toNanos(1)
+                    / (now - lastWriteCompleteNanos));
+        }
+        lastWriteCompleteNanos = now;
+        if (entriesProcessed <= 0) {
+            return;
+        }
+
+        long heldNanos = now - readCompleteNanos;
+        long targetIntervalNanos = TimeUnit.MILLISECONDS.toNanos(
+                serviceConfig.getDispatcherAdaptiveReadTargetIntervalMs());
+        // The bounds are dynamic, start from the batch size that was actually used
+        int currentReadBatchSize = getReadBatchSize();
+        int newReadBatchSize = currentReadBatchSize;
+        if (heldNanos > targetIntervalNanos) {
+            // The consumers are not keeping up, only read what they can drain within the target interval
+            int drainedWithinTarget = drainRate < 0 ? currentReadBatchSize / 2
+                    : (int) Math.ceil(drainRate * targetIntervalNanos / TimeUnit.SECONDS.toNanos(1));
+            newReadBatchSize = Math.min(currentReadBatchSize / 2, drainedWithinTarget);
+        } else if (entriesProcessed >= currentReadBatchSize) {
+            newReadBatchSize = currentReadBatchSize * 2;
+        }
+        updateReadBatchSize(newReadBatchSize);
+    }
+
+    /**
+     * Go back to the minimum read batch size after a read failure.
+     */
+    synchronized void onReadFailed() {
+        updateReadBatchSize(serviceConfig.getDispatcherMinReadBatchSize());
+    }
+
+    private void updateReadBatchSize(int newReadBatchSize) {
+        newReadBatchSize = Math.max(serviceConfig.getDispatcherMinReadBatchSize(),
+                Math.min(newReadBatchSize, serviceConfig.getDispatcherMaxReadBatchSize()));
+        if (newReadBatchSize > readBatchSize) {
+            readBatchSizeIncreasedCount++;
+        } else if (newReadBatchSize < readBatchSize) {
+            readBatchSizeDecreasedCount++;
+        }
+        readBatchSize = newReadBatchSize;
+    }
+
+    synchronized int getReadBatchSize() {
+        return Math.max(serviceConfig.getDispatcherMinReadBatchSize(),
+                Math.min(readBatchSize, serviceConfig.getDispatcherMaxReadBatchSize()));
+    }
+
+    synchronized long getReadSizeBytes() {
+        long maxReadSizeBytes = serviceConfig.getDispatcherMaxReadSizeBytes();
+        if (avgEntrySize < 0) {
+            return maxReadSizeBytes;
+        }
+        long readSizeBytes = (long) Math.ceil(avgEntrySize * getReadBatchSize() * READ_SIZE_BYTES_HEADROOM);
+        return Math.max(1, Math.min(readSizeBytes, maxReadSizeBytes));
+    }
+
+    synchronized long getReadBatchSizeIncreasedCount() {
+        return readBatchSizeIncreasedCount;
+    }
+
+    synchronized long getReadBatchSizeDecreasedCount() {
+        return readBatchSizeDecreasedCount;
+    }
+
+    private static double ewma(double average, double sample) {
+        return average < 0 ? sample : average + EWMA_ALPHA * (sample - average);
+    }
+}
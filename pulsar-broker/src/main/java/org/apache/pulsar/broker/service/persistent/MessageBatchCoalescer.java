@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.service.persistent;
+
+import io.netty.buffer.ByteBuf;
+import java.nio.ByteBuffer;
+import java.util.List;
+import org.apache.bookkeeper.mledger.AddEntryCoalescer;
+import org.apache.pulsar.common.allocator.PulsarByteBufAllocator;
+import org.apache.pulsar.common.api.proto.CompressionType;
+import org.apache.pulsar.common.api.proto.MessageMetadata;
+import org.apache.pulsar.common.protocol.Commands;
+
+/**
+ * Coalesces the non-batched messages published concurrently by a producer into a batch entry, for the group commit of
+ * the managed ledgers enabled by {@code managedLedgerAddEntryGroupCommitMaxDelayMicros}.
+ *
+ * <p/>The coalesced entry is a batch in the same format as a batch built by the producer, so that the index of a
+ * message in the batch identifies it within the entry. The messages of a batch share the metadata of the batch, so
+ * only the consecutive messages of a producer with the same schema version, partition key and ordering key are
+ * coalesced, and the messages whose metadata applies to the whole entry (compression, encryption, chunks, transactions,
+ * markers, replication and delayed delivery) are never coalesced.
+ */
+public class MessageBatchCoalescer implements AddEntryCoalescer {
+    public static final MessageBatchCoalescer INSTANCE = new MessageBatchCoalescer();
+
+    /**
+     * Attributes of a message which apply to the whole batch.
+     */
+    private record BatchAttributes(ByteBuffer schemaVersion, String partitionKey, boolean partitionKeyB64Encoded,
+                                   ByteBuffer orderingKey) {
+    }
+
+    @Override
+    public CoalescingKey getCoalescingKey(ByteBuf entry) {
+        MessageMetadata metadata = Commands.parseMessageMetadata(entry.duplicate());
+        if (metadata.hasNumMessagesInBatch()
+                || (metadata.hasCompression() && metadata.getCompression() != CompressionType.NONE)
+                || metadata.getEncryptionKeysCount() > 0 || metadata.hasEncryptionParam()
+                || metadata.hasUuid() || metadata.hasNumChunksFromMsg() || metadata.hasChunkId()
+                || metadata.hasTxnidMostBits() || metadata.hasMarkerType()
+                || metadata.hasReplicatedFrom() || metadata.getReplicateTosCount() > 0
+                || metadata.hasDeliverAtTime()) {
+            return null;
+        }
+        return new CoalescingKey(metadata.getProducerName(), new BatchAttributes(
+                metadata.hasSchemaVersion() ? ByteBuffer.wrap(metadata.getSchemaVersion()) : null,
+                metadata.hasPartitionKey() ? metadata.getPartitionKey() : null,
+                metadata.isPartitionKeyB64Encoded(),
+                metadata.hasOrderingKey() ? ByteBuffer.wrap(metadata.getOrderingKey()) : null));
+    }
+
+    @Override
+    public ByteBuf coalesce(List<ByteBuf> entries) {
+        int size = 0;
+        for (ByteBuf entry : entries) {
+            size += entry.readableBytes();
+        }
+        MessageMetadata batchMetadata = new MessageMetadata();
+        MessageMetadata metadata = new MessageMetadata();
+        ByteBuf batchPayload = PulsarByteBufAllocator.DEFAULT.buffer(size);
+        try {
+            long highestSequenceId = -1;
+            for (int i = 0; i < entries.size(); i++) {
+                ByteBuf payload = entries.get(i).duplicate();
+                Commands.parseMessageMetadata(payload, metadata);
+                if (i == 0) {
+                    Commands.initBatchMessageMetadata(batchMetadata, metadata);
+                }
+                highestSequenceId = Math.max(metadata.getSequenceId(), metadata.getHighestSequenceId());
+                Commands.serializeSingleMessageInBatchWithPayload(metadata, payload, batchPayload);
+            }
+            batchMetadata.setNumMessagesInBatch(entries.size())
+                    .setHighestSequenceId(highestSequenceId)
+                    .setUncompressedSize(batchPayload.readableBytes());
+            return Commands.serializeMetadataAndPayload(Commands.ChecksumType.Crc32c, batchMetadata, batchPayload);
+        } finally {
+            batchPayload.release();
+        }
+    }
+}
@@ -23,6 +23,7 @@ import static org.apache.pulsar.broker.service.persistent.PersistentTopic.MESSAG
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Range;
+import io.netty.util.concurrent.Future;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -72,7 +73,6 @@ import org.apache.pulsar.broker.transaction.exception.buffer.TransactionBufferEx
 import org.apache.pulsar.common.api.proto.CommandSubscribe.SubType;
 import org.apache.pulsar.common.api.proto.MessageMetadata;
 import org.apache.pulsar.common.policies.data.stats.TopicMetricBean;
-import org.apache.pulsar.common.protocol.Commands;
 import org.apache.pulsar.common.util.Backoff;
 import org.apache.pulsar.common.util.Codec;
 import org.apache.pulsar.common.util.FutureUtil;
@@ -105,6 +105,10 @@ public class PersistentDispatcherMultipleConsumers extends AbstractPersistentDis
                     "totalAvailablePermits");
     protected volatile int totalAvailablePermits = 0;
     protected volatile int readBatchSize;
+    // Adapts the read batch size to the drain rate of the consumers, null when dispatcherAdaptiveReadSizeEnabled=false
+    protected final AdaptiveReadSizeController readSizeController;
+    // the writes to the consumers of the entries of the current read, tracked when the read size is adaptive
+    private final List<Future<Void>> pendingWrites = new ArrayList<>();
     protected final Backoff readFailureBackoff;
     private static final AtomicIntegerFieldUpdater<PersistentDispatcherMultipleConsumers>
             TOTAL_UNACKED_MESSAGES_UPDATER =
@@ -163,6 +167,8 @@ public class PersistentDispatcherMultipleConsumers extends AbstractPersistentDis
                 ? new InMemoryRedeliveryTracker()
                 : RedeliveryTrackerDisabled.REDELIVERY_TRACKER_DISABLED;
         this.readBatchSize = serviceConfig.getDispatcherMaxReadBatchSize();
+        this.readSizeController = serviceConfig.isDispatcherAdaptiveReadSizeEnabled()
+                ? new AdaptiveReadSizeController(serviceConfig) : null;
         this.initializeDispatchRateLimiterIfNeeded();
         this.assignor = new SharedConsumerAssignor(this::getNextConsumer, this::addEntryToReplay);
         ServiceConfiguration serviceConfiguration = topic.getBrokerService().pulsar().getConfiguration();
@@ -538,8 +544,10 @@ public class PersistentDispatcherMultipleConsumers extends AbstractPersistentDis
 
     // left pair is messagesToRead, right pair is bytesToRead
     protected Pair<Integer, Long> calculateToRead(int currentTotalAvailablePermits) {
-        int messagesToRead = Math.min(currentTotalAvailablePermits, readBatchSize);
-        long bytesToRead = serviceConfig.getDispatcherMaxReadSizeBytes();
+        final int batchSize = getReadBatchSize();
+        int messagesToRead = Math.min(currentTotalAvailablePermits, batchSize);
+        long bytesToRead = readSizeController != null ? readSizeController.getReadSizeBytes()
+                : serviceConfig.getDispatcherMaxReadSizeBytes();
 
         Consumer c = getRandomConsumer();
         // if turn on precise dispatcher flow control, adjust the record to read
@@ -547,7 +555,7 @@ public class PersistentDispatcherMultipleConsumers extends AbstractPersistentDis
             int avgMessagesPerEntry = Math.max(1, c.getAvgMessagesPerEntry());
             messagesToRead = Math.min(
                     (int) Math.ceil(currentTotalAvailablePermits * 1.0 / avgMessagesPerEntry),
-                    readBatchSize);
+                    batchSize);
         }
 
         if (!isConsumerWritable()) {
@@ -681,7 +689,15 @@ public class PersistentDispatcherMultipleConsumers extends AbstractPersistentDis
             havePendingReplayRead = false;
         }
 
-        if (readBatchSize < serviceConfig.getDispatcherMaxReadBatchSize()) {
+        long totalBytesSize = entries.stream().mapToLong(Entry::getLength).sum();
+        final long readCompleteNanos;
+        if (readSizeController != null) {
+            // the read batch size is adapted once the entries are written to the consumers
+            readCompleteNanos = readSizeController.onReadComplete(entries.size(), totalBytesSize);
+        } else {
+            readCompleteNanos = -1;
+        }
+        if (readSizeController == null && readBatchSize < serviceConfig.getDispatcherMaxReadBatchSize()) {
             int newReadBatchSize = Math.min(readBatchSize * 2, serviceConfig.getDispatcherMaxReadBatchSize());
             if (log.isDebugEnabled()) {
                 log.debug("[{}] Increasing read batch size from {} to {}", name, readBatchSize, newReadBatchSize);
@@ -705,7 +721,6 @@ public class PersistentDispatcherMultipleConsumers extends AbstractPersistentDis
             log.debug("[{}] Distributing {} messages to {} consumers", name, entries.size(), consumerList.size());
         }
 
-        long totalBytesSize = entries.stream().mapToLong(Entry::getLength).sum();
         updatePendingBytesToDispatch(totalBytesSize);
 
         // dispatch messages to a separate thread, but still in order for this subscription
@@ -716,19 +731,23 @@ public class PersistentDispatcherMultipleConsumers extends AbstractPersistentDis
             // in a separate thread, and we want to prevent more reads
             acquireSendInProgress();
             dispatchMessagesThread.execute(() -> {
-                handleSendingMessagesAndReadingMore(readType, entries, false, totalBytesSize);
+                handleSendingMessagesAndReadingMore(readType, entries, false, totalBytesSize, readCompleteNanos);
             });
         } else {
-            handleSendingMessagesAndReadingMore(readType, entries, true, totalBytesSize);
+            handleSendingMessagesAndReadingMore(readType, entries, true, totalBytesSize, readCompleteNanos);
         }
     }
 
     private synchronized void handleSendingMessagesAndReadingMore(ReadType readType, List<Entry> entries,
                                                                   boolean needAcquireSendInProgress,
-                                                                  long totalBytesSize) {
+                                                                  long totalBytesSize, long readCompleteNanos) {
         boolean triggerReadingMore = sendMessagesToConsumers(readType, entries, needAcquireSendInProgress);
         int entriesProcessed = lastNumberOfEntriesProcessed;
         updatePendingBytesToDispatch(-totalBytesSize);
+        if (readSizeController != null && readType == ReadType.Normal) {
+            adaptReadBatchSizeOnceWritten(readCompleteNanos, entriesProcessed);
+        }
+        pendingWrites.clear();
         boolean canReadMoreImmediately = false;
         if (entriesProcessed > 0 || skipNextBackoff) {
             // Reset the backoff when messages were processed
@@ -798,7 +817,7 @@ public class PersistentDispatcherMultipleConsumers extends AbstractPersistentDis
             if (entry instanceof EntryAndMetadata) {
                 metadata = ((EntryAndMetadata) entry).getMetadata();
             } else {
-                metadata = Commands.peekAndCopyMessageMetadata(entry.getDataBuffer(), subscription.toString(), -1);
+                metadata = EntryAndMetadata.peekAndCopyMessageMetadata(entry, subscription.toString());
                 // cache the metadata in the entry with EntryAndMetadata for later use to avoid re-parsing the metadata
                 // and to carry the metadata and calculated stickyKeyHash with the entry
                 entries.set(i, EntryAndMetadata.create(entry, metadata));
@@ -866,8 +885,9 @@ public class PersistentDispatcherMultipleConsumers extends AbstractPersistentDis
                     readType == ReadType.Replay, c);
             totalEntriesProcessed += entriesForThisConsumer.size();
 
-            c.sendMessages(entriesForThisConsumer, batchSizes, batchIndexesAcks, sendMessageInfo.getTotalMessages(),
-                    sendMessageInfo.getTotalBytes(), sendMessageInfo.getTotalChunkedMessages(), redeliveryTracker);
+            trackWrite(c.sendMessages(entriesForThisConsumer, batchSizes, batchIndexesAcks,
+                    sendMessageInfo.getTotalMessages(), sendMessageInfo.getTotalBytes(),
+                    sendMessageInfo.getTotalChunkedMessages(), redeliveryTracker));
 
             int msgSent = sendMessageInfo.getTotalMessages();
             remainingMessages -= msgSent;
@@ -974,14 +994,14 @@ public class PersistentDispatcherMultipleConsumers extends AbstractPersistentDis
             totalEntries += filterEntriesForConsumer(entryAndMetadataList, batchSizes, sendMessageInfo,
                     batchIndexesAcks, cursor, readType == ReadType.Replay, consumer);
             totalEntriesProcessed += entryAndMetadataList.size();
-            consumer.sendMessages(entryAndMetadataList, batchSizes, batchIndexesAcks,
+            trackWrite(consumer.sendMessages(entryAndMetadataList, batchSizes, batchIndexesAcks,
                     sendMessageInfo.getTotalMessages(), sendMessageInfo.getTotalBytes(),
                     sendMessageInfo.getTotalChunkedMessages(), getRedeliveryTracker()
             ).addListener(future -> {
                 if (future.isDone() && numConsumers.decrementAndGet() == 0) {
                     readMoreEntriesAsync();
                 }
-            });
+            }));
 
             TOTAL_AVAILABLE_PERMITS_UPDATER.getAndAdd(this,
                     -(sendMessageInfo.getTotalMessages() - batchIndexesAcks.getTotalAckedIndexCount()));
@@ -1047,6 +1067,9 @@ public class PersistentDispatcherMultipleConsumers extends AbstractPersistentDis
             }
         }
 
+        if (readSizeController != null) {
+            readSizeController.onReadFailed();
+        }
         readBatchSize = serviceConfig.getDispatcherMinReadBatchSize();
         // Skip read if the waitTimeMillis is a nagetive value.
         if (waitTimeMillis >= 0) {
@@ -1472,6 +1495,45 @@ public class PersistentDispatcherMultipleConsumers extends AbstractPersistentDis
         return false;
     }
 
+    @Override
+    public int getReadBatchSize() {
+        return readSizeController != null ? readSizeController.getReadBatchSize() : readBatchSize;
+    }
+
+    @Override
+    public long getReadBatchSizeIncreasedCount() {
+        return readSizeController != null ? readSizeController.getReadBatchSizeIncreasedCount() : 0;
+    }
+
+    @Override
+    public long getReadBatchSizeDecreasedCount() {
+        return readSizeController != null ? readSizeController.getReadBatchSizeDecreasedCount() : 0;
+    }
+
+    /**
+     * Track the write of entries to a consumer, the read batch size is adapted once the writes of a read complete.
+     */
+    protected void trackWrite(Future<Void> writeFuture) {
+        if (readSizeController != null && writeFuture != null) {
+            pendingWrites.add(writeFuture);
+        }
+    }
+
+    private void adaptReadBatchSizeOnceWritten(long readCompleteNanos, int entriesProcessed) {
+        if (pendingWrites.isEmpty()) {
+            readSizeController.onEntriesWritten(readCompleteNanos, entriesProcessed);
+            return;
+        }
+        AtomicInteger remainingWrites = new AtomicInteger(pendingWrites.size());
+        for (Future<Void> writeFuture : pendingWrites) {
+            writeFuture.addListener(future -> {
+                if (remainingWrites.decrementAndGet() == 0) {
+                    readSizeController.onEntriesWritten(readCompleteNanos, entriesProcessed);
+                }
+            });
+        }
+    }
+
     public ManagedCursor getCursor() {
         return cursor;
     }
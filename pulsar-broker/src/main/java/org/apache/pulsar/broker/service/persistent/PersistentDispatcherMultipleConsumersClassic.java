@@ -70,7 +70,6 @@ import org.apache.pulsar.broker.transaction.exception.buffer.TransactionBufferEx
 import org.apache.pulsar.common.api.proto.CommandSubscribe.SubType;
 import org.apache.pulsar.common.api.proto.MessageMetadata;
 import org.apache.pulsar.common.policies.data.stats.TopicMetricBean;
-import org.apache.pulsar.common.protocol.Commands;
 import org.apache.pulsar.common.util.Backoff;
 import org.apache.pulsar.common.util.Codec;
 import org.apache.pulsar.common.util.FutureUtil;
@@ -690,8 +689,8 @@ public class PersistentDispatcherMultipleConsumersClassic extends AbstractPersis
         int remainingMessages = 0;
         boolean hasChunk = false;
         for (int i = 0; i < metadataArray.length; i++) {
-            final MessageMetadata metadata = Commands.peekAndCopyMessageMetadata(
-                    entries.get(i).getDataBuffer(), subscription.toString(), -1);
+            final MessageMetadata metadata = EntryAndMetadata.peekAndCopyMessageMetadata(
+                    entries.get(i), subscription.toString());
             if (metadata != null) {
                 remainingMessages += metadata.getNumMessagesInBatch();
                 if (!hasChunk && metadata.hasUuid()) {
@@ -1303,6 +1302,21 @@ public class PersistentDispatcherMultipleConsumersClassic extends AbstractPersis
         return true;
     }
 
+    @Override
+    public int getReadBatchSize() {
+        return readBatchSize;
+    }
+
+    @Override
+    public long getReadBatchSizeIncreasedCount() {
+        return 0;
+    }
+
+    @Override
+    public long getReadBatchSizeDecreasedCount() {
+        return 0;
+    }
+
     public ManagedCursor getCursor() {
         return cursor;
     }
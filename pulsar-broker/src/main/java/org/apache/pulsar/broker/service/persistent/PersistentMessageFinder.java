@@ -20,6 +20,7 @@ package org.apache.pulsar.broker.service.persistent;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Range;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import org.apache.bookkeeper.mledger.AsyncCallbacks;
@@ -66,10 +67,17 @@ public class PersistentMessageFinder implements AsyncCallbacks.FindEntryCallback
             if (log.isDebugEnabled()) {
                 log.debug("[{}] Starting message position find at timestamp {}", subName, timestamp);
             }
-            Pair<Position, Position> range =
-                    getFindPositionRange(cursor.getManagedLedger().getLedgersInfo().values(),
-                            cursor.getManagedLedger().getLastConfirmedEntry(), timestamp,
+            // The sparse entry index, when enabled, narrows the search down to a few entries. Both tolerate the same
+            // clock skew and are disabled when it's negative.
+            Optional<Range<Position>> indexedRange = ledgerCloseTimestampMaxClockSkewMillis < 0 ? Optional.empty()
+                    : cursor.getManagedLedger().findIndexedRangeByTimestamp(timestamp,
                             ledgerCloseTimestampMaxClockSkewMillis);
+            Pair<Position, Position> range = indexedRange
+                    .map(r -> Pair.of(r.hasLowerBound() ? r.lowerEndpoint() : null,
+                            r.hasUpperBound() ? r.upperEndpoint() : null))
+                    .orElseGet(() -> getFindPositionRange(cursor.getManagedLedger().getLedgersInfo().values(),
+                            cursor.getManagedLedger().getLastConfirmedEntry(), timestamp,
+                            ledgerCloseTimestampMaxClockSkewMillis));
             cursor.asyncFindNewestMatching(ManagedCursor.FindPositionConstraint.SearchAllAvailableEntries, entry -> {
                 try {
                     // Find the latest entry that is earlier than the target timestamp.
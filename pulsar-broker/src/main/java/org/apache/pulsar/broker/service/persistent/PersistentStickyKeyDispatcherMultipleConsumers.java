@@ -58,7 +58,6 @@ import org.apache.pulsar.client.api.Range;
 import org.apache.pulsar.common.api.proto.CommandSubscribe.SubType;
 import org.apache.pulsar.common.api.proto.KeySharedMeta;
 import org.apache.pulsar.common.api.proto.KeySharedMode;
-import org.apache.pulsar.common.protocol.Commands;
 import org.apache.pulsar.common.util.FutureUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -264,6 +263,10 @@ public class PersistentStickyKeyDispatcherMultipleConsumers extends PersistentDi
         final Map<Consumer, List<Entry>> entriesByConsumerForDispatching =
                 filterAndGroupEntriesForDispatching(entries, readType, triggerLookAhead);
 
+        // when the reads are pipelined, the next entries are read while the messages are written to the connections
+        // of the consumers. Otherwise, the next read is triggered once the messages are written to all the consumers
+        final int maxPendingSends = serviceConfig.getKeySharedMaxPendingSendsPerConsumer();
+        final boolean pipelineReads = maxPendingSends > 0;
         AtomicInteger remainingConsumersToFinishSending = new AtomicInteger(entriesByConsumerForDispatching.size());
         for (Map.Entry<Consumer, List<Entry>> current : entriesByConsumerForDispatching.entrySet()) {
             Consumer consumer = current.getKey();
@@ -285,14 +288,20 @@ public class PersistentStickyKeyDispatcherMultipleConsumers extends PersistentDi
             totalEntries += filterEntriesForConsumer(entriesForConsumer, batchSizes, sendMessageInfo,
                     batchIndexesAcks, cursor, readType == ReadType.Replay, consumer);
             totalEntriesProcessed += entriesForConsumer.size();
-            consumer.sendMessages(entriesForConsumer, batchSizes, batchIndexesAcks,
+            trackWrite(consumer.sendMessages(entriesForConsumer, batchSizes, batchIndexesAcks,
                     sendMessageInfo.getTotalMessages(),
                     sendMessageInfo.getTotalBytes(), sendMessageInfo.getTotalChunkedMessages(),
                     getRedeliveryTracker()).addListener(future -> {
-                if (future.isDone() && remainingConsumersToFinishSending.decrementAndGet() == 0) {
+                if (pipelineReads) {
+                    // the consumer was skipped because it had reached the limit of pending sends, and can receive
+                    // messages again: read once, on the first send completing after the limit was reached
+                    if (consumer.getPendingSends() < maxPendingSends && consumer.clearPendingSendsLimitReached()) {
+                        readMoreEntriesAsync();
+                    }
+                } else if (future.isDone() && remainingConsumersToFinishSending.decrementAndGet() == 0) {
                     readMoreEntriesAsync();
                 }
-            });
+            }));
 
             TOTAL_AVAILABLE_PERMITS_UPDATER.getAndAdd(this,
                     -(sendMessageInfo.getTotalMessages() - batchIndexesAcks.getTotalAckedIndexCount()));
@@ -326,7 +335,8 @@ public class PersistentStickyKeyDispatcherMultipleConsumers extends PersistentDi
             return true;
         }
 
-        return false;
+        // when the reads are pipelined, read more entries while the messages are being sent
+        return pipelineReads;
     }
 
     /**
@@ -420,7 +430,7 @@ public class PersistentStickyKeyDispatcherMultipleConsumers extends PersistentDi
                 // replace the input entry with EntryAndMetadata instance. In addition to the entry and metadata,
                 // it will also carry the calculated sticky key hash
                 entry = EntryAndMetadata.create(inputEntry,
-                        Commands.peekAndCopyMessageMetadata(inputEntry.getDataBuffer(), getSubscriptionName(), -1));
+                        EntryAndMetadata.peekAndCopyMessageMetadata(inputEntry, getSubscriptionName()));
             }
             int stickyKeyHash = getStickyKeyHash(entry);
             Consumer consumer = null;
@@ -641,6 +651,15 @@ public class PersistentStickyKeyDispatcherMultipleConsumers extends PersistentDi
         if (!c.cnx().isActive()) {
             return 0;
         }
+        // skip consumers whose connection is still writing the messages previously sent to them
+        int maxPendingSends = serviceConfig.getKeySharedMaxPendingSendsPerConsumer();
+        if (maxPendingSends > 0 && c.getPendingSends() >= maxPendingSends) {
+            c.setPendingSendsLimitReached();
+            // a send which completed before the flag was set didn't trigger a read, the consumer isn't skipped then
+            if (c.getPendingSends() >= maxPendingSends || !c.clearPendingSendsLimitReached()) {
+                return 0;
+            }
+        }
         int availablePermits = Math.max(c.getAvailablePermits(), 0);
         if (availablePermits > 0 && c.getMaxUnackedMessages() > 0) {
             // Calculate the maximum number of additional unacked messages allowed
@@ -74,6 +74,8 @@ import org.apache.pulsar.broker.service.StickyKeyDispatcher;
 import org.apache.pulsar.broker.service.Subscription;
 import org.apache.pulsar.broker.service.Topic;
 import org.apache.pulsar.broker.service.plugin.EntryFilter;
+import org.apache.pulsar.broker.service.plugin.ExpressionEntryFilter;
+import org.apache.pulsar.broker.service.plugin.InvalidEntryFilterException;
 import org.apache.pulsar.broker.transaction.pendingack.PendingAckHandle;
 import org.apache.pulsar.broker.transaction.pendingack.impl.PendingAckHandleDisabled;
 import org.apache.pulsar.broker.transaction.pendingack.impl.PendingAckHandleImpl;
@@ -626,58 +628,82 @@ public class PersistentSubscription extends AbstractSubscription {
         int batchSize = config.getDispatcherMaxReadBatchSize();
         AtomicReference<Position> firstPosition = new AtomicReference<>();
         AtomicReference<Position> lastPosition = new AtomicReference<>();
-        final Predicate<Entry> condition = entry -> {
-            if (log.isDebugEnabled()) {
-                log.debug("found {}", entry);
-            }
-            Position entryPosition = entry.getPosition();
-            firstPosition.compareAndSet(null, entryPosition);
-            lastPosition.set(entryPosition);
-            ByteBuf metadataAndPayload = entry.getDataBuffer();
-            MessageMetadata messageMetadata = Commands.peekMessageMetadata(metadataAndPayload, "", -1);
-            int numMessages = 1;
-            if (messageMetadata.hasNumMessagesInBatch()) {
-                numMessages = messageMetadata.getNumMessagesInBatch();
-            }
-            EntryFilter.FilterResult filterResult = entryFilterSupport
-                    .runFiltersForEntry(entry, messageMetadata, null);
+        class ScannedEntries {
+            void add(Position entryPosition, MessageMetadata messageMetadata,
+                     EntryFilter.FilterResult filterResult) {
+                // the ledgers may be scanned concurrently
+                firstPosition.accumulateAndGet(entryPosition,
+                        (first, position) -> first == null || position.compareTo(first) < 0 ? position : first);
+                lastPosition.accumulateAndGet(entryPosition,
+                        (last, position) -> last == null || position.compareTo(last) > 0 ? position : last);
+                int numMessages = 1;
+                if (messageMetadata.hasNumMessagesInBatch()) {
+                    numMessages = messageMetadata.getNumMessagesInBatch();
+                }
+                if (filterResult == null) {
+                    filterResult = EntryFilter.FilterResult.ACCEPT;
+                }
+                switch (filterResult) {
+                    case REJECT:
+                        rejected.incrementAndGet();
+                        rejectedMessages.addAndGet(numMessages);
+                        break;
+                    case RESCHEDULE:
+                        rescheduled.incrementAndGet();
+                        rescheduledMessages.addAndGet(numMessages);
+                        break;
+                    default:
+                        accepted.incrementAndGet();
+                        acceptedMessages.addAndGet(numMessages);
+                        break;
+                }
+                long num = entries.incrementAndGet();
+                messages.addAndGet(numMessages);
 
-            if (filterResult == null) {
-                filterResult = EntryFilter.FilterResult.ACCEPT;
-            }
-            switch (filterResult) {
-                case REJECT:
-                    rejected.incrementAndGet();
-                    rejectedMessages.addAndGet(numMessages);
-                    break;
-                case RESCHEDULE:
-                    rescheduled.incrementAndGet();
-                    rescheduledMessages.addAndGet(numMessages);
-                    break;
-                default:
-                    accepted.incrementAndGet();
-                    acceptedMessages.addAndGet(numMessages);
-                    break;
-            }
-            long num = entries.incrementAndGet();
-            messages.addAndGet(numMessages);
-
-            if (num % 1000 == 0) {
-                long end = System.currentTimeMillis();
-                log.info(
-                        "[{}][{}] scan running since {} ms - scanned {} entries",
-                        topicName, subName, end - start, num);
+                if (num % 1000 == 0) {
+                    long end = System.currentTimeMillis();
+                    log.info(
+                            "[{}][{}] scan running since {} ms - scanned {} entries",
+                            topicName, subName, end - start, num);
+                }
             }
-
-            return true;
-        };
-        CompletableFuture<AnalyzeBacklogResult> res = newNonDurableCursor.scan(
-                position,
-                condition,
-                batchSize,
-                maxEntries,
-                timeOutMs
-        ).thenApply((ScanOutcome outcome) -> {
+        }
+        final ScannedEntries scannedEntries = new ScannedEntries();
+        final CompletableFuture<ScanOutcome> scan;
+        if (entryFilterSupport.hasFilter()) {
+            final Predicate<Entry> condition = entry -> {
+                if (log.isDebugEnabled()) {
+                    log.debug("found {}", entry);
+                }
+                ByteBuf metadataAndPayload = entry.getDataBuffer();
+                MessageMetadata messageMetadata = Commands.peekMessageMetadata(metadataAndPayload, "", -1);
+                EntryFilter.FilterResult filterResult = entryFilterSupport
+                        .runFiltersForEntry(entry, messageMetadata, null);
+                scannedEntries.add(entry.getPosition(), messageMetadata, filterResult);
+                return true;
+            };
+            scan = newNonDurableCursor.scan(
+                    position,
+                    condition,
+                    batchSize,
+                    maxEntries,
+                    timeOutMs
+            );
+        } else {
+            // without entry filters, only the metadata of the entries are needed
+            scan = newNonDurableCursor.scanMetadata(
+                    position,
+                    (entryPosition, brokerEntryMetadata, messageMetadata) -> {
+                        scannedEntries.add(entryPosition, messageMetadata, EntryFilter.FilterResult.ACCEPT);
+                        return true;
+                    },
+                    batchSize,
+                    config.getSubscriptionBacklogScanMaxParallelism(),
+                    maxEntries,
+                    timeOutMs
+            );
+        }
+        CompletableFuture<AnalyzeBacklogResult> res = scan.thenApply((ScanOutcome outcome) -> {
             long end = System.currentTimeMillis();
             AnalyzeBacklogResult result = new AnalyzeBacklogResult();
             result.setFirstPosition(firstPosition.get());
@@ -1334,6 +1360,13 @@ public class PersistentSubscription extends AbstractSubscription {
 
             subStats.bucketDelayedIndexStats =
                     ((AbstractPersistentDispatcherMultipleConsumers) dispatcher).getBucketDelayedIndexStats();
+
+            subStats.readBatchSize =
+                    ((AbstractPersistentDispatcherMultipleConsumers) dispatcher).getReadBatchSize();
+            subStats.readBatchSizeIncreasedCount =
+                    ((AbstractPersistentDispatcherMultipleConsumers) dispatcher).getReadBatchSizeIncreasedCount();
+            subStats.readBatchSizeDecreasedCount =
+                    ((AbstractPersistentDispatcherMultipleConsumers) dispatcher).getReadBatchSizeDecreasedCount();
         }
 
         if (Subscription.isIndividualAckMode(subType)) {
@@ -1500,6 +1533,11 @@ public class PersistentSubscription extends AbstractSubscription {
     }
     @Override
     public CompletableFuture<Void> updateSubscriptionProperties(Map<String, String> subscriptionProperties) {
+        try {
+            ExpressionEntryFilter.validateSubscriptionProperties(subscriptionProperties);
+        } catch (InvalidEntryFilterException e) {
+            return FutureUtil.failedFuture(new NotAllowedException(e.getMessage()));
+        }
         Map<String, String> newSubscriptionProperties;
         if (subscriptionProperties == null || subscriptionProperties.isEmpty()) {
             newSubscriptionProperties = Collections.emptyMap();
@@ -130,6 +130,8 @@ import org.apache.pulsar.broker.service.SubscriptionOption;
 import org.apache.pulsar.broker.service.Topic;
 import org.apache.pulsar.broker.service.TopicPoliciesService;
 import org.apache.pulsar.broker.service.TransportCnx;
+import org.apache.pulsar.broker.service.plugin.ExpressionEntryFilter;
+import org.apache.pulsar.broker.service.plugin.InvalidEntryFilterException;
 import org.apache.pulsar.broker.service.schema.BookkeeperSchemaStorage;
 import org.apache.pulsar.broker.service.schema.exceptions.IncompatibleSchemaException;
 import org.apache.pulsar.broker.service.schema.exceptions.NotExistSchemaException;
@@ -717,6 +719,12 @@ public class PersistentTopic extends AbstractTopic implements Topic, AddEntryCal
         lastMaxReadPositionMovedForwardTimestamp = Clock.systemUTC().millis();
     }
 
+    @Override
+    public void addComplete(Position pos, ByteBuf entryData, int coalescedIndex, int coalescedCount, Object ctx) {
+        ((PublishContext) ctx).setCoalescedIndex(coalescedIndex, coalescedCount);
+        addComplete(pos, entryData, ctx);
+    }
+
     @Override
     public void addComplete(Position pos, ByteBuf entryData, Object ctx) {
         PublishContext publishContext = (PublishContext) ctx;
@@ -1110,6 +1118,12 @@ public class PersistentTopic extends AbstractTopic implements Topic, AddEntryCal
                     "Exceed the maximum number of subscriptions of the topic: " + topic));
             return subscriptionFuture;
         }
+        try {
+            ExpressionEntryFilter.validateSubscriptionProperties(subscriptionProperties);
+        } catch (InvalidEntryFilterException e) {
+            subscriptionFuture.completeExceptionally(new NotAllowedException(e.getMessage()));
+            return subscriptionFuture;
+        }
 
         Map<String, Long> properties = PersistentSubscription.getBaseCursorProperties(replicated);
         ledger.asyncOpenCursor(Codec.encode(subscriptionName), initialPosition, properties, subscriptionProperties,
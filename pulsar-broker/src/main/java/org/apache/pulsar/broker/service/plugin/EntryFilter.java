@@ -18,6 +18,8 @@
  */
 package org.apache.pulsar.broker.service.plugin;
 
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.bookkeeper.mledger.Entry;
 
 public interface EntryFilter {
@@ -33,6 +35,36 @@ public interface EntryFilter {
      */
     FilterResult filterEntry(Entry entry, FilterContext context);
 
+    /**
+     * Determine the filter results of a batch of entries read together. The broker calls this method instead of
+     * {@link #filterEntry(Entry, FilterContext)} when the entry filters run on the entry filters executor, which
+     * allows the filter to amortize its per-call costs over the whole batch.
+     * The default implementation calls {@link #filterEntry(Entry, FilterContext)} for each entry.
+     * This method is called concurrently, by several threads, with different batches only if
+     * {@link #supportsConcurrentBatches()} returns true.
+     * @param entries the entries to filter
+     * @param contexts the filter context of each entry, in the order of the entries. The broker may return the same
+     *                 instance for each entry, updated when it's returned: a context is only valid until the context
+     *                 of another entry is obtained
+     * @return the filter result of each entry, in the order of the entries. ACCEPT or null are regarded as ACCEPT.
+     */
+    default List<FilterResult> filterEntries(List<Entry> entries, List<FilterContext> contexts) {
+        List<FilterResult> results = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            results.add(filterEntry(entries.get(i), contexts.get(i)));
+        }
+        return results;
+    }
+
+    /**
+     * Whether {@link #filterEntries(List, List)} can be called concurrently with different batches. The broker
+     * serializes the calls of the filters which don't support it, so that they don't have to be thread safe.
+     * @return true if the filter is thread safe, false by default
+     */
+    default boolean supportsConcurrentBatches() {
+        return false;
+    }
+
     /**
      * close the entry filter.
      */
@@ -21,6 +21,7 @@ package org.apache.pulsar.broker.service.plugin;
 import static com.google.common.base.Preconditions.checkArgument;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableMap;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.DirectoryStream;
@@ -34,6 +35,10 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.pulsar.broker.ServiceConfiguration;
@@ -55,11 +60,23 @@ public class EntryFilterProvider implements AutoCloseable {
     protected Map<String, NarClassLoader> cachedClassLoaders;
     @VisibleForTesting
     protected List<EntryFilter> brokerEntryFilters;
+    private final ExecutorService filterExecutor;
+
+    private static final int MAX_QUEUED_TASKS_PER_THREAD = 16;
 
     public EntryFilterProvider(ServiceConfiguration conf) throws IOException {
         this.serviceConfiguration = conf;
         initialize();
         initializeBrokerEntryFilters();
+        if (conf.getEntryFiltersExecutorThreads() > 0) {
+            // the tasks rejected by the bounded queue are run by the dispatcher
+            final int threads = conf.getEntryFiltersExecutorThreads();
+            this.filterExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(threads * MAX_QUEUED_TASKS_PER_THREAD),
+                    new DefaultThreadFactory("pulsar-entry-filter"));
+        } else {
+            this.filterExecutor = null;
+        }
     }
 
     protected void initializeBrokerEntryFilters() throws IOException {
@@ -120,6 +137,15 @@ public class EntryFilterProvider implements AutoCloseable {
         return brokerEntryFilters;
     }
 
+    /**
+     * Get the executor that runs the entry filters of the dispatchers.
+     *
+     * @return the executor, or null when the entry filters run on the dispatcher thread
+     */
+    public ExecutorService getFilterExecutor() {
+        return filterExecutor;
+    }
+
     private void initialize() throws IOException {
         final String entryFiltersDirectory = serviceConfiguration.getEntryFiltersDirectory();
         Path path = Paths.get(entryFiltersDirectory).toAbsolutePath().normalize();
@@ -235,6 +261,9 @@ public class EntryFilterProvider implements AutoCloseable {
 
     @Override
     public void close() throws Exception {
+        if (filterExecutor != null) {
+            filterExecutor.shutdown();
+        }
         brokerEntryFilters.forEach((filter) -> {
             try {
                 filter.close();
@@ -20,6 +20,7 @@ package org.apache.pulsar.broker.service.plugin;
 
 import com.google.common.annotations.VisibleForTesting;
 import java.io.IOException;
+import java.util.List;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.bookkeeper.mledger.Entry;
@@ -49,6 +50,22 @@ public class EntryFilterWithClassLoader implements EntryFilter {
         }
     }
 
+    @Override
+    public List<FilterResult> filterEntries(List<Entry> entries, List<FilterContext> contexts) {
+        ClassLoader currentClassLoader = Thread.currentThread().getContextClassLoader();
+        try {
+            Thread.currentThread().setContextClassLoader(classLoader);
+            return entryFilter.filterEntries(entries, contexts);
+        } finally {
+            Thread.currentThread().setContextClassLoader(currentClassLoader);
+        }
+    }
+
+    @Override
+    public boolean supportsConcurrentBatches() {
+        return entryFilter.supportsConcurrentBatches();
+    }
+
     @VisibleForTesting
     public EntryFilter getEntryFilter() {
         return entryFilter;
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.service.plugin;
+
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.bookkeeper.mledger.Entry;
+import org.apache.pulsar.broker.service.Subscription;
+import org.apache.pulsar.common.api.proto.MessageMetadata;
+
+/**
+ * Built-in entry filter which evaluates the {@link FilterExpression} set in the {@value #EXPRESSION_PROPERTY}
+ * property of the subscription against the message metadata already parsed by the dispatcher. The entries matching
+ * the expression are accepted, the others are rejected.
+ *
+ * <p/>The expression is validated when the properties of the subscription are set, see
+ * {@link #validateSubscriptionProperties(Map)}. The entries are accepted when the subscription has no expression, or
+ * when its expression was stored before it was validated and is invalid. The expression is compiled again when the
+ * property of the subscription is updated.
+ */
+@Slf4j
+public class ExpressionEntryFilter implements EntryFilter {
+
+    public static final String EXPRESSION_PROPERTY = "pulsar.filter.expression";
+
+    private volatile CompiledExpression compiledExpression;
+
+    /**
+     * The last expression of the subscription, with its compiled form or null when it's invalid.
+     */
+    private record CompiledExpression(String source, FilterExpression expression) {
+    }
+
+    /**
+     * Check that the filter expression of the subscription properties, if any, is valid.
+     *
+     * @throws InvalidEntryFilterException if the filter expression is invalid
+     */
+    public static void validateSubscriptionProperties(Map<String, String> subscriptionProperties)
+            throws InvalidEntryFilterException {
+        final String source = subscriptionProperties == null ? null
+                : subscriptionProperties.get(EXPRESSION_PROPERTY);
+        if (source != null) {
+            FilterExpression.compile(source);
+        }
+    }
+
+    @Override
+    public FilterResult filterEntry(Entry entry, FilterContext context) {
+        final Subscription subscription = context.getSubscription();
+        final MessageMetadata msgMetadata = context.getMsgMetadata();
+        // markers are handled by the dispatcher
+        if (subscription == null || msgMetadata == null || msgMetadata.hasMarkerType()) {
+            return FilterResult.ACCEPT;
+        }
+        final Map<String, String> subscriptionProperties = subscription.getSubscriptionProperties();
+        final String source = subscriptionProperties == null ? null
+                : subscriptionProperties.get(EXPRESSION_PROPERTY);
+        if (source == null) {
+            return FilterResult.ACCEPT;
+        }
+        final FilterExpression expression = getExpression(source, subscription);
+        if (expression == null) {
+            return FilterResult.ACCEPT;
+        }
+        return expression.test(msgMetadata) ? FilterResult.ACCEPT : FilterResult.REJECT;
+    }
+
+    private FilterExpression getExpression(String source, Subscription subscription) {
+        CompiledExpression compiled = compiledExpression;
+        if (compiled == null || !compiled.source().equals(source)) {
+            FilterExpression expression;
+            try {
+                expression = FilterExpression.compile(source);
+            } catch (InvalidEntryFilterException e) {
+                log.warn("[{}] Ignoring the invalid filter expression of the subscription: {}",
+                        subscription.getName(), e.toString());
+                expression = null;
+            }
+            compiled = new CompiledExpression(source, expression);
+            compiledExpression = compiled;
+        }
+        return compiled.expression();
+    }
+
+    @Override
+    public boolean supportsConcurrentBatches() {
+        // the compiled expression is only replaced as a whole
+        return true;
+    }
+
+    @Override
+    public void close() {
+        // nothing to close
+    }
+}
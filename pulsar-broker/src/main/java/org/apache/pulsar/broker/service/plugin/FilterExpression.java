@@ -0,0 +1,565 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.service.plugin;
+
+import com.google.common.primitives.Longs;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import org.apache.pulsar.common.api.proto.KeyValue;
+import org.apache.pulsar.common.api.proto.MessageMetadata;
+
+/**
+ * A predicate over the message metadata of an entry, compiled once from its expression into a tree of closures.
+ *
+ * <p/>Expression grammar, keywords are case-insensitive:
+ * <pre>
+ * expression := and ( OR and )*
+ * and        := not ( AND not )*
+ * not        := NOT not | '(' expression ')' | field condition
+ * condition  := ( '=' | '!=' | '&lt;' | '&lt;=' | '&gt;' | '&gt;=' ) literal
+ *             | IN '(' literal ( ',' literal )* ')'
+ *             | MATCHES string
+ *             | IS [ NOT ] NULL
+ * field      := key | producerName | publishTime | eventTime | sequenceId
+ *             | properties.name | properties[string]
+ * literal    := string | number
+ * string     := a single-quoted string, in which a quote is escaped by doubling it
+ * </pre>
+ *
+ * <p/>The time fields and the sequence id are numbers, they are compared to numbers. The other fields are strings:
+ * they are compared to strings lexicographically, and to numbers numerically when their value is a number.
+ * <tt>MATCHES</tt> matches the whole value against a regular expression. A condition on a field that has no value, or
+ * whose value can't be compared to the literal, is false.
+ *
+ * <p/>For example: <tt>properties.region IN ('eu', 'us') AND NOT key MATCHES 'test-.*'</tt>.
+ *
+ * <p/>The fields are read from the metadata of the entry: the properties of the messages of a batch are not visible.
+ *
+ * <p/>An expression is limited to {@value #MAX_EXPRESSION_LENGTH} characters and {@value #MAX_NESTING_DEPTH} levels
+ * of nested <tt>NOT</tt> and parentheses. <tt>MATCHES</tt> gives up after {@value #MAX_MATCH_STEPS} reads of the
+ * value by the regular expression, and is then false, so that a regular expression with catastrophic backtracking
+ * can't stall the dispatcher.
+ */
+public final class FilterExpression implements Predicate<MessageMetadata> {
+
+    static final int MAX_EXPRESSION_LENGTH = 4096;
+    static final int MAX_NESTING_DEPTH = 32;
+    static final int MAX_MATCH_STEPS = 100_000;
+
+    private final String expression;
+    private final Predicate<MessageMetadata> predicate;
+
+    private FilterExpression(String expression, Predicate<MessageMetadata> predicate) {
+        this.expression = expression;
+        this.predicate = predicate;
+    }
+
+    /**
+     * Compile an expression.
+     *
+     * @throws InvalidEntryFilterException if the expression is invalid
+     */
+    public static FilterExpression compile(String expression) throws InvalidEntryFilterException {
+        if (expression.length() > MAX_EXPRESSION_LENGTH) {
+            throw new InvalidEntryFilterException("Filter expression of " + expression.length()
+                    + " characters is longer than " + MAX_EXPRESSION_LENGTH);
+        }
+        try {
+            return new FilterExpression(expression, new Parser(expression).parse());
+        } catch (RuntimeException | StackOverflowError e) {
+            throw new InvalidEntryFilterException("Failed to compile filter expression '" + expression + "'", e);
+        }
+    }
+
+    @Override
+    public boolean test(MessageMetadata metadata) {
+        return predicate.test(metadata);
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    private static String getProperty(MessageMetadata metadata, String name) {
+        for (int i = 0, n = metadata.getPropertiesCount(); i < n; i++) {
+            KeyValue property = metadata.getPropertyAt(i);
+            if (name.equals(property.getKey())) {
+                return property.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static boolean matches(Pattern pattern, String value) {
+        try {
+            return pattern.matcher(new BoundedCharSequence(value, MAX_MATCH_STEPS)).matches();
+        } catch (MatchStepsExceededException e) {
+            return false;
+        }
+    }
+
+    /**
+     * A string which fails once it was read a maximum number of times, to bound the time spent matching it.
+     */
+    private static final class BoundedCharSequence implements CharSequence {
+        private final String value;
+        private final int offset;
+        private final int length;
+        private final int[] remainingSteps;
+
+        private BoundedCharSequence(String value, int maxSteps) {
+            this(value, 0, value.length(), new int[] {maxSteps});
+        }
+
+        private BoundedCharSequence(String value, int offset, int length, int[] remainingSteps) {
+            this.value = value;
+            this.offset = offset;
+            this.length = length;
+            this.remainingSteps = remainingSteps;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (--remainingSteps[0] < 0) {
+                throw MatchStepsExceededException.INSTANCE;
+            }
+            return value.charAt(offset + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new BoundedCharSequence(value, offset + start, end - start, remainingSteps);
+        }
+
+        @Override
+        public String toString() {
+            return value.substring(offset, offset + length);
+        }
+    }
+
+    private static final class MatchStepsExceededException extends RuntimeException {
+        private static final MatchStepsExceededException INSTANCE = new MatchStepsExceededException();
+
+        private MatchStepsExceededException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * A field of the message metadata, either a string or a number.
+     */
+    private static final class Field {
+        private final String name;
+        private final Function<MessageMetadata, String> stringValue;
+        private final Predicate<MessageMetadata> hasLongValue;
+        private final ToLongFunction<MessageMetadata> longValue;
+
+        private Field(String name, Function<MessageMetadata, String> stringValue) {
+            this.name = name;
+            this.stringValue = stringValue;
+            this.hasLongValue = null;
+            this.longValue = null;
+        }
+
+        private Field(String name, Predicate<MessageMetadata> hasLongValue, ToLongFunction<MessageMetadata> longValue) {
+            this.name = name;
+            this.stringValue = null;
+            this.hasLongValue = hasLongValue;
+            this.longValue = longValue;
+        }
+
+        private boolean isNumber() {
+            return longValue != null;
+        }
+    }
+
+    private enum TokenType {
+        IDENTIFIER, STRING, NUMBER, SYMBOL, END
+    }
+
+    private record Token(TokenType type, String text, int position) {
+        boolean is(String symbolOrKeyword) {
+            return (type == TokenType.SYMBOL || type == TokenType.IDENTIFIER)
+                    && text.equalsIgnoreCase(symbolOrKeyword);
+        }
+    }
+
+    /**
+     * Recursive descent parser which compiles the expression while parsing it.
+     */
+    private static final class Parser {
+        private static final String PROPERTIES = "properties";
+
+        private final String expression;
+        private final List<Token> tokens;
+        private int index;
+        private int depth;
+
+        private Parser(String expression) throws InvalidEntryFilterException {
+            this.expression = expression;
+            this.tokens = tokenize(expression);
+        }
+
+        Predicate<MessageMetadata> parse() throws InvalidEntryFilterException {
+            Predicate<MessageMetadata> predicate = parseOr();
+            if (peek().type() != TokenType.END) {
+                throw error("Unexpected '" + peek().text() + "'", peek());
+            }
+            return predicate;
+        }
+
+        // the operands of a chain of OR or AND are evaluated in a loop, so that a long chain doesn't nest closures
+        private Predicate<MessageMetadata> parseOr() throws InvalidEntryFilterException {
+            List<Predicate<MessageMetadata>> operands = new ArrayList<>();
+            operands.add(parseAnd());
+            while (peek().is("OR")) {
+                next();
+                operands.add(parseAnd());
+            }
+            if (operands.size() == 1) {
+                return operands.get(0);
+            }
+            Predicate<MessageMetadata>[] predicates = toArray(operands);
+            return metadata -> {
+                for (Predicate<MessageMetadata> predicate : predicates) {
+                    if (predicate.test(metadata)) {
+                        return true;
+                    }
+                }
+                return false;
+            };
+        }
+
+        private Predicate<MessageMetadata> parseAnd() throws InvalidEntryFilterException {
+            List<Predicate<MessageMetadata>> operands = new ArrayList<>();
+            operands.add(parseNot());
+            while (peek().is("AND")) {
+                next();
+                operands.add(parseNot());
+            }
+            if (operands.size() == 1) {
+                return operands.get(0);
+            }
+            Predicate<MessageMetadata>[] predicates = toArray(operands);
+            return metadata -> {
+                for (Predicate<MessageMetadata> predicate : predicates) {
+                    if (!predicate.test(metadata)) {
+                        return false;
+                    }
+                }
+                return true;
+            };
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Predicate<MessageMetadata>[] toArray(List<Predicate<MessageMetadata>> predicates) {
+            return predicates.toArray(new Predicate[0]);
+        }
+
+        private Predicate<MessageMetadata> parseNot() throws InvalidEntryFilterException {
+            if (peek().is("NOT") || peek().is("(")) {
+                if (++depth > MAX_NESTING_DEPTH) {
+                    throw error("More than " + MAX_NESTING_DEPTH + " nested levels", peek());
+                }
+                try {
+                    if (next().is("NOT")) {
+                        Predicate<MessageMetadata> predicate = parseNot();
+                        return metadata -> !predicate.test(metadata);
+                    }
+                    Predicate<MessageMetadata> predicate = parseOr();
+                    expect(")");
+                    return predicate;
+                } finally {
+                    depth--;
+                }
+            }
+            return parseCondition(parseField());
+        }
+
+        private Field parseField() throws InvalidEntryFilterException {
+            Token token = next();
+            if (token.type() != TokenType.IDENTIFIER) {
+                throw error("Expected a field but got '" + token.text() + "'", token);
+            }
+            String name = token.text();
+            switch (name.toLowerCase(Locale.ROOT)) {
+                case "key":
+                    return new Field(name, metadata -> metadata.hasPartitionKey() ? metadata.getPartitionKey() : null);
+                case "producername":
+                    return new Field(name, metadata -> metadata.hasProducerName() ? metadata.getProducerName() : null);
+                case "publishtime":
+                    return new Field(name, MessageMetadata::hasPublishTime, MessageMetadata::getPublishTime);
+                case "eventtime":
+                    return new Field(name, metadata -> metadata.hasEventTime() && metadata.getEventTime() != 0,
+                            MessageMetadata::getEventTime);
+                case "sequenceid":
+                    return new Field(name, MessageMetadata::hasSequenceId, MessageMetadata::getSequenceId);
+                case PROPERTIES:
+                    expect("[");
+                    Token propertyName = next();
+                    if (propertyName.type() != TokenType.STRING) {
+                        throw error("Expected a property name but got '" + propertyName.text() + "'", propertyName);
+                    }
+                    expect("]");
+                    return propertyField(propertyName.text());
+                default:
+                    if (name.regionMatches(true, 0, PROPERTIES + ".", 0, PROPERTIES.length() + 1)
+                            && name.length() > PROPERTIES.length() + 1) {
+                        return propertyField(name.substring(PROPERTIES.length() + 1));
+                    }
+                    throw error("Unknown field '" + name + "'", token);
+            }
+        }
+
+        private static Field propertyField(String propertyName) {
+            return new Field(PROPERTIES + "." + propertyName, metadata -> getProperty(metadata, propertyName));
+        }
+
+        private Predicate<MessageMetadata> parseCondition(Field field) throws InvalidEntryFilterException {
+            Token token = next();
+            if (token.is("IS")) {
+                boolean not = peek().is("NOT");
+                if (not) {
+                    next();
+                }
+                expect("NULL");
+                Predicate<MessageMetadata> hasValue = field.isNumber() ? field.hasLongValue
+                        : metadata -> field.stringValue.apply(metadata) != null;
+                return not ? hasValue : hasValue.negate();
+            }
+            if (token.is("IN")) {
+                expect("(");
+                List<Token> literals = new ArrayList<>();
+                literals.add(nextLiteral());
+                while (peek().is(",")) {
+                    next();
+                    literals.add(nextLiteral());
+                }
+                expect(")");
+                return in(field, literals);
+            }
+            if (token.is("MATCHES")) {
+                Token regex = next();
+                if (regex.type() != TokenType.STRING || field.isNumber()) {
+                    throw error("MATCHES expects a string field and a string regular expression", regex);
+                }
+                final Pattern pattern;
+                try {
+                    pattern = Pattern.compile(regex.text());
+                } catch (PatternSyntaxException e) {
+                    throw error("Invalid regular expression '" + regex.text() + "'", regex);
+                }
+                return metadata -> {
+                    String value = field.stringValue.apply(metadata);
+                    return value != null && matches(pattern, value);
+                };
+            }
+            final IntPredicate comparison;
+            switch (token.type() == TokenType.SYMBOL ? token.text() : "") {
+                case "=" -> comparison = c -> c == 0;
+                case "!=", "<>" -> comparison = c -> c != 0;
+                case "<" -> comparison = c -> c < 0;
+                case "<=" -> comparison = c -> c <= 0;
+                case ">" -> comparison = c -> c > 0;
+                case ">=" -> comparison = c -> c >= 0;
+                default -> throw error("Expected a condition on " + field.name + " but got '" + token.text() + "'",
+                        token);
+            }
+            return compare(field, token.text(), comparison, nextLiteral());
+        }
+
+        private Predicate<MessageMetadata> compare(Field field, String operator, IntPredicate comparison,
+                                                   Token literal) throws InvalidEntryFilterException {
+            if (literal.type() == TokenType.NUMBER) {
+                long number = Long.parseLong(literal.text());
+                if (field.isNumber()) {
+                    return metadata -> field.hasLongValue.test(metadata)
+                            && comparison.test(Long.compare(field.longValue.applyAsLong(metadata), number));
+                }
+                return metadata -> {
+                    Long value = parseLong(field.stringValue.apply(metadata));
+                    return value != null && comparison.test(Long.compare(value, number));
+                };
+            }
+            if (field.isNumber()) {
+                throw error("Field " + field.name + " is a number and can't be compared to a string", literal);
+            }
+            String string = literal.text();
+            if (operator.equals("=")) {
+                return metadata -> string.equals(field.stringValue.apply(metadata));
+            }
+            return metadata -> {
+                String value = field.stringValue.apply(metadata);
+                return value != null && comparison.test(value.compareTo(string));
+            };
+        }
+
+        private Predicate<MessageMetadata> in(Field field, List<Token> literals) throws InvalidEntryFilterException {
+            if (field.isNumber()) {
+                long[] numbers = new long[literals.size()];
+                for (int i = 0; i < numbers.length; i++) {
+                    if (literals.get(i).type() != TokenType.NUMBER) {
+                        throw error("Field " + field.name + " is a number and can't be compared to a string",
+                                literals.get(i));
+                    }
+                    numbers[i] = Long.parseLong(literals.get(i).text());
+                }
+                Arrays.sort(numbers);
+                LongPredicate contains = value -> Arrays.binarySearch(numbers, value) >= 0;
+                return metadata -> field.hasLongValue.test(metadata)
+                        && contains.test(field.longValue.applyAsLong(metadata));
+            }
+            Set<String> strings = new HashSet<>();
+            for (Token literal : literals) {
+                // numbers are matched as the string of their digits
+                strings.add(literal.text());
+            }
+            return metadata -> {
+                String value = field.stringValue.apply(metadata);
+                return value != null && strings.contains(value);
+            };
+        }
+
+        private static Long parseLong(String value) {
+            return value == null ? null : Longs.tryParse(value);
+        }
+
+        private Token nextLiteral() throws InvalidEntryFilterException {
+            Token token = next();
+            if (token.type() != TokenType.STRING && token.type() != TokenType.NUMBER) {
+                throw error("Expected a string or a number but got '" + token.text() + "'", token);
+            }
+            return token;
+        }
+
+        private void expect(String symbolOrKeyword) throws InvalidEntryFilterException {
+            Token token = next();
+            if (!token.is(symbolOrKeyword)) {
+                throw error("Expected '" + symbolOrKeyword + "' but got '" + token.text() + "'", token);
+            }
+        }
+
+        private Token peek() {
+            return tokens.get(index);
+        }
+
+        private Token next() {
+            Token token = tokens.get(index);
+            if (token.type() != TokenType.END) {
+                index++;
+            }
+            return token;
+        }
+
+        private InvalidEntryFilterException error(String message, Token token) {
+            return error(message, token.position());
+        }
+
+        private InvalidEntryFilterException error(String message, int position) {
+            return new InvalidEntryFilterException(message + " at position " + position + " of filter expression '"
+                    + expression + "'");
+        }
+
+        private List<Token> tokenize(String expression) throws InvalidEntryFilterException {
+            List<Token> tokens = new ArrayList<>();
+            int i = 0;
+            int length = expression.length();
+            while (i < length) {
+                char c = expression.charAt(i);
+                int start = i;
+                if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (c == '\'') {
+                    StringBuilder string = new StringBuilder();
+                    i++;
+                    while (true) {
+                        if (i == length) {
+                            throw error("Unterminated string", start);
+                        }
+                        char s = expression.charAt(i++);
+                        if (s == '\'') {
+                            if (i < length && expression.charAt(i) == '\'') {
+                                i++;
+                            } else {
+                                break;
+                            }
+                        }
+                        string.append(s);
+                    }
+                    tokens.add(new Token(TokenType.STRING, string.toString(), start));
+                } else if (Character.isDigit(c)
+                        || (c == '-' && i + 1 < length && Character.isDigit(expression.charAt(i + 1)))) {
+                    i++;
+                    while (i < length && Character.isDigit(expression.charAt(i))) {
+                        i++;
+                    }
+                    String number = expression.substring(start, i);
+                    if (Longs.tryParse(number) == null) {
+                        throw error("Invalid number " + number, start);
+                    }
+                    tokens.add(new Token(TokenType.NUMBER, number, start));
+                } else if (Character.isLetter(c) || c == '_') {
+                    while (i < length && (Character.isLetterOrDigit(expression.charAt(i))
+                            || "_.-".indexOf(expression.charAt(i)) >= 0)) {
+                        i++;
+                    }
+                    tokens.add(new Token(TokenType.IDENTIFIER, expression.substring(start, i), start));
+                } else if ("<>!".indexOf(c) >= 0) {
+                    i++;
+                    if (i < length && (expression.charAt(i) == '=' || (c == '<' && expression.charAt(i) == '>'))) {
+                        i++;
+                    }
+                    String symbol = expression.substring(start, i);
+                    if (symbol.equals("!")) {
+                        throw error("Unexpected '!'", start);
+                    }
+                    tokens.add(new Token(TokenType.SYMBOL, symbol, start));
+                } else if ("=()[],".indexOf(c) >= 0) {
+                    i++;
+                    tokens.add(new Token(TokenType.SYMBOL, String.valueOf(c), start));
+                } else {
+                    throw error("Unexpected character '" + c + "'", start);
+                }
+            }
+            tokens.add(new Token(TokenType.END, "end of expression", length));
+            return tokens;
+        }
+    }
+}
@@ -53,6 +53,16 @@ public class ManagedLedgerCacheMetrics extends AbstractMetrics {
         m.put("brk_ml_cache_misses_rate", mlCacheStats.getCacheMissesRate());
         m.put("brk_ml_cache_hits_throughput", mlCacheStats.getCacheHitsThroughput());
         m.put("brk_ml_cache_misses_throughput", mlCacheStats.getCacheMissesThroughput());
+        m.put("brk_ml_cache_local_disk_hits_rate", mlCacheStats.getLocalDiskCacheHitsRate());
+        m.put("brk_ml_cache_local_disk_misses_rate", mlCacheStats.getLocalDiskCacheMissesRate());
+        m.put("brk_ml_cache_local_disk_hits_total", mlCacheStats.getLocalDiskCacheHitsTotal());
+        m.put("brk_ml_cache_local_disk_hits_bytes_total", mlCacheStats.getLocalDiskCacheHitsBytesTotal());
+        m.put("brk_ml_cache_local_disk_misses_total", mlCacheStats.getLocalDiskCacheMissesTotal());
+        m.put("brk_ml_ledger_deletions_rate", mlCacheStats.getLedgerDeletionsRate());
+        m.put("brk_ml_ledger_deletions_throughput", mlCacheStats.getLedgerDeletionsThroughput());
+        m.put("brk_ml_ledger_deletions_total", mlCacheStats.getLedgerDeletionsTotal());
+        m.put("brk_ml_ledger_deletion_failures_total", mlCacheStats.getLedgerDeletionFailuresTotal());
+        m.put("brk_ml_ledger_deletions_pending", mlCacheStats.getPendingLedgerDeletions());
 
         var allocatorStats = new PooledByteBufAllocatorStats(RangeEntryCacheImpl.ALLOCATOR);
         m.put("brk_ml_cache_pool_allocated", allocatorStats.totalAllocated);
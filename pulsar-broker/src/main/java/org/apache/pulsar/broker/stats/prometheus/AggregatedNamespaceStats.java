@@ -154,6 +154,10 @@ public class AggregatedNamespaceStats {
             subsStats.filterAcceptedMsgCount += as.filterAcceptedMsgCount;
             subsStats.filterRejectedMsgCount += as.filterRejectedMsgCount;
             subsStats.filterRescheduledMsgCount += as.filterRescheduledMsgCount;
+            // the read batch size is a gauge, the largest one of the subscription is reported
+            subsStats.readBatchSize = Math.max(subsStats.readBatchSize, as.readBatchSize);
+            subsStats.readBatchSizeIncreasedCount += as.readBatchSizeIncreasedCount;
+            subsStats.readBatchSizeDecreasedCount += as.readBatchSizeDecreasedCount;
             subsStats.dispatchThrottledMsgEventsBySubscriptionLimit += as.dispatchThrottledMsgEventsBySubscriptionLimit;
             subsStats.dispatchThrottledBytesEventsBySubscriptionLimit +=
                     as.dispatchThrottledBytesEventsBySubscriptionLimit;
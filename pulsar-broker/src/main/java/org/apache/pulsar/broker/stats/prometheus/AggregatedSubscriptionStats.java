@@ -75,6 +75,12 @@ public class AggregatedSubscriptionStats {
 
     long filterRescheduledMsgCount;
 
+    long readBatchSize;
+
+    long readBatchSizeIncreasedCount;
+
+    long readBatchSizeDecreasedCount;
+
     /** total number of times message dispatching was throttled on a subscription due to broker rate limits. */
     long dispatchThrottledMsgEventsBySubscriptionLimit;
 
@@ -159,6 +159,9 @@ public class NamespaceStatsAggregator {
         subsStats.filterAcceptedMsgCount = subscriptionStats.filterAcceptedMsgCount;
         subsStats.filterRejectedMsgCount = subscriptionStats.filterRejectedMsgCount;
         subsStats.filterRescheduledMsgCount = subscriptionStats.filterRescheduledMsgCount;
+        subsStats.readBatchSize = subscriptionStats.readBatchSize;
+        subsStats.readBatchSizeIncreasedCount = subscriptionStats.readBatchSizeIncreasedCount;
+        subsStats.readBatchSizeDecreasedCount = subscriptionStats.readBatchSizeDecreasedCount;
         subsStats.delayedMessageIndexSizeInBytes = subscriptionStats.delayedMessageIndexSizeInBytes;
         subsStats.bucketDelayedIndexStats = subscriptionStats.bucketDelayedIndexStats;
         subsStats.dispatchThrottledMsgEventsBySubscriptionLimit =
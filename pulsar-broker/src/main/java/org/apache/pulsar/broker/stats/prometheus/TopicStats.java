@@ -363,6 +363,14 @@ class TopicStats {
             writeSubscriptionMetric(stream, "pulsar_subscription_delayed_message_index_size_bytes",
                     subsStats.delayedMessageIndexSizeInBytes, cluster, namespace, topic, sub,
                     splitTopicAndPartitionIndexLabel);
+            writeSubscriptionMetric(stream, "pulsar_subscription_dispatcher_read_batch_size",
+                    subsStats.readBatchSize, cluster, namespace, topic, sub, splitTopicAndPartitionIndexLabel);
+            writeSubscriptionMetric(stream, "pulsar_subscription_dispatcher_read_batch_size_increased_count",
+                    subsStats.readBatchSizeIncreasedCount, cluster, namespace, topic, sub,
+                    splitTopicAndPartitionIndexLabel);
+            writeSubscriptionMetric(stream, "pulsar_subscription_dispatcher_read_batch_size_decreased_count",
+                    subsStats.readBatchSizeDecreasedCount, cluster, namespace, topic, sub,
+                    splitTopicAndPartitionIndexLabel);
 
             // write dispatch throttling metrics with `reason` labels to identify specific throttling
             // causes: by subscription limit, by topic limit, or by broker limit.
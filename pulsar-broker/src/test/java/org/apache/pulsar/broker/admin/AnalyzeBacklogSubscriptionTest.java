@@ -66,6 +66,17 @@ public class AnalyzeBacklogSubscriptionTest extends ProducerConsumerBase {
         simpleAnalyzeBacklogTest(true);
     }
 
+    @Test
+    public void analyzeBacklogScanningLedgersInParallelTest() throws Exception {
+        restartBroker(conf -> {
+            conf.setManagedLedgerMaxEntriesPerLedger(3);
+            conf.setManagedLedgerMinLedgerRolloverTimeMinutes(0);
+            conf.setSubscriptionBacklogScanMaxParallelism(4);
+        });
+        simpleAnalyzeBacklogTest(false);
+        simpleAnalyzeBacklogTest(true);
+    }
+
     private void simpleAnalyzeBacklogTest(boolean batching) throws Exception {
         int numMessages = 20;
         int batchSize = batching ? 5 : 1;
@@ -21,16 +21,28 @@ package org.apache.pulsar.broker.service;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.apache.pulsar.common.protocol.Commands.serializeMetadataAndPayload;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
 import org.apache.bookkeeper.mledger.Entry;
 import org.apache.bookkeeper.mledger.ManagedCursor;
 import org.apache.bookkeeper.mledger.Position;
@@ -50,6 +62,7 @@ import org.apache.pulsar.common.api.proto.MarkerType;
 import org.apache.pulsar.common.api.proto.MessageMetadata;
 import org.apache.pulsar.common.protocol.Commands;
 import org.apache.pulsar.common.protocol.Markers;
+import org.awaitility.Awaitility;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -124,6 +137,261 @@ public class AbstractBaseDispatcherTest {
         verify(subscriptionDispatchRateLimiter).consumeDispatchQuota(1, expectedBytePermits);
     }
 
+    @Test
+    public void testEntryFilterCannotModifySharedMetadata() throws Exception {
+        Topic mockTopic = mock(Topic.class);
+        when(this.subscriptionMock.getTopic()).thenReturn(mockTopic);
+
+        final EntryFilterProvider entryFilterProvider = mock(EntryFilterProvider.class);
+        final ServiceConfiguration serviceConfiguration = mock(ServiceConfiguration.class);
+        when(serviceConfiguration.isAllowOverrideEntryFilters()).thenReturn(true);
+        final PulsarService pulsar = mock(PulsarService.class);
+        when(pulsar.getConfiguration()).thenReturn(serviceConfiguration);
+        BrokerService mockBrokerService = mock(BrokerService.class);
+        when(mockBrokerService.pulsar()).thenReturn(pulsar);
+        when(mockBrokerService.getEntryFilterProvider()).thenReturn(entryFilterProvider);
+        when(mockTopic.getBrokerService()).thenReturn(mockBrokerService);
+        EntryFilter modifyingFilter = newEntryFilter((entry, context) -> {
+            context.getMsgMetadata().setProducerName("modified");
+            return EntryFilter.FilterResult.ACCEPT;
+        });
+        when(mockTopic.getEntryFilters()).thenReturn(List.of(modifyingFilter));
+
+        this.helper = new AbstractBaseDispatcherTestHelper(this.subscriptionMock, this.svcConfig, null);
+
+        List<Entry> entries = new ArrayList<>();
+        ByteBuf message = createMessage("message1", 1);
+        EntryImpl entry = EntryImpl.create(1, 2, message);
+        message.release();
+        entries.add(entry);
+        SendMessageInfo sendMessageInfo = SendMessageInfo.getThreadLocal();
+        EntryBatchSizes batchSizes = EntryBatchSizes.get(entries.size());
+
+        try {
+            int size = this.helper.filterEntriesForConsumer(entries, batchSizes, sendMessageInfo,
+                    null, mock(ManagedCursor.class), false, null);
+            assertEquals(size, 1);
+            // the metadata attached to the entry is shared with the other subscriptions, the filter got a copy
+            assertEquals(entry.getMessageMetadata().getProducerName(), "testProducer");
+        } finally {
+            entry.release();
+        }
+    }
+
+    @Test
+    public void testFilterEntriesForConsumerOfEntryFiltersOnExecutor() throws Exception {
+        Topic mockTopic = mock(Topic.class);
+        when(this.subscriptionMock.getTopic()).thenReturn(mockTopic);
+
+        final ExecutorService filterExecutor = Executors.newFixedThreadPool(2,
+                new DefaultThreadFactory("pulsar-entry-filter"));
+        final EntryFilterProvider entryFilterProvider = mock(EntryFilterProvider.class);
+        when(entryFilterProvider.getFilterExecutor()).thenReturn(filterExecutor);
+        final ServiceConfiguration serviceConfiguration = mock(ServiceConfiguration.class);
+        when(serviceConfiguration.isAllowOverrideEntryFilters()).thenReturn(true);
+        when(serviceConfiguration.getEntryFiltersMaxParallelismPerReadBatch()).thenReturn(4);
+        when(serviceConfiguration.getEntryFiltersExecutorTimeoutMillis()).thenReturn(30000L);
+        final PulsarService pulsar = mock(PulsarService.class);
+        when(pulsar.getConfiguration()).thenReturn(serviceConfiguration);
+        BrokerService mockBrokerService = mock(BrokerService.class);
+        when(mockBrokerService.pulsar()).thenReturn(pulsar);
+        when(mockBrokerService.getPulsar()).thenReturn(pulsar);
+        when(mockBrokerService.getEntryFilterProvider()).thenReturn(entryFilterProvider);
+        when(mockTopic.getBrokerService()).thenReturn(mockBrokerService);
+        final ScheduledExecutorService brokerExecutor = mock(ScheduledExecutorService.class);
+        when(pulsar.getExecutor()).thenReturn(brokerExecutor);
+
+        // the first filter rejects the even entries, the second one reschedules the multiples of 3
+        final Set<String> filterThreads = ConcurrentHashMap.newKeySet();
+        final Set<Long> filteredEntryIds = ConcurrentHashMap.newKeySet();
+        EntryFilter rejectFilter = newEntryFilter((entry, context) -> {
+            filterThreads.add(Thread.currentThread().getName());
+            assertEquals(context.getMsgMetadata().getProducerName(), "testProducer");
+            return entry.getEntryId() % 2 == 0 ? EntryFilter.FilterResult.REJECT : EntryFilter.FilterResult.ACCEPT;
+        });
+        EntryFilter rescheduleFilter = newEntryFilter((entry, context) -> {
+            filteredEntryIds.add(entry.getEntryId());
+            return entry.getEntryId() % 3 == 0
+                    ? EntryFilter.FilterResult.RESCHEDULE : EntryFilter.FilterResult.ACCEPT;
+        });
+        when(mockTopic.getEntryFilters()).thenReturn(List.of(rejectFilter, rescheduleFilter));
+
+        this.helper = new AbstractBaseDispatcherTestHelper(this.subscriptionMock, this.svcConfig, null);
+
+        List<Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            ByteBuf message = createMessage("message" + i, i);
+            entries.add(EntryImpl.create(1, i, message));
+            message.release();
+        }
+        SendMessageInfo sendMessageInfo = SendMessageInfo.getThreadLocal();
+        EntryBatchSizes batchSizes = EntryBatchSizes.get(entries.size());
+
+        try {
+            int size = this.helper.filterEntriesForConsumer(entries, batchSizes, sendMessageInfo,
+                    null, mock(ManagedCursor.class), false, null);
+            // the odd entries which aren't multiples of 3
+            assertEquals(size, 21);
+            for (int i = 0; i < entries.size(); i++) {
+                assertEquals(entries.get(i) != null, i % 2 != 0 && i % 3 != 0);
+                // the second filter only evaluates the entries accepted by the first one
+                assertEquals(filteredEntryIds.contains((long) i), i % 2 != 0);
+            }
+            assertTrue(filterThreads.stream().anyMatch(name -> name.startsWith("pulsar-entry-filter")));
+            // the rescheduled entries are redelivered later
+            verify(brokerExecutor).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+        } finally {
+            filterExecutor.shutdown();
+        }
+    }
+
+    @Test
+    public void testEntryFiltersNotSupportingConcurrentBatchesAreSerialized() throws Exception {
+        Topic mockTopic = mock(Topic.class);
+        when(this.subscriptionMock.getTopic()).thenReturn(mockTopic);
+
+        final ExecutorService filterExecutor = Executors.newFixedThreadPool(4,
+                new DefaultThreadFactory("pulsar-entry-filter"));
+        final EntryFilterProvider entryFilterProvider = mock(EntryFilterProvider.class);
+        when(entryFilterProvider.getFilterExecutor()).thenReturn(filterExecutor);
+        final ServiceConfiguration serviceConfiguration = mock(ServiceConfiguration.class);
+        when(serviceConfiguration.isAllowOverrideEntryFilters()).thenReturn(true);
+        when(serviceConfiguration.getEntryFiltersMaxParallelismPerReadBatch()).thenReturn(4);
+        when(serviceConfiguration.getEntryFiltersExecutorTimeoutMillis()).thenReturn(30000L);
+        final PulsarService pulsar = mock(PulsarService.class);
+        when(pulsar.getConfiguration()).thenReturn(serviceConfiguration);
+        BrokerService mockBrokerService = mock(BrokerService.class);
+        when(mockBrokerService.pulsar()).thenReturn(pulsar);
+        when(mockBrokerService.getPulsar()).thenReturn(pulsar);
+        when(mockBrokerService.getEntryFilterProvider()).thenReturn(entryFilterProvider);
+        when(mockTopic.getBrokerService()).thenReturn(mockBrokerService);
+
+        // the filter doesn't support concurrent batches, the tasks of the read batch call it one at a time
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        EntryFilter serialFilter = new EntryFilter() {
+            @Override
+            public List<FilterResult> filterEntries(List<Entry> entries, List<FilterContext> contexts) {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                return EntryFilter.super.filterEntries(entries, contexts);
+            }
+
+            @Override
+            public FilterResult filterEntry(Entry entry, FilterContext context) {
+                return FilterResult.ACCEPT;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        when(mockTopic.getEntryFilters()).thenReturn(List.of(serialFilter));
+
+        this.helper = new AbstractBaseDispatcherTestHelper(this.subscriptionMock, this.svcConfig, null);
+
+        List<Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            ByteBuf message = createMessage("message" + i, i);
+            entries.add(EntryImpl.create(1, i, message));
+            message.release();
+        }
+        SendMessageInfo sendMessageInfo = SendMessageInfo.getThreadLocal();
+        EntryBatchSizes batchSizes = EntryBatchSizes.get(entries.size());
+
+        try {
+            int size = this.helper.filterEntriesForConsumer(entries, batchSizes, sendMessageInfo,
+                    null, mock(ManagedCursor.class), false, null);
+            assertEquals(size, 64);
+            assertEquals(maxRunning.get(), 1);
+        } finally {
+            entries.forEach(Entry::release);
+            filterExecutor.shutdown();
+        }
+    }
+
+    @Test
+    public void testFilterEntriesForConsumerOfEntryFiltersOnExecutorTimeout() throws Exception {
+        Topic mockTopic = mock(Topic.class);
+        when(this.subscriptionMock.getTopic()).thenReturn(mockTopic);
+
+        final ExecutorService filterExecutor = Executors.newSingleThreadExecutor(
+                new DefaultThreadFactory("pulsar-entry-filter"));
+        final EntryFilterProvider entryFilterProvider = mock(EntryFilterProvider.class);
+        when(entryFilterProvider.getFilterExecutor()).thenReturn(filterExecutor);
+        final ServiceConfiguration serviceConfiguration = mock(ServiceConfiguration.class);
+        when(serviceConfiguration.isAllowOverrideEntryFilters()).thenReturn(true);
+        when(serviceConfiguration.getEntryFiltersMaxParallelismPerReadBatch()).thenReturn(2);
+        when(serviceConfiguration.getEntryFiltersExecutorTimeoutMillis()).thenReturn(100L);
+        final PulsarService pulsar = mock(PulsarService.class);
+        when(pulsar.getConfiguration()).thenReturn(serviceConfiguration);
+        BrokerService mockBrokerService = mock(BrokerService.class);
+        when(mockBrokerService.pulsar()).thenReturn(pulsar);
+        when(mockBrokerService.getPulsar()).thenReturn(pulsar);
+        when(mockBrokerService.getEntryFilterProvider()).thenReturn(entryFilterProvider);
+        when(mockTopic.getBrokerService()).thenReturn(mockBrokerService);
+        when(pulsar.getExecutor()).thenReturn(mock(ScheduledExecutorService.class));
+
+        // the filter blocks on the executor, the dispatcher thread waits for the executor to start its task
+        final CountDownLatch executorStarted = new CountDownLatch(1);
+        final CountDownLatch unblock = new CountDownLatch(1);
+        EntryFilter blockingFilter = newEntryFilter((entry, context) -> {
+            try {
+                if (Thread.currentThread().getName().startsWith("pulsar-entry-filter")) {
+                    executorStarted.countDown();
+                    unblock.await();
+                } else {
+                    executorStarted.await(10, TimeUnit.SECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return EntryFilter.FilterResult.ACCEPT;
+        });
+        when(mockTopic.getEntryFilters()).thenReturn(List.of(blockingFilter));
+
+        this.helper = new AbstractBaseDispatcherTestHelper(this.subscriptionMock, this.svcConfig, null);
+
+        List<Entry> entries = new ArrayList<>();
+        List<ByteBuf> buffers = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            ByteBuf message = createMessage("message" + i, i);
+            entries.add(EntryImpl.create(1, i, message));
+            buffers.add(entries.get(i).getDataBuffer());
+            message.release();
+        }
+        SendMessageInfo sendMessageInfo = SendMessageInfo.getThreadLocal();
+        EntryBatchSizes batchSizes = EntryBatchSizes.get(entries.size());
+
+        try {
+            int size = this.helper.filterEntriesForConsumer(entries, batchSizes, sendMessageInfo,
+                    null, mock(ManagedCursor.class), false, null);
+            // the entries of the task which timed out are rescheduled
+            assertEquals(size, 16);
+            for (int i = 0; i < entries.size(); i++) {
+                assertEquals(entries.get(i) != null, i >= 16);
+            }
+            // their data stays retained by the task until it completes
+            for (int i = 0; i < 16; i++) {
+                assertTrue(buffers.get(i).refCnt() > 0);
+            }
+            unblock.countDown();
+            Awaitility.await().untilAsserted(() -> {
+                for (int i = 0; i < 16; i++) {
+                    assertEquals(buffers.get(i).refCnt(), 0);
+                }
+            });
+        } finally {
+            unblock.countDown();
+            filterExecutor.shutdown();
+        }
+    }
+
     @Test
     public void testFilterEntriesForConsumerOfTxnMsgAbort() {
         List<Entry> entries = new ArrayList<>();
@@ -182,6 +450,19 @@ public class AbstractBaseDispatcherTest {
         assertEquals(size, 0);
     }
 
+    private static EntryFilter newEntryFilter(BiFunction<Entry, FilterContext, EntryFilter.FilterResult> filter) {
+        return new EntryFilter() {
+            @Override
+            public FilterResult filterEntry(Entry entry, FilterContext context) {
+                return filter.apply(entry, context);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
     private ByteBuf createMessage(String message, int sequenceId) {
         MessageMetadata messageMetadata = new MessageMetadata()
                 .setSequenceId(sequenceId)
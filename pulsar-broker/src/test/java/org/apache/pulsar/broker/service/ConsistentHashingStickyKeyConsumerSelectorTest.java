@@ -621,6 +621,36 @@ public class ConsistentHashingStickyKeyConsumerSelectorTest {
         return res;
     }
 
+    @Test
+    public void testSelectMatchesHashRangesAfterConsumersAreAddedAndRemoved() {
+        ConsistentHashingStickyKeyConsumerSelector selector = new ConsistentHashingStickyKeyConsumerSelector(100);
+        Assert.assertNull(selector.select(0));
+        List<Consumer> consumers = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Consumer consumer = createMockConsumer("consumer" + i, "index " + i, i);
+            selector.addConsumer(consumer);
+            consumers.add(consumer);
+        }
+        assertSelectMatchesHashRanges(selector);
+        for (int i = 0; i < consumers.size(); i += 2) {
+            selector.removeConsumer(consumers.get(i));
+        }
+        assertSelectMatchesHashRanges(selector);
+        for (int i = 1; i < consumers.size(); i += 2) {
+            selector.removeConsumer(consumers.get(i));
+        }
+        Assert.assertNull(selector.select(0));
+    }
+
+    private static void assertSelectMatchesHashRanges(ConsistentHashingStickyKeyConsumerSelector selector) {
+        for (Map.Entry<Consumer, List<Range>> entry : selector.getConsumerKeyHashRanges().entrySet()) {
+            for (Range range : entry.getValue()) {
+                Assert.assertSame(selector.select(range.getStart()), entry.getKey());
+                Assert.assertSame(selector.select(range.getEnd()), entry.getKey());
+            }
+        }
+    }
+
     @Test(enabled = false)
     public void testPerformanceOfAdding1000ConsumersWith100Points() {
         // test that adding 1000 consumers with 100 points runs in a reasonable time.
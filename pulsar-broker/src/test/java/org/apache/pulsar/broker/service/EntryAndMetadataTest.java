@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.service;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertSame;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.apache.bookkeeper.mledger.impl.EntryImpl;
+import org.apache.pulsar.common.api.proto.MessageMetadata;
+import org.apache.pulsar.common.protocol.Commands;
+import org.testng.annotations.Test;
+
+@Test(groups = "broker")
+public class EntryAndMetadataTest {
+
+    @Test
+    public void testMessageMetadataParsedOncePerEntry() {
+        MessageMetadata metadata = new MessageMetadata().setProducerName("producer").setSequenceId(1L)
+                .setPublishTime(0L).setNumMessagesInBatch(3);
+        ByteBuf data = Commands.serializeMetadataAndPayload(Commands.ChecksumType.Crc32c, metadata,
+                Unpooled.wrappedBuffer(new byte[10]));
+        int readerIndex = data.readerIndex();
+        EntryImpl cachedEntry = EntryImpl.create(0L, 0L, data);
+        data.release();
+        EntryImpl entry = EntryImpl.create(cachedEntry);
+        EntryImpl otherEntry = EntryImpl.create(cachedEntry);
+
+        MessageMetadata parsed = EntryAndMetadata.peekAndCopyMessageMetadata(entry, "sub");
+        assertNotNull(parsed);
+        assertEquals(parsed.getProducerName(), "producer");
+        assertEquals(parsed.getNumMessagesInBatch(), 3);
+        assertEquals(entry.getDataBuffer().readerIndex(), readerIndex);
+
+        // the metadata is attached to the entry and to the entries copied from it afterwards
+        assertSame(EntryAndMetadata.peekAndCopyMessageMetadata(entry, "sub"), parsed);
+        assertSame(EntryAndMetadata.create(entry).getMetadata(), parsed);
+
+        EntryImpl copiedEntry = EntryImpl.create(entry);
+        assertSame(EntryAndMetadata.peekAndCopyMessageMetadata(copiedEntry, "sub"), parsed);
+        assertNotNull(EntryAndMetadata.peekAndCopyMessageMetadata(otherEntry, "sub"));
+
+        copiedEntry.release();
+        otherEntry.release();
+        entry.release();
+        cachedEntry.release();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.service.persistent;
+
+import static org.testng.Assert.assertEquals;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.pulsar.broker.ServiceConfiguration;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = "broker")
+public class AdaptiveReadSizeControllerTest {
+
+    private ServiceConfiguration config;
+    private AtomicLong clock;
+    private AdaptiveReadSizeController controller;
+
+    @BeforeMethod
+    public void setup() {
+        config = new ServiceConfiguration();
+        config.setDispatcherMinReadBatchSize(1);
+        config.setDispatcherMaxReadBatchSize(100);
+        config.setDispatcherMaxReadSizeBytes(1024 * 1024);
+        config.setDispatcherAdaptiveReadTargetIntervalMs(100);
+        clock = new AtomicLong(TimeUnit.SECONDS.toNanos(1));
+        controller = new AdaptiveReadSizeController(config, clock::get);
+    }
+
+    private void readAndDispatch(int entries, long heldMillis, int entriesProcessed) {
+        long readCompleteNanos = controller.onReadComplete(entries, entries * 1000L);
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(heldMillis));
+        controller.onEntriesWritten(readCompleteNanos, entriesProcessed);
+    }
+
+    @Test
+    public void testShrinkForSlowConsumers() {
+        assertEquals(controller.getReadBatchSize(), 100);
+
+        // No drain rate yet, the batch size is halved
+        readAndDispatch(100, 500, 100);
+        assertEquals(controller.getReadBatchSize(), 50);
+
+        // 50 entries per second, that is 5 entries within the target interval
+        readAndDispatch(50, 1000, 50);
+        assertEquals(controller.getReadBatchSize(), 5);
+        assertEquals(controller.getReadBatchSizeDecreasedCount(), 2);
+        assertEquals(controller.getReadBatchSizeIncreasedCount(), 0);
+
+        // The read size in bytes follows the average entry size
+        assertEquals(controller.getReadSizeBytes(), 5 * 1000 * 2);
+    }
+
+    @Test
+    public void testGrowForFastConsumers() {
+        controller.onReadFailed();
+        assertEquals(controller.getReadBatchSize(), 1);
+
+        readAndDispatch(1, 10, 1);
+        assertEquals(controller.getReadBatchSize(), 2);
+        readAndDispatch(2, 10, 2);
+        assertEquals(controller.getReadBatchSize(), 4);
+
+        // The batch was not fully processed, keep the batch size
+        readAndDispatch(4, 10, 3);
+        assertEquals(controller.getReadBatchSize(), 4);
+
+        for (int i = 0; i < 10; i++) {
+            readAndDispatch(controller.getReadBatchSize(), 10, controller.getReadBatchSize());
+        }
+        assertEquals(controller.getReadBatchSize(), 100);
+        assertEquals(controller.getReadBatchSizeIncreasedCount(), 7);
+        assertEquals(controller.getReadSizeBytes(), 100 * 1000 * 2);
+
+        config.setDispatcherMaxReadSizeBytes(50 * 1000);
+        assertEquals(controller.getReadSizeBytes(), 50 * 1000);
+    }
+
+    @Test
+    public void testHeldUntilWritesComplete() {
+        // the writes of a read complete after the next read, they are measured from their own read
+        long firstReadCompleteNanos = controller.onReadComplete(100, 100 * 1000L);
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(90));
+        long secondReadCompleteNanos = controller.onReadComplete(100, 100 * 1000L);
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(20));
+        controller.onEntriesWritten(firstReadCompleteNanos, 100);
+        assertEquals(controller.getReadBatchSize(), 50);
+
+        controller.onEntriesWritten(secondReadCompleteNanos, 100);
+        assertEquals(controller.getReadBatchSizeDecreasedCount(), 1);
+    }
+
+    @Test
+    public void testBoundsFollowDynamicConfig() {
+        config.setDispatcherMaxReadBatchSize(20);
+        assertEquals(controller.getReadBatchSize(), 20);
+
+        config.setDispatcherMinReadBatchSize(10);
+        readAndDispatch(20, 1000, 1);
+        assertEquals(controller.getReadBatchSize(), 10);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.service.persistent;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.List;
+import org.apache.bookkeeper.mledger.AddEntryCoalescer.CoalescingKey;
+import org.apache.pulsar.common.api.proto.CompressionType;
+import org.apache.pulsar.common.api.proto.MessageMetadata;
+import org.apache.pulsar.common.api.proto.SingleMessageMetadata;
+import org.apache.pulsar.common.protocol.Commands;
+import org.testng.annotations.Test;
+
+@Test(groups = "broker")
+public class MessageBatchCoalescerTest {
+
+    private static MessageMetadata metadata(String producerName, long sequenceId, String key) {
+        MessageMetadata metadata = new MessageMetadata().setProducerName(producerName).setSequenceId(sequenceId)
+                .setPublishTime(1000 + sequenceId);
+        if (key != null) {
+            metadata.setPartitionKey(key);
+        }
+        return metadata;
+    }
+
+    private static ByteBuf message(MessageMetadata metadata, String payload) {
+        return Commands.serializeMetadataAndPayload(Commands.ChecksumType.Crc32c, metadata,
+                Unpooled.wrappedBuffer(payload.getBytes(UTF_8)));
+    }
+
+    @Test
+    public void testCoalescingKey() {
+        MessageBatchCoalescer coalescer = MessageBatchCoalescer.INSTANCE;
+        CoalescingKey key = coalescer.getCoalescingKey(message(metadata("p1", 0, "k1"), "a"));
+        assertEquals(key.source(), "p1");
+        assertEquals(coalescer.getCoalescingKey(message(metadata("p1", 1, "k1"), "b")), key);
+        assertNotEquals(coalescer.getCoalescingKey(message(metadata("p1", 2, "k2"), "c")).attributes(),
+                key.attributes());
+        assertNotEquals(coalescer.getCoalescingKey(message(metadata("p1", 3, "k1").setSchemaVersion(new byte[]{1}),
+                "d")).attributes(), key.attributes());
+
+        // the messages whose metadata applies to the whole entry are never coalesced
+        assertNull(coalescer.getCoalescingKey(message(metadata("p1", 4, null).setNumMessagesInBatch(1), "e")));
+        assertNull(coalescer.getCoalescingKey(message(metadata("p1", 5, null).setCompression(CompressionType.LZ4),
+                "f")));
+        assertNull(coalescer.getCoalescingKey(message(metadata("p1", 6, null).setTxnidMostBits(1)
+                .setTxnidLeastBits(1), "g")));
+        assertNull(coalescer.getCoalescingKey(message(metadata("p1", 7, null).setDeliverAtTime(2000), "h")));
+        assertNull(coalescer.getCoalescingKey(message(metadata("p1", 8, null).setUuid("u").setChunkId(0)
+                .setNumChunksFromMsg(2), "i")));
+    }
+
+    @Test
+    public void testCoalesce() throws Exception {
+        MessageMetadata withProperty = metadata("p1", 11, "k1");
+        withProperty.addProperty().setKey("x").setValue("y");
+        List<ByteBuf> messages = List.of(
+                message(metadata("p1", 10, "k1").setEventTime(5), "a"),
+                message(withProperty, "bb"),
+                message(metadata("p1", 12, "k1"), "ccc"));
+        ByteBuf entry = MessageBatchCoalescer.INSTANCE.coalesce(messages);
+        messages.forEach(ByteBuf::release);
+
+        assertTrue(Commands.hasChecksum(entry));
+        MessageMetadata batchMetadata = Commands.parseMessageMetadata(entry);
+        assertEquals(batchMetadata.getProducerName(), "p1");
+        assertEquals(batchMetadata.getSequenceId(), 10);
+        assertEquals(batchMetadata.getHighestSequenceId(), 12);
+        assertEquals(batchMetadata.getPublishTime(), 1010);
+        assertEquals(batchMetadata.getPartitionKey(), "k1");
+        assertEquals(batchMetadata.getNumMessagesInBatch(), 3);
+        assertEquals(batchMetadata.getUncompressedSize(), entry.readableBytes());
+
+        String[] payloads = {"a", "bb", "ccc"};
+        SingleMessageMetadata singleMetadata = new SingleMessageMetadata();
+        for (int i = 0; i < payloads.length; i++) {
+            ByteBuf payload = Commands.deSerializeSingleMessageInBatch(entry, singleMetadata, i, payloads.length);
+            assertEquals(payload.toString(UTF_8), payloads[i]);
+            assertEquals(singleMetadata.getSequenceId(), 10 + i);
+            assertEquals(singleMetadata.getPartitionKey(), "k1");
+            payload.release();
+            if (i == 0) {
+                assertEquals(singleMetadata.getEventTime(), 5);
+            } else if (i == 1) {
+                assertEquals(singleMetadata.getPropertiesCount(), 1);
+                assertEquals(singleMetadata.getPropertyAt(0).getValue(), "y");
+            }
+        }
+        entry.release();
+    }
+}
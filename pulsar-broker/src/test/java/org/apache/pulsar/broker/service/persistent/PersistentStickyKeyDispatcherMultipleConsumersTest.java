@@ -44,6 +44,8 @@ import io.netty.buffer.Unpooled;
 import io.netty.channel.EventLoopGroup;
 import io.netty.util.concurrent.EventExecutor;
 import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import io.netty.util.concurrent.Promise;
 import io.netty.util.concurrent.SucceededFuture;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
@@ -357,6 +359,105 @@ public class PersistentStickyKeyDispatcherMultipleConsumersTest {
         entries.forEach(Entry::release);
     }
 
+    @Test
+    public void testPipelinedReadsWithMaxPendingSendsPerConsumer() {
+        doReturn(1).when(configMock).getKeySharedMaxPendingSendsPerConsumer();
+        AtomicInteger pendingSends = new AtomicInteger(0);
+        doAnswer(invocation -> pendingSends.get()).when(consumerMock).getPendingSends();
+        persistentDispatcher.addConsumer(consumerMock).join();
+
+        // the next entries are read while the messages are being written to the consumer
+        List<Entry> entries = new ArrayList<>();
+        entries.add(createEntry(1, 1, "message1", 1));
+        entries.add(createEntry(1, 2, "message2", 2));
+        assertTrue(persistentDispatcher.trySendMessagesToConsumers(
+                PersistentStickyKeyDispatcherMultipleConsumers.ReadType.Normal, entries));
+        verify(consumerMock, times(1)).sendMessages(anyList(), any(EntryBatchSizes.class),
+                any(EntryBatchIndexesAcks.class), anyInt(), anyLong(), anyLong(), any(RedeliveryTracker.class));
+        assertEquals(persistentDispatcher.redeliveryMessages.size(), 0);
+
+        // the consumer reached the limit of pending sends, the entries are added to the replay queue
+        pendingSends.set(1);
+        entries = new ArrayList<>();
+        entries.add(createEntry(1, 3, "message3", 3));
+        persistentDispatcher.trySendMessagesToConsumers(
+                PersistentStickyKeyDispatcherMultipleConsumers.ReadType.Normal, entries);
+        verify(consumerMock, times(1)).sendMessages(anyList(), any(EntryBatchSizes.class),
+                any(EntryBatchIndexesAcks.class), anyInt(), anyLong(), anyLong(), any(RedeliveryTracker.class));
+        assertEquals(persistentDispatcher.redeliveryMessages.size(), 1);
+        assertFalse(persistentDispatcher.isNormalReadAllowed());
+    }
+
+    @DataProvider(name = "maxPendingSends")
+    public Object[][] maxPendingSends() {
+        return new Object[][] {{1}, {4}};
+    }
+
+    @Test(dataProvider = "maxPendingSends")
+    public void testPipelinedReadOnlyOncePerPendingSendsLimitReached(int maxPendingSends) {
+        persistentDispatcher.close();
+        doReturn(maxPendingSends).when(configMock).getKeySharedMaxPendingSendsPerConsumer();
+        AtomicInteger readMoreEntriesAsyncCalled = new AtomicInteger(0);
+        persistentDispatcher = new PersistentStickyKeyDispatcherMultipleConsumers(
+                topicMock, cursorMock, subscriptionMock, configMock,
+                new KeySharedMeta().setKeySharedMode(KeySharedMode.AUTO_SPLIT)) {
+            @Override
+            public void readMoreEntriesAsync() {
+                readMoreEntriesAsyncCalled.incrementAndGet();
+            }
+        };
+
+        // the consumer completes its sends when the test completes their promises
+        AtomicInteger pendingSends = new AtomicInteger(0);
+        AtomicBoolean limitReached = new AtomicBoolean(false);
+        List<Promise<Void>> sends = new ArrayList<>();
+        doAnswer(invocation -> pendingSends.get()).when(consumerMock).getPendingSends();
+        doAnswer(invocation -> {
+            limitReached.set(true);
+            return null;
+        }).when(consumerMock).setPendingSendsLimitReached();
+        doAnswer(invocation -> limitReached.compareAndSet(true, false))
+                .when(consumerMock).clearPendingSendsLimitReached();
+        doAnswer(invocation -> {
+            List<Entry> entries = invocation.getArgument(0);
+            entries.stream().filter(Objects::nonNull).forEach(Entry::release);
+            pendingSends.incrementAndGet();
+            Promise<Void> promise = ImmediateEventExecutor.INSTANCE.newPromise();
+            sends.add(promise);
+            return promise;
+        }).when(consumerMock).sendMessages(anyList(), any(EntryBatchSizes.class), any(EntryBatchIndexesAcks.class),
+                anyInt(), anyLong(), anyLong(), any(RedeliveryTracker.class));
+        persistentDispatcher.addConsumer(consumerMock).join();
+
+        // the sends completing below the limit don't trigger reads
+        long entryId = 1;
+        for (int i = 0; i < 3; i++) {
+            while (pendingSends.get() < maxPendingSends) {
+                persistentDispatcher.trySendMessagesToConsumers(
+                        PersistentStickyKeyDispatcherMultipleConsumers.ReadType.Normal,
+                        new ArrayList<>(List.of(createEntry(1, entryId, "message" + entryId, entryId++))));
+            }
+            pendingSends.decrementAndGet();
+            sends.remove(0).setSuccess(null);
+        }
+        assertEquals(readMoreEntriesAsyncCalled.get(), 0);
+
+        // the consumer is skipped once it reaches the limit, the first send completing after that triggers one read
+        persistentDispatcher.trySendMessagesToConsumers(
+                PersistentStickyKeyDispatcherMultipleConsumers.ReadType.Normal,
+                new ArrayList<>(List.of(createEntry(1, entryId, "message" + entryId, entryId++))));
+        assertEquals(pendingSends.get(), maxPendingSends);
+        persistentDispatcher.trySendMessagesToConsumers(
+                PersistentStickyKeyDispatcherMultipleConsumers.ReadType.Normal,
+                new ArrayList<>(List.of(createEntry(1, entryId, "message" + entryId, entryId))));
+        assertEquals(pendingSends.get(), maxPendingSends);
+        while (!sends.isEmpty()) {
+            pendingSends.decrementAndGet();
+            sends.remove(0).setSuccess(null);
+        }
+        assertEquals(readMoreEntriesAsyncCalled.get(), 1);
+    }
+
     @Test
     public void testSkipRedeliverTemporally() throws InterruptedException {
         // add first consumer
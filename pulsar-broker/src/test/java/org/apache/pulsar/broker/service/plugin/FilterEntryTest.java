@@ -28,6 +28,7 @@ import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertNotNull;
@@ -56,9 +57,11 @@ import org.apache.pulsar.broker.service.Subscription;
 import org.apache.pulsar.broker.service.persistent.PersistentSubscription;
 import org.apache.pulsar.broker.service.persistent.PersistentTopic;
 import org.apache.pulsar.broker.testcontext.PulsarTestContext;
+import org.apache.pulsar.client.admin.PulsarAdminException;
 import org.apache.pulsar.client.api.Consumer;
 import org.apache.pulsar.client.api.Message;
 import org.apache.pulsar.client.api.Producer;
+import org.apache.pulsar.client.api.PulsarClientException;
 import org.apache.pulsar.client.api.RawMessage;
 import org.apache.pulsar.client.api.RawReader;
 import org.apache.pulsar.client.api.Schema;
@@ -218,6 +221,74 @@ public class FilterEntryTest extends BrokerTestBase {
                 "brokerEntryFilters", mockFilter, true);
     }
 
+    @Test
+    public void testFilterExpression() throws Exception {
+        conf.setEntryFilterExpressionsEnabled(true);
+        try {
+            String topic = "persistent://prop/ns-abc/topic" + UUID.randomUUID();
+            String subName = "sub";
+            @Cleanup
+            Consumer<String> consumer = pulsarClient.newConsumer(Schema.STRING).topic(topic)
+                    .subscriptionProperties(Map.of(ExpressionEntryFilter.EXPRESSION_PROPERTY,
+                            "properties.region IN ('eu', 'us') AND NOT key MATCHES 'test-.*'"))
+                    .subscriptionName(subName).subscribe();
+            @Cleanup
+            Producer<String> producer = pulsarClient.newProducer(Schema.STRING)
+                    .enableBatching(false).topic(topic).create();
+            producer.newMessage().key("order-1").property("region", "eu").value("1").send();
+            producer.newMessage().key("test-2").property("region", "eu").value("2").send();
+            producer.newMessage().key("order-3").property("region", "ap").value("3").send();
+            producer.newMessage().key("order-4").value("4").send();
+            producer.newMessage().key("order-5").property("region", "us").value("5").send();
+
+            List<String> received = new ArrayList<>();
+            Message<String> message;
+            while ((message = consumer.receive(2, TimeUnit.SECONDS)) != null) {
+                received.add(message.getValue());
+                consumer.acknowledge(message);
+            }
+            assertEquals(List.of("1", "5"), received);
+
+            // the updated expression applies to the next entries
+            admin.topics().updateSubscriptionProperties(topic, subName,
+                    Map.of(ExpressionEntryFilter.EXPRESSION_PROPERTY, "properties.region = 'ap'"));
+            producer.newMessage().key("order-6").property("region", "eu").value("6").send();
+            producer.newMessage().key("order-7").property("region", "ap").value("7").send();
+            received.clear();
+            while ((message = consumer.receive(2, TimeUnit.SECONDS)) != null) {
+                received.add(message.getValue());
+                consumer.acknowledge(message);
+            }
+            assertEquals(List.of("7"), received);
+
+            // the invalid expressions are rejected
+            Assert.assertThrows(PulsarAdminException.class, () -> admin.topics().updateSubscriptionProperties(topic,
+                    subName, Map.of(ExpressionEntryFilter.EXPRESSION_PROPERTY, "properties.region = ")));
+            Assert.assertThrows(PulsarClientException.class, () -> pulsarClient.newConsumer(Schema.STRING)
+                    .topic(topic).subscriptionName("sub-with-invalid-expression")
+                    .subscriptionProperties(Map.of(ExpressionEntryFilter.EXPRESSION_PROPERTY, "key = "))
+                    .subscribe());
+            assertEquals("properties.region = 'ap'", admin.topics().getSubscriptionProperties(topic, subName)
+                    .get(ExpressionEntryFilter.EXPRESSION_PROPERTY));
+
+            // the rejected entries are acknowledged
+            Awaitility.await().untilAsserted(() -> assertEquals(0,
+                    admin.topics().getStats(topic).getSubscriptions().get(subName).getMsgBacklog()));
+
+            // the subscriptions without expression don't go through the filters
+            @Cleanup
+            Consumer<String> otherConsumer = pulsarClient.newConsumer(Schema.STRING).topic(topic)
+                    .subscriptionName("sub-without-expression").subscribe();
+            PersistentTopic persistentTopic =
+                    (PersistentTopic) pulsar.getBrokerService().getTopicReference(topic).get();
+            assertTrue(((EntryFilterSupport) persistentTopic.getSubscription(subName).getDispatcher()).hasFilter());
+            assertFalse(((EntryFilterSupport) persistentTopic.getSubscription("sub-without-expression")
+                    .getDispatcher()).hasFilter());
+        } finally {
+            conf.setEntryFilterExpressionsEnabled(false);
+        }
+    }
+
     @Test
     public void testFilter() throws Exception {
         Map<String, String> map = new HashMap<>();
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.service.plugin;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertThrows;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.pulsar.broker.service.Subscription;
+import org.apache.pulsar.common.api.proto.MarkerType;
+import org.apache.pulsar.common.api.proto.MessageMetadata;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+@Test(groups = "broker")
+public class FilterExpressionTest {
+
+    private static MessageMetadata metadata() {
+        MessageMetadata metadata = new MessageMetadata()
+                .setProducerName("producer-1")
+                .setSequenceId(10)
+                .setPublishTime(1000)
+                .setPartitionKey("order-42");
+        metadata.addProperty().setKey("region").setValue("eu");
+        metadata.addProperty().setKey("priority").setValue("5");
+        metadata.addProperty().setKey("content type").setValue("json");
+        return metadata;
+    }
+
+    @DataProvider
+    public static Object[][] expressions() {
+        return new Object[][] {
+                {"properties.region = 'eu'", true},
+                {"properties.region = 'us'", false},
+                {"properties.region != 'us'", true},
+                {"properties.region <> 'eu'", false},
+                {"properties['content type'] = 'json'", true},
+                {"properties.missing = 'eu'", false},
+                {"properties.missing != 'eu'", false},
+                {"properties.missing IS NULL", true},
+                {"properties.region IS NOT NULL", true},
+                {"properties.region IN ('us', 'eu')", true},
+                {"properties.region IN ('us', 'ap')", false},
+                {"properties.priority > 3", true},
+                {"properties.priority >= 6", false},
+                {"properties.priority IN (1, 5)", true},
+                {"properties.region > 3", false},
+                {"properties.region < 'fr'", true},
+                {"key MATCHES 'order-[0-9]+'", true},
+                {"key MATCHES 'order'", false},
+                {"producerName = 'producer-1'", true},
+                {"publishTime >= 1000 AND publishTime < 2000", true},
+                {"publishTime > -1", true},
+                {"sequenceId IN (9, 10, 11)", true},
+                {"eventTime > 0", false},
+                {"eventTime IS NULL", true},
+                {"NOT properties.region = 'eu'", false},
+                {"properties.region = 'us' OR properties.priority = 5", true},
+                {"properties.region = 'us' OR properties.region = 'ap' AND properties.priority = 5", false},
+                {"(properties.region = 'us' OR properties.region = 'eu') AND properties.priority = 5", true},
+                {"not (properties.region = 'us') and key matches 'order-.*'", true},
+        };
+    }
+
+    @Test(dataProvider = "expressions")
+    public void testExpression(String expression, boolean expected) throws Exception {
+        assertEquals(FilterExpression.compile(expression).test(metadata()), expected, expression);
+    }
+
+    @Test
+    public void testStringEscape() throws Exception {
+        MessageMetadata metadata = metadata();
+        metadata.addProperty().setKey("name").setValue("it's");
+        assertEquals(FilterExpression.compile("properties.name = 'it''s'").test(metadata), true);
+    }
+
+    @DataProvider
+    public static Object[][] invalidExpressions() {
+        return new Object[][] {
+                {""},
+                {"properties.region"},
+                {"properties.region = "},
+                {"properties.region = 'eu"},
+                {"unknown = 'eu'"},
+                {"publishTime = 'eu'"},
+                {"publishTime MATCHES '.*'"},
+                {"key MATCHES '('"},
+                {"(key = 'a'"},
+                {"key = 'a' key = 'b'"},
+                {"key == 'a'"},
+                {"key = 99999999999999999999"},
+                {"key = '" + "a".repeat(FilterExpression.MAX_EXPRESSION_LENGTH) + "'"},
+                {"NOT ".repeat(FilterExpression.MAX_NESTING_DEPTH + 1) + "key = 'a'"},
+                {"(".repeat(FilterExpression.MAX_NESTING_DEPTH + 1) + "key = 'a'"
+                        + ")".repeat(FilterExpression.MAX_NESTING_DEPTH + 1)},
+        };
+    }
+
+    @Test(dataProvider = "invalidExpressions")
+    public void testInvalidExpression(String expression) {
+        assertThrows(InvalidEntryFilterException.class, () -> FilterExpression.compile(expression));
+    }
+
+    @Test
+    public void testLimits() throws Exception {
+        String nested = "(".repeat(FilterExpression.MAX_NESTING_DEPTH) + "key = 'order-42'"
+                + ")".repeat(FilterExpression.MAX_NESTING_DEPTH);
+        assertEquals(FilterExpression.compile(nested).test(metadata()), true);
+
+        // a long chain of conditions isn't nested
+        String chain = String.join(" OR ", Collections.nCopies(200, "sequenceId = 1")) + " OR sequenceId = 10";
+        assertEquals(FilterExpression.compile(chain).test(metadata()), true);
+    }
+
+    @Test(timeOut = 10000)
+    public void testCatastrophicBacktracking() throws Exception {
+        MessageMetadata metadata = metadata().setPartitionKey("a".repeat(64) + "!");
+        assertEquals(FilterExpression.compile("key MATCHES '(a+)+b'").test(metadata), false);
+        assertEquals(FilterExpression.compile("key MATCHES 'a+!'").test(metadata), true);
+    }
+
+    @Test
+    public void testValidateSubscriptionProperties() throws Exception {
+        ExpressionEntryFilter.validateSubscriptionProperties(null);
+        ExpressionEntryFilter.validateSubscriptionProperties(Map.of("other", "properties.region = "));
+        ExpressionEntryFilter.validateSubscriptionProperties(
+                Map.of(ExpressionEntryFilter.EXPRESSION_PROPERTY, "properties.region = 'us'"));
+        assertThrows(InvalidEntryFilterException.class, () -> ExpressionEntryFilter.validateSubscriptionProperties(
+                Map.of(ExpressionEntryFilter.EXPRESSION_PROPERTY, "properties.region = ")));
+    }
+
+    @Test
+    public void testExpressionEntryFilter() {
+        Map<String, String> subscriptionProperties = new HashMap<>();
+        Subscription subscription = mock(Subscription.class);
+        when(subscription.getSubscriptionProperties()).thenReturn(subscriptionProperties);
+        FilterContext context = new FilterContext();
+        context.setSubscription(subscription);
+        context.setMsgMetadata(metadata());
+        ExpressionEntryFilter filter = new ExpressionEntryFilter();
+
+        // no expression
+        assertEquals(filter.filterEntry(null, context), EntryFilter.FilterResult.ACCEPT);
+
+        subscriptionProperties.put(ExpressionEntryFilter.EXPRESSION_PROPERTY, "properties.region = 'us'");
+        assertEquals(filter.filterEntry(null, context), EntryFilter.FilterResult.REJECT);
+
+        subscriptionProperties.put(ExpressionEntryFilter.EXPRESSION_PROPERTY, "properties.region = 'eu'");
+        assertEquals(filter.filterEntry(null, context), EntryFilter.FilterResult.ACCEPT);
+
+        // invalid expressions don't filter the entries
+        subscriptionProperties.put(ExpressionEntryFilter.EXPRESSION_PROPERTY, "properties.region = ");
+        assertEquals(filter.filterEntry(null, context), EntryFilter.FilterResult.ACCEPT);
+
+        // neither do they filter the markers
+        subscriptionProperties.put(ExpressionEntryFilter.EXPRESSION_PROPERTY, "properties.region = 'us'");
+        context.setMsgMetadata(metadata().setMarkerType(MarkerType.REPLICATED_SUBSCRIPTION_SNAPSHOT.getValue()));
+        assertEquals(filter.filterEntry(null, context), EntryFilter.FilterResult.ACCEPT);
+    }
+}
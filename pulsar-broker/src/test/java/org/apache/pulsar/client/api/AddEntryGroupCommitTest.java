@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.api;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import lombok.Cleanup;
+import org.apache.pulsar.broker.service.persistent.PersistentTopic;
+import org.apache.pulsar.common.util.FutureUtil;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = "broker-api")
+public class AddEntryGroupCommitTest extends ProducerConsumerBase {
+
+    @BeforeMethod
+    @Override
+    protected void setup() throws Exception {
+        conf.setManagedLedgerAddEntryGroupCommitMaxDelayMicros(TimeUnit.MILLISECONDS.toMicros(10));
+        conf.setManagedLedgerAddEntryGroupCommitMaxEntries(10);
+        super.internalSetup();
+        super.producerBaseSetup();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    @Override
+    protected void cleanup() throws Exception {
+        super.internalCleanup();
+    }
+
+    @Test
+    public void testNonBatchedMessagesCoalesced() throws Exception {
+        String topic = "persistent://my-property/my-ns/group-commit";
+        int numberOfMessages = 100;
+        @Cleanup
+        Consumer<String> consumer = pulsarClient.newConsumer(Schema.STRING).topic(topic)
+                .subscriptionName("sub").subscribe();
+        @Cleanup
+        Producer<String> producer = pulsarClient.newProducer(Schema.STRING).topic(topic)
+                .enableBatching(false).create();
+
+        List<CompletableFuture<MessageId>> futures = new ArrayList<>();
+        for (int i = 0; i < numberOfMessages; i++) {
+            futures.add(producer.newMessage().key("key-" + (i / 20)).property("index", String.valueOf(i))
+                    .value("message-" + i).sendAsync());
+        }
+        FutureUtil.waitForAll(futures).get(30, TimeUnit.SECONDS);
+        // the coalesced messages are identified by their index in the entry
+        Set<MessageId> messageIds = futures.stream().map(CompletableFuture::join).collect(Collectors.toSet());
+        assertEquals(messageIds.size(), numberOfMessages);
+
+        for (int i = 0; i < numberOfMessages; i++) {
+            Message<String> message = consumer.receive(10, TimeUnit.SECONDS);
+            assertEquals(message.getMessageId(), futures.get(i).join());
+            assertEquals(message.getValue(), "message-" + i);
+            assertEquals(message.getKey(), "key-" + (i / 20));
+            assertEquals(message.getProperty("index"), String.valueOf(i));
+            assertEquals(message.getSequenceId(), i);
+            consumer.acknowledge(message);
+        }
+
+        // the consecutive messages with the same key were written in fewer entries
+        PersistentTopic persistentTopic = (PersistentTopic) pulsar.getBrokerService().getTopicReference(topic).get();
+        long numberOfEntries = persistentTopic.getManagedLedger().getNumberOfEntries();
+        assertTrue(numberOfEntries >= numberOfMessages / 10 && numberOfEntries < numberOfMessages,
+                "entries: " + numberOfEntries);
+    }
+}
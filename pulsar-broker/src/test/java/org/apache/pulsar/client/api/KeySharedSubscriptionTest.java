@@ -194,6 +194,7 @@ public class KeySharedSubscriptionTest extends ProducerConsumerBase {
                 defaultConf.getKeySharedLookAheadMsgInReplayThresholdPerSubscription());
         conf.setKeySharedLookAheadMsgInReplayThresholdPerConsumer(
                 defaultConf.getKeySharedLookAheadMsgInReplayThresholdPerConsumer());
+        conf.setKeySharedMaxPendingSendsPerConsumer(defaultConf.getKeySharedMaxPendingSendsPerConsumer());
     }
 
     // Use a fixed seed to make the tests using random values deterministic
@@ -229,6 +230,44 @@ public class KeySharedSubscriptionTest extends ProducerConsumerBase {
         receiveAndCheckDistribution(Lists.newArrayList(consumer1, consumer2, consumer3), 1000);
     }
 
+    @Test(dataProvider = "currentImplementationType")
+    public void testSendAndReceiveWithPipelinedReads(KeySharedImplementationType impl) throws Exception {
+        conf.setKeySharedMaxPendingSendsPerConsumer(1);
+        String topic = "persistent://public/default/key_shared-" + UUID.randomUUID();
+
+        @Cleanup
+        Consumer<Integer> consumer1 = createConsumer(topic);
+
+        @Cleanup
+        Consumer<Integer> consumer2 = createConsumer(topic);
+
+        @Cleanup
+        Consumer<Integer> consumer3 = createConsumer(topic);
+
+        @Cleanup
+        Producer<Integer> producer = createProducer(topic, false);
+
+        for (int i = 0; i < 1000; i++) {
+            producer.newMessage()
+                    .key(String.valueOf(random.nextInt(NUMBER_OF_KEYS)))
+                    .value(i)
+                    .sendAsync();
+        }
+        producer.flush();
+
+        // the messages of a key are received by a single consumer, in order
+        Map<String, Integer> lastValueForKey = new ConcurrentHashMap<>();
+        AtomicInteger totalMessages = new AtomicInteger();
+        BrokerTestUtil.receiveMessagesInThreads((consumer, msg) -> {
+            totalMessages.incrementAndGet();
+            Integer lastValue = lastValueForKey.put(msg.getKey(), msg.getValue());
+            assertTrue(lastValue == null || lastValue < msg.getValue());
+            consumer.acknowledgeAsync(msg);
+            return true;
+        }, Duration.ofMillis(500), consumer1, consumer2, consumer3);
+        assertEquals(totalMessages.get(), 1000);
+    }
+
     @Test(dataProvider = "data")
     public void testSendAndReceiveWithBatching(KeySharedImplementationType impl, String topicType, boolean enableBatch)
             throws Exception {
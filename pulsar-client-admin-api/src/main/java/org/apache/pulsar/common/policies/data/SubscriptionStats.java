@@ -164,6 +164,15 @@ public interface SubscriptionStats {
 
     long getDelayedMessageIndexSizeInBytes();
 
+    /** The number of entries read from the managed ledger per read by the dispatcher of the subscription. */
+    int getReadBatchSize();
+
+    /** The number of times the read batch size was increased by the adaptive read sizing of the dispatcher. */
+    long getReadBatchSizeIncreasedCount();
+
+    /** The number of times the read batch size was decreased by the adaptive read sizing of the dispatcher. */
+    long getReadBatchSizeDecreasedCount();
+
     /**
      * Gets the total number of times message dispatching was throttled on a subscription
      * due to subscription rate limits.
@@ -478,9 +478,16 @@ public class ClientCnx extends PulsarHandler {
         long highestSequenceId = sendReceipt.getHighestSequenceId();
         long ledgerId = -1;
         long entryId = -1;
+        int batchIndex = -1;
+        int batchSize = 0;
         if (sendReceipt.hasMessageId()) {
             ledgerId = sendReceipt.getMessageId().getLedgerId();
             entryId = sendReceipt.getMessageId().getEntryId();
+            // the broker persisted the message in a batch entry with other messages of the producer
+            if (sendReceipt.getMessageId().hasBatchIndex()) {
+                batchIndex = sendReceipt.getMessageId().getBatchIndex();
+                batchSize = sendReceipt.getMessageId().getBatchSize();
+            }
         }
         ProducerImpl<?> producer = producers.get(producerId);
         if (ledgerId == -1 && entryId == -1) {
@@ -499,7 +506,9 @@ public class ClientCnx extends PulsarHandler {
             }
         }
 
-        if (producer != null) {
+        if (producer != null && batchIndex >= 0) {
+            producer.ackReceived(this, sequenceId, highestSequenceId, ledgerId, entryId, batchIndex, batchSize);
+        } else if (producer != null) {
             producer.ackReceived(this, sequenceId, highestSequenceId, ledgerId, entryId);
         } else {
             if (log.isDebugEnabled()) {
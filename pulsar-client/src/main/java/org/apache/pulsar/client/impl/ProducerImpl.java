@@ -1298,6 +1298,15 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
     }
 
     protected void ackReceived(ClientCnx cnx, long sequenceId, long highestSequenceId, long ledgerId, long entryId) {
+        ackReceived(cnx, sequenceId, highestSequenceId, ledgerId, entryId, -1, 0);
+    }
+
+    /**
+     * Handle the receipt of a message, which the broker persisted as the message {@code batchIndex} of a batch entry
+     * when {@code batchIndex} isn't negative.
+     */
+    protected void ackReceived(ClientCnx cnx, long sequenceId, long highestSequenceId, long ledgerId, long entryId,
+                               int batchIndex, int batchSize) {
         OpSendMsg op = null;
         synchronized (this) {
             op = pendingMessages.peek();
@@ -1346,7 +1355,7 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
 
         OpSendMsg finalOp = op;
         LAST_SEQ_ID_PUBLISHED_UPDATER.getAndUpdate(this, last -> Math.max(last, getHighestSequenceId(finalOp)));
-        op.setMessageId(ledgerId, entryId, partitionIndex);
+        op.setMessageId(ledgerId, entryId, partitionIndex, batchIndex, batchSize);
         if (op.totalChunks > 1) {
             if (op.chunkId == 0) {
                 op.chunkedMessageCtx.firstChunkMessageId = new MessageIdImpl(ledgerId, entryId, partitionIndex);
@@ -1721,6 +1730,15 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
             }
         }
 
+        void setMessageId(long ledgerId, long entryId, int partitionIndex, int batchIndex, int batchSize) {
+            if (batchIndex >= 0 && msg != null) {
+                msg.setMessageId(new BatchMessageIdImpl(ledgerId, entryId, partitionIndex, batchIndex, batchSize,
+                        null));
+            } else {
+                setMessageId(ledgerId, entryId, partitionIndex);
+            }
+        }
+
         void setMessageId(ChunkMessageIdImpl chunkMessageId) {
             if (msg != null) {
                 msg.setMessageId(chunkMessageId);
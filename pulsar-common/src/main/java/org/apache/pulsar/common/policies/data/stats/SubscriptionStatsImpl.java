@@ -171,6 +171,15 @@ public class SubscriptionStatsImpl implements SubscriptionStats {
 
     public long filterRescheduledMsgCount;
 
+    /** The number of entries read from the managed ledger per read by the dispatcher of the subscription. */
+    public int readBatchSize;
+
+    /** The number of times the read batch size was increased by the adaptive read sizing of the dispatcher. */
+    public long readBatchSizeIncreasedCount;
+
+    /** The number of times the read batch size was decreased by the adaptive read sizing of the dispatcher. */
+    public long readBatchSizeDecreasedCount;
+
     /** total number of times message dispatching was throttled on a subscription due to subscription rate limits. */
     public long dispatchThrottledMsgEventsBySubscriptionLimit;
 
@@ -230,6 +239,9 @@ public class SubscriptionStatsImpl implements SubscriptionStats {
         filterAcceptedMsgCount = 0;
         filterRejectedMsgCount = 0;
         filterRescheduledMsgCount = 0;
+        readBatchSize = 0;
+        readBatchSizeIncreasedCount = 0;
+        readBatchSizeDecreasedCount = 0;
         dispatchThrottledMsgEventsBySubscriptionLimit = 0;
         dispatchThrottledBytesEventsBySubscriptionLimit = 0;
         dispatchThrottledMsgEventsByBrokerLimit = 0;
@@ -296,6 +308,9 @@ public class SubscriptionStatsImpl implements SubscriptionStats {
         this.filterAcceptedMsgCount += stats.filterAcceptedMsgCount;
         this.filterRejectedMsgCount += stats.filterRejectedMsgCount;
         this.filterRescheduledMsgCount += stats.filterRescheduledMsgCount;
+        this.readBatchSize = Math.max(this.readBatchSize, stats.readBatchSize);
+        this.readBatchSizeIncreasedCount += stats.readBatchSizeIncreasedCount;
+        this.readBatchSizeDecreasedCount += stats.readBatchSizeDecreasedCount;
         this.dispatchThrottledMsgEventsBySubscriptionLimit += stats.dispatchThrottledMsgEventsBySubscriptionLimit;
         this.dispatchThrottledBytesEventsBySubscriptionLimit += stats.dispatchThrottledBytesEventsBySubscriptionLimit;
         this.dispatchThrottledMsgEventsByBrokerLimit += stats.dispatchThrottledMsgEventsByBrokerLimit;
@@ -421,6 +421,18 @@ public class Commands {
         return cmd;
     }
 
+    /**
+     * Create the receipt of a message which the broker persisted as the message {@code batchIndex} of a batch entry.
+     */
+    public static BaseCommand newSendReceiptCommand(long producerId, long sequenceId, long highestId, long ledgerId,
+            long entryId, int batchIndex, int batchSize) {
+        BaseCommand cmd = newSendReceiptCommand(producerId, sequenceId, highestId, ledgerId, entryId);
+        cmd.getSendReceipt().getMessageId()
+                .setBatchIndex(batchIndex)
+                .setBatchSize(batchSize);
+        return cmd;
+    }
+
     public static ByteBuf newSendReceipt(long producerId, long sequenceId, long highestId, long ledgerId,
             long entryId) {
         return serializeWithSize(newSendReceiptCommand(producerId, sequenceId, highestId, ledgerId, entryId));
@@ -0,0 +1,361 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.offload.filesystem.impl;
+
+import static org.apache.bookkeeper.mledger.offload.OffloadUtils.parseLedgerMetadata;
+import io.netty.buffer.ByteBuf;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.bookkeeper.client.BKException;
+import org.apache.bookkeeper.client.api.LastConfirmedAndEntry;
+import org.apache.bookkeeper.client.api.LedgerEntries;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.client.api.ReadHandle;
+import org.apache.bookkeeper.client.impl.LedgerEntriesImpl;
+import org.apache.bookkeeper.client.impl.LedgerEntryImpl;
+import org.apache.bookkeeper.mledger.LedgerOffloaderStats;
+import org.apache.bookkeeper.mledger.ManagedLedgerException;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocalFileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.pulsar.common.allocator.PulsarByteBufAllocator;
+import org.apache.pulsar.common.naming.TopicName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Read handle of a ledger offloaded to a segment file, see {@link SegmentFileWriter} for the format of the file.
+ *
+ * <p/>The offsets of the entries are loaded from the footer of the file when the handle is opened, a range of entries
+ * is then read with a single positional read. The segment files of a local or mounted file system are read with a
+ * {@link FileChannel}, the other ones with the positional reads of the Hadoop file system.
+ */
+public class FileStoreSegmentReadHandleImpl implements ReadHandle {
+    private static final Logger log = LoggerFactory.getLogger(FileStoreSegmentReadHandleImpl.class);
+    private final ExecutorService executor;
+    private final SegmentFile segmentFile;
+    private final long ledgerId;
+    private final LedgerMetadata ledgerMetadata;
+    private final long[] entryOffsets;
+    private final LedgerOffloaderStats offloaderStats;
+    private final String topicName;
+    enum State {
+        Opened,
+        Closed
+    }
+    private volatile State state;
+    private final AtomicReference<CompletableFuture<Void>> closeFuture = new AtomicReference<>();
+
+    private FileStoreSegmentReadHandleImpl(ExecutorService executor, SegmentFile segmentFile, long ledgerId,
+                                           LedgerOffloaderStats offloaderStats,
+                                           String managedLedgerName) throws IOException {
+        this.ledgerId = ledgerId;
+        this.executor = executor;
+        this.segmentFile = segmentFile;
+        this.offloaderStats = offloaderStats;
+        this.topicName = TopicName.fromPersistenceNamingEncoding(managedLedgerName);
+
+        long startReadIndexTime = System.nanoTime();
+        long length = segmentFile.length();
+        if (length < SegmentFileWriter.HEADER_SIZE + SegmentFileWriter.TRAILER_SIZE) {
+            throw new IOException("Invalid segment file of ledger " + ledgerId + " with length " + length);
+        }
+        ByteBuf header = segmentFile.read(0, SegmentFileWriter.HEADER_SIZE);
+        try {
+            int magic = header.readInt();
+            if (magic != SegmentFileWriter.MAGIC_WORD) {
+                throw new IOException(String.format("Invalid header MagicWord of the segment file of ledger %d."
+                        + " read: 0x%x expected: 0x%x", ledgerId, magic, SegmentFileWriter.MAGIC_WORD));
+            }
+            int version = header.readInt();
+            if (version != SegmentFileWriter.VERSION) {
+                throw new IOException(String.format("Unsupported version of the segment file of ledger %d."
+                        + " read: %d expected: %d", ledgerId, version, SegmentFileWriter.VERSION));
+            }
+        } finally {
+            header.release();
+        }
+        ByteBuf trailer = segmentFile.read(length - SegmentFileWriter.TRAILER_SIZE, SegmentFileWriter.TRAILER_SIZE);
+        long metadataOffset;
+        int metadataLength;
+        long entryCount;
+        long indexOffset;
+        try {
+            metadataOffset = trailer.readLong();
+            metadataLength = trailer.readInt();
+            entryCount = trailer.readLong();
+            indexOffset = trailer.readLong();
+            int magic = trailer.readInt();
+            if (magic != SegmentFileWriter.MAGIC_WORD) {
+                throw new IOException(String.format("Invalid MagicWord of the segment file of ledger %d."
+                        + " read: 0x%x expected: 0x%x", ledgerId, magic, SegmentFileWriter.MAGIC_WORD));
+            }
+        } finally {
+            trailer.release();
+        }
+
+        ByteBuf index = segmentFile.read(indexOffset, Math.toIntExact((entryCount + 1) * Long.BYTES));
+        try {
+            this.entryOffsets = new long[Math.toIntExact(entryCount + 1)];
+            for (int i = 0; i < entryOffsets.length; i++) {
+                entryOffsets[i] = index.readLong();
+            }
+        } finally {
+            index.release();
+        }
+
+        ByteBuf metadata = segmentFile.read(metadataOffset, metadataLength);
+        try {
+            byte[] metadataBytes = new byte[metadataLength];
+            metadata.readBytes(metadataBytes);
+            this.ledgerMetadata = parseLedgerMetadata(ledgerId, metadataBytes);
+        } finally {
+            metadata.release();
+        }
+        offloaderStats.recordReadOffloadIndexLatency(topicName,
+                System.nanoTime() - startReadIndexTime, TimeUnit.NANOSECONDS);
+        state = State.Opened;
+    }
+
+    @Override
+    public long getId() {
+        return ledgerId;
+    }
+
+    @Override
+    public LedgerMetadata getLedgerMetadata() {
+        return ledgerMetadata;
+    }
+
+    @Override
+    public CompletableFuture<Void> closeAsync() {
+        if (closeFuture.get() != null || !closeFuture.compareAndSet(null, new CompletableFuture<>())) {
+            return closeFuture.get();
+        }
+
+        CompletableFuture<Void> promise = closeFuture.get();
+        executor.execute(() -> {
+            try {
+                segmentFile.close();
+                state = State.Closed;
+                promise.complete(null);
+            } catch (IOException t) {
+                promise.completeExceptionally(t);
+            }
+        });
+        return promise;
+    }
+
+    @Override
+    public CompletableFuture<LedgerEntries> readAsync(long firstEntry, long lastEntry) {
+        if (log.isDebugEnabled()) {
+            log.debug("Ledger {}: reading {} - {}", getId(), firstEntry, lastEntry);
+        }
+        CompletableFuture<LedgerEntries> promise = new CompletableFuture<>();
+        executor.execute(() -> {
+            if (state == State.Closed) {
+                log.warn("Reading a closed read handler. Ledger ID: {}, Read range: {}-{}",
+                        ledgerId, firstEntry, lastEntry);
+                promise.completeExceptionally(new ManagedLedgerException.OffloadReadHandleClosedException());
+                return;
+            }
+            if (firstEntry > lastEntry
+                    || firstEntry < 0
+                    || lastEntry > getLastAddConfirmed()
+                    || lastEntry >= entryOffsets.length - 1) {
+                promise.completeExceptionally(new BKException.BKIncorrectParameterException());
+                return;
+            }
+            List<LedgerEntry> entries = new ArrayList<>((int) (lastEntry - firstEntry + 1));
+            try {
+                // the entries of the range are contiguous in the file
+                long rangeOffset = entryOffsets[(int) firstEntry];
+                int rangeLength = Math.toIntExact(entryOffsets[(int) lastEntry + 1] - rangeOffset);
+                long startReadTime = System.nanoTime();
+                ByteBuf range = segmentFile.read(rangeOffset, rangeLength);
+                this.offloaderStats.recordReadOffloadDataLatency(topicName,
+                        System.nanoTime() - startReadTime, TimeUnit.NANOSECONDS);
+                try {
+                    for (long entryId = firstEntry; entryId <= lastEntry; entryId++) {
+                        int length = (int) (entryOffsets[(int) entryId + 1] - entryOffsets[(int) entryId]);
+                        entries.add(LedgerEntryImpl.create(ledgerId, entryId, length,
+                                range.readRetainedSlice(length)));
+                    }
+                } finally {
+                    range.release();
+                }
+                this.offloaderStats.recordReadOffloadBytes(topicName, rangeLength);
+                promise.complete(LedgerEntriesImpl.create(entries));
+            } catch (Throwable t) {
+                this.offloaderStats.recordReadOffloadError(topicName);
+                promise.completeExceptionally(t);
+                entries.forEach(LedgerEntry::close);
+            }
+        });
+        return promise;
+    }
+
+    @Override
+    public CompletableFuture<LedgerEntries> readUnconfirmedAsync(long firstEntry, long lastEntry) {
+        return readAsync(firstEntry, lastEntry);
+    }
+
+    @Override
+    public CompletableFuture<Long> readLastAddConfirmedAsync() {
+        return CompletableFuture.completedFuture(getLastAddConfirmed());
+    }
+
+    @Override
+    public CompletableFuture<Long> tryReadLastAddConfirmedAsync() {
+        return CompletableFuture.completedFuture(getLastAddConfirmed());
+    }
+
+    @Override
+    public long getLastAddConfirmed() {
+        return getLedgerMetadata().getLastEntryId();
+    }
+
+    @Override
+    public long getLength() {
+        return getLedgerMetadata().getLength();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return getLedgerMetadata().isClosed();
+    }
+
+    @Override
+    public CompletableFuture<LastConfirmedAndEntry> readLastAddConfirmedAndEntryAsync(long entryId,
+                                                                                      long timeOutInMillis,
+                                                                                      boolean parallel) {
+        CompletableFuture<LastConfirmedAndEntry> promise = new CompletableFuture<>();
+        promise.completeExceptionally(new UnsupportedOperationException());
+        return promise;
+    }
+
+    public static ReadHandle open(ScheduledExecutorService executor, FileSystem fileSystem, Path path, long ledgerId,
+                                  LedgerOffloaderStats offloaderStats, String managedLedgerName) throws IOException {
+        SegmentFile segmentFile = fileSystem instanceof LocalFileSystem
+                ? new LocalSegmentFile(FileChannel.open(((LocalFileSystem) fileSystem).pathToFile(path).toPath(),
+                        StandardOpenOption.READ))
+                : new HadoopSegmentFile(fileSystem.open(path), fileSystem.getFileStatus(path).getLen());
+        try {
+            return new FileStoreSegmentReadHandleImpl(executor, segmentFile, ledgerId, offloaderStats,
+                    managedLedgerName);
+        } catch (Throwable t) {
+            segmentFile.close();
+            throw t;
+        }
+    }
+
+    /**
+     * Segment file which can be read with positional reads, which don't change a position of the file and can be
+     * issued concurrently.
+     */
+    private interface SegmentFile extends Closeable {
+
+        long length() throws IOException;
+
+        /**
+         * Read a range of the file into a new buffer, which must be released by the caller.
+         */
+        ByteBuf read(long position, int length) throws IOException;
+    }
+
+    private static class LocalSegmentFile implements SegmentFile {
+        private final FileChannel channel;
+
+        LocalSegmentFile(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public long length() throws IOException {
+            return channel.size();
+        }
+
+        @Override
+        public ByteBuf read(long position, int length) throws IOException {
+            ByteBuf buf = PulsarByteBufAllocator.DEFAULT.directBuffer(length, length);
+            try {
+                while (buf.isWritable()) {
+                    int read = buf.writeBytes(channel, position + buf.writerIndex(), buf.writableBytes());
+                    if (read < 0) {
+                        throw new EOFException("Read beyond the end of the segment file at " + position);
+                    }
+                }
+                return buf;
+            } catch (Throwable t) {
+                buf.release();
+                throw t;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private static class HadoopSegmentFile implements SegmentFile {
+        private final FSDataInputStream in;
+        private final long length;
+
+        HadoopSegmentFile(FSDataInputStream in, long length) {
+            this.in = in;
+            this.length = length;
+        }
+
+        @Override
+        public long length() {
+            return length;
+        }
+
+        @Override
+        public ByteBuf read(long position, int length) throws IOException {
+            ByteBuf buf = PulsarByteBufAllocator.DEFAULT.heapBuffer(length, length);
+            try {
+                in.readFully(position, buf.array(), buf.arrayOffset(), length);
+                buf.writerIndex(length);
+                return buf;
+            } catch (Throwable t) {
+                buf.release();
+                throw t;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -42,9 +42,6 @@ import org.apache.bookkeeper.mledger.offload.filesystem.FileSystemLedgerOffloade
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.io.BytesWritable;
-import org.apache.hadoop.io.IOUtils;
-import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.MapFile;
 import org.apache.pulsar.common.naming.TopicName;
 import org.apache.pulsar.common.policies.data.OffloadPolicies;
@@ -59,6 +56,9 @@ public class FileSystemManagedLedgerOffloader implements LedgerOffloader {
     private static final String DRIVER_NAMES = "filesystem";
     private static final String MANAGED_LEDGER_NAME = "ManagedLedgerName";
     static final long METADATA_KEY_INDEX = -1;
+    static final String OFFLOAD_FORMAT = "fileSystemOffloadFormat";
+    static final String MAPFILE_FORMAT = "mapfile";
+    static final String SEGMENT_FORMAT = "segment";
     private final Configuration configuration;
     private final String driverName;
     private final String storageBasePath;
@@ -68,6 +68,7 @@ public class FileSystemManagedLedgerOffloader implements LedgerOffloader {
     private OrderedScheduler assignmentScheduler;
     private OffloadPolicies offloadPolicies;
     private final LedgerOffloaderStats offloaderStats;
+    private final boolean segmentFormat;
 
     public static boolean driverSupported(String driver) {
         return DRIVER_NAMES.equals(driver);
@@ -114,6 +115,7 @@ public class FileSystemManagedLedgerOffloader implements LedgerOffloader {
                 .numThreads(conf.getManagedLedgerOffloadMaxThreads())
                 .name("offload-assignment").build();
         this.offloaderStats = offloaderStats;
+        this.segmentFormat = isSegmentFormat(conf);
     }
 
     @VisibleForTesting
@@ -136,6 +138,18 @@ public class FileSystemManagedLedgerOffloader implements LedgerOffloader {
                 .numThreads(conf.getManagedLedgerOffloadMaxThreads())
                 .name("offload-assignment").build();
         this.offloaderStats = offloaderStats;
+        this.segmentFormat = isSegmentFormat(conf);
+    }
+
+    private static boolean isSegmentFormat(OffloadPoliciesImpl conf) {
+        String format = conf.getManagedLedgerExtraConfigurations().getOrDefault(OFFLOAD_FORMAT, MAPFILE_FORMAT);
+        if (SEGMENT_FORMAT.equalsIgnoreCase(format)) {
+            return true;
+        } else if (MAPFILE_FORMAT.equalsIgnoreCase(format)) {
+            return false;
+        }
+        throw new IllegalArgumentException("Unknown filesystem offload format " + format + ", expected "
+                + MAPFILE_FORMAT + " or " + SEGMENT_FORMAT);
     }
 
     @Override
@@ -147,15 +161,15 @@ public class FileSystemManagedLedgerOffloader implements LedgerOffloader {
     }
 
     /*
-    * ledgerMetadata stored in an index of -1
+    * ledgerMetadata stored in an index of -1 of a MapFile, or after the entries of a segment file
     * */
     @Override
     public CompletableFuture<Void> offload(ReadHandle readHandle, UUID uuid, Map<String, String> extraMetadata) {
         CompletableFuture<Void> promise = new CompletableFuture<>();
         scheduler.chooseThread(readHandle.getId()).execute(
                 new LedgerReader(readHandle, uuid, extraMetadata, promise, storageBasePath, configuration,
-                        assignmentScheduler, offloadPolicies.getManagedLedgerOffloadPrefetchRounds(),
-                        this.offloaderStats));
+                        fileSystem, segmentFormat, assignmentScheduler,
+                        offloadPolicies.getManagedLedgerOffloadPrefetchRounds(), this.offloaderStats));
         return promise;
     }
 
@@ -167,6 +181,8 @@ public class FileSystemManagedLedgerOffloader implements LedgerOffloader {
         private final CompletableFuture<Void> promise;
         private final String storageBasePath;
         private final Configuration configuration;
+        private final FileSystem fileSystem;
+        private final boolean segmentFormat;
         volatile Exception fileSystemWriteException = null;
         private OrderedScheduler assignmentScheduler;
         private int managedLedgerOffloadPrefetchRounds = 1;
@@ -178,6 +194,8 @@ public class FileSystemManagedLedgerOffloader implements LedgerOffloader {
                              CompletableFuture<Void> promise,
                              String storageBasePath,
                              Configuration configuration,
+                             FileSystem fileSystem,
+                             boolean segmentFormat,
                              OrderedScheduler assignmentScheduler,
                              int managedLedgerOffloadPrefetchRounds,
                              LedgerOffloaderStats offloaderStats) {
@@ -187,6 +205,8 @@ public class FileSystemManagedLedgerOffloader implements LedgerOffloader {
             this.promise = promise;
             this.storageBasePath = storageBasePath;
             this.configuration = configuration;
+            this.fileSystem = fileSystem;
+            this.segmentFormat = segmentFormat;
             this.assignmentScheduler = assignmentScheduler;
             this.managedLedgerOffloadPrefetchRounds = managedLedgerOffloadPrefetchRounds;
             this.offloaderStats = offloaderStats;
@@ -209,18 +229,12 @@ public class FileSystemManagedLedgerOffloader implements LedgerOffloader {
             String storagePath = getStoragePath(storageBasePath, managedLedgerName);
             String dataFilePath = getDataFilePath(storagePath, ledgerId, uuid);
             final String topicName = TopicName.fromPersistenceNamingEncoding(managedLedgerName);
-            LongWritable key = new LongWritable();
-            BytesWritable value = new BytesWritable();
             try {
-                MapFile.Writer dataWriter = new MapFile.Writer(configuration,
-                        new Path(dataFilePath),
-                        MapFile.Writer.keyClass(LongWritable.class),
-                        MapFile.Writer.valueClass(BytesWritable.class));
-                //store the ledgerMetadata in -1 index
-                key.set(METADATA_KEY_INDEX);
                 byte[] ledgerMetadata = buildLedgerMetadataFormat(readHandle.getLedgerMetadata());
-                value.set(ledgerMetadata, 0, ledgerMetadata.length);
-                dataWriter.append(key, value);
+                OffloadDataWriter dataWriter = segmentFormat
+                        ? new SegmentFileWriter(fileSystem.create(new Path(dataFilePath)),
+                                readHandle.getLastAddConfirmed() + 1, ledgerMetadata)
+                        : new MapFileDataWriter(configuration, dataFilePath, ledgerMetadata);
                 AtomicLong haveOffloadEntryNumber = new AtomicLong(0);
                 long needToOffloadFirstEntryNumber = 0;
                 CountDownLatch countDownLatch;
@@ -246,7 +260,7 @@ public class FileSystemManagedLedgerOffloader implements LedgerOffloader {
                 if (fileSystemWriteException != null) {
                     throw fileSystemWriteException;
                 }
-                IOUtils.closeStream(dataWriter);
+                dataWriter.close();
                 promise.complete(null);
             } catch (Exception e) {
                 log.error("Exception when get CompletableFuture<LedgerEntries> : ManagerLedgerName: {}, "
@@ -264,10 +278,7 @@ public class FileSystemManagedLedgerOffloader implements LedgerOffloader {
 
         private LedgerEntries ledgerEntriesOnce;
 
-        private final LongWritable key = new LongWritable();
-        private final BytesWritable value = new BytesWritable();
-
-        private MapFile.Writer dataWriter;
+        private OffloadDataWriter dataWriter;
         private CountDownLatch countDownLatch;
         private AtomicLong haveOffloadEntryNumber;
         private LedgerReader ledgerReader;
@@ -297,7 +308,7 @@ public class FileSystemManagedLedgerOffloader implements LedgerOffloader {
 
 
         public static FileSystemWriter create(LedgerEntries ledgerEntriesOnce,
-                                              MapFile.Writer dataWriter,
+                                              OffloadDataWriter dataWriter,
                                               Semaphore semaphore,
                                               CountDownLatch countDownLatch,
                                               AtomicLong haveOffloadEntryNumber,
@@ -321,14 +332,12 @@ public class FileSystemManagedLedgerOffloader implements LedgerOffloader {
                 while (iterator.hasNext()) {
                     LedgerEntry entry = iterator.next();
                     long entryId = entry.getEntryId();
-                    key.set(entryId);
                     byte[] currentEntryBytes;
                     int currentEntrySize;
                     try {
                         currentEntryBytes = entry.getEntryBytes();
                         currentEntrySize = currentEntryBytes.length;
-                        value.set(currentEntryBytes, 0, currentEntrySize);
-                        dataWriter.append(key, value);
+                        dataWriter.append(entryId, currentEntryBytes);
                     } catch (IOException e) {
                         ledgerReader.fileSystemWriteException = e;
                         ledgerReader.offloaderStats.recordWriteToStorageError(topicName);
@@ -355,7 +364,14 @@ public class FileSystemManagedLedgerOffloader implements LedgerOffloader {
         String dataFilePath = getDataFilePath(storagePath, ledgerId, uuid);
         scheduler.chooseThread(ledgerId).execute(() -> {
             try {
-                MapFile.Reader reader = new MapFile.Reader(new Path(dataFilePath),
+                Path dataPath = new Path(dataFilePath);
+                // a MapFile is a directory, a segment file is a single file
+                if (fileSystem.getFileStatus(dataPath).isFile()) {
+                    promise.complete(FileStoreSegmentReadHandleImpl.open(scheduler.chooseThread(ledgerId),
+                            fileSystem, dataPath, ledgerId, this.offloaderStats, ledgerName));
+                    return;
+                }
+                MapFile.Reader reader = new MapFile.Reader(dataPath,
                         configuration);
                 promise.complete(FileStoreBackedReadHandleImpl.open(
                         scheduler.chooseThread(ledgerId), reader, ledgerId, this.offloaderStats, ledgerName));
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.offload.filesystem.impl;
+
+import java.io.IOException;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.MapFile;
+
+/**
+ * Writes the entries of a ledger to a MapFile keyed by entry id, the ledger metadata is stored with the
+ * {@link FileSystemManagedLedgerOffloader#METADATA_KEY_INDEX} key.
+ */
+class MapFileDataWriter implements OffloadDataWriter {
+    private final MapFile.Writer dataWriter;
+    private final LongWritable key = new LongWritable();
+    private final BytesWritable value = new BytesWritable();
+
+    MapFileDataWriter(Configuration configuration, String dataFilePath, byte[] ledgerMetadata) throws IOException {
+        this.dataWriter = new MapFile.Writer(configuration,
+                new Path(dataFilePath),
+                MapFile.Writer.keyClass(LongWritable.class),
+                MapFile.Writer.valueClass(BytesWritable.class));
+        //store the ledgerMetadata in -1 index
+        append(FileSystemManagedLedgerOffloader.METADATA_KEY_INDEX, ledgerMetadata);
+    }
+
+    @Override
+    public void append(long entryId, byte[] entry) throws IOException {
+        key.set(entryId);
+        value.set(entry, 0, entry.length);
+        dataWriter.append(key, value);
+    }
+
+    @Override
+    public void close() {
+        IOUtils.closeStream(dataWriter);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.offload.filesystem.impl;
+
+import java.io.IOException;
+import org.apache.hadoop.fs.FSDataOutputStream;
+
+/**
+ * Writes the entries of a ledger to a single segment file, which can be read with positional reads.
+ * Segment file format:
+ *   | magic | version | entry 0 | entry 1 | ... | entry n | ledger metadata |
+ *   | offset of entry 0 | offset of entry 1 | ... | offset of entry n | end offset of entry n |
+ *   | metadata offset | metadata length | entry count | index offset | magic |
+ *
+ * <p/>The entries are written one after another, followed by the ledger metadata and by a footer with the offsets
+ * of the entries in the file. The trailer at the end of the file has a fixed size, it locates the ledger metadata and
+ * the footer.
+ */
+class SegmentFileWriter implements OffloadDataWriter {
+    static final int MAGIC_WORD = 0x5E6F11E5;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 4 /* magic */ + 4 /* version */;
+    static final int TRAILER_SIZE = 8 /* metadata offset */ + 4 /* metadata length */ + 8 /* entry count */
+            + 8 /* index offset */ + 4 /* magic */;
+
+    private final FSDataOutputStream out;
+    private final byte[] ledgerMetadata;
+    private final long[] entryOffsets;
+    private int entryCount;
+
+    SegmentFileWriter(FSDataOutputStream out, long entryCount, byte[] ledgerMetadata) throws IOException {
+        this.out = out;
+        this.ledgerMetadata = ledgerMetadata;
+        this.entryOffsets = new long[Math.toIntExact(entryCount + 1)];
+        out.writeInt(MAGIC_WORD);
+        out.writeInt(VERSION);
+    }
+
+    @Override
+    public void append(long entryId, byte[] entry) throws IOException {
+        if (entryId != entryCount) {
+            throw new IOException("Expected to write entry " + entryCount + " but got entry " + entryId);
+        }
+        entryOffsets[entryCount++] = out.getPos();
+        out.write(entry);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (entryCount != entryOffsets.length - 1) {
+                throw new IOException("Wrote " + entryCount + " entries of " + (entryOffsets.length - 1));
+            }
+            long metadataOffset = out.getPos();
+            entryOffsets[entryCount] = metadataOffset;
+            out.write(ledgerMetadata);
+            long indexOffset = out.getPos();
+            for (long entryOffset : entryOffsets) {
+                out.writeLong(entryOffset);
+            }
+            out.writeLong(metadataOffset);
+            out.writeInt(ledgerMetadata.length);
+            out.writeLong(entryCount);
+            out.writeLong(indexOffset);
+            out.writeInt(MAGIC_WORD);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -19,14 +19,23 @@
 package org.apache.bookkeeper.mledger.offload.filesystem.impl;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
 import lombok.Cleanup;
+import org.apache.bookkeeper.client.BKException;
 import org.apache.bookkeeper.client.BookKeeper;
 import org.apache.bookkeeper.client.LedgerHandle;
 import org.apache.bookkeeper.client.PulsarMockBookKeeper;
@@ -143,4 +152,91 @@ public class FileSystemOffloaderLocalFileTest {
         Path offloadedFilePath = Paths.get(basePath, mlName);
         assertEquals(Files.exists(offloadedFilePath), true);
     }
+
+    @Test
+    public void testReadWriteWithLocalFileUsingSegmentFormat() throws Exception {
+        final String basePath = "/tmp";
+        OffloadPoliciesImpl offloadPolicies = new OffloadPoliciesImpl();
+        offloadPolicies.setFileSystemURI("file://" + basePath);
+        offloadPolicies.setManagedLedgerOffloadDriver("filesystem");
+        offloadPolicies.setFileSystemProfilePath(getResourceFilePath("filesystem_offload_core_site.xml"));
+        offloadPolicies.getManagedLedgerExtraConfigurations().put(FileSystemManagedLedgerOffloader.OFFLOAD_FORMAT,
+                FileSystemManagedLedgerOffloader.SEGMENT_FORMAT);
+
+        @Cleanup
+        var offloader = FileSystemManagedLedgerOffloader.create(offloadPolicies, scheduler, offloaderStats);
+
+        int numberOfEntries = 100;
+
+        @Cleanup
+        BookKeeper bk = new PulsarMockBookKeeper(scheduler);
+        LedgerHandle lh = bk.createLedger(1, 1, 1, BookKeeper.DigestType.CRC32, "".getBytes());
+        for (int i = 0; i < numberOfEntries; i++) {
+            lh.addEntry(("foobar" + i).getBytes());
+        }
+        lh.close();
+
+        @Cleanup
+        ReadHandle read = bk.newOpenLedgerOp()
+            .withLedgerId(lh.getId())
+            .withDigestType(DigestType.CRC32)
+            .withPassword("".getBytes()).execute().get();
+
+        final String mlName = TopicName.get("testWriteLocalSegmentFile").getPersistenceNamingEncoding();
+        Map<String, String> offloadDriverMetadata = new HashMap<>();
+        offloadDriverMetadata.put("ManagedLedgerName", mlName);
+
+        UUID uuid = UUID.randomUUID();
+        offloader.offload(read, uuid, offloadDriverMetadata).get();
+
+        // the ledger is offloaded to a single file
+        Path offloadedFilePath = Paths.get(basePath, mlName, read.getId() + "-" + uuid);
+        assertTrue(Files.isRegularFile(offloadedFilePath));
+
+        @Cleanup
+        ReadHandle toTest = offloader.readOffloaded(read.getId(), uuid, offloadDriverMetadata).get();
+        assertTrue(toTest instanceof FileStoreSegmentReadHandleImpl);
+        assertEquals(toTest.getLastAddConfirmed(), read.getLastAddConfirmed());
+        assertEquals(toTest.getLength(), read.getLength());
+
+        for (long[] range : new long[][] {{0, numberOfEntries - 1}, {1, numberOfEntries - 1}, {50, 50},
+                {numberOfEntries - 1, numberOfEntries - 1}}) {
+            try (LedgerEntries toTestEntries = toTest.read(range[0], range[1]);
+                 LedgerEntries toWriteEntries = read.read(range[0], range[1])) {
+                Iterator<LedgerEntry> toTestIter = toTestEntries.iterator();
+                Iterator<LedgerEntry> toWriteIter = toWriteEntries.iterator();
+                while (toWriteIter.hasNext()) {
+                    LedgerEntry toWriteEntry = toWriteIter.next();
+                    LedgerEntry toTestEntry = toTestIter.next();
+
+                    assertEquals(toWriteEntry.getLedgerId(), toTestEntry.getLedgerId());
+                    assertEquals(toWriteEntry.getEntryId(), toTestEntry.getEntryId());
+                    assertEquals(toWriteEntry.getLength(), toTestEntry.getLength());
+                    assertEquals(toWriteEntry.getEntryBuffer(), toTestEntry.getEntryBuffer());
+                }
+                assertFalse(toTestIter.hasNext());
+            }
+        }
+
+        try {
+            toTest.read(0, numberOfEntries);
+            fail("Should fail to read beyond the last entry");
+        } catch (BKException.BKIncorrectParameterException e) {
+            // expected
+        }
+
+        // a segment file written with another version of the format isn't read
+        try (FileChannel channel = FileChannel.open(offloadedFilePath, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, SegmentFileWriter.VERSION + 1), 4);
+        }
+        try {
+            offloader.readOffloaded(read.getId(), uuid, offloadDriverMetadata).get();
+            fail("Should fail to read a segment file of an unsupported version");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+
+        offloader.deleteOffloaded(read.getId(), uuid, offloadDriverMetadata).get();
+        assertFalse(Files.exists(offloadedFilePath));
+    }
 }
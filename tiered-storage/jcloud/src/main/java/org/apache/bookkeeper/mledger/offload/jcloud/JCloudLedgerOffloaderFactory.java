@@ -25,6 +25,8 @@ import org.apache.bookkeeper.mledger.LedgerOffloaderFactory;
 import org.apache.bookkeeper.mledger.LedgerOffloaderStats;
 import org.apache.bookkeeper.mledger.LedgerOffloaderStatsDisable;
 import org.apache.bookkeeper.mledger.offload.jcloud.impl.BlobStoreManagedLedgerOffloader;
+import org.apache.bookkeeper.mledger.offload.jcloud.impl.OffloadBlockCache;
+import org.apache.bookkeeper.mledger.offload.jcloud.impl.OffloadIndexCache;
 import org.apache.bookkeeper.mledger.offload.jcloud.impl.OffsetsCache;
 import org.apache.bookkeeper.mledger.offload.jcloud.provider.JCloudBlobStoreProvider;
 import org.apache.bookkeeper.mledger.offload.jcloud.provider.TieredStorageConfiguration;
@@ -35,6 +37,8 @@ import org.apache.pulsar.common.policies.data.OffloadPoliciesImpl;
  */
 public class JCloudLedgerOffloaderFactory implements LedgerOffloaderFactory<BlobStoreManagedLedgerOffloader> {
     private final OffsetsCache entryOffsetsCache = new OffsetsCache();
+    private final OffloadBlockCache blockCache = new OffloadBlockCache();
+    private final OffloadIndexCache indexCache = new OffloadIndexCache();
 
     @Override
     public boolean isDriverSupported(String driverName) {
@@ -55,7 +59,7 @@ public class JCloudLedgerOffloaderFactory implements LedgerOffloaderFactory<Blob
         TieredStorageConfiguration config =
                 TieredStorageConfiguration.create(offloadPolicies.toProperties());
         return BlobStoreManagedLedgerOffloader.create(config, userMetadata, scheduler, scheduler, offloaderStats,
-                entryOffsetsCache);
+                entryOffsetsCache, blockCache, indexCache);
     }
 
     @Override
@@ -67,11 +71,13 @@ public class JCloudLedgerOffloaderFactory implements LedgerOffloaderFactory<Blob
         TieredStorageConfiguration config =
                 TieredStorageConfiguration.create(offloadPolicies.toProperties());
         return BlobStoreManagedLedgerOffloader.create(config, userMetadata, scheduler, readExecutor, offloaderStats,
-                entryOffsetsCache);
+                entryOffsetsCache, blockCache, indexCache);
     }
 
     @Override
     public void close() throws Exception {
         entryOffsetsCache.close();
+        blockCache.close();
+        indexCache.clear();
     }
 }
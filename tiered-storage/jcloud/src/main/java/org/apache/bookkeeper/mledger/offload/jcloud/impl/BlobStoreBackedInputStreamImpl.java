@@ -19,6 +19,7 @@
 package org.apache.bookkeeper.mledger.offload.jcloud.impl;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.concurrent.TimeUnit;
@@ -47,10 +48,14 @@ public class BlobStoreBackedInputStreamImpl extends BackedInputStream {
     private LedgerOffloaderStats offloaderStats;
     private String managedLedgerName;
     private String topicName;
+    private OffloadBlockCache blockCache;
+    private int readAheadBlocks;
 
     private long cursor;
     private long bufferOffsetStart;
     private long bufferOffsetEnd;
+    // the index of the last block read when reading blocks aligned on the buffer size, to detect sequential reads
+    private long lastBlockIndex = -1;
 
     public BlobStoreBackedInputStreamImpl(BlobStore blobStore, String bucket, String key,
                                           VersionCheck versionCheck,
@@ -77,6 +82,24 @@ public class BlobStoreBackedInputStreamImpl extends BackedInputStream {
         this.topicName = TopicName.fromPersistenceNamingEncoding(managedLedgerName);
     }
 
+    /**
+     * Create an input stream which reads the data object by blocks of the buffer size, the blocks following the block
+     * being read are read ahead into the block cache when the data object is read sequentially.
+     */
+    public BlobStoreBackedInputStreamImpl(BlobStore blobStore, String bucket, String key,
+                                          VersionCheck versionCheck,
+                                          long objectLen, int bufferSize,
+                                          LedgerOffloaderStats offloaderStats, String managedLedgerName,
+                                          OffloadBlockCache blockCache, int readAheadBlocks) {
+        this(blobStore, bucket, key, versionCheck, objectLen, bufferSize, offloaderStats, managedLedgerName);
+        this.blockCache = blockCache;
+        this.readAheadBlocks = readAheadBlocks;
+    }
+
+    private boolean isReadAheadEnabled() {
+        return blockCache != null && blockCache.isEnabled() && readAheadBlocks > 0;
+    }
+
     /**
      * Refill the buffered input if it is empty.
      * @return true if there are bytes to read, false otherwise
@@ -86,6 +109,9 @@ public class BlobStoreBackedInputStreamImpl extends BackedInputStream {
             if (cursor >= objectLen) {
                 return false;
             }
+            if (isReadAheadEnabled()) {
+                return refillBufferFromBlocks();
+            }
             long startRange = cursor;
             long endRange = Math.min(cursor + bufferSize - 1,
                                      objectLen - 1);
@@ -93,46 +119,135 @@ public class BlobStoreBackedInputStreamImpl extends BackedInputStream {
                 log.info("refillBufferIfNeeded {} - {} ({} bytes to fill)",
                         startRange, endRange, (endRange - startRange));
             }
-            try {
-                long startReadTime = System.nanoTime();
-                Blob blob = blobStore.getBlob(bucket, key, new GetOptions().range(startRange, endRange));
-                if (blob == null) {
-                    throw new KeyNotFoundException(bucket, key, "");
-                }
-                versionCheck.check(key, blob);
-
-                try (InputStream stream = blob.getPayload().openStream()) {
-                    buffer.clear();
-                    bufferOffsetStart = startRange;
-                    bufferOffsetEnd = endRange;
-                    long bytesRead = endRange - startRange + 1;
-                    int bytesToCopy = (int) bytesRead;
-                    fillBuffer(stream, bytesToCopy);
-                    cursor += buffer.readableBytes();
-                }
-
-                // here we can get the metrics
-                // because JClouds streams the content
-                // and actually the HTTP call finishes when the stream is fully read
-                if (this.offloaderStats != null) {
-                    this.offloaderStats.recordReadOffloadDataLatency(topicName,
-                            System.nanoTime() - startReadTime, TimeUnit.NANOSECONDS);
-                    this.offloaderStats.recordReadOffloadBytes(topicName, endRange - startRange + 1);
-                }
-            } catch (Throwable e) {
-                if (null != this.offloaderStats) {
-                    this.offloaderStats.recordReadOffloadError(this.topicName);
-                }
-                // If the blob is not found, the original exception is thrown and handled by the caller.
-                if (e instanceof KeyNotFoundException) {
-                    throw e;
-                }
-                throw new IOException("Error reading from BlobStore", e);
+            readRange(startRange, endRange);
+            bufferOffsetStart = startRange;
+            bufferOffsetEnd = endRange;
+            cursor += buffer.readableBytes();
+        }
+        return true;
+    }
+
+    /**
+     * Refill the buffer with the block, aligned on the buffer size, which contains the cursor. The block is read from
+     * the block cache if it was read ahead, and the next blocks are read ahead if the blocks are read sequentially.
+     */
+    private boolean refillBufferFromBlocks() throws IOException {
+        long blockIndex = cursor / bufferSize;
+        long blockStart = blockIndex * bufferSize;
+        long blockEnd = Math.min(blockStart + bufferSize, objectLen) - 1;
+        boolean sequential = blockIndex == lastBlockIndex + 1;
+        lastBlockIndex = blockIndex;
+
+        byte[] block = blockCache.getBlock(bucket, key, blockStart, bufferSize);
+        if (block != null) {
+            if (offloaderStats != null) {
+                offloaderStats.recordReadOffloadBlockCacheHit(topicName);
+            }
+            buffer.clear();
+            buffer.writeBytes(block);
+        } else {
+            if (offloaderStats != null) {
+                offloaderStats.recordReadOffloadBlockCacheMiss(topicName);
+            }
+            readRange(blockStart, blockEnd);
+            if (buffer.readableBytes() == blockEnd - blockStart + 1) {
+                // the block may be read again by the other read handles of the ledger
+                blockCache.putBlock(bucket, key, blockStart, bufferSize, ByteBufUtil.getBytes(buffer));
+            }
+        }
+        int positionInBlock = (int) (cursor - blockStart);
+        if (buffer.readableBytes() <= positionInBlock) {
+            buffer.clear();
+            return false;
+        }
+        buffer.readerIndex(positionInBlock);
+        bufferOffsetStart = blockStart;
+        bufferOffsetEnd = blockStart + buffer.writerIndex() - 1;
+        cursor = blockStart + buffer.writerIndex();
+
+        if (sequential) {
+            long lastObjectBlockIndex = (objectLen - 1) / bufferSize;
+            for (long nextBlockIndex = blockIndex + 1;
+                 nextBlockIndex <= Math.min(blockIndex + readAheadBlocks, lastObjectBlockIndex); nextBlockIndex++) {
+                long nextBlockStart = nextBlockIndex * bufferSize;
+                long nextBlockEnd = Math.min(nextBlockStart + bufferSize, objectLen) - 1;
+                blockCache.prefetchBlock(bucket, key, nextBlockStart, bufferSize,
+                        () -> readBlock(nextBlockStart, nextBlockEnd));
             }
         }
         return true;
     }
 
+    private Blob getBlob(long startRange, long endRange) throws IOException {
+        Blob blob = blobStore.getBlob(bucket, key, new GetOptions().range(startRange, endRange));
+        if (blob == null) {
+            throw new KeyNotFoundException(bucket, key, "");
+        }
+        versionCheck.check(key, blob);
+        return blob;
+    }
+
+    /**
+     * Read a range of the data object into the buffer.
+     */
+    private void readRange(long startRange, long endRange) throws IOException {
+        try {
+            long startReadTime = System.nanoTime();
+            Blob blob = getBlob(startRange, endRange);
+
+            try (InputStream stream = blob.getPayload().openStream()) {
+                buffer.clear();
+                long bytesRead = endRange - startRange + 1;
+                int bytesToCopy = (int) bytesRead;
+                fillBuffer(stream, bytesToCopy);
+            }
+
+            // here we can get the metrics
+            // because JClouds streams the content
+            // and actually the HTTP call finishes when the stream is fully read
+            if (this.offloaderStats != null) {
+                this.offloaderStats.recordReadOffloadDataLatency(topicName,
+                        System.nanoTime() - startReadTime, TimeUnit.NANOSECONDS);
+                this.offloaderStats.recordReadOffloadBytes(topicName, endRange - startRange + 1);
+            }
+        } catch (Throwable e) {
+            if (null != this.offloaderStats) {
+                this.offloaderStats.recordReadOffloadError(this.topicName);
+            }
+            // If the blob is not found, the original exception is thrown and handled by the caller.
+            if (e instanceof KeyNotFoundException) {
+                throw e;
+            }
+            throw new IOException("Error reading from BlobStore", e);
+        }
+    }
+
+    /**
+     * Read a block of the data object ahead of the reads, on the threads of the block cache.
+     */
+    private byte[] readBlock(long startRange, long endRange) throws IOException {
+        try {
+            long startReadTime = System.nanoTime();
+            Blob blob = getBlob(startRange, endRange);
+            byte[] block;
+            try (InputStream stream = blob.getPayload().openStream()) {
+                block = stream.readNBytes((int) (endRange - startRange + 1));
+            }
+            if (this.offloaderStats != null) {
+                this.offloaderStats.recordReadOffloadDataLatency(topicName,
+                        System.nanoTime() - startReadTime, TimeUnit.NANOSECONDS);
+                this.offloaderStats.recordReadOffloadBytes(topicName, block.length);
+                this.offloaderStats.recordReadOffloadPrefetch(topicName, block.length);
+            }
+            return block;
+        } catch (Throwable e) {
+            if (null != this.offloaderStats) {
+                this.offloaderStats.recordReadOffloadError(this.topicName);
+            }
+            throw e;
+        }
+    }
+
     void fillBuffer(InputStream is, int bytesToCopy) throws IOException {
         while (bytesToCopy > 0) {
             int writeBytes = buffer.writeBytes(is, bytesToCopy);
@@ -25,6 +25,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
@@ -284,10 +285,50 @@ public class BlobStoreBackedReadHandleImpl implements ReadHandle, OffloadedLedge
                                   LedgerOffloaderStats offloaderStats, String managedLedgerName,
                                   OffsetsCache entryOffsetsCache)
             throws IOException, BKException.BKNoSuchLedgerExistsException {
+        return open(executor, blobStore, bucket, key, indexKey, versionCheck, ledgerId, readBufferSize,
+                offloaderStats, managedLedgerName, entryOffsetsCache, null, 0, null, null);
+    }
+
+    public static ReadHandle open(ScheduledExecutorService executor,
+                                  BlobStore blobStore, String bucket, String key, String indexKey,
+                                  VersionCheck versionCheck,
+                                  long ledgerId, int readBufferSize,
+                                  LedgerOffloaderStats offloaderStats, String managedLedgerName,
+                                  OffsetsCache entryOffsetsCache,
+                                  OffloadBlockCache blockCache, int readAheadBlocks,
+                                  OffloadIndexCache indexCache, UUID uuid)
+            throws IOException, BKException.BKNoSuchLedgerExistsException {
+        String topicName = TopicName.fromPersistenceNamingEncoding(managedLedgerName);
+        OffloadIndexBlock index;
+        if (indexCache != null && indexCache.isEnabled()) {
+            index = indexCache.getIfPresent(ledgerId, uuid);
+            if (index != null) {
+                offloaderStats.recordReadOffloadIndexCacheHit(topicName);
+            } else {
+                offloaderStats.recordReadOffloadIndexCacheMiss(topicName);
+                index = readIndex(blobStore, bucket, indexKey, versionCheck, offloaderStats, topicName);
+                if (index instanceof OffloadIndexBlockImpl) {
+                    index = indexCache.put(ledgerId, uuid, (OffloadIndexBlockImpl) index);
+                }
+            }
+        } else {
+            index = readIndex(blobStore, bucket, indexKey, versionCheck, offloaderStats, topicName);
+        }
+
+        BackedInputStream inputStream = new BlobStoreBackedInputStreamImpl(blobStore, bucket, key,
+                versionCheck, index.getDataObjectLength(), readBufferSize, offloaderStats, managedLedgerName,
+                blockCache, readAheadBlocks);
+
+        return new BlobStoreBackedReadHandleImpl(ledgerId, index, inputStream, executor, entryOffsetsCache);
+    }
+
+    private static OffloadIndexBlock readIndex(BlobStore blobStore, String bucket, String indexKey,
+                                               VersionCheck versionCheck, LedgerOffloaderStats offloaderStats,
+                                               String topicName)
+            throws IOException, BKException.BKNoSuchLedgerExistsException {
         int retryCount = 3;
         OffloadIndexBlock index = null;
         IOException lastException = null;
-        String topicName = TopicName.fromPersistenceNamingEncoding(managedLedgerName);
         // The following retry is used to avoid to some network issue cause read index file failure.
         // If it can not recovery in the retry, we will throw the exception and the dispatcher will schedule to
         // next read.
@@ -319,11 +360,7 @@ public class BlobStoreBackedReadHandleImpl implements ReadHandle, OffloadedLedge
         if (lastException != null) {
             throw lastException;
         }
-
-        BackedInputStream inputStream = new BlobStoreBackedInputStreamImpl(blobStore, bucket, key,
-                versionCheck, index.getDataObjectLength(), readBufferSize, offloaderStats, managedLedgerName);
-
-        return new BlobStoreBackedReadHandleImpl(ledgerId, index, inputStream, executor, entryOffsetsCache);
+        return index;
     }
 
     // for testing
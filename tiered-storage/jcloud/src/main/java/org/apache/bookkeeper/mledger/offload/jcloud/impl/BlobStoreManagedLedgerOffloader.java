@@ -21,6 +21,7 @@ package org.apache.bookkeeper.mledger.offload.jcloud.impl;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.IOException;
 import java.net.URI;
 import java.time.Duration;
@@ -36,6 +37,8 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import lombok.NonNull;
@@ -111,6 +114,10 @@ public class BlobStoreManagedLedgerOffloader implements LedgerOffloader {
     private final AtomicLong segmentLength = new AtomicLong(0);
     private final long maxBufferLength;
     private final OffsetsCache entryOffsetsCache;
+    private final OffloadBlockCache blockCache;
+    private final OffloadIndexCache indexCache;
+    private final int uploadParallelism;
+    private final ExecutorService uploadExecutor;
     private final ConcurrentLinkedQueue<Entry> offloadBuffer = new ConcurrentLinkedQueue<>();
     private CompletableFuture<OffloadResult> offloadResult;
     private volatile Position lastOfferedPosition = PositionFactory.LATEST;
@@ -131,14 +138,28 @@ public class BlobStoreManagedLedgerOffloader implements LedgerOffloader {
                                                          OffsetsCache entryOffsetsCache)
             throws IOException {
 
+        return create(config, userMetadata, scheduler, readExecutor, offloaderStats, entryOffsetsCache, null, null);
+    }
+
+    public static BlobStoreManagedLedgerOffloader create(TieredStorageConfiguration config,
+                                                         Map<String, String> userMetadata,
+                                                         OrderedScheduler scheduler,
+                                                         OrderedScheduler readExecutor,
+                                                         LedgerOffloaderStats offloaderStats,
+                                                         OffsetsCache entryOffsetsCache,
+                                                         OffloadBlockCache blockCache,
+                                                         OffloadIndexCache indexCache)
+            throws IOException {
+
         return new BlobStoreManagedLedgerOffloader(config, scheduler, readExecutor,
-                userMetadata, offloaderStats, entryOffsetsCache);
+                userMetadata, offloaderStats, entryOffsetsCache, blockCache, indexCache);
     }
 
     BlobStoreManagedLedgerOffloader(TieredStorageConfiguration config, OrderedScheduler scheduler,
                                     OrderedScheduler readExecutor,
                                     Map<String, String> userMetadata, LedgerOffloaderStats offloaderStats,
-                                    OffsetsCache entryOffsetsCache) {
+                                    OffsetsCache entryOffsetsCache, OffloadBlockCache blockCache,
+                                    OffloadIndexCache indexCache) {
         this.scheduler = scheduler;
         this.readExecutor = readExecutor;
         this.userMetadata = userMetadata;
@@ -153,6 +174,15 @@ public class BlobStoreManagedLedgerOffloader implements LedgerOffloader {
         //ensure buffer can have enough content to fill a block
         this.maxBufferLength = Math.max(config.getWriteBufferSizeInBytes(), config.getMinBlockSizeInBytes());
         this.entryOffsetsCache = entryOffsetsCache;
+        this.blockCache = blockCache;
+        this.indexCache = indexCache;
+        this.uploadParallelism = config.getUploadParallelism();
+        if (uploadParallelism > 1) {
+            this.uploadExecutor = Executors.newFixedThreadPool(uploadParallelism,
+                    new ThreadFactoryBuilder().setNameFormat("offloader-part-upload-%d").setDaemon(true).build());
+        } else {
+            this.uploadExecutor = null;
+        }
         this.segmentBeginTimeMillis = System.currentTimeMillis();
         if (!Strings.isNullOrEmpty(config.getRegion())) {
             this.writeLocation = new LocationBuilder()
@@ -192,6 +222,8 @@ public class BlobStoreManagedLedgerOffloader implements LedgerOffloader {
     /**
      * Upload the DataBlocks associated with the given ReadHandle using MultiPartUpload,
      * Creating indexBlocks for each corresponding DataBlock that is uploaded.
+     * The DataBlocks are read from the ledger one after another, and are uploaded concurrently
+     * when the upload parallelism is greater than 1.
      */
     @Override
     public CompletableFuture<Void> offload(ReadHandle readHandle,
@@ -223,6 +255,7 @@ public class BlobStoreManagedLedgerOffloader implements LedgerOffloader {
 
             MultipartUpload mpu = null;
             List<MultipartPart> parts = Lists.newArrayList();
+            ParallelPartUploader partUploader = null;
 
             // init multi part upload for data block.
             try {
@@ -236,6 +269,9 @@ public class BlobStoreManagedLedgerOffloader implements LedgerOffloader {
                 Blob blob = blobBuilder.build();
                 log.info("initiateMultipartUpload bucket {}, metadata {} ", config.getBucket(), blob.getMetadata());
                 mpu = writeBlobStore.initiateMultipartUpload(config.getBucket(), blob.getMetadata(), new PutOptions());
+                if (uploadExecutor != null) {
+                    partUploader = new ParallelPartUploader(writeBlobStore, mpu, uploadExecutor, uploadParallelism);
+                }
             } catch (Throwable t) {
                 promise.completeExceptionally(t);
                 return;
@@ -255,10 +291,14 @@ public class BlobStoreManagedLedgerOffloader implements LedgerOffloader {
                     try (BlockAwareSegmentInputStream blockStream = new BlockAwareSegmentInputStreamImpl(
                             readHandle, startEntry, blockSize, this.offloaderStats, managedLedgerName)) {
 
-                        Payload partPayload = Payloads.newInputStreamPayload(blockStream);
-                        partPayload.getContentMetadata().setContentLength((long) blockSize);
-                        partPayload.getContentMetadata().setContentType("application/octet-stream");
-                        parts.add(writeBlobStore.uploadMultipartPart(mpu, partId, partPayload));
+                        if (partUploader != null) {
+                            partUploader.upload(partId, blockStream, blockSize);
+                        } else {
+                            Payload partPayload = Payloads.newInputStreamPayload(blockStream);
+                            partPayload.getContentMetadata().setContentLength((long) blockSize);
+                            partPayload.getContentMetadata().setContentType("application/octet-stream");
+                            parts.add(writeBlobStore.uploadMultipartPart(mpu, partId, partPayload));
+                        }
                         log.debug("UploadMultipartPart. container: {}, blobName: {}, partId: {}, mpu: {}",
                                 config.getBucket(), dataBlockKey, partId, mpu.id());
 
@@ -278,12 +318,18 @@ public class BlobStoreManagedLedgerOffloader implements LedgerOffloader {
                     dataObjectLength += blockSize;
                 }
 
+                if (partUploader != null) {
+                    parts.addAll(partUploader.awaitParts());
+                }
                 String etag = writeBlobStore.completeMultipartUpload(mpu, parts);
                 log.info("Ledger {}, upload finished, etag {}", readHandle.getId(), etag);
                 mpu = null;
             } catch (Throwable t) {
                 try {
                     if (mpu != null) {
+                        if (partUploader != null) {
+                            partUploader.awaitQuietly();
+                        }
                         writeBlobStore.abortMultipartUpload(mpu);
                     }
                 } catch (Throwable throwable) {
@@ -574,7 +620,8 @@ public class BlobStoreManagedLedgerOffloader implements LedgerOffloader {
                         DataBlockUtils.VERSION_CHECK,
                         ledgerId, config.getReadBufferSizeInBytes(),
                         this.offloaderStats, offloadDriverMetadata.get(MANAGED_LEDGER_NAME),
-                        this.entryOffsetsCache));
+                        this.entryOffsetsCache, this.blockCache, config.getReadAheadBlocks(),
+                        this.indexCache, uid));
             } catch (Throwable t) {
                 log.error("Failed readOffloaded: ", t);
                 promise.completeExceptionally(t);
@@ -624,6 +671,9 @@ public class BlobStoreManagedLedgerOffloader implements LedgerOffloader {
         String readBucket = bsKey.getBucket(offloadDriverMetadata);
 
         CompletableFuture<Void> promise = new CompletableFuture<>();
+        if (indexCache != null) {
+            indexCache.invalidate(ledgerId, uid);
+        }
         scheduler.chooseThread(ledgerId).execute(() -> {
             try {
                 BlobStore readBlobstore = getBlobStore(config.getBlobStoreLocation());
@@ -676,6 +726,9 @@ public class BlobStoreManagedLedgerOffloader implements LedgerOffloader {
 
     @Override
     public void close() {
+        if (uploadExecutor != null) {
+            uploadExecutor.shutdown();
+        }
         for (BlobStore readBlobStore : blobStores.values()) {
             if (readBlobStore != null) {
                 readBlobStore.getContext().close();
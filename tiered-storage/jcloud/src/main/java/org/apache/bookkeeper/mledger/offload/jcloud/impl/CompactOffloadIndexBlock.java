@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.offload.jcloud.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.mledger.offload.jcloud.OffloadIndexBlock;
+import org.apache.bookkeeper.mledger.offload.jcloud.OffloadIndexEntry;
+
+/**
+ * Immutable index block of an offloaded ledger, which keeps its index entries in primitive arrays sorted by entry id
+ * rather than in a map of entry objects. It can be shared by all the read handles of the ledger, closing it is a
+ * no-op.
+ */
+class CompactOffloadIndexBlock implements OffloadIndexBlock {
+    // entry id + part id + offset
+    private static final int INDEX_ENTRY_SIZE = 8 + 4 + 8;
+    // approximate size of the ledger metadata and of the fields of the index block
+    private static final int INDEX_BLOCK_OVERHEAD = 1024;
+
+    private final LedgerMetadata segmentMetadata;
+    private final long dataObjectLength;
+    private final long dataHeaderLength;
+    private final long[] entryIds;
+    private final int[] partIds;
+    private final long[] offsets;
+
+    CompactOffloadIndexBlock(LedgerMetadata segmentMetadata, long dataObjectLength, long dataHeaderLength,
+                             long[] entryIds, int[] partIds, long[] offsets) {
+        this.segmentMetadata = segmentMetadata;
+        this.dataObjectLength = dataObjectLength;
+        this.dataHeaderLength = dataHeaderLength;
+        this.entryIds = entryIds;
+        this.partIds = partIds;
+        this.offsets = offsets;
+    }
+
+    @Override
+    public OffloadIndexEntry getIndexEntryForEntry(long messageEntryId) throws IOException {
+        if (messageEntryId > segmentMetadata.getLastEntryId()) {
+            throw new IndexOutOfBoundsException("Entry index: " + messageEntryId
+                + " beyond lastEntryId: " + segmentMetadata.getLastEntryId());
+        }
+        // find the greatest mapping Id whose entryId <= messageEntryId
+        int index = Arrays.binarySearch(entryIds, messageEntryId);
+        if (index < 0) {
+            index = -index - 2;
+        }
+        return OffloadIndexEntryImpl.of(entryIds[index], partIds[index], offsets[index], dataHeaderLength);
+    }
+
+    @Override
+    public int getEntryCount() {
+        return entryIds.length;
+    }
+
+    @Override
+    public LedgerMetadata getLedgerMetadata() {
+        return segmentMetadata;
+    }
+
+    @Override
+    public long getDataObjectLength() {
+        return dataObjectLength;
+    }
+
+    @Override
+    public long getDataBlockHeaderLength() {
+        return dataHeaderLength;
+    }
+
+    @Override
+    public IndexInputStream toStream() throws IOException {
+        List<OffloadIndexEntryImpl> entries = new ArrayList<>(entryIds.length);
+        for (int i = 0; i < entryIds.length; i++) {
+            entries.add(OffloadIndexEntryImpl.of(entryIds[i], partIds[i], offsets[i], dataHeaderLength));
+        }
+        OffloadIndexBlockImpl index = OffloadIndexBlockImpl.get(segmentMetadata, dataObjectLength, dataHeaderLength,
+                entries);
+        try {
+            return index.toStream();
+        } finally {
+            index.close();
+        }
+    }
+
+    /**
+     * Get the approximate size of the index block on the heap, used to bound the size of the index cache.
+     */
+    int getEstimatedSize() {
+        return INDEX_BLOCK_OVERHEAD + entryIds.length * INDEX_ENTRY_SIZE;
+    }
+
+    @Override
+    public void close() {
+        // shared by the read handles of the ledger
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.offload.jcloud.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of the blocks of offloaded data objects, shared by all the offloaders of a broker. The blocks are put in the
+ * cache by the read-ahead of the offloaded ledgers which are read sequentially, the blocks are then read by the read
+ * handles from the cache instead of from the blob store.
+ *
+ * <p/>The blocks which are read ahead are fetched in parallel with ranged reads on a dedicated thread pool, a read
+ * handle which needs a block being fetched waits for it rather than reading it again, up to a timeout after which it
+ * reads the block itself. The prefetches are dropped when too many of them are waiting for a thread.
+ */
+public class OffloadBlockCache implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(OffloadBlockCache.class);
+
+    // limit the cache size to avoid OOM
+    private static final long CACHE_MAX_SIZE_BYTES =
+            Long.getLong("pulsar.jclouds.readhandleimpl.blockcache.max.size.bytes", 64 * 1024 * 1024);
+    private static final int CACHE_TTL_SECONDS =
+            Integer.getInteger("pulsar.jclouds.readhandleimpl.blockcache.ttl.seconds", 60);
+    private static final int PREFETCH_THREADS =
+            Integer.getInteger("pulsar.jclouds.readhandleimpl.blockcache.prefetch.threads", 8);
+    private static final int PREFETCH_QUEUE_SIZE =
+            Integer.getInteger("pulsar.jclouds.readhandleimpl.blockcache.prefetch.queue.size", 256);
+    private static final long PREFETCH_WAIT_TIMEOUT_MS =
+            Long.getLong("pulsar.jclouds.readhandleimpl.blockcache.prefetch.wait.timeout.ms", 10_000);
+
+    record Key(String bucket, String key, long offset, int blockSize) {
+
+    }
+
+    private final Cache<Key, byte[]> blocks;
+    private final ConcurrentMap<Key, CompletableFuture<byte[]>> pendingBlocks = new ConcurrentHashMap<>();
+    private final ExecutorService prefetchExecutor;
+    private final long prefetchWaitTimeoutMillis;
+
+    public OffloadBlockCache() {
+        this(CACHE_MAX_SIZE_BYTES, CACHE_TTL_SECONDS, PREFETCH_THREADS, PREFETCH_QUEUE_SIZE, PREFETCH_WAIT_TIMEOUT_MS);
+    }
+
+    OffloadBlockCache(long maxSizeBytes, int ttlSeconds, int prefetchThreads, int prefetchQueueSize,
+                      long prefetchWaitTimeoutMillis) {
+        this.prefetchWaitTimeoutMillis = prefetchWaitTimeoutMillis;
+        if (maxSizeBytes > 0 && prefetchThreads > 0) {
+            blocks = CacheBuilder
+                    .newBuilder()
+                    .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                    .maximumWeight(maxSizeBytes)
+                    .<Key, byte[]>weigher((key, block) -> block.length)
+                    .build();
+            // the prefetches rejected by the bounded queue are dropped, the blocks are then read on demand
+            prefetchExecutor = new ThreadPoolExecutor(prefetchThreads, prefetchThreads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(prefetchQueueSize),
+                    new ThreadFactoryBuilder().setNameFormat("jcloud-block-prefetch-%d").setDaemon(true).build());
+        } else {
+            blocks = null;
+            prefetchExecutor = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return blocks != null;
+    }
+
+    /**
+     * Get a block from the cache, waiting for it if it is being fetched.
+     *
+     * @return the block, or null if the block is not in the cache or could not be fetched in time
+     */
+    public byte[] getBlock(String bucket, String key, long offset, int blockSize) {
+        if (blocks == null) {
+            return null;
+        }
+        Key blockKey = new Key(bucket, key, offset, blockSize);
+        byte[] block = blocks.getIfPresent(blockKey);
+        if (block != null) {
+            return block;
+        }
+        CompletableFuture<byte[]> pendingBlock = pendingBlocks.get(blockKey);
+        if (pendingBlock == null) {
+            // the block may have been fetched in the meantime
+            return blocks.getIfPresent(blockKey);
+        }
+        try {
+            return pendingBlock.get(prefetchWaitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            // the block is read again by the caller
+            return null;
+        }
+    }
+
+    public void putBlock(String bucket, String key, long offset, int blockSize, byte[] block) {
+        if (blocks != null) {
+            blocks.put(new Key(bucket, key, offset, blockSize), block);
+        }
+    }
+
+    /**
+     * Fetch a block in the background, unless it is already in the cache or being fetched.
+     */
+    public void prefetchBlock(String bucket, String key, long offset, int blockSize, Callable<byte[]> reader) {
+        if (blocks == null) {
+            return;
+        }
+        Key blockKey = new Key(bucket, key, offset, blockSize);
+        if (blocks.getIfPresent(blockKey) != null) {
+            return;
+        }
+        CompletableFuture<byte[]> pendingBlock = new CompletableFuture<>();
+        if (pendingBlocks.putIfAbsent(blockKey, pendingBlock) != null) {
+            return;
+        }
+        try {
+            prefetchExecutor.execute(() -> {
+                try {
+                    byte[] block = reader.call();
+                    blocks.put(blockKey, block);
+                    pendingBlock.complete(block);
+                } catch (Throwable t) {
+                    log.warn("Failed to prefetch the block at {} of {}/{}", offset, bucket, key, t);
+                    pendingBlock.completeExceptionally(t);
+                } finally {
+                    pendingBlocks.remove(blockKey, pendingBlock);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Dropped the prefetch of the block at {} of {}/{}", offset, bucket, key);
+            }
+            pendingBlocks.remove(blockKey, pendingBlock);
+            pendingBlock.completeExceptionally(e);
+        }
+    }
+
+    public void clear() {
+        if (blocks != null) {
+            blocks.invalidateAll();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (prefetchExecutor != null) {
+            prefetchExecutor.shutdownNow();
+        }
+        // the blocks which won't be fetched are read by the read handles waiting for them
+        pendingBlocks.values().forEach(pendingBlock ->
+                pendingBlock.completeExceptionally(new IllegalStateException("The block cache is closed")));
+    }
+}
@@ -133,6 +133,25 @@ public class OffloadIndexBlockImpl implements OffloadIndexBlock {
         return this.dataHeaderLength;
     }
 
+    /**
+     * Copy the index block into an immutable index block with a compact layout, which can be shared.
+     */
+    CompactOffloadIndexBlock toCompact() {
+        int indexEntryCount = this.indexEntries.size();
+        long[] entryIds = new long[indexEntryCount];
+        int[] partIds = new int[indexEntryCount];
+        long[] offsets = new long[indexEntryCount];
+        int i = 0;
+        for (OffloadIndexEntryImpl entry : this.indexEntries.values()) {
+            entryIds[i] = entry.getEntryId();
+            partIds[i] = entry.getPartId();
+            offsets[i] = entry.getOffset();
+            i++;
+        }
+        return new CompactOffloadIndexBlock(this.segmentMetadata, this.dataObjectLength, this.dataHeaderLength,
+                entryIds, partIds, offsets);
+    }
+
     /**
      * Get the content of the index block as InputStream.
      * Read out in format:
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.offload.jcloud.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.mledger.offload.jcloud.OffloadIndexBlock;
+
+/**
+ * Cache of the parsed index blocks of the offloaded ledgers, shared by all the offloaders of a broker, so that the
+ * index block of a ledger is not downloaded and parsed again each time the ledger is opened for reading.
+ *
+ * <p/>The index blocks are cached in a compact layout, see {@link CompactOffloadIndexBlock}, and the cache is bounded
+ * by their approximate size on the heap.
+ */
+public class OffloadIndexCache {
+    // limit the cache size to avoid OOM
+    private static final long CACHE_MAX_SIZE_BYTES =
+            Long.getLong("pulsar.jclouds.readhandleimpl.indexcache.max.size.bytes", 32 * 1024 * 1024);
+    private static final int CACHE_TTL_SECONDS =
+            Integer.getInteger("pulsar.jclouds.readhandleimpl.indexcache.ttl.seconds", 10 * 60);
+
+    record Key(long ledgerId, UUID uuid) {
+
+    }
+
+    private final Cache<Key, CompactOffloadIndexBlock> indexBlocks;
+
+    public OffloadIndexCache() {
+        this(CACHE_MAX_SIZE_BYTES, CACHE_TTL_SECONDS);
+    }
+
+    OffloadIndexCache(long maxSizeBytes, int ttlSeconds) {
+        if (maxSizeBytes > 0) {
+            indexBlocks = CacheBuilder
+                    .newBuilder()
+                    .expireAfterAccess(ttlSeconds, TimeUnit.SECONDS)
+                    .maximumWeight(maxSizeBytes)
+                    .<Key, CompactOffloadIndexBlock>weigher((key, index) -> index.getEstimatedSize())
+                    .build();
+        } else {
+            indexBlocks = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return indexBlocks != null;
+    }
+
+    /**
+     * Get the index block of an offloaded ledger, the index block must not be closed by the caller.
+     *
+     * @return the index block, or null if it is not in the cache
+     */
+    public OffloadIndexBlock getIfPresent(long ledgerId, UUID uuid) {
+        return indexBlocks != null ? indexBlocks.getIfPresent(new Key(ledgerId, uuid)) : null;
+    }
+
+    /**
+     * Put a copy of the index block of an offloaded ledger in the cache.
+     *
+     * @return the cached copy of the index block, which replaces the given index block, or the given index block if
+     *         the cache is disabled
+     */
+    public OffloadIndexBlock put(long ledgerId, UUID uuid, OffloadIndexBlockImpl index) {
+        if (indexBlocks == null) {
+            return index;
+        }
+        CompactOffloadIndexBlock compactIndex = index.toCompact();
+        index.close();
+        indexBlocks.put(new Key(ledgerId, uuid), compactIndex);
+        return compactIndex;
+    }
+
+    public void invalidate(long ledgerId, UUID uuid) {
+        if (indexBlocks != null) {
+            indexBlocks.invalidate(new Key(ledgerId, uuid));
+        }
+    }
+
+    public void clear() {
+        if (indexBlocks != null) {
+            indexBlocks.invalidateAll();
+        }
+    }
+
+    public long size() {
+        return indexBlocks != null ? indexBlocks.size() : 0;
+    }
+}
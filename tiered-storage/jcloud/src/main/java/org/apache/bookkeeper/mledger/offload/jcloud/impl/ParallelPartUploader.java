@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.offload.jcloud.impl;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.domain.MultipartPart;
+import org.jclouds.blobstore.domain.MultipartUpload;
+import org.jclouds.io.Payload;
+import org.jclouds.io.Payloads;
+
+/**
+ * Uploads the parts of a multipart upload concurrently. The parts are read by the caller, one after another, into
+ * buffers which are then uploaded on the upload executor, so that the ledger is read from BookKeeper while the previous
+ * parts are being uploaded.
+ *
+ * <p/>At most <tt>parallelism</tt> parts are uploaded at the same time, and a single part is read while they are
+ * uploaded: the memory used by the buffers is bounded by <tt>(parallelism + 1)</tt> times the part size.
+ */
+class ParallelPartUploader {
+    private final BlobStore blobStore;
+    private final MultipartUpload mpu;
+    private final Executor uploadExecutor;
+    private final Semaphore buffers;
+    private final List<CompletableFuture<MultipartPart>> parts = new ArrayList<>();
+    private volatile Throwable uploadFailure;
+
+    ParallelPartUploader(BlobStore blobStore, MultipartUpload mpu, Executor uploadExecutor, int parallelism) {
+        this.blobStore = blobStore;
+        this.mpu = mpu;
+        this.uploadExecutor = uploadExecutor;
+        this.buffers = new Semaphore(parallelism + 1);
+    }
+
+    /**
+     * Read a part from the stream and submit its upload, waiting for a buffer to be available first.
+     */
+    void upload(int partId, InputStream partStream, int partSize) throws IOException, InterruptedException {
+        buffers.acquire();
+        byte[] data;
+        try {
+            checkUploadFailure();
+            data = new byte[partSize];
+            int read = partStream.readNBytes(data, 0, partSize);
+            if (read != partSize) {
+                throw new EOFException("Read " + read + " bytes of part " + partId + " instead of " + partSize);
+            }
+        } catch (Throwable t) {
+            buffers.release();
+            throw t;
+        }
+
+        CompletableFuture<MultipartPart> part = CompletableFuture.supplyAsync(() -> {
+            Payload partPayload = Payloads.newByteArrayPayload(data);
+            partPayload.getContentMetadata().setContentLength((long) partSize);
+            partPayload.getContentMetadata().setContentType("application/octet-stream");
+            return blobStore.uploadMultipartPart(mpu, partId, partPayload);
+        }, uploadExecutor);
+        part.whenComplete((uploadedPart, ex) -> {
+            if (ex != null && uploadFailure == null) {
+                uploadFailure = ex instanceof CompletionException ? ex.getCause() : ex;
+            }
+            buffers.release();
+        });
+        parts.add(part);
+    }
+
+    /**
+     * Wait for the upload of all the parts.
+     *
+     * @return the uploaded parts, in the order of their part ids
+     */
+    List<MultipartPart> awaitParts() throws IOException {
+        List<MultipartPart> uploadedParts = new ArrayList<>(parts.size());
+        for (CompletableFuture<MultipartPart> part : parts) {
+            try {
+                uploadedParts.add(part.join());
+            } catch (CompletionException e) {
+                throw new IOException("Failed to upload part of " + mpu.blobName(), e.getCause());
+            }
+        }
+        return uploadedParts;
+    }
+
+    /**
+     * Wait for the uploads in progress to complete, whatever their outcome, so that the multipart upload can be
+     * aborted without parts being uploaded after it.
+     */
+    void awaitQuietly() {
+        CompletableFuture.allOf(parts.toArray(new CompletableFuture[0])).exceptionally(ex -> null).join();
+    }
+
+    private void checkUploadFailure() throws IOException {
+        Throwable failure = uploadFailure;
+        if (failure != null) {
+            throw new IOException("Failed to upload part of " + mpu.blobName(), failure);
+        }
+    }
+}
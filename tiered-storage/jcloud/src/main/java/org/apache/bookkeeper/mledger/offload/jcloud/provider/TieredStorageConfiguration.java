@@ -32,6 +32,7 @@ import java.util.stream.Collectors;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.pulsar.common.policies.data.OffloadPoliciesImpl;
 import org.jclouds.Constants;
 import org.jclouds.aws.s3.AWSS3ProviderMetadata;
 import org.jclouds.blobstore.BlobStore;
@@ -71,6 +72,10 @@ public class TieredStorageConfiguration {
     public static final long DEFAULT_MIN_SEGMENT_TIME_IN_SECOND = 0;
     public static final String MAX_OFFLOAD_SEGMENT_SIZE_IN_BYTES = "maxOffloadSegmentSizeInBytes";
     public static final long DEFAULT_MAX_SEGMENT_SIZE_IN_BYTES = 1024 * 1024 * 1024;
+    public static final String READ_AHEAD_BLOCKS = "readAheadBlocks";
+    public static final int DEFAULT_READ_AHEAD_BLOCKS = 0;
+    public static final String UPLOAD_PARALLELISM = "uploadParallelism";
+    public static final int DEFAULT_UPLOAD_PARALLELISM = 1;
 
     protected static final int MB = 1024 * 1024;
 
@@ -211,6 +216,32 @@ public class TieredStorageConfiguration {
         }
     }
 
+    /**
+     * Get the number of blocks of the read buffer size to read ahead when an offloaded ledger is read sequentially,
+     * set with the managedLedgerOffloadExtraConfigreadAheadBlocks broker configuration.
+     */
+    public int getReadAheadBlocks() {
+        for (String key : List.of(READ_AHEAD_BLOCKS, OffloadPoliciesImpl.EXTRA_CONFIG_PREFIX + READ_AHEAD_BLOCKS)) {
+            if (configProperties.containsKey(key)) {
+                return Integer.parseInt(configProperties.get(key));
+            }
+        }
+        return DEFAULT_READ_AHEAD_BLOCKS;
+    }
+
+    /**
+     * Get the number of parts of the data object of a ledger which are uploaded concurrently when the ledger is
+     * offloaded, set with the managedLedgerOffloadExtraConfiguploadParallelism broker configuration.
+     */
+    public int getUploadParallelism() {
+        for (String key : List.of(UPLOAD_PARALLELISM, OffloadPoliciesImpl.EXTRA_CONFIG_PREFIX + UPLOAD_PARALLELISM)) {
+            if (configProperties.containsKey(key)) {
+                return Integer.parseInt(configProperties.get(key));
+            }
+        }
+        return DEFAULT_UPLOAD_PARALLELISM;
+    }
+
     public void setServiceEndpoint(String s) {
         configProperties.put(getKeyName(METADATA_FIELD_ENDPOINT), s);
     }
@@ -18,11 +18,21 @@
  */
 package org.apache.bookkeeper.mledger.offload.jcloud.impl;
 
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.testng.Assert.assertEquals;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Random;
 import lombok.Cleanup;
+import org.apache.bookkeeper.mledger.LedgerOffloaderStats;
 import org.apache.bookkeeper.mledger.offload.jcloud.BlobStoreTestBase;
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.domain.Blob;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
 import org.testng.annotations.Test;
 
 public class BlobStoreBackedInputStreamTest extends BlobStoreTestBase {
@@ -49,4 +59,49 @@ public class BlobStoreBackedInputStreamTest extends BlobStoreTestBase {
         bis.fillBuffer(is, 20);
         assertEquals(bis.getBuffer().readableBytes(), 10);
     }
+
+    @Test
+    public void testReadAhead() throws Exception {
+        String objectKey = "testReadAhead";
+        int objectSize = 12345;
+        int bufferSize = 1000;
+        byte[] data = new byte[objectSize];
+        new Random(0).nextBytes(data);
+        Blob blob = blobStore.blobBuilder(objectKey).payload(data).contentLength(objectSize).build();
+        blobStore.putBlob(BUCKET, blob);
+
+        BlobStore spiedBlobStore = mock(BlobStore.class, delegatesTo(blobStore));
+        LedgerOffloaderStats offloaderStats = mock(LedgerOffloaderStats.class);
+        @Cleanup
+        OffloadBlockCache blockCache = new OffloadBlockCache(1024 * 1024, 60, 4, 16, 10_000);
+        @Cleanup
+        BlobStoreBackedInputStreamImpl bis = new BlobStoreBackedInputStreamImpl(spiedBlobStore, BUCKET, objectKey,
+                (k, md) -> {}, objectSize, bufferSize, offloaderStats, "public/default/persistent/testReadAhead",
+                blockCache, 3);
+
+        byte[] read = new byte[objectSize];
+        int offset = 0;
+        while (offset < objectSize) {
+            int bytesRead = bis.read(read, offset, Math.min(100, objectSize - offset));
+            assertEquals(bis.getCurrentPosition(), offset + bytesRead);
+            offset += bytesRead;
+        }
+        assertEquals(bis.read(), -1);
+        assertEquals(read, data);
+
+        // every block was read once, either on demand or ahead of the reads
+        int blocks = (objectSize + bufferSize - 1) / bufferSize;
+        verify(spiedBlobStore, times(blocks))
+                .getBlob(Mockito.eq(BUCKET), Mockito.eq(objectKey), ArgumentMatchers.any());
+        verify(offloaderStats, times(1)).recordReadOffloadBlockCacheMiss(ArgumentMatchers.any());
+        verify(offloaderStats, times(blocks - 1)).recordReadOffloadBlockCacheHit(ArgumentMatchers.any());
+        verify(offloaderStats, times(blocks - 1)).recordReadOffloadPrefetch(ArgumentMatchers.any(),
+                ArgumentMatchers.anyLong());
+
+        // seeking back reads the blocks from the cache
+        bis.seek(5500);
+        assertEquals(bis.read(), data[5500] & 0xFF);
+        verify(spiedBlobStore, times(blocks))
+                .getBlob(Mockito.eq(BUCKET), Mockito.eq(objectKey), ArgumentMatchers.any());
+    }
 }
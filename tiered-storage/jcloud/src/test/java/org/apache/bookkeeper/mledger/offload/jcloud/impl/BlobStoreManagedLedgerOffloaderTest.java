@@ -23,6 +23,7 @@ import static org.mockito.AdditionalAnswers.delegatesTo;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
@@ -114,6 +115,16 @@ public class BlobStoreManagedLedgerOffloaderTest extends BlobStoreManagedLedgerO
         return offloader;
     }
 
+    private BlobStoreManagedLedgerOffloader getOffloader(BlobStore mockedBlobStore, int uploadParallelism)
+            throws IOException {
+        mockedConfig = mock(TieredStorageConfiguration.class, delegatesTo(getConfiguration(BUCKET,
+                Map.of(TieredStorageConfiguration.UPLOAD_PARALLELISM, String.valueOf(uploadParallelism)))));
+        Mockito.doReturn(mockedBlobStore).when(mockedConfig).getBlobStore();
+        return BlobStoreManagedLedgerOffloader.create(mockedConfig,
+                new HashMap<String, String>(), scheduler, scheduler, this.offloaderStats,
+                entryOffsetsCache);
+    }
+
     @Test(timeOut = 600000)  // 10 minutes.
     public void testHappyCase() throws Exception {
         @Cleanup
@@ -233,6 +244,47 @@ public class BlobStoreManagedLedgerOffloaderTest extends BlobStoreManagedLedgerO
         assertTrue(offloaderStats.getReadOffloadIndexLatency(topic).count > 0);
     }
 
+    @Test(timeOut = 600000)  // 10 minutes.
+    public void testReadOffloadedWithIndexCache() throws Exception {
+        @Cleanup
+        ReadHandle toWrite = buildReadHandle(DEFAULT_BLOCK_SIZE, 3);
+        BlobStore spiedBlobStore = mock(BlobStore.class, delegatesTo(blobStore));
+        mockedConfig = mock(TieredStorageConfiguration.class, delegatesTo(getConfiguration(BUCKET)));
+        Mockito.doReturn(spiedBlobStore).when(mockedConfig).getBlobStore();
+        @Cleanup
+        LedgerOffloader offloader = BlobStoreManagedLedgerOffloader.create(mockedConfig,
+                new HashMap<String, String>(), scheduler, scheduler, this.offloaderStats,
+                entryOffsetsCache, null, new OffloadIndexCache());
+
+        UUID uuid = UUID.randomUUID();
+        String managedLegerName = "public/default/persistent/testReadOffloadedWithIndexCache";
+        String topic = TopicName.fromPersistenceNamingEncoding(managedLegerName);
+        Map<String, String> map = new HashMap<>(offloader.getOffloadDriverMetadata());
+        map.put("ManagedLedgerName", managedLegerName);
+        offloader.offload(toWrite, uuid, map).get();
+
+        String indexKey = DataBlockUtils.indexBlockOffloadKey(toWrite.getId(), uuid);
+        LedgerOffloaderStatsImpl offloaderStats = (LedgerOffloaderStatsImpl) this.offloaderStats;
+        for (int i = 0; i < 3; i++) {
+            try (ReadHandle toTest = offloader.readOffloaded(toWrite.getId(), uuid, map).get();
+                 LedgerEntries toWriteEntries = toWrite.read(0, toWrite.getLastAddConfirmed());
+                 LedgerEntries toTestEntries = toTest.read(0, toTest.getLastAddConfirmed())) {
+                Iterator<LedgerEntry> toWriteIter = toWriteEntries.iterator();
+                Iterator<LedgerEntry> toTestIter = toTestEntries.iterator();
+                while (toWriteIter.hasNext() && toTestIter.hasNext()) {
+                    assertEquals(toWriteIter.next().getEntryBuffer(), toTestIter.next().getEntryBuffer());
+                }
+                Assert.assertFalse(toWriteIter.hasNext());
+                Assert.assertFalse(toTestIter.hasNext());
+            }
+        }
+
+        // the index block is read from the blob store only once
+        Mockito.verify(spiedBlobStore, Mockito.times(1)).getBlob(BUCKET, indexKey);
+        assertEquals(offloaderStats.getReadOffloadIndexCacheMiss(topic), 1);
+        assertEquals(offloaderStats.getReadOffloadIndexCacheHit(topic), 2);
+    }
+
     @Test
     public void testOffloadFailInitDataBlockUpload() throws Exception {
         @Cleanup
@@ -291,6 +343,65 @@ public class BlobStoreManagedLedgerOffloaderTest extends BlobStoreManagedLedgerO
         }
     }
 
+    @Test(timeOut = 600000)  // 10 minutes.
+    public void testOffloadAndReadWithUploadParallelism() throws Exception {
+        @Cleanup
+        ReadHandle toWrite = buildReadHandle(DEFAULT_BLOCK_SIZE, 10);
+        @Cleanup
+        LedgerOffloader offloader = getOffloader(blobStore, 4);
+
+        UUID uuid = UUID.randomUUID();
+        offloader.offload(toWrite, uuid, new HashMap<>()).get();
+
+        @Cleanup
+        ReadHandle toTest = offloader.readOffloaded(toWrite.getId(), uuid, Collections.emptyMap()).get();
+        assertEquals(toTest.getLastAddConfirmed(), toWrite.getLastAddConfirmed());
+
+        try (LedgerEntries toWriteEntries = toWrite.read(0, toWrite.getLastAddConfirmed());
+             LedgerEntries toTestEntries = toTest.read(0, toTest.getLastAddConfirmed())) {
+            Iterator<LedgerEntry> toWriteIter = toWriteEntries.iterator();
+            Iterator<LedgerEntry> toTestIter = toTestEntries.iterator();
+
+            while (toWriteIter.hasNext() && toTestIter.hasNext()) {
+                LedgerEntry toWriteEntry = toWriteIter.next();
+                LedgerEntry toTestEntry = toTestIter.next();
+
+                assertEquals(toWriteEntry.getEntryId(), toTestEntry.getEntryId());
+                assertEquals(toWriteEntry.getEntryBuffer(), toTestEntry.getEntryBuffer());
+            }
+            Assert.assertFalse(toWriteIter.hasNext());
+            Assert.assertFalse(toTestIter.hasNext());
+        }
+    }
+
+    @Test
+    public void testOffloadFailDataBlockPartUploadWithUploadParallelism() throws Exception {
+        @Cleanup
+        ReadHandle readHandle = buildReadHandle(DEFAULT_BLOCK_SIZE, 10);
+        UUID uuid = UUID.randomUUID();
+        String failureString = "fail DataBlockPartUpload";
+
+        // mock throw exception when uploading the third part
+        BlobStore spiedBlobStore = mock(BlobStore.class, delegatesTo(blobStore));
+        Mockito
+            .doThrow(new RuntimeException(failureString))
+            .when(spiedBlobStore).uploadMultipartPart(any(), eq(3), any());
+
+        @Cleanup
+        BlobStoreManagedLedgerOffloader offloader = getOffloader(spiedBlobStore, 4);
+        try {
+            offloader.offload(readHandle, uuid, new HashMap<>()).get();
+            Assert.fail("Should throw exception for when uploadPart");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause().getCause() instanceof RuntimeException);
+            Assert.assertTrue(e.getCause().getCause().getMessage().contains(failureString));
+            Assert.assertFalse(blobStore.blobExists(BUCKET,
+                    DataBlockUtils.dataBlockOffloadKey(readHandle.getId(), uuid)));
+            Assert.assertFalse(blobStore.blobExists(BUCKET,
+                    DataBlockUtils.indexBlockOffloadKey(readHandle.getId(), uuid)));
+        }
+    }
+
     @Test
     public void testOffloadFailDataBlockUploadComplete() throws Exception {
         @Cleanup
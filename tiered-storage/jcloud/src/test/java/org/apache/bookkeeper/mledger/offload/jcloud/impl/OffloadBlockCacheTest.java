@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.offload.jcloud.impl;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.Cleanup;
+import org.testng.annotations.Test;
+
+public class OffloadBlockCacheTest {
+
+    private static final String BUCKET = "bucket";
+    private static final String KEY = "key";
+
+    @Test(timeOut = 10000)
+    public void testPrefetchWaitTimeout() throws Exception {
+        @Cleanup
+        OffloadBlockCache blockCache = new OffloadBlockCache(1024 * 1024, 60, 1, 16, 100);
+        CountDownLatch fetchLatch = new CountDownLatch(1);
+        blockCache.prefetchBlock(BUCKET, KEY, 0, 10, () -> {
+            fetchLatch.await();
+            return new byte[10];
+        });
+
+        // the block is read by the caller when its fetch takes too long
+        long start = System.nanoTime();
+        assertNull(blockCache.getBlock(BUCKET, KEY, 0, 10));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+        fetchLatch.countDown();
+    }
+
+    @Test(timeOut = 10000)
+    public void testPrefetchDroppedWhenQueueIsFull() throws Exception {
+        @Cleanup
+        OffloadBlockCache blockCache = new OffloadBlockCache(1024 * 1024, 60, 1, 1, 10_000);
+        CountDownLatch fetchLatch = new CountDownLatch(1);
+        AtomicInteger fetches = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            blockCache.prefetchBlock(BUCKET, KEY, i * 10, 10, () -> {
+                fetches.incrementAndGet();
+                fetchLatch.await();
+                return new byte[10];
+            });
+        }
+
+        // the third prefetch doesn't fit in the queue, its block isn't waited for
+        assertNull(blockCache.getBlock(BUCKET, KEY, 20, 10));
+        fetchLatch.countDown();
+        assertEquals(blockCache.getBlock(BUCKET, KEY, 10, 10).length, 10);
+        assertEquals(fetches.get(), 2);
+    }
+}
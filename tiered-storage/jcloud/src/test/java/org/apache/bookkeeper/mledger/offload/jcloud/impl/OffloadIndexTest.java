@@ -20,6 +20,8 @@ package org.apache.bookkeeper.mledger.offload.jcloud.impl;
 
 import static com.google.common.base.Charsets.UTF_8;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 import com.google.common.collect.Lists;
@@ -31,6 +33,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Map;
+import java.util.UUID;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.bookkeeper.client.LedgerMetadataBuilder;
 import org.apache.bookkeeper.client.api.DigestType;
@@ -254,4 +257,64 @@ public class OffloadIndexTest {
         indexBlock.close();
     }
 
+    @Test
+    public void offloadIndexBlockCompactTest() throws Exception {
+        OffloadIndexBlockBuilder blockBuilder = OffloadIndexBlockBuilder.create();
+        LedgerMetadata metadata = createLedgerMetadata(1);
+        blockBuilder.withLedgerMetadata(metadata).withDataObjectLength(1).withDataBlockHeaderLength(23455);
+        blockBuilder.addBlock(0, 2, 64 * 1024 * 1024);
+        blockBuilder.addBlock(1000, 3, 64 * 1024 * 1024);
+        blockBuilder.addBlock(2000, 4, 64 * 1024 * 1024);
+        OffloadIndexBlockImpl indexBlock = (OffloadIndexBlockImpl) blockBuilder.build();
+
+        OffloadIndexBlock compactBlock = indexBlock.toCompact();
+        assertEquals(compactBlock.getEntryCount(), indexBlock.getEntryCount());
+        assertEquals(compactBlock.getLedgerMetadata(), metadata);
+        assertEquals(compactBlock.getDataObjectLength(), indexBlock.getDataObjectLength());
+        assertEquals(compactBlock.getDataBlockHeaderLength(), indexBlock.getDataBlockHeaderLength());
+        for (long entryId : new long[] {0, 500, 999, 1000, 1300, 2000, 5000}) {
+            assertEquals(compactBlock.getIndexEntryForEntry(entryId), indexBlock.getIndexEntryForEntry(entryId));
+        }
+        try {
+            compactBlock.getIndexEntryForEntry(6000);
+            fail("Should throw IndexOutOfBoundsException.");
+        } catch (IndexOutOfBoundsException e) {
+            assertEquals(e.getMessage(), "Entry index: 6000 beyond lastEntryId: 5000");
+        }
+
+        // the compact index block is serialized as the index block it was copied from
+        try (InputStream out = indexBlock.toStream(); InputStream compactOut = compactBlock.toStream()) {
+            assertEquals(compactOut.readAllBytes(), out.readAllBytes());
+        }
+
+        // closing the compact index block doesn't release it
+        compactBlock.close();
+        assertEquals(compactBlock.getIndexEntryForEntry(1300).getPartId(), 3);
+        indexBlock.close();
+    }
+
+    @Test
+    public void offloadIndexCacheTest() throws Exception {
+        OffloadIndexCache indexCache = new OffloadIndexCache(1024 * 1024, 60);
+        UUID uuid = UUID.randomUUID();
+        assertNull(indexCache.getIfPresent(1, uuid));
+
+        OffloadIndexBlockBuilder blockBuilder = OffloadIndexBlockBuilder.create();
+        blockBuilder.withLedgerMetadata(createLedgerMetadata(1)).withDataObjectLength(1)
+                .withDataBlockHeaderLength(23455);
+        blockBuilder.addBlock(0, 1, 1024);
+        blockBuilder.addBlock(1000, 2, 1024);
+        OffloadIndexBlock cachedBlock = indexCache.put(1, uuid, (OffloadIndexBlockImpl) blockBuilder.build());
+        assertTrue(cachedBlock instanceof CompactOffloadIndexBlock);
+        assertEquals(cachedBlock.getEntryCount(), 2);
+
+        assertSame(indexCache.getIfPresent(1, uuid), cachedBlock);
+        assertNull(indexCache.getIfPresent(1, UUID.randomUUID()));
+        assertNull(indexCache.getIfPresent(2, uuid));
+
+        indexCache.invalidate(1, uuid);
+        assertNull(indexCache.getIfPresent(1, uuid));
+        assertEquals(indexCache.size(), 0);
+    }
+
 }